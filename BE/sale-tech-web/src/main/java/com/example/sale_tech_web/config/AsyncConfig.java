@@ -1,5 +1,7 @@
 package com.example.sale_tech_web.config;
 
+import com.example.sale_tech_web.feature.order.config.OrderIntakeConfig;
+import com.example.sale_tech_web.feature.payment.config.PaymentConfig;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -21,4 +23,61 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
-}
\ No newline at end of file
+
+    @Bean(name = "productIndexExecutor")
+    public Executor productIndexExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);      // Rebuild index tuần tự, không chạy chồng
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("Product-Index-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "cacheRefreshExecutor")
+    public Executor cacheRefreshExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);      // Reload nền cho các cache refresh-ahead
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(200);
+        executor.setThreadNamePrefix("Cache-Refresh-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "refundExecutor")
+    public Executor refundExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(PaymentConfig.REFUND_CONCURRENCY);  // Ghi kết quả refund VNPay vào outbox
+        executor.setMaxPoolSize(PaymentConfig.REFUND_CONCURRENCY);
+        executor.setQueueCapacity(PaymentConfig.REFUND_BATCH_SIZE);
+        executor.setThreadNamePrefix("VNPay-Refund-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "paymentExpiryExecutor")
+    public Executor paymentExpiryExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(PaymentConfig.EXPIRY_SWEEP_WORKERS);  // Số chunk payment hết hạn xử lý song song
+        executor.setMaxPoolSize(PaymentConfig.EXPIRY_SWEEP_WORKERS);
+        executor.setQueueCapacity(PaymentConfig.EXPIRY_SWEEP_WORKERS);
+        executor.setThreadNamePrefix("Payment-Expiry-Sweep-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "orderIntakeExecutor")
+    public ThreadPoolTaskExecutor orderIntakeExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(OrderIntakeConfig.WORKERS);  // Số đơn đặt song song cố định, hàng đợi FIFO
+        executor.setMaxPoolSize(OrderIntakeConfig.WORKERS);
+        executor.setQueueCapacity(OrderIntakeConfig.QUEUE_CAPACITY);
+        executor.setThreadNamePrefix("Order-Intake-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);  // Đơn đã nhận thì xử lý xong trước khi tắt
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
@@ -1,50 +1,154 @@
 package com.example.sale_tech_web.config;
 
+import com.example.sale_tech_web.config.cache.*;
+import com.example.sale_tech_web.feature.product.cache.FilterResultWeigher;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Weigher;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import javax.sql.DataSource;
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Configuration
 public class CacheConfig {
+    private final CacheLoaderRegistry loaderRegistry = new CacheLoaderRegistry();
+    private PostgresCacheInvalidationBus postgresBus;
 
+    /**
+     * Services register the uncached computation of their refresh-ahead caches here
+     */
     @Bean
-    public CacheManager cacheManager() {
+    public CacheLoaderRegistry cacheLoaderRegistry() {
+        return loaderRegistry;
+    }
+
+    @Bean
+    public CacheManager cacheManager(CacheTierConfig tierConfig, DataSource dataSource,
+                                     @Qualifier("cacheRefreshExecutor") Executor refreshExecutor) {
+        L2CacheStore l2 = buildL2(tierConfig.getL2());
+        CacheInvalidationBus bus = buildInvalidationBus(tierConfig.getInvalidation(), dataSource);
+
         // Keep all cache policies in one place for easier tuning.
-        List<CaffeineCache> caches = List.of(
+        // Catalogue caches: refresh-ahead (đọc vẫn trả giá trị cũ trong lúc reload nền), load single-flight mỗi key
+        List<Cache> caches = List.of(
                 //Product
-                buildCache(CacheNames.CATEGORIES, Duration.ofHours(24), 20, 100),
-                buildCache(CacheNames.FILTER_OPTIONS, Duration.ofHours(6), 50, 500),
-                buildCache(CacheNames.PRODUCT_TOP_10_BY_CATEGORY, Duration.ofMinutes(30), 5, 50),
-                buildCache(CacheNames.PRODUCT_BY_ID, Duration.ofMinutes(30), 200, 2000),
-                buildCache(CacheNames.PRODUCT_BY_CATEGORY, Duration.ofMinutes(30), 50, 500),
-                buildCache(CacheNames.PRODUCT_SEARCH, Duration.ofMinutes(5), 200, 1000),
+                buildRefreshingCache(CacheNames.CATEGORIES, Duration.ofHours(24), Duration.ofHours(1), 20, 100, refreshExecutor, l2, bus),
+                buildRefreshingCache(CacheNames.FILTER_OPTIONS, Duration.ofHours(6), Duration.ofMinutes(30), 50, 500, refreshExecutor, l2, bus),
+                buildRefreshingCache(CacheNames.PRODUCT_TOP_10_BY_CATEGORY, Duration.ofMinutes(30), Duration.ofMinutes(5), 5, 50, refreshExecutor, l2, bus),
+                buildCache(CacheNames.PRODUCT_BY_ID, Duration.ofMinutes(30), 200, 2000, l2, bus),
+                buildCache(CacheNames.PRODUCT_BY_CATEGORY, Duration.ofMinutes(30), 50, 500, l2, bus),
+                // Kết quả /product/filter: giới hạn theo dung lượng ước tính thay vì số entry
+                buildWeighedCache(CacheNames.PRODUCT_SEARCH, Duration.ofMinutes(5), 200, 32L * 1024 * 1024, new FilterResultWeigher(), l2, bus),
 
 
 
                 //Revenue
-                buildCache(CacheNames.REVENUE_ANALYTICS, Duration.ofMinutes(10), 50, 500)
+                buildCache(CacheNames.REVENUE_ANALYTICS, Duration.ofMinutes(10), 50, 500, l2, bus)
         );
 
+        if (bus != null) {
+            Map<String, Cache> byName = caches.stream().collect(Collectors.toMap(Cache::getName, Function.identity()));
+            bus.subscribe((cacheName, key) -> {
+                if (byName.get(cacheName) instanceof TwoTierCache cache) {
+                    cache.evictLocal(key);
+                }
+            });
+        }
+
         SimpleCacheManager manager = new SimpleCacheManager();
         manager.setCaches(caches);
         return manager;
     }
 
-    private CaffeineCache buildCache(String cacheName, Duration ttl, int initialCapacity, long maximumSize) {
-        return new CaffeineCache(
+    @PreDestroy
+    public void closeInvalidationBus() {
+        if (postgresBus != null) {
+            postgresBus.close();
+        }
+    }
+
+    private Cache buildCache(String cacheName, Duration ttl, int initialCapacity, long maximumSize,
+                             L2CacheStore l2, CacheInvalidationBus bus) {
+        CaffeineCache l1 = new CaffeineCache(
                 cacheName,
                 Caffeine.newBuilder()
                         .initialCapacity(initialCapacity)
                         .maximumSize(maximumSize)
                         .expireAfterWrite(ttl)
+                        .recordStats()
                         .build()
         );
+        return withTiers(l1, ttl, l2, bus);
+    }
+
+    private Cache buildWeighedCache(String cacheName, Duration ttl, int initialCapacity, long maximumBytes,
+                                    Weigher<Object, Object> weigher, L2CacheStore l2, CacheInvalidationBus bus) {
+        CaffeineCache l1 = new CaffeineCache(
+                cacheName,
+                Caffeine.newBuilder()
+                        .initialCapacity(initialCapacity)
+                        .maximumWeight(maximumBytes)
+                        .weigher(weigher)
+                        .expireAfterWrite(ttl)
+                        .recordStats()
+                        .build()
+        );
+        return withTiers(l1, ttl, l2, bus);
     }
-}
 
+    /**
+     * Async loading cache: entries older than {@code refreshAfter} are reloaded in the background on access
+     * (or by {@link CacheRefresher} for hot keys) and only expire after {@code ttl} if nobody reads them.
+     */
+    private Cache buildRefreshingCache(String cacheName, Duration ttl, Duration refreshAfter,
+                                       int initialCapacity, long maximumSize, Executor refreshExecutor,
+                                       L2CacheStore l2, CacheInvalidationBus bus) {
+        CaffeineCache l1 = new CaffeineCache(
+                cacheName,
+                Caffeine.newBuilder()
+                        .initialCapacity(initialCapacity)
+                        .maximumSize(maximumSize)
+                        .expireAfterWrite(ttl)
+                        .refreshAfterWrite(refreshAfter)
+                        .executor(refreshExecutor)
+                        .recordStats()
+                        .buildAsync(loaderRegistry.loaderFor(cacheName)),
+                true
+        );
+        return withTiers(l1, ttl, l2, bus);
+    }
+
+    private Cache withTiers(CaffeineCache l1, Duration ttl, L2CacheStore l2, CacheInvalidationBus bus) {
+        // Không có L2 và không có invalidation -> Caffeine thuần như trước
+        return l2 == null && bus == null ? l1 : new TwoTierCache(l1, l2, bus, ttl);
+    }
+
+    private L2CacheStore buildL2(String type) {
+        return switch (type) {
+            case CacheTierConfig.LOCAL -> new LocalL2CacheStore();
+            case CacheTierConfig.NONE -> null;
+            default -> throw new IllegalStateException("Unknown cache-tier.l2: " + type);
+        };
+    }
+
+    private CacheInvalidationBus buildInvalidationBus(String type, DataSource dataSource) {
+        return switch (type) {
+            case CacheTierConfig.POSTGRES -> postgresBus = new PostgresCacheInvalidationBus(dataSource);
+            case CacheTierConfig.LOCAL -> new LocalCacheInvalidationBus().node();
+            case CacheTierConfig.NONE -> null;
+            default -> throw new IllegalStateException("Unknown cache-tier.invalidation: " + type);
+        };
+    }
+}
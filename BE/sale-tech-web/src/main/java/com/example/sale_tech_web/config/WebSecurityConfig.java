@@ -1,5 +1,6 @@
 package com.example.sale_tech_web.config;
 
+import jakarta.servlet.DispatcherType;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -35,6 +36,8 @@ public class WebSecurityConfig {
                 })
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                        // Long-poll (CompletableFuture) trả kết quả qua ASYNC dispatch, request gốc đã được xác thực
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/auth/register", "/auth/login", "/auth/verify-email", "/auth/resend-verification", "/auth/forgot-password", "/auth/verify-reset-otp", "/auth/reset-password", "/auth/refresh-token", "/auth/logout", "/product", "/product/**").permitAll()
                         .requestMatchers("/payment/vnpay/callback", "/payment/vnpay/ipn").permitAll()
                         .anyRequest().authenticated()
@@ -49,8 +52,8 @@ public class WebSecurityConfig {
         CorsConfiguration config = new CorsConfiguration();
         config.setAllowedOrigins(List.of("http://localhost:3000"));
         config.setAllowedMethods(List.of("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
-        config.setAllowedHeaders(List.of("Authorization", "Content-Type", "Accept", "Origin", "X-Requested-With", "Cookie"));
-        config.setExposedHeaders(List.of("Authorization", "Location"));
+        config.setAllowedHeaders(List.of("Authorization", "Content-Type", "Accept", "Origin", "X-Requested-With", "Cookie", "Idempotency-Key"));
+        config.setExposedHeaders(List.of("Authorization", "Location", "Idempotent-Replayed"));
         config.setAllowCredentials(true);
         config.setMaxAge(3600L);
 
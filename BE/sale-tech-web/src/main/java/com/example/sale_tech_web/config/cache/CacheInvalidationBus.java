@@ -0,0 +1,25 @@
+package com.example.sale_tech_web.config.cache;
+
+/**
+ * Pub/sub channel telling the other nodes to drop an entry from their L1 (the shared L2 is evicted by the sender).
+ */
+public interface CacheInvalidationBus {
+
+    @FunctionalInterface
+    interface Listener {
+        /**
+         * @param key null means the whole cache
+         */
+        void onInvalidate(String cacheName, Object key);
+    }
+
+    /**
+     * @param key null means the whole cache
+     */
+    void publish(String cacheName, Object key);
+
+    /**
+     * Listener receives invalidations published by other nodes only.
+     */
+    void subscribe(Listener listener);
+}
@@ -0,0 +1,44 @@
+package com.example.sale_tech_web.config.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Loaders for the refresh-ahead caches. The cache is built before the services exist, so each service
+ * registers the uncached computation for its cache at startup; until then a refresh keeps the old value.
+ */
+public class CacheLoaderRegistry {
+    private final Map<String, Function<Object, Object>> loaders = new ConcurrentHashMap<>();
+
+    public void register(String cacheName, Function<Object, Object> loader) {
+        loaders.put(cacheName, loader);
+    }
+
+    public AsyncCacheLoader<Object, Object> loaderFor(String cacheName) {
+        return new AsyncCacheLoader<>() {
+            // Miss khi chưa có loader -> null, @Cacheable tự tính và put như bình thường
+            @Override
+            public CompletableFuture<Object> asyncLoad(Object key, Executor executor) {
+                Function<Object, Object> loader = loaders.get(cacheName);
+                if (loader == null) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                return CompletableFuture.supplyAsync(() -> loader.apply(key), executor);
+            }
+
+            @Override
+            public CompletableFuture<Object> asyncReload(Object key, Object oldValue, Executor executor) {
+                Function<Object, Object> loader = loaders.get(cacheName);
+                if (loader == null) {
+                    return CompletableFuture.completedFuture(oldValue);
+                }
+                return CompletableFuture.supplyAsync(() -> loader.apply(key), executor);
+            }
+        };
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.sale_tech_web.config.cache;
+
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Refresh-ahead for the caches built with refreshAfterWrite: the hottest keys past their refresh age are
+ * reloaded in the background before they expire, so readers keep getting the old value and never all
+ * miss at once. Keys that are read in between are refreshed by Caffeine on access anyway.
+ * Also exposes per-cache statistics for /admin/cache/stats.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CacheRefresher {
+    private static final int HOT_KEYS_PER_CACHE = 20;
+
+    private final CacheManager cacheManager;
+
+    @Scheduled(initialDelayString = "PT1M", fixedDelayString = "PT1M")
+    public void refreshHotKeys() {
+        for (String cacheName : cacheManager.getCacheNames()) {
+            com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = nativeCache(cacheName);
+            if (!(nativeCache instanceof LoadingCache<Object, Object> loadingCache)) {
+                continue;
+            }
+            Policy<Object, Object> policy = loadingCache.policy();
+            Optional<Duration> refreshAfter = policy.refreshAfterWrite().map(Policy.FixedRefresh::getRefreshesAfter);
+            Optional<Policy.FixedExpiration<Object, Object>> expiration = policy.expireAfterWrite();
+            if (refreshAfter.isEmpty() || expiration.isEmpty()) {
+                continue;
+            }
+
+            List<Object> hotKeys = policy.eviction()
+                    .map(eviction -> List.copyOf(eviction.hottest(HOT_KEYS_PER_CACHE).keySet()))
+                    .orElse(List.of());
+            int refreshed = 0;
+            for (Object key : hotKeys) {
+                boolean due = expiration.get().ageOf(key)
+                        .map(age -> age.compareTo(refreshAfter.get()) >= 0)
+                        .orElse(false);
+                if (due) {
+                    // Caffeine gộp với refresh đang chạy của cùng key, kết quả bị bỏ nếu key đã bị evict
+                    loadingCache.refresh(key);
+                    refreshed++;
+                }
+            }
+            if (refreshed > 0) {
+                log.debug("Refresh-ahead {}: {} hot keys", cacheName, refreshed);
+            }
+        }
+    }
+
+    public List<CacheStatsDTO> getStats() {
+        return cacheManager.getCacheNames().stream()
+                .sorted()
+                .map(this::toStats)
+                .flatMap(Optional::stream)
+                .toList();
+    }
+
+    private Optional<CacheStatsDTO> toStats(String cacheName) {
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = nativeCache(cacheName);
+        if (nativeCache == null) {
+            return Optional.empty();
+        }
+        CacheStats stats = nativeCache.stats();
+        Long refreshAfterSeconds = nativeCache.policy().refreshAfterWrite()
+                .map(refresh -> refresh.getRefreshesAfter().toSeconds())
+                .orElse(null);
+        Long estimatedBytes = nativeCache.policy().eviction()
+                .filter(Policy.Eviction::isWeighted)
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(null);
+        return Optional.of(CacheStatsDTO.builder()
+                .cacheName(cacheName)
+                .size(nativeCache.estimatedSize())
+                .estimatedBytes(estimatedBytes)
+                .hitCount(stats.hitCount())
+                .missCount(stats.missCount())
+                .hitRate(stats.hitRate())
+                .loadSuccessCount(stats.loadSuccessCount())
+                .loadFailureCount(stats.loadFailureCount())
+                .averageLoadMillis(stats.averageLoadPenalty() / 1_000_000.0)
+                .evictionCount(stats.evictionCount())
+                .refreshAfterSeconds(refreshAfterSeconds)
+                .build());
+    }
+
+    @SuppressWarnings("unchecked")
+    private com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache(String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache) {
+            return (com.github.benmanes.caffeine.cache.Cache<Object, Object>) nativeCache;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.sale_tech_web.config.cache;
+
+/**
+ * Named group of entries of one cache (e.g. category:12), evicted on every node at once.
+ * Only name and argument travel over the {@link CacheInvalidationBus}; each node rebuilds the predicate
+ * from the matcher registered on its {@link TwoTierCache} under that name.
+ */
+public record CacheScope(String name, String argument) {
+
+    public static CacheScope of(String name, Object argument) {
+        return new CacheScope(name, String.valueOf(argument));
+    }
+
+    @Override
+    public String toString() {
+        return name + ":" + argument;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.sale_tech_web.config.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CacheStatsDTO {
+    private String cacheName;
+    private Long size;
+    private Long estimatedBytes; // chỉ có với cache giới hạn theo dung lượng (weigher)
+    private Long hitCount;
+    private Long missCount;
+    private Double hitRate;
+    private Long loadSuccessCount;
+    private Long loadFailureCount;
+    private Double averageLoadMillis;
+    private Long evictionCount;
+    private Long refreshAfterSeconds; // null = không refresh-ahead
+}
@@ -0,0 +1,24 @@
+package com.example.sale_tech_web.config.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "cache-tier")
+@Data
+public class CacheTierConfig {
+    public static final String NONE = "none";
+    public static final String LOCAL = "local";
+    public static final String POSTGRES = "postgres";
+
+    /**
+     * Shared L2 behind the Caffeine caches: none | local (in-process stand-in)
+     */
+    private String l2 = NONE;
+
+    /**
+     * Cross-node L1 invalidation channel: none | local (in-process stand-in) | postgres (LISTEN/NOTIFY)
+     */
+    private String invalidation = NONE;
+}
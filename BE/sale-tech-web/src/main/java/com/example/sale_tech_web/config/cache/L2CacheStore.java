@@ -0,0 +1,27 @@
+package com.example.sale_tech_web.config.cache;
+
+import java.time.Duration;
+import java.util.function.BiPredicate;
+
+/**
+ * Shared second-level cache behind the local Caffeine caches (see {@link TwoTierCache}).
+ * Implementations must be thread-safe; values are the cached DTOs as returned by the services.
+ */
+public interface L2CacheStore {
+
+    /**
+     * @return the cached value, or null when absent or expired
+     */
+    Object get(String cacheName, Object key);
+
+    void put(String cacheName, Object key, Object value, Duration ttl);
+
+    void evict(String cacheName, Object key);
+
+    void clear(String cacheName);
+
+    /**
+     * Evicts entries whose (key, value) matches. Stores that cannot scan entries may clear the whole cache.
+     */
+    void evictIf(String cacheName, BiPredicate<Object, Object> matches);
+}
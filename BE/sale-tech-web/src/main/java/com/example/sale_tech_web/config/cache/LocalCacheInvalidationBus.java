@@ -0,0 +1,35 @@
+package com.example.sale_tech_web.config.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-process stand-in for the invalidation channel (single node, local runs and tests).
+ * Each {@link #node()} view acts as one node: it does not receive its own messages.
+ */
+public class LocalCacheInvalidationBus {
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private record Subscription(Node node, CacheInvalidationBus.Listener listener) {
+    }
+
+    public CacheInvalidationBus node() {
+        return new Node();
+    }
+
+    private final class Node implements CacheInvalidationBus {
+        @Override
+        public void publish(String cacheName, Object key) {
+            for (Subscription subscription : subscriptions) {
+                if (subscription.node() != this) {
+                    subscription.listener().onInvalidate(cacheName, key);
+                }
+            }
+        }
+
+        @Override
+        public void subscribe(Listener listener) {
+            subscriptions.add(new Subscription(this, listener));
+        }
+    }
+}
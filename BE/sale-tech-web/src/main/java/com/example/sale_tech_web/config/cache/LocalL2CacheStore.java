@@ -0,0 +1,71 @@
+package com.example.sale_tech_web.config.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+
+/**
+ * In-process stand-in for a shared L2 (single node, local runs and tests).
+ * Several {@link TwoTierCache} sets created over the same instance behave like nodes sharing one L2.
+ */
+public class LocalL2CacheStore implements L2CacheStore {
+    private static final long MAX_ENTRIES_PER_CACHE = 10_000;
+
+    private final Map<String, Cache<Object, Entry>> caches = new ConcurrentHashMap<>();
+
+    private record Entry(Object value, Duration ttl) {
+    }
+
+    @Override
+    public Object get(String cacheName, Object key) {
+        Entry entry = cache(cacheName).getIfPresent(key);
+        return entry == null ? null : entry.value();
+    }
+
+    @Override
+    public void put(String cacheName, Object key, Object value, Duration ttl) {
+        cache(cacheName).put(key, new Entry(value, ttl));
+    }
+
+    @Override
+    public void evict(String cacheName, Object key) {
+        cache(cacheName).invalidate(key);
+    }
+
+    @Override
+    public void clear(String cacheName) {
+        cache(cacheName).invalidateAll();
+    }
+
+    @Override
+    public void evictIf(String cacheName, BiPredicate<Object, Object> matches) {
+        cache(cacheName).asMap().entrySet().removeIf(entry -> matches.test(entry.getKey(), entry.getValue().value()));
+    }
+
+    private Cache<Object, Entry> cache(String cacheName) {
+        return caches.computeIfAbsent(cacheName, _ -> Caffeine.newBuilder()
+                .maximumSize(MAX_ENTRIES_PER_CACHE)
+                .expireAfter(new Expiry<Object, Entry>() {
+                    @Override
+                    public long expireAfterCreate(Object key, Entry entry, long currentTime) {
+                        return entry.ttl().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Object key, Entry entry, long currentTime, long currentDuration) {
+                        return entry.ttl().toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(Object key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build());
+    }
+}
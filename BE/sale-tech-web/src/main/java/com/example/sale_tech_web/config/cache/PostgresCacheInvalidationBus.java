@@ -0,0 +1,154 @@
+package com.example.sale_tech_web.config.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.cache.interceptor.SimpleKey;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Invalidation channel over Postgres LISTEN/NOTIFY, so every replica sharing the database receives it
+ * without extra infrastructure. Payload: nodeId|cacheName|key, key encoded as L:123 (Long), S:text (String),
+ * E (SimpleKey.EMPTY), P:name:argument ({@link CacheScope}) or * (whole cache / key type not representable).
+ * Structured keys (e.g. FilterCacheKey) are evicted remotely through a {@link CacheScope}, not one by one.
+ * One pooled connection is held for LISTEN by a daemon thread, which reconnects after errors.
+ */
+@Slf4j
+public class PostgresCacheInvalidationBus implements CacheInvalidationBus, AutoCloseable {
+    static final String CHANNEL = "cache_invalidation";
+
+    private static final int POLL_TIMEOUT_MS = 5_000;
+    private static final long RECONNECT_DELAY_MS = 5_000;
+
+    private final DataSource dataSource;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    public PostgresCacheInvalidationBus(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void publish(String cacheName, Object key) {
+        // Connection riêng (autocommit): NOTIFY trong transaction của caller chỉ được gửi khi commit
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            statement.setString(1, CHANNEL);
+            statement.setString(2, nodeId + "|" + cacheName + "|" + encodeKey(key));
+            statement.execute();
+        } catch (SQLException e) {
+            log.warn("Failed to publish cache invalidation {}:{}", cacheName, key, e);
+        }
+    }
+
+    @Override
+    public synchronized void subscribe(Listener listener) {
+        listeners.add(listener);
+        if (listenerThread == null) {
+            running = true;
+            listenerThread = new Thread(this::listen, "Cache-Invalidation-Listener");
+            listenerThread.setDaemon(true);
+            listenerThread.start();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                log.info("Listening for cache invalidations on channel {}", CHANNEL);
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        dispatch(notification.getParameter());
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                // Trong lúc mất kết nối có thể bỏ lỡ message -> L1 tự hết hạn theo TTL
+                log.warn("Cache invalidation listener disconnected, retrying in {} ms", RECONNECT_DELAY_MS, e);
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch(String payload) {
+        String[] parts = payload.split("\\|", 3);
+        if (parts.length != 3 || parts[0].equals(nodeId)) {
+            return;
+        }
+        Object key = decodeKey(parts[2]);
+        for (Listener listener : listeners) {
+            try {
+                listener.onInvalidate(parts[1], key);
+            } catch (Exception e) {
+                log.warn("Cache invalidation listener failed for {}", payload, e);
+            }
+        }
+    }
+
+    static String encodeKey(Object key) {
+        if (key instanceof Long id) {
+            return "L:" + id;
+        }
+        if (key instanceof String text) {
+            return "S:" + text;
+        }
+        if (SimpleKey.EMPTY.equals(key)) {
+            return "E";
+        }
+        if (key instanceof CacheScope scope) {
+            return "P:" + scope.name() + ":" + scope.argument();
+        }
+        if (key != null) {
+            log.debug("Cache key type {} cannot be sent, other nodes clear the whole cache", key.getClass().getName());
+        }
+        return "*";
+    }
+
+    static Object decodeKey(String encoded) {
+        if (encoded.startsWith("L:")) {
+            return Long.valueOf(encoded.substring(2));
+        }
+        if (encoded.startsWith("S:")) {
+            return encoded.substring(2);
+        }
+        if (encoded.startsWith("P:")) {
+            String[] scope = encoded.substring(2).split(":", 2);
+            return scope.length == 2 ? new CacheScope(scope[0], scope[1]) : null;
+        }
+        return "E".equals(encoded) ? SimpleKey.EMPTY : null;
+    }
+}
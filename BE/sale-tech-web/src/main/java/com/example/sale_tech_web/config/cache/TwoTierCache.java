@@ -0,0 +1,186 @@
+package com.example.sale_tech_web.config.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Caffeine L1 (hot path) in front of an optional shared {@link L2CacheStore}.
+ * Reads go L1 -> L2 -> loader; writes and evictions go to both tiers. Evictions (and {@link #replace}) are
+ * published on the {@link CacheInvalidationBus} so other nodes drop their L1 copy; a plain {@link #put} is not,
+ * it only caches what any node would load.
+ */
+public class TwoTierCache implements Cache {
+    private final CaffeineCache l1;
+    private final L2CacheStore l2;
+    private final CacheInvalidationBus bus;
+    private final Duration ttl;
+    private final Map<String, Function<String, BiPredicate<Object, Object>>> scopes = new ConcurrentHashMap<>();
+
+    /**
+     * @param l2  null to run L1 only (invalidations are still propagated)
+     * @param bus null on a single node
+     */
+    public TwoTierCache(CaffeineCache l1, L2CacheStore l2, CacheInvalidationBus bus, Duration ttl) {
+        this.l1 = l1;
+        this.l2 = l2;
+        this.bus = bus;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public String getName() {
+        return l1.getName();
+    }
+
+    /**
+     * The L1 Caffeine cache
+     */
+    @Override
+    public com.github.benmanes.caffeine.cache.Cache<Object, Object> getNativeCache() {
+        return l1.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper local = l1.get(key);
+        if (local != null || l2 == null) {
+            return local;
+        }
+        Object shared = l2.get(getName(), key);
+        if (shared == null) {
+            return null;
+        }
+        l1.put(key, shared);
+        return new SimpleValueWrapper(shared);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper == null ? null : wrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    // Caffeine chỉ cho 1 thread load mỗi key trên node này, các thread khác chờ kết quả
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return l1.get(key, () -> {
+            if (l2 != null) {
+                @SuppressWarnings("unchecked")
+                T shared = (T) l2.get(getName(), key);
+                if (shared != null) {
+                    return shared;
+                }
+            }
+            T loaded = valueLoader.call();
+            if (l2 != null && loaded != null) {
+                l2.put(getName(), key, loaded, ttl);
+            }
+            return loaded;
+        });
+    }
+
+    // Populate (@Cacheable miss): giá trị không mới hơn thứ node khác load từ L2 -> không báo node khác
+    @Override
+    public void put(Object key, Object value) {
+        l1.put(key, value);
+        if (l2 != null && value != null) {
+            l2.put(getName(), key, value, ttl);
+        }
+    }
+
+    /**
+     * Writes a value that supersedes the cached one: both tiers, then other nodes drop their L1 copy.
+     */
+    public void replace(Object key, Object value) {
+        put(key, value);
+        publish(key);
+    }
+
+    @Override
+    public void evict(Object key) {
+        l1.evict(key);
+        if (l2 != null) {
+            l2.evict(getName(), key);
+        }
+        publish(key);
+    }
+
+    @Override
+    public void clear() {
+        l1.clear();
+        if (l2 != null) {
+            l2.clear(getName());
+        }
+        publish(null);
+    }
+
+    /**
+     * Registers how the entries of {@code name} scopes are matched, given the scope argument.
+     * Every node registers the same matchers, so a scope published by one node is evicted the same way on the others.
+     */
+    public void registerScope(String name, Function<String, BiPredicate<Object, Object>> matcher) {
+        scopes.put(name, matcher);
+    }
+
+    /**
+     * Evicts the entries of the scope from both tiers; other nodes evict the same scope from their L1.
+     */
+    public void evictScope(CacheScope scope) {
+        BiPredicate<Object, Object> matches = matcher(scope);
+        if (matches == null) {
+            clear();
+            return;
+        }
+        removeMatching(matches);
+        if (l2 != null) {
+            l2.evictIf(getName(), matches);
+        }
+        publish(scope);
+    }
+
+    /**
+     * Invalidation received from another node: only the local L1 is affected.
+     */
+    public void evictLocal(Object key) {
+        if (key == null) {
+            l1.clear();
+        } else if (key instanceof CacheScope scope) {
+            BiPredicate<Object, Object> matches = matcher(scope);
+            if (matches == null) {
+                l1.clear(); // Scope chưa đăng ký trên node này
+            } else {
+                removeMatching(matches);
+            }
+        } else {
+            l1.evict(key);
+        }
+    }
+
+    private void removeMatching(BiPredicate<Object, Object> matches) {
+        l1.getNativeCache().asMap().entrySet().removeIf(entry -> matches.test(entry.getKey(), entry.getValue()));
+    }
+
+    private BiPredicate<Object, Object> matcher(CacheScope scope) {
+        Function<String, BiPredicate<Object, Object>> matcher = scopes.get(scope.name());
+        return matcher == null ? null : matcher.apply(scope.argument());
+    }
+
+    private void publish(Object key) {
+        if (bus != null) {
+            bus.publish(getName(), key);
+        }
+    }
+}
@@ -5,6 +5,8 @@ import com.example.sale_tech_web.feature.users.dto.admin.AdminRegisterRequest;
 import com.example.sale_tech_web.feature.users.dto.admin.UserDTO;
 import com.example.sale_tech_web.feature.users.enums.Role;
 import com.example.sale_tech_web.feature.users.manager.admin.AdminServiceInterface;
+import com.example.sale_tech_web.utils.CursorSlice;
+import com.example.sale_tech_web.utils.CursorUtils;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -37,6 +39,23 @@ public class AdminController {
         return ResponseEntity.ok(users);
     }
 
+    /**
+     * GET /admin/users?cursor= - keyset theo id desc (cursor rỗng = trang đầu), withTotal=true chỉ đếm ở trang đầu
+     */
+    @GetMapping(value = "/users", params = "cursor")
+    public ResponseEntity<CursorSlice<UserDTO>> getAllUsersByCursor(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) Role role,
+            @RequestParam String cursor,
+            @RequestParam(required = false, defaultValue = "false") Boolean withTotal,
+            @PageableDefault(sort = "id", direction = Sort.Direction.DESC) Pageable pageable
+    ) {
+        log.info("Admin - Get users by cursor: keyword={}, role={}", keyword, role);
+        CursorUtils.requireIdDesc(pageable.getSort());
+        return ResponseEntity.ok(adminServiceInterface.getAllUsersByCursor(
+                keyword, role, cursor, pageable.getPageSize(), withTotal));
+    }
+
     @GetMapping("/roles")
     public ResponseEntity<List<Role>> getAllRoles() {
         log.info("Admin - Get all roles");
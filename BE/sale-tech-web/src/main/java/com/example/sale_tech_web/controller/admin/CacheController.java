@@ -0,0 +1,28 @@
+package com.example.sale_tech_web.controller.admin;
+
+import com.example.sale_tech_web.config.cache.CacheRefresher;
+import com.example.sale_tech_web.config.cache.CacheStatsDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/admin/cache")
+@PreAuthorize("hasRole('ADMIN')")
+public class CacheController {
+    private final CacheRefresher cacheRefresher;
+
+    /**
+     * GET /admin/cache/stats - Hit/miss/load time của từng cache trên node này
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<List<CacheStatsDTO>> getStats() {
+        return ResponseEntity.ok(cacheRefresher.getStats());
+    }
+}
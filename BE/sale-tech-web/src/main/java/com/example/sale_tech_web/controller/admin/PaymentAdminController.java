@@ -0,0 +1,40 @@
+package com.example.sale_tech_web.controller.admin;
+
+import com.example.sale_tech_web.feature.payment.dto.PaymentExpiryStatsDTO;
+import com.example.sale_tech_web.feature.payment.dto.VNPayQueryResponse;
+import com.example.sale_tech_web.feature.payment.scheduler.PaymentTimeoutScheduler;
+import com.example.sale_tech_web.feature.payment.service.PaymentProcessingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/admin/payments")
+@PreAuthorize("hasRole('ADMIN')")
+public class PaymentAdminController {
+    private final PaymentTimeoutScheduler paymentTimeoutScheduler;
+    private final PaymentProcessingService paymentProcessingService;
+
+    /**
+     * GET /admin/payments/expiry-stats - Throughput và lag của sweep payment hết hạn (bộ đếm theo node)
+     */
+    @GetMapping("/expiry-stats")
+    public ResponseEntity<PaymentExpiryStatsDTO> getExpiryStats() {
+        return ResponseEntity.ok(paymentTimeoutScheduler.getStats());
+    }
+
+    /**
+     * GET /admin/payments/{orderId}/vnpay-status - Trạng thái giao dịch tại VNPay (querydr), không chiếm thread khi chờ VNPay
+     */
+    @GetMapping("/{orderId}/vnpay-status")
+    public CompletableFuture<ResponseEntity<VNPayQueryResponse>> getVNPayStatus(@PathVariable Long orderId) {
+        return paymentProcessingService.queryVNPayStatus(orderId).thenApply(ResponseEntity::ok);
+    }
+}
@@ -25,6 +25,18 @@ import java.util.List;
 public class RevenueController {
     private final RevenueServiceInterface revenueServiceInterface;
 
+    /**
+     * GET /admin/revenue/dashboard - Toàn bộ số liệu dashboard trong 1 request (1 query)
+     */
+    @GetMapping("/dashboard")
+    public ResponseEntity<RevenueDashboardDTO> getDashboard(
+            @RequestParam(required = false) DateOption dateOption,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) TopProductSortBy sortBy) {
+        log.info("Revenue - Get dashboard: dateOption={}, categoryId={}, sortBy={}", dateOption, categoryId, sortBy);
+        return ResponseEntity.ok(revenueServiceInterface.getDashboard(dateOption, categoryId, sortBy));
+    }
+
     @GetMapping("/total")
     public ResponseEntity<RevenueTotalDTO> getTotalRevenue(
             @RequestParam(required = false) DateOption dateOption,
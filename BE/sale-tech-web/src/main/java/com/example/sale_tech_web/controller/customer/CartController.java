@@ -1,7 +1,10 @@
 package com.example.sale_tech_web.controller.customer;
 
+import com.example.sale_tech_web.exception.BadRequestException;
+import com.example.sale_tech_web.feature.cart.dto.CartBatchRequest;
 import com.example.sale_tech_web.feature.cart.dto.CartDTO;
 import com.example.sale_tech_web.feature.cart.manager.CartServiceInterface;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -38,13 +41,23 @@ public class CartController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * PATCH /cart - {operations: [{type, productId, quantity, selected}, ...]} áp dụng cả batch trong 1 lần,
+     * body cũ {productId, quantity} vẫn là đổi số lượng 1 sản phẩm
+     */
     @PatchMapping()
-    public ResponseEntity<CartDTO> adjustQuantity(@RequestBody Map<String, Object> payload) {
-        Long productId = Long.valueOf((Integer) payload.get("productId"));
-        int quantity = (int) payload.get("quantity");
-        log.info("Change product quantity for product (id {}) by {}", productId, quantity);
-
-        CartDTO result = cartServiceInterface.changeProductQuantity(productId, quantity);
+    public ResponseEntity<CartDTO> adjustQuantity(@Valid @RequestBody CartBatchRequest request) {
+        if (request.getOperations() != null) {
+            log.info("Apply {} cart operations", request.getOperations().size());
+            return ResponseEntity.ok(cartServiceInterface.applyOperations(request.getOperations()));
+        }
+
+        if (request.getProductId() == null || request.getQuantity() == null) {
+            throw new BadRequestException("productId and quantity are required");
+        }
+        log.info("Change product quantity for product (id {}) by {}", request.getProductId(), request.getQuantity());
+
+        CartDTO result = cartServiceInterface.changeProductQuantity(request.getProductId(), request.getQuantity());
         return ResponseEntity.ok(result);
     }
 
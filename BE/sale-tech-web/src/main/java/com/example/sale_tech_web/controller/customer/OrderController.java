@@ -2,8 +2,12 @@ package com.example.sale_tech_web.controller.customer;
 
 import com.example.sale_tech_web.feature.order.dto.customer.OrderDTO;
 import com.example.sale_tech_web.feature.order.dto.customer.OrderDetailDTO;
+import com.example.sale_tech_web.feature.order.dto.customer.OrderTicketDTO;
 import com.example.sale_tech_web.feature.order.dto.customer.PlaceOrderRequest;
+import com.example.sale_tech_web.feature.order.manager.customer.OrderIntakeServiceInterface;
 import com.example.sale_tech_web.feature.order.manager.customer.OrderServiceInterface;
+import com.example.sale_tech_web.utils.CursorSlice;
+import com.example.sale_tech_web.utils.CursorUtils;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -20,6 +24,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequiredArgsConstructor
@@ -27,6 +32,7 @@ import java.util.List;
 @Slf4j
 public class OrderController {
     private final OrderServiceInterface orderServiceInterface;
+    private final OrderIntakeServiceInterface orderIntakeServiceInterface;
 
     /**
      * GET /orders - Get paged orders for current user with optional filters.
@@ -56,6 +62,30 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    /**
+     * GET /orders?cursor= - Same filters with keyset pagination by id desc (empty cursor for the first page, then nextCursor).
+     * withTotal=true counts the total on the first page only.
+     */
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CursorSlice<OrderDTO>> getMyOrdersByCursor(
+            @RequestParam(required = false) String orderStatus,
+            @RequestParam(required = false) String paymentStatus,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate,
+            @RequestParam String cursor,
+            @RequestParam(required = false, defaultValue = "false") Boolean withTotal,
+            @PageableDefault(sort = "id", direction = Sort.Direction.DESC) Pageable pageable
+    ) {
+        log.info("Get orders for current user by cursor - orderStatus: {}, paymentStatus: {}", orderStatus, paymentStatus);
+        CursorUtils.requireIdDesc(pageable.getSort());
+
+        LocalDateTime startDateTime = (startDate != null) ? startDate.atStartOfDay() : null;
+        LocalDateTime endDateTime = (endDate != null) ? endDate.atTime(LocalTime.MAX) : null;
+
+        return ResponseEntity.ok(orderServiceInterface.getOrderByUserIdByCursor(
+                orderStatus, paymentStatus, startDateTime, endDateTime, cursor, pageable.getPageSize(), withTotal));
+    }
+
     /**
      * GET /orders/{orderId}/details - Get order details (products) for a specific order
      * This is called when user clicks toggle to view order items
@@ -74,24 +104,35 @@ public class OrderController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * POST /orders - Queue the checkout and return a ticket (202); the order result is read from GET /orders/tickets/{ticketId}
+     */
     @PostMapping
-    public ResponseEntity<Object> placeOrder(
+    public ResponseEntity<OrderTicketDTO> placeOrder(
             @Valid @RequestBody PlaceOrderRequest request,
             HttpServletRequest httpRequest
     ) {
         log.info("Place order - Customer: {}, Phone: {}, Payment: {}",
                 request.getCustomerName(), request.getPhone(), request.getPaymentMethod());
-        Object result = orderServiceInterface.placeOrder(request, httpRequest);
-        return ResponseEntity.ok(result);
+        OrderTicketDTO ticket = orderIntakeServiceInterface.submitOrder(request, httpRequest);
+        return ResponseEntity.accepted().body(ticket);
     }
 
-    @PatchMapping("/{orderId}/cancel")
-    public ResponseEntity<String> cancelOrder(
-            @PathVariable Long orderId,
-            HttpServletRequest request
+    /**
+     * GET /orders/tickets/{ticketId}?wait= - Status of a queued checkout; wait (seconds) long-polls until it is finished
+     */
+    @GetMapping("/tickets/{ticketId}")
+    public CompletableFuture<OrderTicketDTO> getOrderTicket(
+            @PathVariable String ticketId,
+            @RequestParam(required = false, defaultValue = "0") Integer wait
     ) {
+        return orderIntakeServiceInterface.getTicket(ticketId, wait);
+    }
+
+    @PatchMapping("/{orderId}/cancel")
+    public ResponseEntity<String> cancelOrder(@PathVariable Long orderId) {
         log.info("Cancel order - Order ID: {}", orderId);
-        String result = orderServiceInterface.cancelOrder(orderId, request);
+        String result = orderServiceInterface.cancelOrder(orderId);
         return ResponseEntity.ok(result);
     }
 }
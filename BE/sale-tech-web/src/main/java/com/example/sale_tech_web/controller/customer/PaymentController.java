@@ -1,6 +1,6 @@
 package com.example.sale_tech_web.controller.customer;
 
-import com.example.sale_tech_web.feature.payment.service.PaymentProcessingService;
+import com.example.sale_tech_web.feature.payment.service.VNPayIpnService;
 import com.example.sale_tech_web.feature.payment.service.VNPayService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -17,7 +17,7 @@ import java.util.Map;
 public class PaymentController {
 
     private final VNPayService vnPayService;
-    private final PaymentProcessingService paymentProcessingService;
+    private final VNPayIpnService vnPayIpnService;
 
     /**
      * VNPay Return URL - Called when user is redirected back from VNPay
@@ -83,61 +83,8 @@ public class PaymentController {
      */
     @GetMapping("/vnpay/ipn")
     public ResponseEntity<Map<String, String>> vnpayIPN(@RequestParam Map<String, String> params) {
-        log.info("VNPay IPN received");
-
-        Map<String, String> response = new HashMap<>();
-
-        try {
-            // 1. Verify signature
-            if (!vnPayService.verifyPaymentCallback(params)) {
-                log.error("Invalid signature in VNPay IPN");
-                response.put("RspCode", "97");
-                response.put("Message", "Invalid Checksum");
-                return ResponseEntity.ok(response);
-            }
-
-            // 2. Extract payment info
-            String vnp_Amount = params.get("vnp_Amount");
-            String vnp_OrderInfo = params.get("vnp_OrderInfo");
-            String vnp_ResponseCode = params.get("vnp_ResponseCode");
-            String vnp_TransactionStatus = params.get("vnp_TransactionStatus");
-            String vnp_TxnRef = params.get("vnp_TxnRef");
-            String vnp_TransactionNo = params.get("vnp_TransactionNo");
-            String vnp_PayDate = params.get("vnp_PayDate");
-
-            Long orderId = paymentProcessingService.extractOrderId(vnp_OrderInfo);
-            if (orderId == null) {
-                response.put("RspCode", "01");
-                response.put("Message", "Order not Found");
-                return ResponseEntity.ok(response);
-            }
-
-            long amount = Long.parseLong(vnp_Amount);
-
-            // 3. Process payment
-            if ("00".equals(vnp_ResponseCode) && "00".equals(vnp_TransactionStatus)) {
-                paymentProcessingService.processSuccessfulPayment(orderId, amount, vnp_TxnRef, vnp_TransactionNo, vnp_PayDate);
-                response.put("RspCode", "00");
-                response.put("Message", "Confirm Success");
-            } else {
-                paymentProcessingService.processFailedPayment(orderId, vnp_TxnRef, vnp_TransactionNo, vnp_PayDate);
-                response.put("RspCode", "00");
-                response.put("Message", "Confirm Success");
-            }
-
-            return ResponseEntity.ok(response);
-
-        } catch (IllegalArgumentException e) {
-            log.error("Business error in VNPay IPN: {}", e.getMessage());
-            response.put("RspCode", "01");
-            response.put("Message", e.getMessage());
-            return ResponseEntity.ok(response);
-        } catch (Exception e) {
-            log.error("Error processing VNPay IPN", e);
-            response.put("RspCode", "99");
-            response.put("Message", "System Error");
-            return ResponseEntity.ok(response);
-        }
+        log.info("VNPay IPN received - TxnRef: {}", params.get("vnp_TxnRef"));
+        return ResponseEntity.ok(vnPayIpnService.handle(params));
     }
 
 //    /**
@@ -2,6 +2,7 @@ package com.example.sale_tech_web.controller.customer;
 
 import com.example.sale_tech_web.feature.product.dto.customer.*;
 import com.example.sale_tech_web.feature.product.manager.customer.ProductServiceInterface;
+import com.example.sale_tech_web.utils.CursorSlice;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,6 +17,9 @@ import java.util.*;
 @RequestMapping("/product")
 @Slf4j
 public class ProductController {
+    private static final Set<String> SYSTEM_PARAMS = Set.of(
+            "keyword", "categoryId", "minPrice", "maxPrice", "sort", "page", "size", "facets", "cursor", "withTotal");
+
     private final ProductServiceInterface productServiceInterface;
 
     @GetMapping
@@ -68,6 +72,7 @@ public class ProductController {
     /**
      * GET /product/filter - Unified filter endpoint (search or category filter)
      * Support both keyword search and category filtering with attributes
+     * sort: id_desc (default) | price_asc | price_desc | hot | relevance (keyword match score)
      */
     @GetMapping("/filter")
     public ResponseEntity<Page<ProductListDTO>> filter(
@@ -82,22 +87,11 @@ public class ProductController {
     ) {
         log.info("Filter products - keyword: {}, categoryId: {}", keyword, categoryId);
 
-        // Parse attribute filters from query params
-        Set<String> systemParams = Set.of("keyword", "categoryId", "minPrice", "maxPrice", "sort", "page", "size");
-        Map<String, List<String>> attributeFilters = new HashMap<>();
-
-        allParams.forEach((key, value) -> {
-            if (!systemParams.contains(key) && value != null && !value.isBlank()) {
-                List<String> values = Arrays.asList(value.split(","));
-                attributeFilters.put(key, values);
-            }
-        });
-
         // Call unified service filter method
         Page<ProductListDTO> products = productServiceInterface.filter(
                 categoryId,
                 keyword,
-                attributeFilters.isEmpty() ? null : attributeFilters,
+                attributeFiltersOf(allParams),
                 minPrice,
                 maxPrice,
                 sort,
@@ -108,10 +102,95 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    /**
+     * GET /product/filter?facets=true - Same filter, returns {products, facets} with per-value counts
+     * for the category's filterable attributes
+     */
+    @GetMapping(value = "/filter", params = {"facets=true", "!cursor"})
+    public ResponseEntity<FacetedFilterDTO> filterWithFacets(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) Integer minPrice,
+            @RequestParam(required = false) Integer maxPrice,
+            @RequestParam(required = false, defaultValue = "id_desc") String sort,
+            @RequestParam(required = false, defaultValue = "0") Integer page,
+            @RequestParam(required = false, defaultValue = "24") Integer size,
+            @RequestParam Map<String, String> allParams
+    ) {
+        log.info("Filter products with facets - keyword: {}, categoryId: {}", keyword, categoryId);
+
+        FacetedFilterDTO result = productServiceInterface.filterWithFacets(
+                categoryId,
+                keyword,
+                attributeFiltersOf(allParams),
+                minPrice,
+                maxPrice,
+                sort,
+                page,
+                size
+        );
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * GET /product/filter?cursor= - Same filter with keyset pagination (empty cursor for the first page, then nextCursor)
+     * sort: id_desc (default) | price_asc | price_desc | hot; withTotal=true counts the total on the first page only
+     */
+    @GetMapping(value = "/filter", params = "cursor")
+    public ResponseEntity<CursorSlice<ProductListDTO>> filterByCursor(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) Integer minPrice,
+            @RequestParam(required = false) Integer maxPrice,
+            @RequestParam(required = false, defaultValue = "id_desc") String sort,
+            @RequestParam(required = false, defaultValue = "24") Integer size,
+            @RequestParam String cursor,
+            @RequestParam(required = false, defaultValue = "false") Boolean withTotal,
+            @RequestParam Map<String, String> allParams
+    ) {
+        log.info("Filter products by cursor - keyword: {}, categoryId: {}", keyword, categoryId);
+
+        CursorSlice<ProductListDTO> result = productServiceInterface.filterByCursor(
+                categoryId,
+                keyword,
+                attributeFiltersOf(allParams),
+                minPrice,
+                maxPrice,
+                sort,
+                cursor,
+                size,
+                withTotal
+        );
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * GET /product/suggest?q= - Typeahead for the search box (products and categories, best sellers first)
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDTO>> suggest(
+            @RequestParam String q,
+            @RequestParam(required = false, defaultValue = "8") Integer limit
+    ) {
+        return ResponseEntity.ok(productServiceInterface.suggest(q, Math.clamp(limit, 1, 10)));
+    }
+
     @PostMapping("/compare")
     public ResponseEntity<CompareResponse> compareProducts(@Valid @RequestBody CompareRequest compareRequest) {
         log.info("Compare products - IDs: {}", compareRequest.getProductIds());
         CompareResponse comparison = productServiceInterface.compareProducts(compareRequest);
         return ResponseEntity.ok(comparison);
     }
+
+    // -- Helper Method -- //
+    // Các query param không phải tham số hệ thống là filter theo attribute (giá trị phân tách bằng dấu phẩy)
+    private static Map<String, List<String>> attributeFiltersOf(Map<String, String> allParams) {
+        Map<String, List<String>> attributeFilters = new HashMap<>();
+        allParams.forEach((key, value) -> {
+            if (!SYSTEM_PARAMS.contains(key) && value != null && !value.isBlank()) {
+                attributeFilters.put(key, Arrays.asList(value.split(",")));
+            }
+        });
+        return attributeFilters.isEmpty() ? null : attributeFilters;
+    }
 }
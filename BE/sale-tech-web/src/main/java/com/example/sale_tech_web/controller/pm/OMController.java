@@ -2,8 +2,12 @@ package com.example.sale_tech_web.controller.pm;
 
 import com.example.sale_tech_web.feature.order.dto.customer.OrderDTO;
 import com.example.sale_tech_web.feature.order.dto.customer.OrderDetailDTO;
+import com.example.sale_tech_web.feature.order.dto.pm.BulkOrderRequest;
+import com.example.sale_tech_web.feature.order.dto.pm.BulkOrderResultDTO;
 import com.example.sale_tech_web.feature.order.manager.pm.OMServiceInterface;
-import jakarta.servlet.http.HttpServletRequest;
+import com.example.sale_tech_web.utils.CursorSlice;
+import com.example.sale_tech_web.utils.CursorUtils;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
@@ -43,6 +47,29 @@ public class OMController {
         return ResponseEntity.ok(omServiceInterface.getAllOrderByStatus(orderStatus, paymentStatus, keyword, startDateTime, endDateTime, pageable));
     }
 
+    /**
+     * GET /pm/orders?cursor= - keyset theo id desc (cursor rỗng = trang đầu), withTotal=true chỉ đếm ở trang đầu
+     */
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CursorSlice<OrderDTO>> getOrdersForPMByCursor(
+            @RequestParam(required = false) String orderStatus,
+            @RequestParam(required = false) String paymentStatus,
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate,
+            @RequestParam String cursor,
+            @RequestParam(required = false, defaultValue = "false") Boolean withTotal,
+            @PageableDefault(sort = "id", direction = Sort.Direction.DESC) Pageable pageable) {
+        log.info("PM - Get all orders by cursor");
+        CursorUtils.requireIdDesc(pageable.getSort());
+
+        LocalDateTime startDateTime = (startDate != null) ? startDate.atStartOfDay() : null;
+        LocalDateTime endDateTime = (endDate != null) ? endDate.atTime(LocalTime.MAX) : null;
+
+        return ResponseEntity.ok(omServiceInterface.getAllOrderByCursor(
+                orderStatus, paymentStatus, keyword, startDateTime, endDateTime, cursor, pageable.getPageSize(), withTotal));
+    }
+
     @GetMapping("/{orderId}")
     public ResponseEntity<List<OrderDetailDTO>> getOrderDetails(@PathVariable Long orderId) {
         log.info("Get order details for order ID: {}", orderId);
@@ -65,10 +92,9 @@ public class OMController {
     @PatchMapping("/{orderId}/reject")
     public ResponseEntity<String> rejectOrder(
             @PathVariable Long orderId,
-            @RequestParam String reason,
-            HttpServletRequest request) {
+            @RequestParam String reason) {
         log.info("PM - Reject order: id={}", orderId);
-        return ResponseEntity.ok(omServiceInterface.rejectOrder(orderId, reason, request));
+        return ResponseEntity.ok(omServiceInterface.rejectOrder(orderId, reason));
     }
 
     @PatchMapping("/{orderId}/shipping")
@@ -82,4 +108,32 @@ public class OMController {
         log.info("PM - Complete order: id={}", orderId);
         return ResponseEntity.ok(omServiceInterface.completeOrder(orderId));
     }
+
+    /**
+     * PATCH /pm/orders/bulk/{action} - body: {orderIds} hoặc filter {keyword, startDate, endDate}, reason cho reject.
+     * Trả kết quả từng order, order không hợp lệ không làm hỏng cả lô.
+     */
+    @PatchMapping("/bulk/approve")
+    public ResponseEntity<BulkOrderResultDTO> bulkApproveOrders(@Valid @RequestBody BulkOrderRequest request) {
+        log.info("PM - Bulk approve orders: {}", request.getOrderIds());
+        return ResponseEntity.ok(omServiceInterface.bulkApprove(request));
+    }
+
+    @PatchMapping("/bulk/reject")
+    public ResponseEntity<BulkOrderResultDTO> bulkRejectOrders(@Valid @RequestBody BulkOrderRequest request) {
+        log.info("PM - Bulk reject orders: {}", request.getOrderIds());
+        return ResponseEntity.ok(omServiceInterface.bulkReject(request));
+    }
+
+    @PatchMapping("/bulk/shipping")
+    public ResponseEntity<BulkOrderResultDTO> bulkMoveOrdersToShipping(@Valid @RequestBody BulkOrderRequest request) {
+        log.info("PM - Bulk move orders to shipping: {}", request.getOrderIds());
+        return ResponseEntity.ok(omServiceInterface.bulkMoveToShipping(request));
+    }
+
+    @PatchMapping("/bulk/complete")
+    public ResponseEntity<BulkOrderResultDTO> bulkCompleteOrders(@Valid @RequestBody BulkOrderRequest request) {
+        log.info("PM - Bulk complete orders: {}", request.getOrderIds());
+        return ResponseEntity.ok(omServiceInterface.bulkComplete(request));
+    }
 }
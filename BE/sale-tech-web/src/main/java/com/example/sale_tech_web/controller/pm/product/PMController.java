@@ -1,9 +1,14 @@
 package com.example.sale_tech_web.controller.pm.product;
 
+import com.example.sale_tech_web.feature.product.config.FlashSaleConfig;
+import com.example.sale_tech_web.feature.product.dto.pm.product_dto.FlashSaleStockDTO;
 import com.example.sale_tech_web.feature.product.dto.pm.product_dto.PMProductDetailDTO;
 import com.example.sale_tech_web.feature.product.dto.pm.product_dto.PMProductListDTO;
 import com.example.sale_tech_web.feature.product.dto.pm.product_dto.ProductRequest;
+import com.example.sale_tech_web.feature.product.manager.inventory.InventoryServiceInterface;
 import com.example.sale_tech_web.feature.product.manager.pm.PMServiceInterface;
+import com.example.sale_tech_web.utils.CursorSlice;
+import com.example.sale_tech_web.utils.CursorUtils;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -24,6 +29,7 @@ import org.springframework.web.multipart.MultipartFile;
 @PreAuthorize("hasRole('PM') or hasRole('ADMIN')")
 public class PMController {
     private final PMServiceInterface productPMService;
+    private final InventoryServiceInterface inventoryService;
 
     @GetMapping()
     public ResponseEntity<Page<PMProductListDTO>> getAllProductsForPM(
@@ -38,6 +44,26 @@ public class PMController {
         return ResponseEntity.ok(productPMService.getAllProductsForPM(keyword, categoryId, isActive, minPrice, maxPrice, pageable));
     }
 
+    /**
+     * GET /pm/products?cursor= - keyset theo id desc (cursor rỗng = trang đầu), withTotal=true chỉ đếm ở trang đầu
+     */
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CursorSlice<PMProductListDTO>> getAllProductsForPMByCursor(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) Integer categoryId,
+            @RequestParam(required = false) Boolean isActive,
+            @RequestParam(required = false) Integer minPrice,
+            @RequestParam(required = false) Integer maxPrice,
+            @RequestParam String cursor,
+            @RequestParam(required = false, defaultValue = "false") Boolean withTotal,
+            @PageableDefault(sort = "id", direction = Sort.Direction.DESC) Pageable pageable
+    ) {
+        log.info("PM - Get all products by cursor");
+        CursorUtils.requireIdDesc(pageable.getSort());
+        return ResponseEntity.ok(productPMService.getAllProductsForPMByCursor(
+                keyword, categoryId, isActive, minPrice, maxPrice, cursor, pageable.getPageSize(), withTotal));
+    }
+
     @GetMapping("/{productId}")
     public ResponseEntity<PMProductDetailDTO> getProductDetailForPM(@PathVariable Long productId) {
         log.info("PM - Get product detail: id={}", productId);
@@ -90,4 +116,26 @@ public class PMController {
         String mes = productPMService.deleteProduct(productId);
         return ResponseEntity.ok(mes);
     }
+
+    /**
+     * Flash sale mode: the product's stock is split into shard rows so concurrent checkouts don't queue on one row
+     */
+    @GetMapping("/{productId}/flash-sale")
+    public ResponseEntity<FlashSaleStockDTO> getFlashSaleStock(@PathVariable Long productId) {
+        return ResponseEntity.ok(inventoryService.getFlashSaleStock(productId));
+    }
+
+    @PutMapping("/{productId}/flash-sale")
+    public ResponseEntity<FlashSaleStockDTO> enableFlashSale(
+            @PathVariable Long productId,
+            @RequestParam(required = false, defaultValue = "" + FlashSaleConfig.DEFAULT_SHARDS) Integer shards) {
+        log.info("PM - Enable flash sale: id={}, shards={}", productId, shards);
+        return ResponseEntity.ok(inventoryService.enableFlashSale(productId, shards));
+    }
+
+    @DeleteMapping("/{productId}/flash-sale")
+    public ResponseEntity<FlashSaleStockDTO> disableFlashSale(@PathVariable Long productId) {
+        log.info("PM - Disable flash sale: id={}", productId);
+        return ResponseEntity.ok(inventoryService.disableFlashSale(productId));
+    }
 }
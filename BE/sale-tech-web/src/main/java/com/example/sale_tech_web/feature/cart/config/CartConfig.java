@@ -1,7 +1,24 @@
 package com.example.sale_tech_web.feature.cart.config;
 
+import java.time.Duration;
+
 public class CartConfig {
     public static final int MAX_CART_ITEMS = 2;
 
     public static final int MAX_QUANTITY_PER_ITEM = 5;
+
+    public static final int MAX_BATCH_OPERATIONS = 20;
+
+    // Cart trong RAM (CartStore): số cart tối đa và thời gian giữ cart không được truy cập
+    public static final long MAX_CACHED_CARTS = 50_000;
+
+    public static final Duration CACHED_CART_IDLE = Duration.ofMinutes(30);
+
+    // Số lock (lũy thừa của 2) chia theo user id: request của 1 user chạy lần lượt
+    public static final int LOCK_STRIPES = 1024;
+
+    // Write-behind: chu kỳ flush journal xuống cart/cart_detail và số user mỗi batch
+    public static final String WRITE_BEHIND_FLUSH_DELAY = "PT2S";
+
+    public static final int WRITE_BEHIND_BATCH_SIZE = 200;
 }
@@ -0,0 +1,23 @@
+package com.example.sale_tech_web.feature.cart.dto;
+
+import jakarta.validation.Valid;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartBatchRequest {
+    // Áp dụng theo thứ tự, tất cả hoặc không gì cả
+    private List<@Valid CartOperationRequest> operations;
+
+    // Body cũ {productId, quantity} của PATCH /cart (đổi số lượng 1 sản phẩm)
+    private Long productId;
+
+    private Integer quantity;
+}
@@ -0,0 +1,28 @@
+package com.example.sale_tech_web.feature.cart.dto;
+
+import com.example.sale_tech_web.feature.cart.enums.CartOperation;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One operation of PATCH /cart:
+ * ADD {productId, quantity?}, SET_QUANTITY {productId, quantity}, REMOVE {productId},
+ * SET_SELECTED {productId, selected}, SET_ALL_SELECTED {selected}
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CartOperationRequest {
+    @NotNull(message = "Operation type is required")
+    private CartOperation type;
+
+    private Long productId;
+
+    private Integer quantity;
+
+    private Boolean selected;
+}
@@ -0,0 +1,47 @@
+package com.example.sale_tech_web.feature.cart.entity;
+
+import com.example.sale_tech_web.feature.cart.enums.CartOperation;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Durable record of an acknowledged cart mutation that has not been written to cart/cart_detail yet.
+ * Rows are applied in id order and deleted by the write-behind flush of CartStore.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+@Entity
+@Table(
+        name = "cart_journal",
+        indexes = @Index(name = "idx_cart_journal_user_id", columnList = "user_id, id")
+)
+public class CartJournal {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private CartOperation operation;
+
+    @Column(name = "product_id")
+    private Long productId;
+
+    private Integer quantity;
+
+    @Column(name = "is_selected")
+    private Boolean isSelected;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
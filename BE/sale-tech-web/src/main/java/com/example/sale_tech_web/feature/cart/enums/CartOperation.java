@@ -0,0 +1,13 @@
+package com.example.sale_tech_web.feature.cart.enums;
+
+/**
+ * Cart mutations recorded in the cart journal. Every operation is idempotent (ADD of a product already in
+ * the cart and REMOVE of a missing one are no-ops), so replaying a journal entry twice is harmless.
+ */
+public enum CartOperation {
+    ADD,
+    SET_QUANTITY,
+    SET_SELECTED,
+    SET_ALL_SELECTED,
+    REMOVE
+}
@@ -5,118 +5,56 @@ import com.example.sale_tech_web.exception.ConflictException;
 import com.example.sale_tech_web.exception.NotFoundException;
 import com.example.sale_tech_web.exception.UnauthorizedException;
 import com.example.sale_tech_web.feature.cart.config.CartConfig;
-import com.example.sale_tech_web.feature.cart.entity.Cart;
 import com.example.sale_tech_web.feature.cart.dto.CartDetailDTO;
-import com.example.sale_tech_web.feature.cart.entity.CartDetail;
 import com.example.sale_tech_web.feature.cart.dto.CartDTO;
-import com.example.sale_tech_web.feature.cart.repository.CartDetailRepository;
-import com.example.sale_tech_web.feature.cart.repository.CartRepository;
+import com.example.sale_tech_web.feature.cart.dto.CartOperationRequest;
+import com.example.sale_tech_web.feature.cart.entity.CartJournal;
+import com.example.sale_tech_web.feature.cart.enums.CartOperation;
+import com.example.sale_tech_web.feature.cart.store.CartLine;
+import com.example.sale_tech_web.feature.cart.store.CartState;
+import com.example.sale_tech_web.feature.cart.store.CartStore;
 import com.example.sale_tech_web.feature.jwt.SecurityUtils;
 import com.example.sale_tech_web.feature.product.dto.customer.ProductListDTO;
 import com.example.sale_tech_web.feature.product.entity.Product;
 import com.example.sale_tech_web.feature.product.repository.ProductRepository;
-import com.example.sale_tech_web.feature.users.entity.Users;
-import com.example.sale_tech_web.feature.users.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class CartService implements CartServiceInterface {
-    private final CartRepository cartRepository;
-    private final CartDetailRepository cartDetailRepository;
+    private final CartStore cartStore;
     private final ProductRepository productRepository;
-    private final UserRepository userRepository;
 
     @Override
     public CartDTO getCartItems() {
         // 1. Lấy userId từ JWT token
         Long userId = getUserIdFromToken();
 
-        // 2. Lấy Cart với tất cả relationships trong 1 query (JOIN FETCH)
-        // Không cần query User riêng, không cần query CartDetails riêng, không cần query Products riêng
-        Cart cart = cartRepository.findByUserId(userId)
-                .orElse(null);
-
-        if (cart == null) {
-            Users users = userRepository.findById(userId)
-                    .orElseThrow(() -> new NotFoundException("User not found"));
-            Cart newCart = Cart.builder()
-                    .user(users)
-                    .updatedAt(LocalDateTime.now())
-                    .build();
-
-            newCart = cartRepository.save(newCart);
-
-            return CartDTO.builder()
-                    .cartId(newCart.getId())
-                    .totalQuantity(0)
-                    .totalPrice(0)
-                    .cartDetailDTO(List.of())
-                    .build();
-        }
-
-        // 3. Lấy CartDetails từ relationship (đã được load bởi JOIN FETCH)
-        List<CartDetail> cartItems = cart.getCartDetailList();
-
-        // 6. Tính tổng số lượng cho tất cả và giá cho các sản phẩm ĐƯỢC CHỌN
-        int totalQuantity = cartItems.size();
-
-        int totalPrice = cartItems.stream()
-                .filter(item -> item.getIsSelected() != null && item.getIsSelected())
-                .mapToInt(item -> item.getProduct().getPrice() * item.getQuantity())
-                .sum();
-
-        // 7. Map to DTOs (không có query trong loop vì đã JOIN FETCH)
-        List<CartDetailDTO> cartDetailDTOS = cartItems.stream()
-                .map(cartDetail -> {
-                    Product product = cartDetail.getProduct(); // Đã được load
-
-                    ProductListDTO productDTO = ProductListDTO.builder()
-                            .id(product.getId())
-                            .title(product.getTitle())
-                            .price(product.getPrice())
-                            .imageUrl(product.getImageUrl())
-                            .categoryName(product.getCategory().getName()) // Category cũng đã được load
-                            .build();
-
-                    return CartDetailDTO.builder()
-                            .cartDetailId(cartDetail.getId())
-                            .productList(productDTO)
-                            .quantity(cartDetail.getQuantity())
-                            .isSelected(cartDetail.getIsSelected() != null ? cartDetail.getIsSelected() : true)
-                            .build();
-                })
-                .collect(Collectors.toList());
-
-        // 8. Return DTO với totalPrice và selectedPrice được tính động
-        return CartDTO.builder()
-                .cartId(cart.getId())
-                .totalQuantity(totalQuantity)
-                .totalPrice(totalPrice)
-                .cartDetailDTO(cartDetailDTOS)
-                .build();
+        // 2. Cart trong RAM (CartStore), chỉ load từ DB ở lần truy cập đầu
+        return cartStore.withCart(userId, this::toCartDTO);
     }
 
     @Override
     public int getTotalQuantity() {
         Long userId = getUserIdFromToken();
-        return cartDetailRepository.countCartItemsByUserId(userId);
+        return cartStore.withCart(userId, CartState::size);
     }
 
     @Override
-    @Transactional
     public String addProductToCart(Long productId) {
         Long userId = getUserIdFromToken();
 
         // Validate product exists and is in stock
-        Product product = productRepository.findById(productId)
+        Product product = productRepository.findAllWithCategoryByIdIn(List.of(productId)).stream()
+                .findFirst()
                 .orElseThrow(() -> new NotFoundException("Product not found"));
 
         // Check if product is active
@@ -128,51 +66,24 @@ public class CartService implements CartServiceInterface {
             throw new ConflictException("Product is out of stock");
         }
 
-        //Get or create cart for user
-        Cart cart = cartRepository.findWithCartDetailListByUserId(userId)
-                .orElseGet(() -> {
-                    Users user = userRepository.findById(userId)
-                            .orElseThrow(() -> new NotFoundException("User not found"));
-
-                    Cart newCart = Cart.builder()
-                            .user(user)
-                            .updatedAt(LocalDateTime.now())
-                            .cartDetailList(new ArrayList<>())
-                            .build();
-                    return cartRepository.save(newCart);
-                });
-
-        List<CartDetail> cartItems = cart.getCartDetailList();
-
-        if (cartItems.size() + 1 > CartConfig.MAX_CART_ITEMS) {
-            throw new BadRequestException("Cart has reached maximum total quantity of " + CartConfig.MAX_CART_ITEMS);
-        }
-        boolean exists = cartItems.stream()
-                .anyMatch(item -> item.getProduct().getId().equals(productId));
-
-        if (exists) {
-            throw new ConflictException("Product already exists in cart. Use change quantity instead.");
-        }
-
-        //Add new product to cart
-        CartDetail cartDetail = CartDetail.builder()
-                .cart(cart)
-                .product(product)
-                .quantity(1)
-                .addedAt(LocalDateTime.now())
-                .build();
+        cartStore.withCart(userId, cart -> {
+            if (cart.size() + 1 > CartConfig.MAX_CART_ITEMS) {
+                throw new BadRequestException("Cart has reached maximum total quantity of " + CartConfig.MAX_CART_ITEMS);
+            }
 
-        cartItems.add(cartDetail);
+            if (cart.line(productId).isPresent()) {
+                throw new ConflictException("Product already exists in cart. Use change quantity instead.");
+            }
 
-        //Update cart timestamp
-        cart.setUpdatedAt(LocalDateTime.now());
-        cartRepository.save(cart);
+            //Add new product to cart
+            cartStore.add(cart, product);
+            return null;
+        });
 
         return "Product added to cart successfully";
     }
 
     @Override
-    @Transactional
     public CartDTO changeProductQuantity(Long productId, int quantity) {
         // 1. Validate quantity
         if (quantity <= 0) {
@@ -186,15 +97,9 @@ public class CartService implements CartServiceInterface {
         // 2. Get current user from JWT
         Long userId = getUserIdFromToken();
 
-        // 3. Get user's cart
-        Cart cart = cartRepository.findByUserId(userId)
-                .orElseThrow(() -> new NotFoundException("Cart not found"));
-
-        // 4. Find cart detail for this product
-        CartDetail cartDetail = getCartDetail(cart, productId);
-
-        // 5. Check product availability and stock
-        Product product = cartDetail.getProduct();
+        // 3. Check product availability and stock (tồn kho luôn đọc từ DB)
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new NotFoundException("Product not found"));
 
         // Check if product is active
         if (product.getIsActive() != null && !product.getIsActive()) {
@@ -207,90 +112,177 @@ public class CartService implements CartServiceInterface {
                     (product.getQuantity() != null ? product.getQuantity() : 0));
         }
 
-        // 6. Update quantity
-        cartDetail.setQuantity(quantity);
-
-        // 7. Update cart timestamp
-        cart.setUpdatedAt(LocalDateTime.now());
-        cartRepository.save(cart);
-
-        // 8. Return updated cart
-        return getCartItems();
+        // 4. Find cart line for this product, update quantity and return updated cart
+        return cartStore.withCart(userId, cart -> {
+            getCartLine(cart, productId);
+            cartStore.setQuantity(cart, productId, quantity);
+            return toCartDTO(cart);
+        });
     }
 
     @Override
-    @Transactional
     public CartDTO removeProductFromCart(Long productId) {
         // 1. Get current user from JWT
         Long userId = getUserIdFromToken();
 
-        // 2. Get user's cart
-        Cart cart = getUserCart(userId);
-
-        // 3. Find cart detail for this product
-        CartDetail cartDetail = getCartDetail(cart, productId);
-
-        // 4. Remove product from cart
+        // 2. Remove product from user's cart
         // Note: We keep the cart even if it becomes empty (better UX)
         // The cart will be reused when user adds new products
-        cart.getCartDetailList().remove(cartDetail);
-        cartDetailRepository.delete(cartDetail);
-
-        // 5. Update cart timestamp
-        cart.setUpdatedAt(LocalDateTime.now());
-        cartRepository.save(cart);
-
-        // 6. Return updated cart
-        return getCartItems();
+        return cartStore.withCart(userId, cart -> {
+            getCartLine(cart, productId);
+            cartStore.remove(cart, productId);
+            return toCartDTO(cart);
+        });
     }
 
     @Override
-    @Transactional
     public CartDTO toggleProductSelection(Long productId) {
         // 1. Get current user from JWT
         Long userId = getUserIdFromToken();
 
-        // 2. Get user's cart
-        Cart cart = getUserCart(userId);
-
-        // 3. Find cart detail for this product
-        CartDetail cartDetail = getCartDetail(cart, productId);
-
-        // 4. Toggle selection status
-        Boolean currentStatus = cartDetail.getIsSelected();
-        cartDetail.setIsSelected(currentStatus == null || !currentStatus);
-        cartDetailRepository.save(cartDetail);
-
-        cartRepository.save(cart);
-
-        // 5. Return updated cart
-        return getCartItems();
+        // 2. Toggle selection status in user's cart
+        return cartStore.withCart(userId, cart -> {
+            CartLine line = getCartLine(cart, productId);
+            cartStore.setSelected(cart, productId, !line.isSelected());
+            return toCartDTO(cart);
+        });
     }
 
     @Override
-    @Transactional
     public CartDTO toggleAllProducts(boolean selectAll) {
         // 1. Get current user from JWT
         Long userId = getUserIdFromToken();
 
-        // 2. Get user's cart
-        Cart cart = getUserCart(userId);
-
-        // 3. Get all cart details
-        List<CartDetail> cartDetails = cart.getCartDetailList();
+        // 2. Update all lines of user's cart
+        return cartStore.withCart(userId, cart -> {
+            cartStore.setAllSelected(cart, selectAll);
+            return toCartDTO(cart);
+        });
+    }
 
-        // 4. Update all cart details
-        cartDetails.forEach(cartDetail -> cartDetail.setIsSelected(selectAll));
-        cartDetailRepository.saveAll(cartDetails);
+    @Override
+    public CartDTO applyOperations(List<CartOperationRequest> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new BadRequestException("At least one operation is required");
+        }
+        if (operations.size() > CartConfig.MAX_BATCH_OPERATIONS) {
+            throw new BadRequestException("Maximum " + CartConfig.MAX_BATCH_OPERATIONS + " operations per request");
+        }
 
-        cartRepository.save(cart);
+        Long userId = getUserIdFromToken();
 
-        // 5. Return updated cart
-        return getCartItems();
+        // 1 query cho tất cả product cần kiểm tra (ADD / SET_QUANTITY)
+        List<Long> productIds = operations.stream()
+                .filter(op -> op.getType() == CartOperation.ADD || op.getType() == CartOperation.SET_QUANTITY)
+                .map(this::requireProductId)
+                .distinct()
+                .toList();
+        Map<Long, Product> products = productIds.isEmpty()
+                ? Map.of()
+                : productRepository.findByIdInAndIsActiveTrue(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        return cartStore.withCart(userId, cart -> {
+            // Kiểm tra toàn bộ trên bản nháp trước khi ghi -> lỗi ở operation nào thì không áp dụng gì
+            Map<Long, Integer> draft = new HashMap<>();
+            cart.lines().forEach(line -> draft.put(line.getProductId(), line.getQuantity()));
+
+            List<CartJournal> entries = new ArrayList<>();
+            for (CartOperationRequest op : operations) {
+                entries.add(validateOperation(cart, op, draft, products));
+            }
+
+            if (draft.size() > CartConfig.MAX_CART_ITEMS) {
+                throw new BadRequestException("Cart has reached maximum total quantity of " + CartConfig.MAX_CART_ITEMS);
+            }
+
+            cartStore.apply(cart, entries, products);
+            return toCartDTO(cart);
+        });
     }
 
     // -- Helper methods -- //
 
+    private CartJournal validateOperation(CartState cart, CartOperationRequest op, Map<Long, Integer> draft, Map<Long, Product> products) {
+        return switch (op.getType()) {
+            case ADD -> {
+                Long productId = requireProductId(op);
+                Product product = requireAvailableProduct(products, productId);
+                if (!product.getStocked()) {
+                    throw new ConflictException("Product is out of stock");
+                }
+                if (draft.containsKey(productId)) {
+                    throw new ConflictException("Product already exists in cart. Use change quantity instead.");
+                }
+                int quantity = op.getQuantity() == null ? 1 : op.getQuantity();
+                validateQuantity(product, quantity);
+                draft.put(productId, quantity);
+                yield cartStore.entry(cart, CartOperation.ADD, productId).quantity(quantity).build();
+            }
+            case SET_QUANTITY -> {
+                Long productId = requireProductId(op);
+                requireDraftLine(draft, productId);
+                int quantity = op.getQuantity() == null ? 0 : op.getQuantity();
+                validateQuantity(requireAvailableProduct(products, productId), quantity);
+                draft.put(productId, quantity);
+                yield cartStore.entry(cart, CartOperation.SET_QUANTITY, productId).quantity(quantity).build();
+            }
+            case REMOVE -> {
+                Long productId = requireProductId(op);
+                requireDraftLine(draft, productId);
+                draft.remove(productId);
+                yield cartStore.entry(cart, CartOperation.REMOVE, productId).build();
+            }
+            case SET_SELECTED -> {
+                Long productId = requireProductId(op);
+                requireDraftLine(draft, productId);
+                yield cartStore.entry(cart, CartOperation.SET_SELECTED, productId).isSelected(requireSelected(op)).build();
+            }
+            case SET_ALL_SELECTED -> cartStore.entry(cart, CartOperation.SET_ALL_SELECTED, null).isSelected(requireSelected(op)).build();
+        };
+    }
+
+    private void validateQuantity(Product product, int quantity) {
+        if (quantity <= 0) {
+            throw new BadRequestException("Quantity must be greater than 0. Use remove function to delete item.");
+        }
+        if (quantity > CartConfig.MAX_QUANTITY_PER_ITEM) {
+            throw new BadRequestException("Maximum quantity per product is " + CartConfig.MAX_QUANTITY_PER_ITEM);
+        }
+        if (product.getQuantity() == null || product.getQuantity() < quantity) {
+            throw new ConflictException("Insufficient stock. Available quantity: " +
+                    (product.getQuantity() != null ? product.getQuantity() : 0));
+        }
+    }
+
+    private Long requireProductId(CartOperationRequest op) {
+        if (op.getProductId() == null) {
+            throw new BadRequestException("productId is required for " + op.getType());
+        }
+        return op.getProductId();
+    }
+
+    private Boolean requireSelected(CartOperationRequest op) {
+        if (op.getSelected() == null) {
+            throw new BadRequestException("selected is required for " + op.getType());
+        }
+        return op.getSelected();
+    }
+
+    private Product requireAvailableProduct(Map<Long, Product> products, Long productId) {
+        Product product = products.get(productId);
+        if (product == null) {
+            throw new ConflictException("Product is no longer available");
+        }
+        return product;
+    }
+
+    private void requireDraftLine(Map<Long, Integer> draft, Long productId) {
+        if (!draft.containsKey(productId)) {
+            throw new NotFoundException("Cart item not found");
+        }
+    }
+
     private Long getUserIdFromToken() {
         Long userId = SecurityUtils.getCurrentUserId();
         if (userId == null) {
@@ -299,16 +291,41 @@ public class CartService implements CartServiceInterface {
         return userId;
     }
 
-    private Cart getUserCart(Long userId) {
-        return cartRepository.findWithCartDetailListByUserId(userId)
-                .orElseThrow(() -> new NotFoundException("Cart not found"));
+    private CartLine getCartLine(CartState cart, Long productId) {
+        return cart.line(productId)
+                .orElseThrow(() -> new NotFoundException("Cart item not found"));
     }
 
-    private CartDetail getCartDetail(Cart cart, Long productId) {
-        return cart.getCartDetailList().stream()
-                .filter(item -> item.getProduct().getId().equals(productId))
-                .findFirst()
-                .orElseThrow(() -> new NotFoundException("Cart item not found"));
+    // Tổng số dòng cho tất cả, tổng giá cho các sản phẩm ĐƯỢC CHỌN
+    private CartDTO toCartDTO(CartState cart) {
+        List<CartLine> lines = cart.lines();
+
+        int totalPrice = lines.stream()
+                .filter(CartLine::isSelected)
+                .mapToInt(line -> line.getPrice() * line.getQuantity())
+                .sum();
+
+        List<CartDetailDTO> cartDetailDTOS = lines.stream()
+                .map(line -> CartDetailDTO.builder()
+                        .cartDetailId(line.getCartDetailId())
+                        .productList(ProductListDTO.builder()
+                                .id(line.getProductId())
+                                .title(line.getTitle())
+                                .price(line.getPrice())
+                                .imageUrl(line.getImageUrl())
+                                .categoryName(line.getCategoryName())
+                                .build())
+                        .quantity(line.getQuantity())
+                        .isSelected(line.isSelected())
+                        .build())
+                .toList();
+
+        return CartDTO.builder()
+                .cartId(cart.getCartId())
+                .totalQuantity(lines.size())
+                .totalPrice(totalPrice)
+                .cartDetailDTO(cartDetailDTOS)
+                .build();
     }
 
 }
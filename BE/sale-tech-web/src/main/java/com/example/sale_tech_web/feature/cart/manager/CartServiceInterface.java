@@ -1,6 +1,9 @@
 package com.example.sale_tech_web.feature.cart.manager;
 
 import com.example.sale_tech_web.feature.cart.dto.CartDTO;
+import com.example.sale_tech_web.feature.cart.dto.CartOperationRequest;
+
+import java.util.List;
 
 public interface CartServiceInterface {
     CartDTO getCartItems();
@@ -16,4 +19,6 @@ public interface CartServiceInterface {
     CartDTO toggleProductSelection(Long productId);
 
     CartDTO toggleAllProducts(boolean selectAll);
+
+    CartDTO applyOperations(List<CartOperationRequest> operations);
 }
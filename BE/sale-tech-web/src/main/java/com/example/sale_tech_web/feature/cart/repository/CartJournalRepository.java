@@ -0,0 +1,20 @@
+package com.example.sale_tech_web.feature.cart.repository;
+
+import com.example.sale_tech_web.feature.cart.entity.CartJournal;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CartJournalRepository extends JpaRepository<CartJournal, Long> {
+    List<CartJournal> findByUserIdOrderByIdAsc(Long userId);
+
+    List<CartJournal> findByUserIdInOrderByIdAsc(Collection<Long> userIds);
+
+    @Query("SELECT DISTINCT j.userId FROM CartJournal j ORDER BY j.userId")
+    List<Long> findPendingUserIds(Limit limit);
+}
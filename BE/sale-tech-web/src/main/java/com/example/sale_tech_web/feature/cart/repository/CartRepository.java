@@ -3,9 +3,12 @@ package com.example.sale_tech_web.feature.cart.repository;
 import com.example.sale_tech_web.feature.cart.entity.Cart;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -21,4 +24,13 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
             "cartDetailList.product.category"
     })
     Optional<Cart> findByUserId(Long userId);
+
+    @EntityGraph(attributePaths = {
+            "cartDetailList"
+    })
+    List<Cart> findAllByUserIdIn(Collection<Long> userIds);
+
+    // Khóa cart theo thứ tự user_id: flush nền và placeOrder không ghi đè journal của nhau
+    @Query(value = "SELECT user_id FROM cart WHERE user_id IN (:userIds) ORDER BY user_id FOR UPDATE", nativeQuery = true)
+    List<Long> lockByUserIdIn(@Param("userIds") Collection<Long> userIds);
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.example.sale_tech_web.feature.cart.store;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One product of an in-memory cart, with the product fields the cart page shows
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class CartLine {
+    private Long cartDetailId; // null cho tới khi được flush xuống cart_detail
+    private Long productId;
+    private String title;
+    private Integer price;
+    private String imageUrl;
+    private String categoryName;
+    private int quantity;
+    private boolean selected;
+    private LocalDateTime addedAt;
+}
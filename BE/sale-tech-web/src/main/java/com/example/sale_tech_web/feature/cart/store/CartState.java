@@ -0,0 +1,82 @@
+package com.example.sale_tech_web.feature.cart.store;
+
+import com.example.sale_tech_web.feature.cart.entity.CartJournal;
+import lombok.Getter;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * In-memory cart of one user: the persisted cart plus every journaled mutation.
+ * Not thread-safe - only used inside CartStore.withCart.
+ */
+public class CartState {
+    @Getter
+    private final Long userId;
+    @Getter
+    private final Long cartId;
+    private final Map<Long, CartLine> lines = new HashMap<>();
+
+    CartState(Long userId, Long cartId) {
+        this.userId = userId;
+        this.cartId = cartId;
+    }
+
+    public Optional<CartLine> line(Long productId) {
+        return Optional.ofNullable(lines.get(productId));
+    }
+
+    public int size() {
+        return lines.size();
+    }
+
+    /**
+     * Lines newest first, same order as Cart.cartDetailList
+     */
+    public List<CartLine> lines() {
+        return lines.values().stream()
+                .sorted(Comparator.comparing(CartLine::getAddedAt, Comparator.nullsLast(Comparator.reverseOrder())))
+                .toList();
+    }
+
+    // Id của cart_detail vừa được flush (productId -> cartDetailId)
+    void assignDetailIds(Map<Long, Long> detailIds) {
+        lines.values().forEach(line -> {
+            if (line.getCartDetailId() == null) {
+                line.setCartDetailId(detailIds.get(line.getProductId()));
+            }
+        });
+    }
+
+    void put(CartLine line) {
+        lines.put(line.getProductId(), line);
+    }
+
+    /**
+     * @param newLine creates the line of an ADD entry (product fields), only called if the product is not in the cart;
+     *                null when the product no longer exists
+     */
+    void apply(CartJournal entry, Function<CartJournal, CartLine> newLine) {
+        CartLine line = entry.getProductId() == null ? null : lines.get(entry.getProductId());
+        switch (entry.getOperation()) {
+            case ADD -> {
+                CartLine created = line == null ? newLine.apply(entry) : null;
+                if (created != null) {
+                    lines.put(entry.getProductId(), created);
+                }
+            }
+            case SET_QUANTITY -> {
+                if (line != null) {
+                    line.setQuantity(entry.getQuantity());
+                }
+            }
+            case SET_SELECTED -> {
+                if (line != null) {
+                    line.setSelected(entry.getIsSelected());
+                }
+            }
+            case SET_ALL_SELECTED -> lines.values().forEach(l -> l.setSelected(entry.getIsSelected()));
+            case REMOVE -> lines.remove(entry.getProductId());
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package com.example.sale_tech_web.feature.cart.store;
+
+import com.example.sale_tech_web.feature.cart.config.CartConfig;
+import com.example.sale_tech_web.feature.cart.entity.Cart;
+import com.example.sale_tech_web.feature.cart.entity.CartDetail;
+import com.example.sale_tech_web.feature.cart.entity.CartJournal;
+import com.example.sale_tech_web.feature.cart.enums.CartOperation;
+import com.example.sale_tech_web.feature.cart.repository.CartJournalRepository;
+import com.example.sale_tech_web.feature.cart.repository.CartRepository;
+import com.example.sale_tech_web.feature.product.entity.Product;
+import com.example.sale_tech_web.feature.product.event.ProductChangedEvent;
+import com.example.sale_tech_web.feature.product.repository.ProductRepository;
+import com.example.sale_tech_web.feature.users.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Write-behind cart engine: active carts live in a bounded in-memory map keyed by user id, mutations are
+ * applied in memory and persisted to cart/cart_detail in coalesced batches.
+ * <p>
+ * Durability: a mutation is acknowledged only after its {@link CartJournal} row is committed (one INSERT,
+ * no cart load). The flush applies the journal in id order under a lock on the cart rows and deletes the
+ * applied rows in the same transaction, so after a crash the unapplied rows are still there: loading a cart
+ * replays them over cart_detail and the next flush writes them. {@link #flush} is called by placeOrder so it
+ * always reads the authoritative cart.
+ * <p>
+ * Concurrency: a cart is only read or mutated inside {@link #withCart}, which holds a striped per-user lock, so
+ * requests of one user run one at a time on the cached instance. Loading and journaling (DB I/O) happen under
+ * that lock only, never inside a compute of the map, so a slow DB does not block other users, Caffeine
+ * maintenance or the eviction sweeps. Evicting a cart with unflushed changes is safe: the next load replays its journal.
+ * <p>
+ * Deployment: the in-memory copy is per node, so several nodes need sticky sessions by user. Without them a
+ * node keeps showing (and validating against) its own copy until it expires; the writes themselves still go
+ * through the journal and are never lost.
+ */
+@Component
+@Slf4j
+public class CartStore {
+    private final CartRepository cartRepository;
+    private final CartJournalRepository cartJournalRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate writeTemplate;
+    private final TransactionTemplate snapshotTemplate;
+
+    private final Cache<Long, CartState> carts = Caffeine.newBuilder()
+            .maximumSize(CartConfig.MAX_CACHED_CARTS)
+            .expireAfterAccess(CartConfig.CACHED_CART_IDLE)
+            .build();
+
+    private final Lock[] stripes = Stream.generate(ReentrantLock::new)
+            .limit(CartConfig.LOCK_STRIPES)
+            .toArray(Lock[]::new);
+
+    // Tăng mỗi lần evict: cart load trong lúc đó có thể đã cũ -> không đưa vào map
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public CartStore(CartRepository cartRepository,
+                     CartJournalRepository cartJournalRepository,
+                     ProductRepository productRepository,
+                     UserRepository userRepository,
+                     PlatformTransactionManager transactionManager) {
+        this.cartRepository = cartRepository;
+        this.cartJournalRepository = cartJournalRepository;
+        this.productRepository = productRepository;
+        this.userRepository = userRepository;
+        this.writeTemplate = new TransactionTemplate(transactionManager);
+        // Đọc journal + cart_detail trên cùng 1 snapshot, flush chạy song song không làm mất/lặp entry
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Runs {@code action} on the cart of the user (loaded on first access) while holding the user's lock:
+     * no other request of this user runs meanwhile. The action must not call back into withCart for another user.
+     */
+    public <T> T withCart(Long userId, Function<CartState, T> action) {
+        Lock lock = lockOf(userId);
+        lock.lock();
+        try {
+            return action.apply(cartOf(userId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // -- Mutations: journal row committed trước, rồi mới áp dụng trong RAM -- //
+
+    public void add(CartState state, Product product) {
+        record(state, entry(state, CartOperation.ADD, product.getId()).quantity(1).build(),
+                entry -> newLine(entry, product));
+    }
+
+    public void setQuantity(CartState state, Long productId, int quantity) {
+        record(state, entry(state, CartOperation.SET_QUANTITY, productId).quantity(quantity).build(), _ -> null);
+    }
+
+    public void setSelected(CartState state, Long productId, boolean selected) {
+        record(state, entry(state, CartOperation.SET_SELECTED, productId).isSelected(selected).build(), _ -> null);
+    }
+
+    public void setAllSelected(CartState state, boolean selected) {
+        record(state, entry(state, CartOperation.SET_ALL_SELECTED, null).isSelected(selected).build(), _ -> null);
+    }
+
+    public void remove(CartState state, Long productId) {
+        record(state, entry(state, CartOperation.REMOVE, productId).build(), _ -> null);
+    }
+
+    /**
+     * Journal entry of a mutation on this cart
+     */
+    public CartJournal.CartJournalBuilder entry(CartState state, CartOperation operation, Long productId) {
+        return CartJournal.builder()
+                .userId(state.getUserId())
+                .operation(operation)
+                .productId(productId)
+                .createdAt(LocalDateTime.now());
+    }
+
+    /**
+     * Journals several mutations in one transaction, then applies them in order
+     *
+     * @param products product of every ADD entry
+     */
+    public void apply(CartState state, List<CartJournal> entries, Map<Long, Product> products) {
+        writeTemplate.executeWithoutResult(_ -> cartJournalRepository.saveAll(entries));
+        for (CartJournal entry : entries) {
+            Product product = products.get(entry.getProductId());
+            state.apply(entry, e -> product == null ? null : newLine(e, product));
+        }
+    }
+
+    /**
+     * Writes the pending journal of these users to cart/cart_detail. Joins the current transaction if any.
+     */
+    public void flush(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        writeTemplate.executeWithoutResult(_ -> {
+            cartRepository.lockByUserIdIn(userIds);
+            List<CartJournal> entries = cartJournalRepository.findByUserIdInOrderByIdAsc(userIds);
+            if (entries.isEmpty()) {
+                return;
+            }
+
+            Map<Long, Cart> cartsByUser = cartRepository.findAllByUserIdIn(userIds).stream()
+                    .collect(Collectors.toMap(cart -> cart.getUser().getId(), Function.identity()));
+            Map<Long, Product> products = loadProducts(entries);
+
+            // Gộp tất cả entry của 1 cart rồi save 1 lần
+            for (CartJournal entry : entries) {
+                Cart cart = cartsByUser.computeIfAbsent(entry.getUserId(), this::createCart);
+                applyTo(cart, entry, products);
+            }
+            cartRepository.saveAll(cartsByUser.values());
+            cartRepository.flush();
+            cartJournalRepository.deleteAllInBatch(entries);
+            log.debug("Flushed {} cart changes of {} users", entries.size(), cartsByUser.size());
+
+            // Dòng mới thêm trong RAM chưa có cartDetailId -> gán id vừa sinh sau khi commit
+            Map<Long, Map<Long, Long>> detailIds = new HashMap<>();
+            cartsByUser.forEach((userId, cart) -> detailIds.put(userId, cart.getCartDetailList().stream()
+                    .collect(Collectors.toMap(detail -> detail.getProduct().getId(), CartDetail::getId))));
+            afterCommit(() -> detailIds.forEach((userId, ids) -> withCachedCart(userId, state -> {
+                state.assignDetailIds(ids);
+                return false;
+            })));
+        });
+    }
+
+    @Scheduled(initialDelayString = CartConfig.WRITE_BEHIND_FLUSH_DELAY, fixedDelayString = CartConfig.WRITE_BEHIND_FLUSH_DELAY)
+    public void flushPending() {
+        try {
+            List<Long> userIds;
+            do {
+                userIds = cartJournalRepository.findPendingUserIds(Limit.of(CartConfig.WRITE_BEHIND_BATCH_SIZE));
+                flush(userIds);
+            } while (userIds.size() == CartConfig.WRITE_BEHIND_BATCH_SIZE);
+        } catch (Exception e) {
+            // Journal vẫn còn, lần chạy sau thử lại
+            log.error("Cart write-behind flush failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushPending();
+    }
+
+    /**
+     * Drops the in-memory cart after the current transaction commits (cart_detail changed outside the store)
+     */
+    public void evictAfterCommit(Long userId) {
+        afterCommit(() -> {
+            invalidations.incrementAndGet();
+            carts.invalidate(userId);
+        });
+    }
+
+    // Giá/tên product trong cart RAM là snapshot -> product đổi thì nạp lại các cart chứa nó
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidations.incrementAndGet();
+        if (event.getProductId() == null) {
+            carts.invalidateAll();
+            return;
+        }
+        for (Long userId : List.copyOf(carts.asMap().keySet())) {
+            if (withCachedCart(userId, state -> state.line(event.getProductId()).isPresent())) {
+                carts.invalidate(userId);
+            }
+        }
+    }
+
+    // -- Helpers -- //
+
+    private Lock lockOf(Long userId) {
+        int hash = Long.hashCode(userId);
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    // Gọi khi đang giữ lock của user: load (I/O DB) chạy ngoài mọi compute của map
+    private CartState cartOf(Long userId) {
+        CartState cached = carts.getIfPresent(userId);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = invalidations.get();
+        CartState loaded = load(userId);
+        if (invalidations.get() == generation) {
+            carts.put(userId, loaded);
+        }
+        return loaded;
+    }
+
+    // Chạy check trên cart đang có trong RAM (không load) dưới lock của user; false nếu chưa cache
+    private boolean withCachedCart(Long userId, Predicate<CartState> check) {
+        Lock lock = lockOf(userId);
+        lock.lock();
+        try {
+            CartState state = carts.getIfPresent(userId);
+            return state != null && check.test(state);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private void record(CartState state, CartJournal entry, Function<CartJournal, CartLine> newLine) {
+        writeTemplate.executeWithoutResult(_ -> cartJournalRepository.save(entry));
+        state.apply(entry, newLine);
+    }
+
+    private CartState load(Long userId) {
+        return snapshotTemplate.execute(_ -> {
+            List<CartJournal> pending = cartJournalRepository.findByUserIdOrderByIdAsc(userId);
+            Cart cart = cartRepository.findByUserId(userId)
+                    .orElseGet(() -> createCart(userId));
+
+            CartState state = new CartState(userId, cart.getId());
+            for (CartDetail detail : cart.getCartDetailList()) {
+                Product product = detail.getProduct();
+                state.put(CartLine.builder()
+                        .cartDetailId(detail.getId())
+                        .productId(product.getId())
+                        .title(product.getTitle())
+                        .price(product.getPrice())
+                        .imageUrl(product.getImageUrl())
+                        .categoryName(product.getCategory().getName())
+                        .quantity(detail.getQuantity())
+                        .selected(detail.getIsSelected() == null || detail.getIsSelected())
+                        .addedAt(detail.getAddedAt())
+                        .build());
+            }
+
+            // Replay các thay đổi đã xác nhận nhưng chưa flush
+            Map<Long, Product> products = loadProducts(pending);
+            for (CartJournal entry : pending) {
+                Product product = products.get(entry.getProductId());
+                state.apply(entry, e -> product == null ? null : newLine(e, product));
+            }
+            return state;
+        });
+    }
+
+    private Map<Long, Product> loadProducts(List<CartJournal> entries) {
+        Set<Long> productIds = entries.stream()
+                .filter(entry -> entry.getOperation() == CartOperation.ADD)
+                .map(CartJournal::getProductId)
+                .collect(Collectors.toSet());
+        if (productIds.isEmpty()) {
+            return Map.of();
+        }
+        return productRepository.findAllWithCategoryByIdIn(productIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+    }
+
+    private Cart createCart(Long userId) {
+        return cartRepository.save(Cart.builder()
+                .user(userRepository.getReferenceById(userId))
+                .updatedAt(LocalDateTime.now())
+                .cartDetailList(new ArrayList<>())
+                .build());
+    }
+
+    private static CartLine newLine(CartJournal entry, Product product) {
+        return CartLine.builder()
+                .productId(product.getId())
+                .title(product.getTitle())
+                .price(product.getPrice())
+                .imageUrl(product.getImageUrl())
+                .categoryName(product.getCategory().getName())
+                .quantity(entry.getQuantity())
+                .selected(true)
+                .addedAt(entry.getCreatedAt())
+                .build();
+    }
+
+    private static void applyTo(Cart cart, CartJournal entry, Map<Long, Product> products) {
+        Optional<CartDetail> detail = cart.getCartDetailList().stream()
+                .filter(d -> d.getProduct().getId().equals(entry.getProductId()))
+                .findFirst();
+
+        switch (entry.getOperation()) {
+            case ADD -> {
+                Product product = products.get(entry.getProductId());
+                if (detail.isEmpty() && product != null) {
+                    cart.getCartDetailList().add(CartDetail.builder()
+                            .cart(cart)
+                            .product(product)
+                            .quantity(entry.getQuantity())
+                            .addedAt(entry.getCreatedAt())
+                            .build());
+                }
+            }
+            case SET_QUANTITY -> detail.ifPresent(d -> d.setQuantity(entry.getQuantity()));
+            case SET_SELECTED -> detail.ifPresent(d -> d.setIsSelected(entry.getIsSelected()));
+            case SET_ALL_SELECTED -> cart.getCartDetailList().forEach(d -> d.setIsSelected(entry.getIsSelected()));
+            case REMOVE -> detail.ifPresent(cart.getCartDetailList()::remove);
+        }
+        cart.setUpdatedAt(entry.getCreatedAt());
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.sale_tech_web.feature.idempotency;
+
+import com.example.sale_tech_web.exception.ApplicationException;
+import com.example.sale_tech_web.exception.BadRequestException;
+import com.example.sale_tech_web.exception.ConflictException;
+import com.example.sale_tech_web.exception.UnprocessableEntityException;
+import com.example.sale_tech_web.feature.idempotency.config.IdempotencyConfig;
+import com.example.sale_tech_web.feature.idempotency.manager.IdempotencyService;
+import com.example.sale_tech_web.feature.idempotency.store.IdempotencyRecord;
+import com.example.sale_tech_web.feature.jwt.SecurityUtils;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Idempotency-Key support for mutating endpoints. The first request with a key executes and its response
+ * (status < 500, except 429) is stored; a retry with the same key gets that response back with
+ * {@code Idempotent-Replayed: true} without reaching the controller. Keys are scoped per user, method and path;
+ * reusing a key for a different body is rejected with 422, and a retry while the first request still runs gets 409.
+ * Requests without the header, or without an authenticated user, pass through unchanged.
+ */
+@Component
+@Slf4j
+public class IdempotencyFilter extends OncePerRequestFilter {
+    private static final Set<String> MUTATING_METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+
+    private final IdempotencyService idempotencyService;
+    private final HandlerExceptionResolver exceptionResolver;
+
+    public IdempotencyFilter(IdempotencyService idempotencyService,
+                             @Qualifier("handlerExceptionResolver") HandlerExceptionResolver exceptionResolver) {
+        this.idempotencyService = idempotencyService;
+        this.exceptionResolver = exceptionResolver;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !MUTATING_METHODS.contains(request.getMethod())
+                || request.getHeader(IdempotencyConfig.HEADER) == null
+                || SecurityUtils.getCurrentUserId() == null;
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        String key = request.getHeader(IdempotencyConfig.HEADER).trim();
+        if (key.isEmpty() || key.length() > IdempotencyConfig.MAX_KEY_LENGTH) {
+            reject(request, response, new BadRequestException(
+                    IdempotencyConfig.HEADER + " must be 1-" + IdempotencyConfig.MAX_KEY_LENGTH + " characters"));
+            return;
+        }
+
+        // Multipart: boundary đổi mỗi lần gửi -> không đưa body vào fingerprint và không đọc file vào RAM
+        boolean multipart = hasContentType(request, MediaType.MULTIPART_FORM_DATA_VALUE);
+        // Form urlencoded: để container tự parse body thành parameter (đọc stream trước thì getParameter() rỗng)
+        boolean form = hasContentType(request, MediaType.APPLICATION_FORM_URLENCODED_VALUE);
+        byte[] body = multipart ? new byte[0] : form ? formParameters(request) : request.getInputStream().readAllBytes();
+        HttpServletRequest replayableRequest = multipart || form ? request : new CachedBodyRequest(request, body);
+
+        String scope = SecurityUtils.getCurrentUserId() + ":" + request.getMethod() + " " + request.getRequestURI();
+        String requestHash = fingerprint(request, body);
+
+        IdempotencyRecord previous = idempotencyService.claim(scope, key, requestHash);
+        if (previous != null) {
+            if (!Objects.equals(previous.getRequestHash(), requestHash)) {
+                reject(request, response, new UnprocessableEntityException(
+                        IdempotencyConfig.HEADER + " was already used for a different request"));
+            } else if (!previous.isCompleted()) {
+                reject(request, response, new ConflictException(
+                        "A request with this " + IdempotencyConfig.HEADER + " is still being processed"));
+            } else {
+                replay(previous, response);
+            }
+            return;
+        }
+
+        ContentCachingResponseWrapper cachingResponse = new ContentCachingResponseWrapper(response);
+        boolean stored = false;
+        try {
+            filterChain.doFilter(replayableRequest, cachingResponse);
+
+            int status = cachingResponse.getStatus();
+            if (status < 500 && status != HttpStatus.TOO_MANY_REQUESTS.value() && !request.isAsyncStarted()) {
+                idempotencyService.complete(scope, key, status, cachingResponse.getContentType(),
+                        new String(cachingResponse.getContentAsByteArray(), StandardCharsets.UTF_8));
+                stored = true;
+            }
+        } finally {
+            if (!stored) {
+                idempotencyService.release(scope, key);
+            }
+            cachingResponse.copyBodyToResponse();
+        }
+    }
+
+    private void replay(IdempotencyRecord record, HttpServletResponse response) throws IOException {
+        response.setStatus(record.getStatus());
+        if (record.getContentType() != null) {
+            response.setContentType(record.getContentType());
+        }
+        response.setHeader(IdempotencyConfig.REPLAYED_HEADER, "true");
+        if (record.getBody() != null) {
+            response.getOutputStream().write(record.getBody().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, ApplicationException exception) {
+        exceptionResolver.resolveException(request, response, null, exception);
+    }
+
+    private static boolean hasContentType(HttpServletRequest request, String mediaType) {
+        return request.getContentType() != null && request.getContentType().startsWith(mediaType);
+    }
+
+    // Parameter (query + form body) sắp xếp theo tên, dùng thay cho body khi tính fingerprint
+    private static byte[] formParameters(HttpServletRequest request) {
+        StringBuilder sb = new StringBuilder();
+        new TreeMap<>(request.getParameterMap()).forEach((name, values) -> {
+            for (String value : values) {
+                sb.append(name).append('=').append(value).append('&');
+            }
+        });
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String fingerprint(HttpServletRequest request, byte[] body) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getMethod() + " " + request.getRequestURI() + "?" + request.getQueryString())
+                    .getBytes(StandardCharsets.UTF_8));
+            digest.update(body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Request whose body was read up front for the fingerprint and can be read again by the controller
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream input = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return input.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                // Body đã nằm sẵn trong RAM: báo có dữ liệu và đọc xong ngay
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        if (!isFinished()) {
+                            readListener.onDataAvailable();
+                        }
+                        readListener.onAllDataRead();
+                    } catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return input.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return input.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws UnsupportedEncodingException {
+            String encoding = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.UTF_8.name();
+            return new BufferedReader(new InputStreamReader(getInputStream(), encoding));
+        }
+    }
+}
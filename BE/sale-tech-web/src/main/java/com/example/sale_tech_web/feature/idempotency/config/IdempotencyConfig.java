@@ -0,0 +1,51 @@
+package com.example.sale_tech_web.feature.idempotency.config;
+
+import com.example.sale_tech_web.feature.idempotency.repository.IdempotencyKeyRepository;
+import com.example.sale_tech_web.feature.idempotency.store.DatabaseIdempotencyStore;
+import com.example.sale_tech_web.feature.idempotency.store.IdempotencyStore;
+import com.example.sale_tech_web.feature.idempotency.store.InMemoryIdempotencyStore;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "idempotency")
+@Data
+public class IdempotencyConfig {
+    public static final String MEMORY = "memory";
+    public static final String DATABASE = "database";
+
+    public static final String HEADER = "Idempotency-Key";
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    public static final int MAX_KEY_LENGTH = 128;
+
+    // Response đã lưu được trả lại cho key lặp lại trong khoảng này
+    public static final Duration RESPONSE_TTL = Duration.ofHours(24);
+
+    // Key đang xử lý bị giữ tối đa chừng này (node chết giữa chừng thì key tự mở lại)
+    public static final Duration IN_PROGRESS_TTL = Duration.ofMinutes(2);
+
+    public static final String PURGE_DELAY = "PT10M";
+
+    // Scope của fast path IPN, key = vnp_TxnRef
+    public static final String VNPAY_IPN_SCOPE = "vnpay-ipn";
+
+    /**
+     * Where keys are kept: memory (single node) | database (idempotency_key table, shared by all nodes)
+     */
+    private String store = MEMORY;
+
+    @Bean
+    public IdempotencyStore idempotencyStore(IdempotencyKeyRepository idempotencyKeyRepository) {
+        return switch (store) {
+            case DATABASE -> new DatabaseIdempotencyStore(idempotencyKeyRepository);
+            case MEMORY -> new InMemoryIdempotencyStore();
+            default -> throw new IllegalStateException("Unknown idempotency.store: " + store);
+        };
+    }
+}
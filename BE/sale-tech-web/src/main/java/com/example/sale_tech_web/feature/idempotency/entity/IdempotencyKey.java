@@ -0,0 +1,41 @@
+package com.example.sale_tech_web.feature.idempotency.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "idempotency_key", indexes = {
+        @Index(name = "idx_idempotency_key_expires_at", columnList = "expires_at")
+})
+public class IdempotencyKey {
+    @Id
+    @Column(length = 400)
+    private String id; // scope + ":" + key
+
+    @Column(name = "request_hash", length = 64)
+    private String requestHash;
+
+    // null = đang xử lý
+    private Integer status;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(columnDefinition = "text")
+    private String body;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
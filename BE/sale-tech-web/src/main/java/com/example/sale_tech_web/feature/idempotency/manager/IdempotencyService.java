@@ -0,0 +1,66 @@
+package com.example.sale_tech_web.feature.idempotency.manager;
+
+import com.example.sale_tech_web.feature.idempotency.config.IdempotencyConfig;
+import com.example.sale_tech_web.feature.idempotency.store.IdempotencyRecord;
+import com.example.sale_tech_web.feature.idempotency.store.IdempotencyStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Claim / complete / release of idempotency keys. Used by IdempotencyFilter for the Idempotency-Key header
+ * and directly by the VNPay IPN (key = vnp_TxnRef).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyService {
+    private final IdempotencyStore idempotencyStore;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @return null if the caller owns the key and must execute the request, otherwise the record of the first request
+     */
+    public IdempotencyRecord claim(String scope, String key, String requestHash) {
+        return idempotencyStore.claim(id(scope, key), requestHash, IdempotencyConfig.IN_PROGRESS_TTL);
+    }
+
+    public void complete(String scope, String key, int status, String contentType, String body) {
+        idempotencyStore.complete(id(scope, key), status, contentType, body, IdempotencyConfig.RESPONSE_TTL);
+    }
+
+    public void completeJson(String scope, String key, int status, Object body) {
+        try {
+            complete(scope, key, status, MediaType.APPLICATION_JSON_VALUE, objectMapper.writeValueAsString(body));
+        } catch (JsonProcessingException e) {
+            log.warn("Cannot store idempotent response for {}:{}: {}", scope, key, e.getMessage());
+            release(scope, key);
+        }
+    }
+
+    public <T> T readJson(IdempotencyRecord record, TypeReference<T> type) {
+        try {
+            return objectMapper.readValue(record.getBody(), type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored idempotent response is not valid JSON", e);
+        }
+    }
+
+    public void release(String scope, String key) {
+        idempotencyStore.release(id(scope, key));
+    }
+
+    @Scheduled(initialDelayString = IdempotencyConfig.PURGE_DELAY, fixedDelayString = IdempotencyConfig.PURGE_DELAY)
+    public void purgeExpired() {
+        idempotencyStore.purgeExpired();
+    }
+
+    private static String id(String scope, String key) {
+        return scope + ":" + key;
+    }
+}
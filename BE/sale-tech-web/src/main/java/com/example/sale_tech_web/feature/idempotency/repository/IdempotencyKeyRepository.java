@@ -0,0 +1,62 @@
+package com.example.sale_tech_web.feature.idempotency.repository;
+
+import com.example.sale_tech_web.feature.idempotency.entity.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    /**
+     * Inserts the key as in progress, or takes over an expired row
+     *
+     * @return 1 if the caller now owns the key, 0 if another request holds it
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO idempotency_key (id, request_hash, created_at, expires_at)
+            VALUES (:id, :requestHash, :now, :expiresAt)
+            ON CONFLICT (id) DO UPDATE
+            SET request_hash = EXCLUDED.request_hash,
+                status = NULL,
+                content_type = NULL,
+                body = NULL,
+                created_at = EXCLUDED.created_at,
+                expires_at = EXCLUDED.expires_at
+            WHERE idempotency_key.expires_at < :now
+            """, nativeQuery = true)
+    int claim(@Param("id") String id,
+              @Param("requestHash") String requestHash,
+              @Param("now") LocalDateTime now,
+              @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE IdempotencyKey k
+            SET k.status = :status, k.contentType = :contentType, k.body = :body, k.expiresAt = :expiresAt
+            WHERE k.id = :id
+            """)
+    int complete(@Param("id") String id,
+                 @Param("status") int status,
+                 @Param("contentType") String contentType,
+                 @Param("body") String body,
+                 @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyKey k WHERE k.id = :id")
+    int release(@Param("id") String id);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyKey k WHERE k.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,59 @@
+package com.example.sale_tech_web.feature.idempotency.store;
+
+import com.example.sale_tech_web.feature.idempotency.entity.IdempotencyKey;
+import com.example.sale_tech_web.feature.idempotency.repository.IdempotencyKeyRepository;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Store shared by every node through the idempotency_key table (INSERT ... ON CONFLICT claims the key atomically)
+ */
+@RequiredArgsConstructor
+public class DatabaseIdempotencyStore implements IdempotencyStore {
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Override
+    public IdempotencyRecord claim(String id, String requestHash, Duration lockTtl) {
+        // Row có thể bị purge/release giữa INSERT và SELECT -> thử lại một lần
+        for (int attempt = 0; attempt < 2; attempt++) {
+            LocalDateTime now = LocalDateTime.now();
+            if (idempotencyKeyRepository.claim(id, requestHash, now, now.plus(lockTtl)) == 1) {
+                return null;
+            }
+            IdempotencyRecord existing = idempotencyKeyRepository.findById(id)
+                    .map(DatabaseIdempotencyStore::toRecord)
+                    .orElse(null);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void complete(String id, int status, String contentType, String body, Duration ttl) {
+        idempotencyKeyRepository.complete(id, status, contentType, body, LocalDateTime.now().plus(ttl));
+    }
+
+    @Override
+    public void release(String id) {
+        idempotencyKeyRepository.release(id);
+    }
+
+    @Override
+    public void purgeExpired() {
+        idempotencyKeyRepository.deleteExpired(LocalDateTime.now());
+    }
+
+    private static IdempotencyRecord toRecord(IdempotencyKey key) {
+        return IdempotencyRecord.builder()
+                .requestHash(key.getRequestHash())
+                .status(key.getStatus())
+                .contentType(key.getContentType())
+                .body(key.getBody())
+                .expiresAt(key.getExpiresAt())
+                .build();
+    }
+}
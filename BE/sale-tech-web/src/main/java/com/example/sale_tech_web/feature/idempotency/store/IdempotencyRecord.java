@@ -0,0 +1,24 @@
+package com.example.sale_tech_web.feature.idempotency.store;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class IdempotencyRecord {
+    private String requestHash;
+    private Integer status; // null = request đầu tiên vẫn đang xử lý
+    private String contentType;
+    private String body;
+    private LocalDateTime expiresAt;
+
+    public boolean isCompleted() {
+        return status != null;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.sale_tech_web.feature.idempotency.store;
+
+import java.time.Duration;
+
+/**
+ * TTL store of idempotency keys. {@code id} is the scope plus the client key. Implementations must be thread-safe
+ * and {@link #claim} must be atomic across every node that shares the store.
+ */
+public interface IdempotencyStore {
+
+    /**
+     * Claims the key as in progress for {@code lockTtl}
+     *
+     * @return null if the caller now owns the key (new or expired), otherwise the current record
+     */
+    IdempotencyRecord claim(String id, String requestHash, Duration lockTtl);
+
+    void complete(String id, int status, String contentType, String body, Duration ttl);
+
+    /**
+     * Frees the key so a retry executes again (the first attempt failed without a response worth replaying)
+     */
+    void release(String id);
+
+    void purgeExpired();
+}
@@ -0,0 +1,76 @@
+package com.example.sale_tech_web.feature.idempotency.store;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Single-node store; keys vanish on restart
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore {
+    private static final long MAX_KEYS = 200_000;
+
+    private final Cache<String, IdempotencyRecord> records = Caffeine.newBuilder()
+            .maximumSize(MAX_KEYS)
+            .expireAfter(new Expiry<String, IdempotencyRecord>() {
+                @Override
+                public long expireAfterCreate(String id, IdempotencyRecord record, long currentTime) {
+                    return remaining(record);
+                }
+
+                @Override
+                public long expireAfterUpdate(String id, IdempotencyRecord record, long currentTime, long currentDuration) {
+                    return remaining(record);
+                }
+
+                @Override
+                public long expireAfterRead(String id, IdempotencyRecord record, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+
+    @Override
+    public IdempotencyRecord claim(String id, String requestHash, Duration lockTtl) {
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyRecord[] existing = new IdempotencyRecord[1];
+        records.asMap().compute(id, (_, current) -> {
+            if (current != null && current.getExpiresAt().isAfter(now)) {
+                existing[0] = current;
+                return current;
+            }
+            return IdempotencyRecord.builder()
+                    .requestHash(requestHash)
+                    .expiresAt(now.plus(lockTtl))
+                    .build();
+        });
+        return existing[0];
+    }
+
+    @Override
+    public void complete(String id, int status, String contentType, String body, Duration ttl) {
+        records.asMap().computeIfPresent(id, (_, current) -> current.toBuilder()
+                .status(status)
+                .contentType(contentType)
+                .body(body)
+                .expiresAt(LocalDateTime.now().plus(ttl))
+                .build());
+    }
+
+    @Override
+    public void release(String id) {
+        records.invalidate(id);
+    }
+
+    @Override
+    public void purgeExpired() {
+        records.cleanUp();
+    }
+
+    private static long remaining(IdempotencyRecord record) {
+        return Math.max(0, Duration.between(LocalDateTime.now(), record.getExpiresAt()).toNanos());
+    }
+}
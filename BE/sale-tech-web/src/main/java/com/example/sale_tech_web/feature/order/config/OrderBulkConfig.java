@@ -0,0 +1,6 @@
+package com.example.sale_tech_web.feature.order.config;
+
+public class OrderBulkConfig {
+    // Số order tối đa cho một lần bulk (theo danh sách id hoặc theo filter)
+    public static final int MAX_BULK_SIZE = 500;
+}
@@ -0,0 +1,25 @@
+package com.example.sale_tech_web.feature.order.config;
+
+public class OrderCounterConfig {
+
+    /**
+     * Delay before the first counter reconcile after startup (backfills orders placed before the counters existed)
+     */
+    public static final String COUNTER_RECONCILE_INITIAL_DELAY = "PT20S";
+
+    /**
+     * Delay between two counter reconciles (ISO-8601 duration)
+     * Catches orders whose status was changed outside OMService/OrderService/PaymentProcessingService
+     */
+    public static final String COUNTER_RECONCILE_DELAY = "PT30M";
+
+    /**
+     * Transaction-level advisory lock key: shared while a transaction adds its deltas (until it commits),
+     * exclusive while reconciling, so the reconcile counts only orders whose deltas are already in the counters
+     */
+    public static final long COUNTER_LOCK_KEY = 7_220_101L;
+
+    private OrderCounterConfig() {
+        // Prevent instantiation
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.sale_tech_web.feature.order.config;
+
+import java.time.Duration;
+
+public class OrderIntakeConfig {
+    // Số worker đặt hàng song song, giữ nhỏ hơn Hikari pool (mặc định 10) để còn connection cho request khác
+    public static final int WORKERS = 6;
+
+    // Số đơn tối đa được chờ trong hàng đợi
+    public static final int QUEUE_CAPACITY = 1000;
+
+    // Thời gian chờ ước tính (độ sâu hàng đợi x thời gian xử lý trung bình / WORKERS) vượt ngưỡng -> từ chối 429
+    public static final Duration MAX_ESTIMATED_WAIT = Duration.ofSeconds(20);
+
+    // Ticket đã xong được giữ lại để client poll
+    public static final Duration TICKET_RETENTION = Duration.ofMinutes(10);
+
+    public static final String TICKET_CLEANUP_DELAY = "PT1M";
+
+    // Long-poll GET /orders/tickets/{ticketId}?wait=
+    public static final int MAX_POLL_WAIT_SECONDS = 25;
+
+    private OrderIntakeConfig() {
+        // Prevent instantiation
+    }
+}
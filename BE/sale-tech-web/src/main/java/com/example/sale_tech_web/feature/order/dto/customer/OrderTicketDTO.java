@@ -0,0 +1,23 @@
+package com.example.sale_tech_web.feature.order.dto.customer;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderTicketDTO {
+    private String ticketId;
+    private String status;
+    private Long queuePosition;     // chỉ có khi QUEUED
+    private Object result;          // COMPLETED: giống response cũ của POST /orders (VNPay URL hoặc message)
+    private Integer errorStatus;    // FAILED: HTTP status của lỗi
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+}
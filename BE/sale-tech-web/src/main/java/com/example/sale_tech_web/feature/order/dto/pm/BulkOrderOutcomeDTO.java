@@ -0,0 +1,17 @@
+package com.example.sale_tech_web.feature.order.dto.pm;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkOrderOutcomeDTO {
+    private Long orderId;
+    private boolean success;
+    private String status;      // status mới nếu thành công, status hiện tại nếu không (null nếu không tồn tại)
+    private String message;
+}
@@ -0,0 +1,31 @@
+package com.example.sale_tech_web.feature.order.dto.pm;
+
+import com.example.sale_tech_web.feature.order.config.OrderBulkConfig;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Either orderIds, or a filter (keyword / date range) applied to the orders in the status the action requires.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkOrderRequest {
+    @Size(max = OrderBulkConfig.MAX_BULK_SIZE, message = "Too many orders in one request")
+    private List<Long> orderIds;
+
+    private String keyword;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    // Chỉ dùng cho reject
+    @Size(max = 255, message = "Reason is too long")
+    private String reason;
+}
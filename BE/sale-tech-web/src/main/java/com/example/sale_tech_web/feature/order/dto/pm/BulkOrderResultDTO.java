@@ -0,0 +1,19 @@
+package com.example.sale_tech_web.feature.order.dto.pm;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkOrderResultDTO {
+    private String action;
+    private int succeeded;
+    private int failed;
+    private List<BulkOrderOutcomeDTO> outcomes;
+}
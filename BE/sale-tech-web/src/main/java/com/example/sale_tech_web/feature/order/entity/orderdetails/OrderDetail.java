@@ -8,6 +8,10 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -38,5 +42,14 @@ public class OrderDetail {
 
     @Column(name = "price", nullable = false)
     private Integer price;
+
+    /**
+     * product id -> total quantity of the lines, input of InventoryService.reserve/release
+     */
+    public static Map<Long, Integer> quantitiesByProduct(List<OrderDetail> details) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        details.forEach(detail -> quantities.merge(detail.getProduct().getId(), detail.getQuantity(), Integer::sum));
+        return quantities;
+    }
 }
 
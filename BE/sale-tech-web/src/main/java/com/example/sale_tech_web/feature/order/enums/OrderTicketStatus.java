@@ -0,0 +1,8 @@
+package com.example.sale_tech_web.feature.order.enums;
+
+public enum OrderTicketStatus {
+    QUEUED,
+    PROCESSING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,56 @@
+package com.example.sale_tech_web.feature.order.intake;
+
+import com.example.sale_tech_web.feature.order.enums.OrderTicketStatus;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * In-memory state of one queued checkout. Written by the intake worker, read by polling requests.
+ */
+@Getter
+public class OrderTicket {
+    private final String id;
+    private final Long userId;
+    private final long sequence;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    private volatile OrderTicketStatus status = OrderTicketStatus.QUEUED;
+    private volatile Object result;
+    private volatile Integer errorStatus;
+    private volatile String errorMessage;
+    private volatile LocalDateTime finishedAt;
+
+    public OrderTicket(String id, Long userId, long sequence) {
+        this.id = id;
+        this.userId = userId;
+        this.sequence = sequence;
+    }
+
+    public boolean isFinished() {
+        return done.isDone();
+    }
+
+    public void start() {
+        status = OrderTicketStatus.PROCESSING;
+    }
+
+    public void complete(Object result) {
+        this.result = result;
+        finish(OrderTicketStatus.COMPLETED);
+    }
+
+    public void fail(int errorStatus, String errorMessage) {
+        this.errorStatus = errorStatus;
+        this.errorMessage = errorMessage;
+        finish(OrderTicketStatus.FAILED);
+    }
+
+    private void finish(OrderTicketStatus status) {
+        this.finishedAt = LocalDateTime.now();
+        this.status = status;
+        done.complete(null);
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.sale_tech_web.feature.order.manager;
+
+import com.example.sale_tech_web.feature.order.config.OrderCounterConfig;
+import com.example.sale_tech_web.feature.order.dto.StatusCountDTO;
+import com.example.sale_tech_web.feature.order.enums.OrderStatus;
+import com.example.sale_tech_web.feature.order.repository.OrderStatusCounterRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Order counts per status, for all users (PM badges) and per user (customer tabs), read from order_status_counter
+ * instead of a GROUP BY over orders. Every status change records a delta; the deltas of a transaction are summed
+ * and written in one statement just before it commits, so the shared all-users rows stay locked only briefly
+ * and a rollback leaves the counters untouched. A periodic reconcile fixes drift (changes made outside the services);
+ * it takes the counter lock exclusively first (see OrderCounterConfig.COUNTER_LOCK_KEY) so it never overwrites
+ * the delta of a transaction committing meanwhile.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderStatusCounterService {
+    private static final long ALL_USERS = 0L;
+
+    private final OrderStatusCounterRepository counterRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private record CounterKey(long userId, String status) {
+        static final Comparator<CounterKey> ORDER = Comparator.comparingLong(CounterKey::userId)
+                .thenComparing(CounterKey::status);
+    }
+
+    /**
+     * Gọi trong transaction đổi status order, {@code from} = null khi vừa tạo order
+     */
+    public void recordTransition(Long userId, OrderStatus from, OrderStatus to) {
+        recordTransitions(userId, from, to, 1);
+    }
+
+    /**
+     * Bulk: các order trong {@code orderIds} vừa chuyển từ {@code from} sang {@code to}
+     */
+    public void recordTransitions(Collection<Long> orderIds, OrderStatus from, OrderStatus to) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        for (Object[] row : counterRepository.countByUserIds(orderIds)) {
+            recordTransitions((Long) row[0], from, to, ((Number) row[1]).longValue());
+        }
+    }
+
+    public StatusCountDTO getCounts(Long userId) {
+        return toStatusCount(counterRepository.findCounts(userId));
+    }
+
+    public StatusCountDTO getAllUsersCounts() {
+        return toStatusCount(counterRepository.findCounts(ALL_USERS));
+    }
+
+    /**
+     * Backfill + reconcile: lần đầu sau khi start, sau đó định kỳ
+     */
+    @Scheduled(initialDelayString = OrderCounterConfig.COUNTER_RECONCILE_INITIAL_DELAY,
+            fixedDelayString = OrderCounterConfig.COUNTER_RECONCILE_DELAY)
+    public void reconcile() {
+        try {
+            long start = System.currentTimeMillis();
+            int[] result = transactionTemplate.execute(_ -> {
+                counterRepository.lockForReconcile(OrderCounterConfig.COUNTER_LOCK_KEY);
+                return new int[]{counterRepository.reconcileCounts(), counterRepository.deleteStaleCounts()};
+            });
+            if (result != null && (result[0] > 0 || result[1] > 0)) {
+                log.info("Order status counters reconciled: {} rows fixed, {} removed in {} ms",
+                        result[0], result[1], System.currentTimeMillis() - start);
+            }
+        } catch (Exception e) {
+            log.error("Failed to reconcile order status counters", e);
+        }
+    }
+
+    // -- Helper Method -- //
+    private void recordTransitions(Long userId, OrderStatus from, OrderStatus to, long count) {
+        if (from == to) {
+            return;
+        }
+        Map<CounterKey, Long> deltas = pendingDeltas();
+        if (from != null) {
+            addDelta(deltas, userId, from, -count);
+        }
+        addDelta(deltas, userId, to, count);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            flush(deltas);
+        }
+    }
+
+    private static void addDelta(Map<CounterKey, Long> deltas, Long userId, OrderStatus status, long delta) {
+        deltas.merge(new CounterKey(ALL_USERS, status.name()), delta, Long::sum);
+        if (userId != null) {
+            deltas.merge(new CounterKey(userId, status.name()), delta, Long::sum);
+        }
+    }
+
+    // Delta của transaction hiện tại, ghi 1 lần ở beforeCommit
+    @SuppressWarnings("unchecked")
+    private Map<CounterKey, Long> pendingDeltas() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new TreeMap<>(CounterKey.ORDER);
+        }
+        Map<CounterKey, Long> deltas = (Map<CounterKey, Long>) TransactionSynchronizationManager.getResource(this);
+        if (deltas == null) {
+            Map<CounterKey, Long> created = new TreeMap<>(CounterKey.ORDER);
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    flush(created);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(OrderStatusCounterService.this);
+                }
+            });
+            deltas = created;
+        }
+        return deltas;
+    }
+
+    private void flush(Map<CounterKey, Long> deltas) {
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+        counterRepository.applyDeltas(
+                OrderCounterConfig.COUNTER_LOCK_KEY,
+                deltas.keySet().stream().map(key -> String.valueOf(key.userId())).collect(Collectors.joining(",")),
+                deltas.keySet().stream().map(CounterKey::status).collect(Collectors.joining(",")),
+                deltas.values().stream().map(String::valueOf).collect(Collectors.joining(",")));
+        deltas.clear();
+    }
+
+    private static StatusCountDTO toStatusCount(List<Object[]> rows) {
+        Map<OrderStatus, Integer> result = OrderStatus.initStatusCountMap();
+        int allCount = 0;
+
+        for (Object[] row : rows) {
+            OrderStatus status = OrderStatus.valueOf((String) row[0]);
+            // Có thể âm tạm thời trước lần reconcile đầu tiên
+            int count = Math.max(0, ((Number) row[1]).intValue());
+            result.put(status, count);
+            allCount += count;
+        }
+
+        return StatusCountDTO.builder()
+                .totalStatusCount(allCount)
+                .orderStatusCountMap(result)
+                .build();
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.sale_tech_web.feature.order.manager.customer;
+
+import com.example.sale_tech_web.exception.*;
+import com.example.sale_tech_web.feature.cart.store.CartLine;
+import com.example.sale_tech_web.feature.cart.store.CartStore;
+import com.example.sale_tech_web.feature.jwt.SecurityUtils;
+import com.example.sale_tech_web.feature.order.config.OrderIntakeConfig;
+import com.example.sale_tech_web.feature.order.dto.customer.OrderTicketDTO;
+import com.example.sale_tech_web.feature.order.dto.customer.PlaceOrderRequest;
+import com.example.sale_tech_web.feature.order.enums.OrderTicketStatus;
+import com.example.sale_tech_web.feature.order.intake.OrderTicket;
+import com.example.sale_tech_web.feature.payment.util.VNPayUtil;
+import com.example.sale_tech_web.feature.users.entity.Users;
+import com.example.sale_tech_web.feature.users.repository.UserRepository;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checkout intake: POST /orders only validates and queues, a bounded worker pool places the orders
+ * in FIFO order, so a promotion spike waits in the queue instead of holding Tomcat threads and Hikari connections.
+ * <p>
+ * One active ticket per user (resubmitting returns the same ticket). Admission is refused with 429 when the
+ * queue is full or the estimated wait (depth x average placement time / workers) is above
+ * {@link OrderIntakeConfig#MAX_ESTIMATED_WAIT}. Tickets live in memory only: a restart loses queued checkouts,
+ * which never touched stock or the cart yet.
+ */
+@Service
+@Slf4j
+public class OrderIntakeService implements OrderIntakeServiceInterface {
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final OrderServiceInterface orderServiceInterface;
+    private final UserRepository userRepository;
+    private final CartStore cartStore;
+    private final ThreadPoolTaskExecutor executor;
+
+    private final Map<String, OrderTicket> tickets = new ConcurrentHashMap<>();
+    private final Map<Long, OrderTicket> activeByUser = new ConcurrentHashMap<>();
+    private final AtomicLong started = new AtomicLong();
+    private long submitted;
+    // Thời gian đặt 1 đơn trung bình (EWMA, ms)
+    private volatile double averagePlacementMillis = 200;
+
+    public OrderIntakeService(OrderServiceInterface orderServiceInterface,
+                              UserRepository userRepository,
+                              CartStore cartStore,
+                              @Qualifier("orderIntakeExecutor") ThreadPoolTaskExecutor executor) {
+        this.orderServiceInterface = orderServiceInterface;
+        this.userRepository = userRepository;
+        this.cartStore = cartStore;
+        this.executor = executor;
+    }
+
+    @Override
+    public OrderTicketDTO submitOrder(PlaceOrderRequest request, HttpServletRequest httpRequest) {
+        Long userId = getUserIdFromToken();
+
+        OrderTicket active = activeByUser.get(userId);
+        if (active != null) {
+            return toDTO(active);
+        }
+
+        Users user = userRepository.findById(userId)
+                .orElseThrow(() -> new NotFoundException("User not found"));
+        if (user.isBanned()) {
+            throw new ForbiddenException("Your account has been banned.");
+        }
+        if (cartStore.withCart(userId, cart -> cart.lines().stream().noneMatch(CartLine::isSelected))) {
+            throw new BadRequestException("Need at least one items selected. ");
+        }
+        String clientIp = VNPayUtil.getIpAddress(httpRequest);
+
+        OrderTicket ticket;
+        synchronized (this) {
+            active = activeByUser.get(userId);
+            if (active != null) {
+                return toDTO(active);
+            }
+
+            int depth = executor.getQueueSize();
+            long estimatedWaitMillis = (long) ((depth + 1) * averagePlacementMillis / OrderIntakeConfig.WORKERS);
+            if (depth >= OrderIntakeConfig.QUEUE_CAPACITY
+                    || estimatedWaitMillis > OrderIntakeConfig.MAX_ESTIMATED_WAIT.toMillis()) {
+                log.warn("Order intake rejected user {}: queue depth {}, estimated wait {}ms", userId, depth, estimatedWaitMillis);
+                throw new TooManyRequestsException("Too many orders are being placed right now, please try again in a moment");
+            }
+
+            ticket = new OrderTicket(UUID.randomUUID().toString(), userId, ++submitted);
+            activeByUser.put(userId, ticket);
+            tickets.put(ticket.getId(), ticket);
+            try {
+                executor.execute(() -> process(ticket, request, clientIp));
+            } catch (TaskRejectedException e) {
+                activeByUser.remove(userId, ticket);
+                tickets.remove(ticket.getId());
+                submitted--;
+                throw new TooManyRequestsException("Too many orders are being placed right now, please try again in a moment");
+            }
+        }
+
+        log.info("Order queued - user: {}, ticket: {}", userId, ticket.getId());
+        return toDTO(ticket);
+    }
+
+    @Override
+    public CompletableFuture<OrderTicketDTO> getTicket(String ticketId, int waitSeconds) {
+        Long userId = getUserIdFromToken();
+        OrderTicket ticket = tickets.get(ticketId);
+        if (ticket == null || !ticket.getUserId().equals(userId)) {
+            throw new NotFoundException("Order ticket not found or expired");
+        }
+
+        int wait = Math.clamp(waitSeconds, 0, OrderIntakeConfig.MAX_POLL_WAIT_SECONDS);
+        if (wait == 0 || ticket.isFinished()) {
+            return CompletableFuture.completedFuture(toDTO(ticket));
+        }
+        // copy() để timeout không hoàn thành future dùng chung của ticket
+        return ticket.getDone().copy()
+                .completeOnTimeout(null, wait, TimeUnit.SECONDS)
+                .thenApply(_ -> toDTO(ticket));
+    }
+
+    @Scheduled(fixedDelayString = OrderIntakeConfig.TICKET_CLEANUP_DELAY)
+    public void cleanupTickets() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(OrderIntakeConfig.TICKET_RETENTION);
+        tickets.values().removeIf(ticket -> ticket.isFinished() && ticket.getFinishedAt().isBefore(cutoff));
+    }
+
+    // -- Helper Method -- //
+    private void process(OrderTicket ticket, PlaceOrderRequest request, String clientIp) {
+        started.incrementAndGet();
+        ticket.start();
+        long startNanos = System.nanoTime();
+        try {
+            ticket.complete(orderServiceInterface.placeOrder(ticket.getUserId(), request, clientIp));
+        } catch (ApplicationException e) {
+            ticket.fail(e.getHttpStatus().value(), e.getMessage());
+        } catch (Exception e) {
+            log.error("Order intake failed - ticket: {}, user: {}: {}", ticket.getId(), ticket.getUserId(), e.getMessage(), e);
+            ticket.fail(500, "Could not place the order, please try again");
+        } finally {
+            double elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000.0;
+            averagePlacementMillis += LATENCY_SMOOTHING * (elapsedMillis - averagePlacementMillis);
+            activeByUser.remove(ticket.getUserId(), ticket);
+        }
+    }
+
+    private OrderTicketDTO toDTO(OrderTicket ticket) {
+        OrderTicketStatus status = ticket.getStatus();
+        return OrderTicketDTO.builder()
+                .ticketId(ticket.getId())
+                .status(status.name())
+                .queuePosition(status == OrderTicketStatus.QUEUED ? Math.max(1, ticket.getSequence() - started.get()) : null)
+                .result(ticket.getResult())
+                .errorStatus(ticket.getErrorStatus())
+                .errorMessage(ticket.getErrorMessage())
+                .createdAt(ticket.getCreatedAt())
+                .finishedAt(ticket.getFinishedAt())
+                .build();
+    }
+
+    private Long getUserIdFromToken() {
+        Long userId = SecurityUtils.getCurrentUserId();
+        if (userId == null) {
+            throw new UnauthorizedException("User not authenticated");
+        }
+        return userId;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.sale_tech_web.feature.order.manager.customer;
+
+import com.example.sale_tech_web.feature.order.dto.customer.OrderTicketDTO;
+import com.example.sale_tech_web.feature.order.dto.customer.PlaceOrderRequest;
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface OrderIntakeServiceInterface {
+    /**
+     * Validates the checkout and queues it; the order is placed by a worker and the result is read from the ticket
+     */
+    OrderTicketDTO submitOrder(PlaceOrderRequest request, HttpServletRequest httpRequest);
+
+    /**
+     * @param waitSeconds > 0 completes as soon as the ticket is finished or after that many seconds (long poll)
+     */
+    CompletableFuture<OrderTicketDTO> getTicket(String ticketId, int waitSeconds);
+}
@@ -7,6 +7,7 @@ import com.example.sale_tech_web.exception.NotFoundException;
 import com.example.sale_tech_web.exception.UnauthorizedException;
 import com.example.sale_tech_web.feature.cart.entity.CartDetail;
 import com.example.sale_tech_web.feature.cart.repository.CartDetailRepository;
+import com.example.sale_tech_web.feature.cart.store.CartStore;
 import com.example.sale_tech_web.feature.jwt.SecurityUtils;
 import com.example.sale_tech_web.feature.order.dto.StatusCountDTO;
 import com.example.sale_tech_web.feature.order.dto.customer.OrderDTO;
@@ -15,28 +16,33 @@ import com.example.sale_tech_web.feature.order.dto.customer.PlaceOrderRequest;
 import com.example.sale_tech_web.feature.order.entity.orderdetails.OrderDetail;
 import com.example.sale_tech_web.feature.order.entity.orders.Order;
 import com.example.sale_tech_web.feature.order.enums.OrderStatus;
+import com.example.sale_tech_web.feature.order.manager.OrderStatusCounterService;
 import com.example.sale_tech_web.feature.order.repository.OrderRepository;
-import com.example.sale_tech_web.feature.payment.dto.VNPayRefundRequest;
-import com.example.sale_tech_web.feature.payment.dto.VNPayRefundResponse;
 import com.example.sale_tech_web.feature.payment.entity.Payment;
 import com.example.sale_tech_web.feature.payment.enums.PaymentMethod;
 import com.example.sale_tech_web.feature.payment.enums.PaymentStatus;
 import com.example.sale_tech_web.feature.payment.manager.PaymentServiceInterface;
 import com.example.sale_tech_web.feature.payment.repository.PaymentRepository;
+import com.example.sale_tech_web.feature.payment.service.RefundOutboxService;
 import com.example.sale_tech_web.feature.payment.service.VNPayService;
 import com.example.sale_tech_web.feature.product.entity.Product;
-import com.example.sale_tech_web.feature.product.repository.ProductRepository;
+import com.example.sale_tech_web.feature.product.manager.inventory.InventoryServiceInterface;
+import com.example.sale_tech_web.feature.revenue.manager.RevenueRollupService;
 import com.example.sale_tech_web.feature.users.entity.Users;
 import com.example.sale_tech_web.feature.users.repository.UserRepository;
-import jakarta.servlet.http.HttpServletRequest;
+import com.example.sale_tech_web.utils.CursorSlice;
+import com.example.sale_tech_web.utils.CursorUtils;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Collectors;
 
 
 @Service
@@ -44,11 +50,15 @@ import java.util.*;
 public class OrderService implements OrderServiceInterface {
     private final OrderRepository orderRepository;
     private final CartDetailRepository cartDetailRepository;
+    private final CartStore cartStore;
     private final UserRepository userRepository;
     private final VNPayService vnPayService;
+    private final RefundOutboxService refundOutboxService;
     private final PaymentServiceInterface paymentServiceInterface;
     private final PaymentRepository paymentRepository;
-    private final ProductRepository productRepository;
+    private final InventoryServiceInterface inventoryService;
+    private final RevenueRollupService revenueRollupService;
+    private final OrderStatusCounterService orderStatusCounterService;
 
     @Override
     public Page<OrderDTO> getOrderByUserId(String orderStatus,
@@ -79,6 +89,45 @@ public class OrderService implements OrderServiceInterface {
         });
     }
 
+    @Override
+    public CursorSlice<OrderDTO> getOrderByUserIdByCursor(String orderStatus,
+                                                          String paymentStatus,
+                                                          LocalDateTime startDate,
+                                                          LocalDateTime endDate,
+                                                          String cursor,
+                                                          int size,
+                                                          boolean withTotal) {
+        Long userId = getUserIdFromToken();
+
+        OrderStatus oStatus = null;
+        if (orderStatus != null && !orderStatus.trim().isEmpty()) {
+            oStatus = OrderStatus.valueOf(orderStatus.trim().toUpperCase());
+        }
+
+        PaymentStatus pStatus = null;
+        if (paymentStatus != null && !paymentStatus.trim().isEmpty()) {
+            pStatus = PaymentStatus.valueOf(paymentStatus.trim().toUpperCase());
+        }
+
+        int limit = Math.max(1, size);
+        Long afterId = CursorUtils.decodeId(cursor);
+        List<Order> orders = orderRepository.findAllUserOrderSeek(
+                userId, oStatus, pStatus, startDate, endDate, afterId, Limit.of(limit + 1));
+
+        // COUNT chỉ chạy ở trang đầu khi client cần tổng số
+        Long total = withTotal && afterId == null
+                ? orderRepository.findAllUserOrderCustom(userId, oStatus, pStatus, startDate, endDate, PageRequest.of(0, 1)).getTotalElements()
+                : null;
+
+        return CursorUtils.toSlice(orders, limit, order -> CursorUtils.encodeId(order.getId()), total)
+                .map(order -> {
+                    String currentPaymentStatus = order.getPayment() != null
+                            ? order.getPayment().getStatus().name()
+                            : "UNKNOWN";
+                    return convertToDTO(order, currentPaymentStatus);
+                });
+    }
+
     @Override
     public List<OrderDetailDTO> getOrderDetailsByOrderId(Long orderId) {
         Long userId = getUserIdFromToken();
@@ -107,9 +156,7 @@ public class OrderService implements OrderServiceInterface {
 
     @Override
     @Transactional
-    public Object placeOrder(PlaceOrderRequest request, HttpServletRequest httpRequest) {
-        Long userId = getUserIdFromToken();
-
+    public Object placeOrder(Long userId, PlaceOrderRequest request, String clientIp) {
         Users user = userRepository.findById(userId)
                 .orElseThrow(() -> new NotFoundException("User not found"));
 
@@ -117,6 +164,8 @@ public class OrderService implements OrderServiceInterface {
             throw new ForbiddenException("Your account has been banned.");
         }
 
+        // Cart ghi write-behind -> flush journal trước để đọc đúng trạng thái cart
+        cartStore.flush(List.of(userId));
         List<CartDetail> cartDetails = cartDetailRepository.findSelectedByUserId(userId);
 
         if (cartDetails.isEmpty()) {
@@ -145,18 +194,28 @@ public class OrderService implements OrderServiceInterface {
         int tempTotalPrice = 0;
         List<OrderDetail> orderDetails = new ArrayList<>();
 
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
         for (CartDetail cartDetail : cartDetails) {
-            Product product = cartDetail.getProduct();
-
-            if (!Boolean.TRUE.equals(product.getIsActive())) {
+            if (!Boolean.TRUE.equals(cartDetail.getProduct().getIsActive())) {
                 throw new ConflictException("Product is no longer available");
             }
+            quantities.merge(cartDetail.getProduct().getId(), cartDetail.getQuantity(), Integer::sum);
+        }
 
-            int updatedRows = productRepository.decrementStockIfAvailable(product.getId(), cartDetail.getQuantity());
-            if (updatedRows == 0) {
-                throw new ConflictException(
-                        "Insufficient stock for product: " + product.getTitle());
-            }
+        // Trừ kho tất cả các dòng trong 1 câu UPDATE, thiếu dòng nào thì rollback cả đơn
+        Set<Long> shortProductIds = inventoryService.reserve(quantities);
+        if (!shortProductIds.isEmpty()) {
+            String titles = cartDetails.stream()
+                    .map(CartDetail::getProduct)
+                    .filter(product -> shortProductIds.contains(product.getId()))
+                    .map(Product::getTitle)
+                    .distinct()
+                    .collect(Collectors.joining(", "));
+            throw new ConflictException("Insufficient stock for product: " + titles);
+        }
+
+        for (CartDetail cartDetail : cartDetails) {
+            Product product = cartDetail.getProduct();
 
             OrderDetail orderDetail = OrderDetail.builder()
                     .order(order)
@@ -174,6 +233,7 @@ public class OrderService implements OrderServiceInterface {
         order.setOrderDetails(orderDetails);
         order.setTotalPrice(tempTotalPrice + order.getDeliveryFee());
         Order savedOrder = orderRepository.save(order);
+        orderStatusCounterService.recordTransition(user.getId(), null, OrderStatus.PENDING);
 
         // Check payment method
         if (request.getPaymentMethod() == PaymentMethod.VNPAY) {
@@ -185,7 +245,7 @@ public class OrderService implements OrderServiceInterface {
                     savedOrder.getId(),
                     savedOrder.getTotalPrice(),
                     orderInfo,
-                    httpRequest
+                    clientIp
             );
 
             // Create Payment entity with txnRef
@@ -200,13 +260,14 @@ public class OrderService implements OrderServiceInterface {
         // For CASH payment - delete cart immediately
         paymentServiceInterface.createPayment(order, PaymentMethod.CASH, null);
         cartDetailRepository.deleteAll(cartDetails);
+        cartStore.evictAfterCommit(userId);
 
         return "Order placed successfully for user: " + user.getUsername();
     }
 
     @Override
     @Transactional
-    public String cancelOrder(Long orderId, HttpServletRequest request) {
+    public String cancelOrder(Long orderId) {
         Long userId = getUserIdFromToken();
 
         Users user = userRepository.findById(userId)
@@ -233,48 +294,9 @@ public class OrderService implements OrderServiceInterface {
         // If payment exists and was successful with VNPay, process refund
         if (payment != null && payment.getStatus() == PaymentStatus.PAID
                 && payment.getProvider() == PaymentMethod.VNPAY) {
-
-            try {
-                // Prepare refund request
-                VNPayRefundRequest refundRequest = VNPayRefundRequest.builder()
-                        .txnRef(payment.getTransactionId())
-                        .amount(Long.valueOf(payment.getAmount()))
-                        .transactionType("02") // "02" = Full refund, "03" = Partial refund
-                        .transactionDate(payment.getVnpPayDate())
-                        .transactionNo(payment.getVnpTransactionNo()) // VNPay transaction number if available
-                        .createBy(order.getUser().getUsername())
-                        .orderInfo("Hoan tien don hang " + orderId)
-                        .build();
-
-                // Call VNPay refund API
-                VNPayRefundResponse refundResponse = vnPayService.processRefund(refundRequest, request);
-
-                // Check refund response
-                if ("00".equals(refundResponse.getResponseCode())) {
-                    // Refund successful
-                    payment.setStatus(PaymentStatus.REFUND);
-                    payment.setUpdatedAt(LocalDateTime.now());
-                    paymentRepository.save(payment);
-
-                    refundMessage = " and payment has been refunded successfully";
-                } else {
-                    // Refund failed
-                    refundMessage = " but refund failed: " + refundResponse.getMessage();
-
-                    // Still cancel the order but mark payment status accordingly
-                    payment.setStatus(PaymentStatus.REFUND_FAILED);
-                    payment.setUpdatedAt(LocalDateTime.now());
-                    paymentRepository.save(payment);
-                }
-
-            } catch (Exception e) {
-                refundMessage = " but refund encountered an error: " + e.getMessage();
-
-                // Mark payment as refund failed
-                payment.setStatus(PaymentStatus.REFUND_FAILED);
-                payment.setUpdatedAt(LocalDateTime.now());
-                paymentRepository.save(payment);
-            }
+            // Hoàn tiền qua refund outbox: commit trước, RefundDispatcher gọi VNPay sau (không giữ connection/lock)
+            refundOutboxService.enqueue(payment, order, order.getUser().getUsername());
+            refundMessage = " and refund has been requested (it may take a few minutes)";
         } else if (payment != null && payment.getStatus() == PaymentStatus.PENDING) {
             // If payment is still pending, just mark it as cancelled
             payment.setStatus(PaymentStatus.FAILED);
@@ -284,36 +306,21 @@ public class OrderService implements OrderServiceInterface {
         }
 
         // Revert product quantities atomically
-        for (OrderDetail orderDetail : order.getOrderDetails()) {
-            productRepository.incrementStockOnRevert(orderDetail.getProduct().getId(), orderDetail.getQuantity());
-        }
+        inventoryService.release(OrderDetail.quantitiesByProduct(order.getOrderDetails()));
 
         // Cancel the order
         order.setStatus(OrderStatus.CANCELLED);
         order.setUpdatedAt(LocalDateTime.now());
         orderRepository.save(order);
+        orderStatusCounterService.recordTransition(order.getUser().getId(), OrderStatus.PENDING, OrderStatus.CANCELLED);
+        revenueRollupService.syncOrder(orderId);
 
         return "Order #" + orderId + " has been cancelled successfully" + refundMessage;
     }
 
     @Override
     public StatusCountDTO getOrderCountByStatus() {
-        Long userId = getUserIdFromToken();
-        Map<OrderStatus, Integer> result = OrderStatus.initStatusCountMap();
-        int allCount = 0;
-
-        for (Object[] row : orderRepository.countByUserIdGroupByStatus(userId)) {
-            OrderStatus status = (OrderStatus) row[0];
-            Number count = (Number) row[1];
-            result.put(status, count.intValue());
-            allCount += count.intValue();
-        }
-
-
-        return StatusCountDTO.builder()
-                .totalStatusCount(allCount)
-                .orderStatusCountMap(result)
-                .build();
+        return orderStatusCounterService.getCounts(getUserIdFromToken());
     }
 
 
@@ -4,7 +4,7 @@ import com.example.sale_tech_web.feature.order.dto.StatusCountDTO;
 import com.example.sale_tech_web.feature.order.dto.customer.OrderDTO;
 import com.example.sale_tech_web.feature.order.dto.customer.OrderDetailDTO;
 import com.example.sale_tech_web.feature.order.dto.customer.PlaceOrderRequest;
-import jakarta.servlet.http.HttpServletRequest;
+import com.example.sale_tech_web.utils.CursorSlice;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -19,11 +19,22 @@ public interface OrderServiceInterface {
                                     LocalDateTime endDate,
                                     Pageable pageable);
 
+    CursorSlice<OrderDTO> getOrderByUserIdByCursor(String orderStatus,
+                                                   String paymentStatus,
+                                                   LocalDateTime startDate,
+                                                   LocalDateTime endDate,
+                                                   String cursor,
+                                                   int size,
+                                                   boolean withTotal);
+
     List<OrderDetailDTO> getOrderDetailsByOrderId(Long orderId);
 
-    Object placeOrder(PlaceOrderRequest request, HttpServletRequest httpRequest);
+    /**
+     * Places the order from the user's selected cart lines; called by the intake workers, outside the request thread
+     */
+    Object placeOrder(Long userId, PlaceOrderRequest request, String clientIp);
 
-    String cancelOrder(Long orderId, HttpServletRequest request);
+    String cancelOrder(Long orderId);
 
     StatusCountDTO getOrderCountByStatus();
 }
@@ -2,40 +2,57 @@ package com.example.sale_tech_web.feature.order.manager.pm;
 
 import com.example.sale_tech_web.exception.BadRequestException;
 import com.example.sale_tech_web.exception.NotFoundException;
+import com.example.sale_tech_web.feature.order.config.OrderBulkConfig;
 import com.example.sale_tech_web.feature.order.dto.StatusCountDTO;
 import com.example.sale_tech_web.feature.order.dto.customer.OrderDTO;
 import com.example.sale_tech_web.feature.order.dto.customer.OrderDetailDTO;
+import com.example.sale_tech_web.feature.order.dto.pm.BulkOrderOutcomeDTO;
+import com.example.sale_tech_web.feature.order.dto.pm.BulkOrderRequest;
+import com.example.sale_tech_web.feature.order.dto.pm.BulkOrderResultDTO;
 import com.example.sale_tech_web.feature.order.entity.orderdetails.OrderDetail;
 import com.example.sale_tech_web.feature.order.entity.orders.Order;
 import com.example.sale_tech_web.feature.order.enums.OrderStatus;
+import com.example.sale_tech_web.feature.order.manager.OrderStatusCounterService;
+import com.example.sale_tech_web.feature.order.repository.OrderDetailRepository;
 import com.example.sale_tech_web.feature.order.repository.OrderRepository;
-import com.example.sale_tech_web.feature.payment.dto.VNPayRefundRequest;
-import com.example.sale_tech_web.feature.payment.dto.VNPayRefundResponse;
 import com.example.sale_tech_web.feature.payment.entity.Payment;
 import com.example.sale_tech_web.feature.payment.enums.PaymentMethod;
 import com.example.sale_tech_web.feature.payment.enums.PaymentStatus;
 import com.example.sale_tech_web.feature.payment.repository.PaymentRepository;
-import com.example.sale_tech_web.feature.payment.service.VNPayService;
-import com.example.sale_tech_web.feature.product.repository.ProductRepository;
-import jakarta.servlet.http.HttpServletRequest;
+import com.example.sale_tech_web.feature.payment.service.RefundOutboxService;
+import com.example.sale_tech_web.feature.product.manager.inventory.InventoryServiceInterface;
+import com.example.sale_tech_web.feature.revenue.manager.RevenueRollupService;
+import com.example.sale_tech_web.utils.CursorSlice;
+import com.example.sale_tech_web.utils.CursorUtils;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class OMService implements OMServiceInterface {
     private final OrderRepository orderRepository;
-    private final ProductRepository productRepository;
+    private final OrderDetailRepository orderDetailRepository;
+    private final InventoryServiceInterface inventoryService;
     private final PaymentRepository paymentRepository;
-    private final VNPayService vnPayService;
+    private final RefundOutboxService refundOutboxService;
+    private final RevenueRollupService revenueRollupService;
+    private final OrderStatusCounterService orderStatusCounterService;
 
     @Override
     public Page<OrderDTO> getAllOrderByStatus(String orderStatus,
@@ -64,6 +81,43 @@ public class OMService implements OMServiceInterface {
         });
     }
 
+    @Override
+    public CursorSlice<OrderDTO> getAllOrderByCursor(String orderStatus,
+                                                     String paymentStatus,
+                                                     String keyword,
+                                                     LocalDateTime startDate,
+                                                     LocalDateTime endDate,
+                                                     String cursor,
+                                                     int size,
+                                                     boolean withTotal) {
+        OrderStatus oStatus = null;
+        if (orderStatus != null && !orderStatus.isBlank()) {
+            oStatus = OrderStatus.valueOf(orderStatus.trim().toUpperCase());
+        }
+
+        PaymentStatus pStatus = null;
+        if (paymentStatus != null && !paymentStatus.isBlank()) {
+            pStatus = PaymentStatus.valueOf(paymentStatus.trim().toUpperCase());
+        }
+
+        int limit = Math.max(1, size);
+        Long afterId = CursorUtils.decodeId(cursor);
+        List<Order> orders = orderRepository.findAllOrderSeek(
+                oStatus, pStatus, keyword, startDate, endDate, afterId, Limit.of(limit + 1));
+
+        // COUNT chỉ chạy ở trang đầu khi client cần tổng số
+        Long total = withTotal && afterId == null
+                ? orderRepository.findAllOrderCustom(oStatus, pStatus, keyword, startDate, endDate, PageRequest.of(0, 1)).getTotalElements()
+                : null;
+
+        return CursorUtils.toSlice(orders, limit, order -> CursorUtils.encodeId(order.getId()), total)
+                .map(order -> {
+                    String status = (order.getPayment() != null)
+                            ? order.getPayment().getStatus().name() : "UNKNOWN";
+                    return convertToDTO(order, status);
+                });
+    }
+
     @Override
     public List<OrderDetailDTO> getOrderDetailsByOrderId(Long orderId) {
         Order order = orderRepository.findById(orderId)
@@ -95,13 +149,14 @@ public class OMService implements OMServiceInterface {
         order.setStatus(OrderStatus.APPROVED);
         order.setUpdatedAt(LocalDateTime.now());
         orderRepository.save(order);
+        orderStatusCounterService.recordTransition(order.getUser().getId(), OrderStatus.PENDING, OrderStatus.APPROVED);
 
         return "Order #" + orderId + " approved successfully";
     }
 
     @Override
     @Transactional
-    public String rejectOrder(Long orderId, String reason, HttpServletRequest request) {
+    public String rejectOrder(Long orderId, String reason) {
         Order order = findOrderById(orderId);
         validateTransition(order.getStatus(), OrderStatus.PENDING, "reject");
 
@@ -113,48 +168,9 @@ public class OMService implements OMServiceInterface {
         // If payment exists and was successful with VNPay, process refund
         if (payment != null && payment.getStatus() == PaymentStatus.PAID
                 && payment.getProvider() == PaymentMethod.VNPAY) {
-
-            try {
-                // Prepare refund request
-                VNPayRefundRequest refundRequest = VNPayRefundRequest.builder()
-                        .txnRef(payment.getTransactionId())
-                        .amount(Long.valueOf(payment.getAmount()))
-                        .transactionType("02") // "02" = Full refund, "03" = Partial refund
-                        .transactionDate(payment.getVnpPayDate())
-                        .transactionNo(payment.getVnpTransactionNo()) // VNPay transaction number if available
-                        .createBy(order.getUser().getUsername())
-                        .orderInfo("Hoan tien don hang " + orderId)
-                        .build();
-
-                // Call VNPay refund API
-                VNPayRefundResponse refundResponse = vnPayService.processRefund(refundRequest, request);
-
-                // Check refund response
-                if ("00".equals(refundResponse.getResponseCode())) {
-                    // Refund successful
-                    payment.setStatus(PaymentStatus.REFUND);
-                    payment.setUpdatedAt(LocalDateTime.now());
-                    paymentRepository.save(payment);
-
-                    refundMessage = " and payment has been refunded successfully";
-                } else {
-                    // Refund failed
-                    refundMessage = " but refund failed: " + refundResponse.getMessage();
-
-                    // Still cancel the order but mark payment status accordingly
-                    payment.setStatus(PaymentStatus.REFUND_FAILED);
-                    payment.setUpdatedAt(LocalDateTime.now());
-                    paymentRepository.save(payment);
-                }
-
-            } catch (Exception e) {
-                refundMessage = " but refund encountered an error: " + e.getMessage();
-
-                // Mark payment as refund failed
-                payment.setStatus(PaymentStatus.REFUND_FAILED);
-                payment.setUpdatedAt(LocalDateTime.now());
-                paymentRepository.save(payment);
-            }
+            // Hoàn tiền qua refund outbox: commit trước, RefundDispatcher gọi VNPay sau (không giữ connection/lock)
+            refundOutboxService.enqueue(payment, order, order.getUser().getUsername());
+            refundMessage = " and refund has been requested";
         } else if (payment != null && payment.getStatus() == PaymentStatus.PENDING) {
             // If payment is still pending, just mark it as rejected
             payment.setStatus(PaymentStatus.FAILED);
@@ -163,14 +179,14 @@ public class OMService implements OMServiceInterface {
             refundMessage = " and pending payment has been rejected";
         }
 
-        for (OrderDetail orderDetail : order.getOrderDetails()) {
-            productRepository.incrementStockOnRevert(orderDetail.getProduct().getId(), orderDetail.getQuantity());
-        }
+        inventoryService.release(OrderDetail.quantitiesByProduct(order.getOrderDetails()));
 
         order.setStatus(OrderStatus.REJECTED);
         order.setDescription(reason);
         order.setUpdatedAt(LocalDateTime.now());
         orderRepository.save(order);
+        orderStatusCounterService.recordTransition(order.getUser().getId(), OrderStatus.PENDING, OrderStatus.REJECTED);
+        revenueRollupService.syncOrder(orderId);
 
         return "Order #" + orderId + " rejected. Reason rejected: See description for details.";
     }
@@ -184,6 +200,7 @@ public class OMService implements OMServiceInterface {
         order.setStatus(OrderStatus.SHIPPING);
         order.setUpdatedAt(LocalDateTime.now());
         orderRepository.save(order);
+        orderStatusCounterService.recordTransition(order.getUser().getId(), OrderStatus.APPROVED, OrderStatus.SHIPPING);
 
         return "Order #" + orderId + " moved to SHIPPING";
     }
@@ -203,26 +220,83 @@ public class OMService implements OMServiceInterface {
         order.setStatus(OrderStatus.COMPLETED);
         order.setUpdatedAt(LocalDateTime.now());
         orderRepository.save(order);
+        orderStatusCounterService.recordTransition(order.getUser().getId(), OrderStatus.SHIPPING, OrderStatus.COMPLETED);
+        // Cộng doanh thu vào rollup ngay trong transaction này
+        revenueRollupService.syncOrder(orderId);
 
         return "Order #" + orderId + " marked as COMPLETED";
     }
 
     @Override
-    public StatusCountDTO getOrderCountByStatus() {
-        Map<OrderStatus, Integer> result = OrderStatus.initStatusCountMap();
-        int allCount = 0;
-
-        for (Object[] row : orderRepository.countAllGroupByStatus()) {
-            OrderStatus status = (OrderStatus) row[0];
-            Number count = (Number) row[1];
-            result.put(status, count.intValue());
-            allCount += count.intValue();
+    @Transactional
+    public BulkOrderResultDTO bulkApprove(BulkOrderRequest request) {
+        List<Long> orderIds = resolveBulkOrderIds(request, OrderStatus.PENDING);
+        List<Long> moved = transition(orderIds, OrderStatus.PENDING, OrderStatus.APPROVED, null, LocalDateTime.now());
+
+        return buildBulkResult("approve", orderIds, moved, OrderStatus.PENDING, OrderStatus.APPROVED, Set.of());
+    }
+
+    @Override
+    @Transactional
+    public BulkOrderResultDTO bulkReject(BulkOrderRequest request) {
+        if (request.getReason() == null || request.getReason().isBlank()) {
+            throw new BadRequestException("Reason is required");
+        }
+        List<Long> orderIds = resolveBulkOrderIds(request, OrderStatus.PENDING);
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> moved = transition(orderIds, OrderStatus.PENDING, OrderStatus.REJECTED, request.getReason(), now);
+        if (moved.isEmpty()) {
+            return buildBulkResult("reject", orderIds, moved, OrderStatus.PENDING, OrderStatus.REJECTED, Set.of());
         }
 
-        return StatusCountDTO.builder()
-                .totalStatusCount(allCount)
-                .orderStatusCountMap(result)
-                .build();
+        // Payment chưa thanh toán -> FAILED, một câu UPDATE cho cả lô
+        paymentRepository.updateStatusByOrderIds(moved, PaymentStatus.PENDING, PaymentStatus.FAILED, now);
+
+        // VNPay đã thanh toán -> refund outbox như rejectOrder
+        Set<Long> refunded = new HashSet<>();
+        for (Payment payment : paymentRepository.findByOrderIdsAndStatusAndProvider(moved, PaymentStatus.PAID, PaymentMethod.VNPAY)) {
+            Order order = payment.getOrder();
+            refundOutboxService.enqueue(payment, order, order.getUser().getUsername());
+            refunded.add(order.getId());
+        }
+
+        // Trả kho gộp theo product cho cả lô
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (Object[] row : orderDetailRepository.sumQuantitiesByProduct(moved)) {
+            quantities.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        inventoryService.release(quantities);
+        revenueRollupService.syncOrders(moved);
+
+        return buildBulkResult("reject", orderIds, moved, OrderStatus.PENDING, OrderStatus.REJECTED, refunded);
+    }
+
+    @Override
+    @Transactional
+    public BulkOrderResultDTO bulkMoveToShipping(BulkOrderRequest request) {
+        List<Long> orderIds = resolveBulkOrderIds(request, OrderStatus.APPROVED);
+        List<Long> moved = transition(orderIds, OrderStatus.APPROVED, OrderStatus.SHIPPING, null, LocalDateTime.now());
+
+        return buildBulkResult("move to shipping", orderIds, moved, OrderStatus.APPROVED, OrderStatus.SHIPPING, Set.of());
+    }
+
+    @Override
+    @Transactional
+    public BulkOrderResultDTO bulkComplete(BulkOrderRequest request) {
+        List<Long> orderIds = resolveBulkOrderIds(request, OrderStatus.SHIPPING);
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> moved = transition(orderIds, OrderStatus.SHIPPING, OrderStatus.COMPLETED, null, now);
+        if (!moved.isEmpty()) {
+            paymentRepository.setStatusByOrderIds(moved, PaymentStatus.PAID, now);
+            revenueRollupService.syncOrders(moved);
+        }
+
+        return buildBulkResult("complete", orderIds, moved, OrderStatus.SHIPPING, OrderStatus.COMPLETED, Set.of());
+    }
+
+    @Override
+    public StatusCountDTO getOrderCountByStatus() {
+        return orderStatusCounterService.getAllUsersCounts();
     }
 
     private Order findOrderById(Long orderId) {
@@ -232,9 +306,91 @@ public class OMService implements OMServiceInterface {
 
     private void validateTransition(OrderStatus currentStatus, OrderStatus expectedStatus, String action) {
         if (currentStatus != expectedStatus) {
-            throw new BadRequestException(
-                    "Cannot " + action + " order with status " + currentStatus + ". Required status: " + expectedStatus);
+            throw new BadRequestException(transitionError(currentStatus, expectedStatus, action));
+        }
+    }
+
+    private static String transitionError(OrderStatus currentStatus, OrderStatus expectedStatus, String action) {
+        return "Cannot " + action + " order with status " + currentStatus + ". Required status: " + expectedStatus;
+    }
+
+    // transitionStatus là native query: IN () rỗng không hợp lệ
+    private List<Long> transition(List<Long> orderIds, OrderStatus fromStatus, OrderStatus toStatus,
+                                  String description, LocalDateTime now) {
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+        List<Long> moved = orderRepository.transitionStatus(orderIds, fromStatus.name(), toStatus.name(), description, now);
+        orderStatusCounterService.recordTransitions(moved, fromStatus, toStatus);
+        return moved;
+    }
+
+    /**
+     * orderIds if given, otherwise the orders in {@code fromStatus} matching the filter (oldest first, at most MAX_BULK_SIZE)
+     */
+    private List<Long> resolveBulkOrderIds(BulkOrderRequest request, OrderStatus fromStatus) {
+        if (request.getOrderIds() != null && !request.getOrderIds().isEmpty()) {
+            List<Long> orderIds = request.getOrderIds().stream()
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .toList();
+            if (orderIds.size() > OrderBulkConfig.MAX_BULK_SIZE) {
+                throw new BadRequestException("At most " + OrderBulkConfig.MAX_BULK_SIZE + " orders per request");
+            }
+            return orderIds;
+        }
+
+        LocalDateTime startDateTime = (request.getStartDate() != null) ? request.getStartDate().atStartOfDay() : null;
+        LocalDateTime endDateTime = (request.getEndDate() != null) ? request.getEndDate().atTime(LocalTime.MAX) : null;
+        String keyword = (request.getKeyword() != null && !request.getKeyword().isBlank()) ? request.getKeyword().trim() : null;
+        return orderRepository.findIdsForBulk(
+                fromStatus, keyword, startDateTime, endDateTime, Limit.of(OrderBulkConfig.MAX_BULK_SIZE));
+    }
+
+    // Outcome theo thứ tự orderIds; lý do thất bại lấy bằng một query cho các order không đổi được status
+    private BulkOrderResultDTO buildBulkResult(String action,
+                                               List<Long> orderIds,
+                                               List<Long> moved,
+                                               OrderStatus fromStatus,
+                                               OrderStatus toStatus,
+                                               Set<Long> refunded) {
+        Set<Long> movedIds = new HashSet<>(moved);
+        List<Long> skipped = orderIds.stream().filter(id -> !movedIds.contains(id)).toList();
+
+        Map<Long, OrderStatus> currentStatuses = new HashMap<>();
+        if (!skipped.isEmpty()) {
+            for (Object[] row : orderRepository.findStatusesByIds(skipped)) {
+                currentStatuses.put((Long) row[0], (OrderStatus) row[1]);
+            }
+        }
+
+        List<BulkOrderOutcomeDTO> outcomes = new ArrayList<>(orderIds.size());
+        for (Long orderId : orderIds) {
+            if (movedIds.contains(orderId)) {
+                outcomes.add(BulkOrderOutcomeDTO.builder()
+                        .orderId(orderId)
+                        .success(true)
+                        .status(toStatus.name())
+                        .message(refunded.contains(orderId) ? "Refund has been requested" : null)
+                        .build());
+                continue;
+            }
+
+            OrderStatus current = currentStatuses.get(orderId);
+            outcomes.add(BulkOrderOutcomeDTO.builder()
+                    .orderId(orderId)
+                    .success(false)
+                    .status(current != null ? current.name() : null)
+                    .message(current != null ? transitionError(current, fromStatus, action) : "Order not found")
+                    .build());
         }
+
+        return BulkOrderResultDTO.builder()
+                .action(action)
+                .succeeded(moved.size())
+                .failed(orderIds.size() - moved.size())
+                .outcomes(outcomes)
+                .build();
     }
 
     private OrderDTO convertToDTO(Order order, String paymentStatus) {
@@ -3,7 +3,9 @@ package com.example.sale_tech_web.feature.order.manager.pm;
 import com.example.sale_tech_web.feature.order.dto.StatusCountDTO;
 import com.example.sale_tech_web.feature.order.dto.customer.OrderDTO;
 import com.example.sale_tech_web.feature.order.dto.customer.OrderDetailDTO;
-import jakarta.servlet.http.HttpServletRequest;
+import com.example.sale_tech_web.feature.order.dto.pm.BulkOrderRequest;
+import com.example.sale_tech_web.feature.order.dto.pm.BulkOrderResultDTO;
+import com.example.sale_tech_web.utils.CursorSlice;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -19,15 +21,32 @@ public interface OMServiceInterface {
                                        LocalDateTime endDate,
                                        Pageable pageable);
 
+    CursorSlice<OrderDTO> getAllOrderByCursor(String orderStatus,
+                                              String paymentStatus,
+                                              String keyword,
+                                              LocalDateTime startDate,
+                                              LocalDateTime endDate,
+                                              String cursor,
+                                              int size,
+                                              boolean withTotal);
+
     List<OrderDetailDTO> getOrderDetailsByOrderId(Long orderId);
 
     String approveOrder(Long orderId);
 
-    String rejectOrder(Long orderId, String reason, HttpServletRequest request);
+    String rejectOrder(Long orderId, String reason);
 
     String moveToShipping(Long orderId);
 
     String completeOrder(Long orderId);
 
+    BulkOrderResultDTO bulkApprove(BulkOrderRequest request);
+
+    BulkOrderResultDTO bulkReject(BulkOrderRequest request);
+
+    BulkOrderResultDTO bulkMoveToShipping(BulkOrderRequest request);
+
+    BulkOrderResultDTO bulkComplete(BulkOrderRequest request);
+
     StatusCountDTO getOrderCountByStatus();
 }
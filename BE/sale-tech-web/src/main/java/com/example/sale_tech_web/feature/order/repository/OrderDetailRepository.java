@@ -2,8 +2,18 @@ package com.example.sale_tech_web.feature.order.repository;
 
 import com.example.sale_tech_web.feature.order.entity.orderdetails.OrderDetail;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface OrderDetailRepository extends JpaRepository<OrderDetail, Long> {
+    // Tổng số lượng theo product của nhiều order (product id, SUM(quantity)) để trả kho một lần
+    @Query("SELECT od.product.id, SUM(od.quantity) FROM OrderDetail od " +
+            "WHERE od.order.id IN :orderIds AND od.product IS NOT NULL " +
+            "GROUP BY od.product.id ORDER BY od.product.id")
+    List<Object[]> sumQuantitiesByProduct(@Param("orderIds") Collection<Long> orderIds);
 }
@@ -3,6 +3,7 @@ package com.example.sale_tech_web.feature.order.repository;
 import com.example.sale_tech_web.feature.order.entity.orders.Order;
 import com.example.sale_tech_web.feature.order.enums.OrderStatus;
 import com.example.sale_tech_web.feature.payment.enums.PaymentStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
@@ -12,6 +13,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -55,13 +57,101 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
             Pageable pageable
     );
 
+    // Keyset: như findAllOrderCustom nhưng seek theo id < lastId thay cho OFFSET, không COUNT
+    @EntityGraph(attributePaths = {"payment"})
+    @Query("SELECT o FROM Order o " +
+            "LEFT JOIN o.user u " +
+            "LEFT JOIN o.payment p " +
+            "WHERE (:orderStatus IS NULL OR o.status = :orderStatus) " +
+            "AND (:paymentStatus IS NULL OR p.status = :paymentStatus) " +
+            "AND (:keyword IS NULL OR " +
+            "     LOWER(u.username) LIKE LOWER(CONCAT('%', CAST(:keyword as string), '%')) OR " +
+            "     LOWER(u.email) LIKE LOWER(CONCAT('%', CAST(:keyword as string), '%')) OR " +
+            "     u.phone LIKE CONCAT('%', CAST(:keyword as string), '%')) " +
+            "AND (CAST(:startDate AS timestamp) IS NULL OR o.createdAt >= :startDate) " +
+            "AND (CAST(:endDate AS timestamp) IS NULL OR o.createdAt <= :endDate) " +
+            "AND (:lastId IS NULL OR o.id < :lastId) " +
+            "ORDER BY o.id DESC")
+    List<Order> findAllOrderSeek(
+            @Param("orderStatus") OrderStatus orderStatus,
+            @Param("paymentStatus") PaymentStatus paymentStatus,
+            @Param("keyword") String keyword,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("lastId") Long lastId,
+            Limit limit
+    );
+
+    @EntityGraph(attributePaths = {"payment"})
+    @Query("SELECT o FROM Order o " +
+            "LEFT JOIN o.payment p " +
+            "WHERE o.user.id = :userId " +
+            "AND (:orderStatus IS NULL OR o.status = :orderStatus) " +
+            "AND (:paymentStatus IS NULL OR p.status = :paymentStatus) " +
+            "AND (CAST(:startDate AS timestamp) IS NULL OR o.createdAt >= :startDate) " +
+            "AND (CAST(:endDate AS timestamp) IS NULL OR o.createdAt <= :endDate) " +
+            "AND (:lastId IS NULL OR o.id < :lastId) " +
+            "ORDER BY o.id DESC")
+    List<Order> findAllUserOrderSeek(
+            @Param("userId") Long userId,
+            @Param("orderStatus") OrderStatus orderStatus,
+            @Param("paymentStatus") PaymentStatus paymentStatus,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("lastId") Long lastId,
+            Limit limit
+    );
+
     @Query("SELECT o FROM Order o LEFT JOIN FETCH o.orderDetails LEFT JOIN FETCH o.user WHERE o.id = :orderId AND o.user.id = :userId")
     Optional<Order> findByIdAndUserId(@Param("orderId") Long orderId, @Param("userId") Long userId);
 
-    @Query("SELECT o.status, COUNT(o) FROM Order o WHERE o.user.id = :userId GROUP BY o.status")
-    List<Object[]> countByUserIdGroupByStatus(@Param("userId") Long userId);
+    // Bulk PM: id các order đang ở status cần thiết theo filter, cũ nhất trước
+    @Query("SELECT o.id FROM Order o " +
+            "LEFT JOIN o.user u " +
+            "WHERE o.status = :orderStatus " +
+            "AND (:keyword IS NULL OR " +
+            "     LOWER(u.username) LIKE LOWER(CONCAT('%', CAST(:keyword as string), '%')) OR " +
+            "     LOWER(u.email) LIKE LOWER(CONCAT('%', CAST(:keyword as string), '%')) OR " +
+            "     u.phone LIKE CONCAT('%', CAST(:keyword as string), '%')) " +
+            "AND (CAST(:startDate AS timestamp) IS NULL OR o.createdAt >= :startDate) " +
+            "AND (CAST(:endDate AS timestamp) IS NULL OR o.createdAt <= :endDate) " +
+            "ORDER BY o.id")
+    List<Long> findIdsForBulk(
+            @Param("orderStatus") OrderStatus orderStatus,
+            @Param("keyword") String keyword,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            Limit limit
+    );
+
+    @Query("SELECT o.id, o.status FROM Order o WHERE o.id IN :orderIds")
+    List<Object[]> findStatusesByIds(@Param("orderIds") Collection<Long> orderIds);
 
-    @Query("SELECT o.status, COUNT(o) FROM Order o GROUP BY o.status")
-    List<Object[]> countAllGroupByStatus();
+    /**
+     * Moves every order of {@code orderIds} still in {@code fromStatus} to {@code toStatus} in one statement.
+     * Rows are locked in id order so concurrent bulk calls on overlapping ids cannot deadlock;
+     * the status check is re-evaluated after the lock, so an order changed meanwhile is skipped.
+     *
+     * @return ids of the orders actually moved
+     */
+    @Query(value = """
+            WITH target AS (
+                SELECT id FROM orders
+                WHERE id IN (:orderIds) AND status = :fromStatus
+                ORDER BY id
+                FOR UPDATE
+            )
+            UPDATE orders o
+            SET status = :toStatus,
+                description = COALESCE(CAST(:description AS varchar), o.description),
+                updated_at = :now
+            FROM target
+            WHERE o.id = target.id AND o.status = :fromStatus
+            RETURNING o.id
+            """, nativeQuery = true)
+    List<Long> transitionStatus(@Param("orderIds") Collection<Long> orderIds,
+                                @Param("fromStatus") String fromStatus,
+                                @Param("toStatus") String toStatus,
+                                @Param("description") String description,
+                                @Param("now") LocalDateTime now);
 }
-
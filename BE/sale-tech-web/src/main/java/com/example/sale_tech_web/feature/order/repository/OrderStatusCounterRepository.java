@@ -0,0 +1,88 @@
+package com.example.sale_tech_web.feature.order.repository;
+
+import com.example.sale_tech_web.feature.order.entity.orders.Order;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Maintenance of order_status_counter (schema: db/order-status-counter.sql), user_id = 0 holds the counts of all users.
+ */
+@Repository
+public interface OrderStatusCounterRepository extends JpaRepository<Order, Long> {
+
+    @Query(value = "SELECT status, order_count FROM order_status_counter WHERE user_id = :userId", nativeQuery = true)
+    List<Object[]> findCounts(@Param("userId") long userId);
+
+    // Bulk PM: số order chuyển status theo từng user (user id, count)
+    @Query("SELECT o.user.id, COUNT(o) FROM Order o WHERE o.id IN :orderIds GROUP BY o.user.id")
+    List<Object[]> countByUserIds(@Param("orderIds") Collection<Long> orderIds);
+
+    /**
+     * Cộng các delta (user id, status, delta) vào counter trong 1 câu lệnh, khóa các dòng theo thứ tự khóa chính.
+     * Giữ shared advisory lock {@code lockKey} tới khi commit -> reconcile chờ các transaction này xong mới đếm
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO order_status_counter AS c (user_id, status, order_count)
+            SELECT d.user_id, d.status, SUM(d.delta)
+            FROM (SELECT pg_advisory_xact_lock_shared(:lockKey)) AS reconcile_lock,
+                 unnest(CAST(string_to_array(:userIds, ',') AS bigint[]),
+                        string_to_array(:statuses, ','),
+                        CAST(string_to_array(:deltas, ',') AS bigint[])) AS d(user_id, status, delta)
+            GROUP BY d.user_id, d.status
+            ORDER BY d.user_id, d.status
+            ON CONFLICT (user_id, status) DO UPDATE
+            SET order_count = c.order_count + EXCLUDED.order_count
+            """, nativeQuery = true)
+    int applyDeltas(@Param("lockKey") long lockKey,
+                    @Param("userIds") String userIds,
+                    @Param("statuses") String statuses,
+                    @Param("deltas") String deltas);
+
+    /**
+     * Exclusive advisory lock {@code lockKey} until the end of the transaction: waits for the transactions that
+     * already added deltas to commit and holds back new ones, so reconcileCounts run afterwards does not
+     * overwrite a delta with a count taken before its orders were committed
+     */
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(:lockKey)) AS reconcile_lock", nativeQuery = true)
+    Integer lockForReconcile(@Param("lockKey") long lockKey);
+
+    /**
+     * Ghi đè counter bằng số đếm thật từ orders, chỉ các dòng bị lệch. Chạy sau lockForReconcile trong cùng transaction
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO order_status_counter AS c (user_id, status, order_count)
+            SELECT user_id, status, COUNT(*) FROM orders
+            WHERE user_id IS NOT NULL AND status IS NOT NULL
+            GROUP BY user_id, status
+            UNION ALL
+            SELECT 0, status, COUNT(*) FROM orders
+            WHERE status IS NOT NULL
+            GROUP BY status
+            ON CONFLICT (user_id, status) DO UPDATE
+            SET order_count = EXCLUDED.order_count
+            WHERE c.order_count <> EXCLUDED.order_count
+            """, nativeQuery = true)
+    int reconcileCounts();
+
+    @Transactional
+    @Modifying
+    @Query(value = """
+            DELETE FROM order_status_counter c
+            WHERE NOT EXISTS (
+                SELECT 1 FROM orders o
+                WHERE o.status = c.status AND (c.user_id = 0 OR o.user_id = c.user_id)
+            )
+            """, nativeQuery = true)
+    int deleteStaleCounts();
+}
@@ -1,5 +1,7 @@
 package com.example.sale_tech_web.feature.payment.config;
 
+import java.time.Duration;
+
 public class PaymentConfig {
 
     /**
@@ -10,9 +12,93 @@ public class PaymentConfig {
 
     /**
      * Scheduled job interval for checking expired payments (in cron format)
-     * Current: Every 15 minutes
+     * Safety net only: PaymentExpiryQueue expires payments on time, the sweep catches the backlog
+     * (node down, outage) - an empty run is a single index lookup
+     */
+    public static final String PAYMENT_CLEANUP_CRON = "0 * * * * *";
+
+    /**
+     * Expiry sweep: payments claimed per chunk (one transaction, FOR UPDATE SKIP LOCKED) and parallel workers per node
+     */
+    public static final int EXPIRY_CHUNK_SIZE = 100;
+
+    public static final int EXPIRY_SWEEP_WORKERS = 4;
+
+    /**
+     * PaymentExpiryQueue: retry delay when expiring a payment failed (DB unavailable...)
+     */
+    public static final Duration PAYMENT_EXPIRY_RETRY_DELAY = Duration.ofSeconds(30);
+
+    /**
+     * A PENDING payment is only cancelled this long after invoice.expires_at (= vnp_ExpireDate):
+     * VNPay retries the IPN, a success IPN arriving just after the deadline must still find the order
      */
-    public static final String PAYMENT_CLEANUP_CRON = "0 */5 * * * *";
+    public static final Duration EXPIRY_GRACE = Duration.ofMinutes(2);
+
+    /**
+     * Refund outbox dispatcher: polling interval, rows claimed per run and parallel VNPay refund calls
+     */
+    public static final String REFUND_DISPATCH_DELAY = "PT5S";
+
+    public static final int REFUND_BATCH_SIZE = 20;
+
+    public static final int REFUND_CONCURRENCY = 4;
+
+    /**
+     * Retry of refunds that failed on a system error (vnp_ResponseCode 99, timeout):
+     * base * 2^(attempt - 1), capped, then the payment becomes REFUND_FAILED
+     */
+    public static final int REFUND_MAX_ATTEMPTS = 8;
+
+    public static final Duration REFUND_RETRY_BASE = Duration.ofSeconds(30);
+
+    public static final Duration REFUND_RETRY_MAX = Duration.ofMinutes(30);
+
+    /**
+     * A claimed outbox row is owned by one dispatcher for this long (longer than connect + read timeout)
+     */
+    public static final Duration REFUND_LEASE = Duration.ofMinutes(2);
+
+    /**
+     * VNPay merchant API (refund, querydr): connect timeout, timeout of one HTTP attempt
+     * and deadline of a whole call (queueing + retries included)
+     */
+    public static final int VNPAY_API_CONNECT_TIMEOUT_MS = 5_000;
+
+    public static final int VNPAY_API_READ_TIMEOUT_MS = 15_000;
+
+    public static final Duration VNPAY_API_DEADLINE = Duration.ofSeconds(30);
+
+    /**
+     * Requests in flight to VNPay per node; beyond that calls wait in a bounded queue, then fail fast
+     */
+    public static final int VNPAY_API_MAX_IN_FLIGHT = 8;
+
+    public static final int VNPAY_API_MAX_QUEUED = 200;
+
+    /**
+     * Retries of idempotent calls (querydr) on I/O error, timeout or HTTP 5xx: random delay in [0, base * 2^attempt)
+     * Refunds are never retried here, the refund outbox does it with its own backoff
+     */
+    public static final int VNPAY_API_MAX_RETRIES = 2;
+
+    public static final Duration VNPAY_API_RETRY_BASE = Duration.ofMillis(200);
+
+    /**
+     * Circuit breaker: consecutive failures before opening, then calls fail fast for OPEN_DURATION
+     * before a single trial call is let through
+     */
+    public static final int VNPAY_BREAKER_FAILURE_THRESHOLD = 5;
+
+    public static final Duration VNPAY_BREAKER_OPEN_DURATION = Duration.ofSeconds(30);
+
+    /**
+     * VNPay IPN: final responses kept in memory per vnp_TxnRef so VNPay's retries are answered without
+     * touching the idempotency store or the DB (the idempotency store still dedups across nodes)
+     */
+    public static final long IPN_RECENT_MAX_SIZE = 50_000;
+
+    public static final Duration IPN_RECENT_TTL = Duration.ofHours(1);
 
     private PaymentConfig() {
         // Prevent instantiation
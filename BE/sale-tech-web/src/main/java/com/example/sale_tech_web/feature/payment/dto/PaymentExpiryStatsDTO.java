@@ -0,0 +1,24 @@
+package com.example.sale_tech_web.feature.payment.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentExpiryStatsDTO {
+    private Integer pendingTimers;          // timer đang chờ trong PaymentExpiryQueue (node này)
+    private Long lagSeconds;                // payment PENDING quá hạn lâu nhất (tất cả node), 0 = không tồn đọng
+    private Long totalExpired;              // payment đã hủy bởi sweep từ lúc start (node này)
+    private Long totalChunks;
+    private Long failedChunks;
+    private LocalDateTime lastSweepAt;
+    private Long lastSweepExpired;
+    private Long lastSweepMillis;
+    private Double lastSweepPerSecond;      // throughput của lần sweep gần nhất
+}
@@ -0,0 +1,25 @@
+package com.example.sale_tech_web.feature.payment.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Result of the VNPay querydr API (status of a transaction at VNPay)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VNPayQueryResponse {
+    private String responseCode;        // Mã phản hồi của API querydr ("00" = truy vấn thành công)
+    private String message;
+    private String txnRef;
+    private Long amount;                // VND
+    private String transactionNo;       // Mã giao dịch tại VNPay
+    private String transactionStatus;   // Trạng thái giao dịch ("00" = thanh toán thành công)
+    private String transactionType;
+    private String bankCode;
+    private String payDate;
+}
@@ -0,0 +1,76 @@
+package com.example.sale_tech_web.feature.payment.entity;
+
+import com.example.sale_tech_web.feature.payment.enums.RefundOutboxStatus;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One VNPay refund to send, written in the same transaction as the cancel/reject.
+ * The refund request fields are copied from the payment so the dispatcher needs no other row.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+@Entity
+@Table(name = "refund_outbox", indexes = {
+        @Index(name = "idx_refund_outbox_due", columnList = "status, next_attempt_at")
+})
+public class RefundOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "payment_id", nullable = false)
+    private Long paymentId;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "txn_ref")
+    private String txnRef;
+
+    @Column(nullable = false)
+    private Long amount;
+
+    @Column(name = "transaction_no")
+    private String transactionNo;
+
+    @Column(name = "transaction_date")
+    private String transactionDate;
+
+    @Column(name = "create_by")
+    private String createBy;
+
+    @Column(name = "order_info")
+    private String orderInfo;
+
+    @Column(nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private RefundOutboxStatus status;
+
+    @Column(nullable = false)
+    private Integer attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    // Dispatcher đang giữ row tới thời điểm này
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
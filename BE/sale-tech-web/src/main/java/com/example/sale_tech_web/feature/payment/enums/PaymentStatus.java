@@ -5,6 +5,7 @@ public enum PaymentStatus {
     FAILED,    // Thanh toán thất bại
     PAID,   // Đã thanh toán
     PENDING,   // Đang chờ thanh toán
+    REFUND_PENDING, // Đã xếp hàng hoàn tiền (refund outbox), chờ VNPay xác nhận
     REFUND_FAILED // Hoàn tiền thất bại
 }
 
@@ -0,0 +1,7 @@
+package com.example.sale_tech_web.feature.payment.enums;
+
+public enum RefundOutboxStatus {
+    PENDING,   // Chờ gửi / chờ retry
+    DONE,      // VNPay đã hoàn tiền
+    FAILED     // Hết lượt retry hoặc VNPay từ chối
+}
@@ -0,0 +1,21 @@
+package com.example.sale_tech_web.feature.payment.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * RspCode / Message returned to VNPay for an IPN
+ */
+@Getter
+@RequiredArgsConstructor
+public enum VNPayIpnResult {
+    CONFIRMED("00", "Confirm Success"),
+    ORDER_NOT_FOUND("01", "Order not Found"),
+    ALREADY_CONFIRMED("02", "Order already confirmed"),
+    INVALID_AMOUNT("04", "Invalid amount"),
+    INVALID_CHECKSUM("97", "Invalid Checksum"),
+    SYSTEM_ERROR("99", "System Error");  // VNPay gửi lại IPN
+
+    private final String rspCode;
+    private final String message;
+}
@@ -0,0 +1,17 @@
+package com.example.sale_tech_web.feature.payment.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published when a payment starts or stops waiting for its expiry, handled after commit by PaymentExpiryQueue.
+ */
+@Getter
+@AllArgsConstructor
+public class PaymentExpiryChangedEvent {
+    private final Long paymentId;
+    // null khi payment đã PAID/FAILED -> bỏ timer
+    private final LocalDateTime expiresAt;
+}
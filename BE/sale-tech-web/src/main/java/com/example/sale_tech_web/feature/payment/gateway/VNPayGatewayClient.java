@@ -0,0 +1,176 @@
+package com.example.sale_tech_web.feature.payment.gateway;
+
+import com.example.sale_tech_web.feature.payment.config.PaymentConfig;
+import com.example.sale_tech_web.feature.payment.config.VNPayConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transport of the VNPay merchant API (vnpay.api-url): one shared, pooled keep-alive {@link HttpClient} and
+ * non-blocking calls, so a slow gateway never holds a caller thread. Every call has a deadline, at most
+ * VNPAY_API_MAX_IN_FLIGHT requests are in flight (the rest wait in a bounded queue), idempotent calls are
+ * retried with jittered backoff, and a {@link CircuitBreaker} fails calls fast while the gateway is down.
+ * Signing and parsing the fields stay in VNPayService.
+ */
+@Component
+@Slf4j
+public class VNPayGatewayClient {
+    private final VNPayConfig vnPayConfig;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+    private final CircuitBreaker circuitBreaker;
+    private final Duration readTimeout;
+    private final Duration deadline;
+
+    private final Semaphore inFlight = new Semaphore(PaymentConfig.VNPAY_API_MAX_IN_FLIGHT);
+    private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waitingCount = new AtomicInteger();
+
+    @Autowired
+    public VNPayGatewayClient(VNPayConfig vnPayConfig, ObjectMapper objectMapper) {
+        this(vnPayConfig, objectMapper,
+                Duration.ofMillis(PaymentConfig.VNPAY_API_READ_TIMEOUT_MS),
+                PaymentConfig.VNPAY_API_DEADLINE,
+                new CircuitBreaker(PaymentConfig.VNPAY_BREAKER_FAILURE_THRESHOLD, PaymentConfig.VNPAY_BREAKER_OPEN_DURATION));
+    }
+
+    // Test: timeout / breaker ngắn
+    VNPayGatewayClient(VNPayConfig vnPayConfig, ObjectMapper objectMapper,
+                       Duration readTimeout, Duration deadline, CircuitBreaker circuitBreaker) {
+        this.vnPayConfig = vnPayConfig;
+        this.objectMapper = objectMapper;
+        this.readTimeout = readTimeout;
+        this.deadline = deadline;
+        this.circuitBreaker = circuitBreaker;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(PaymentConfig.VNPAY_API_CONNECT_TIMEOUT_MS))
+                .build();
+    }
+
+    /**
+     * POSTs {@code body} as JSON to the merchant API.
+     *
+     * @param idempotent true to retry on I/O error, timeout or HTTP 5xx (never for refunds)
+     * @return the JSON response; completes exceptionally on failure, deadline exceeded,
+     * full queue or open circuit ({@link RejectedExecutionException})
+     */
+    public CompletableFuture<JsonNode> post(ObjectNode body, boolean idempotent) {
+        CompletableFuture<JsonNode> result = new CompletableFuture<>();
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(body);
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        submit(() -> attempt(payload, 0, idempotent ? PaymentConfig.VNPAY_API_MAX_RETRIES : 0, result), result);
+        return result.orTimeout(deadline.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    // -- Helper Method -- //
+    // Chạy ngay nếu còn permit, không thì xếp hàng (không block thread gọi)
+    private void submit(Runnable call, CompletableFuture<JsonNode> result) {
+        if (inFlight.tryAcquire()) {
+            call.run();
+            return;
+        }
+        if (waitingCount.incrementAndGet() > PaymentConfig.VNPAY_API_MAX_QUEUED) {
+            waitingCount.decrementAndGet();
+            result.completeExceptionally(new RejectedExecutionException("VNPay gateway queue is full"));
+            return;
+        }
+        waiting.add(call);
+        // Permit có thể vừa được trả trong lúc xếp hàng
+        if (inFlight.tryAcquire()) {
+            runNextOrRelease();
+        }
+    }
+
+    // Gọi khi đang giữ 1 permit: chuyển permit cho call đang chờ, hết call thì trả permit
+    private void runNextOrRelease() {
+        Runnable next = waiting.poll();
+        if (next == null) {
+            inFlight.release();
+            return;
+        }
+        waitingCount.decrementAndGet();
+        next.run();
+    }
+
+    // Đang giữ 1 permit
+    private void attempt(byte[] payload, int attemptNo, int retriesLeft, CompletableFuture<JsonNode> result) {
+        // Hết deadline khi còn trong hàng đợi
+        if (result.isDone()) {
+            runNextOrRelease();
+            return;
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            runNextOrRelease();
+            result.completeExceptionally(new RejectedExecutionException("VNPay gateway circuit breaker is open"));
+            return;
+        }
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(vnPayConfig.getApiUrl()))
+                .timeout(readTimeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(payload))
+                .build();
+
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .whenComplete((response, error) -> {
+                    runNextOrRelease();
+
+                    Throwable failure = error instanceof CompletionException ? error.getCause() : error;
+                    if (failure == null && response.statusCode() >= 500) {
+                        failure = new IOException("VNPay gateway returned HTTP " + response.statusCode());
+                    }
+                    if (failure == null) {
+                        circuitBreaker.onSuccess();
+                        try {
+                            result.complete(objectMapper.readTree(response.body()));
+                        } catch (IOException e) {
+                            result.completeExceptionally(e);
+                        }
+                        return;
+                    }
+
+                    circuitBreaker.onFailure();
+                    if (retriesLeft > 0 && !result.isDone()) {
+                        long backoff = PaymentConfig.VNPAY_API_RETRY_BASE.toMillis() << attemptNo;
+                        long delay = ThreadLocalRandom.current().nextLong(backoff + 1);
+                        log.warn("VNPay gateway call failed (attempt {}), retrying in {} ms: {}",
+                                attemptNo + 1, delay, failure.toString());
+                        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() ->
+                                submit(() -> attempt(payload, attemptNo + 1, retriesLeft - 1, result), result));
+                    } else {
+                        result.completeExceptionally(failure);
+                    }
+                });
+    }
+}
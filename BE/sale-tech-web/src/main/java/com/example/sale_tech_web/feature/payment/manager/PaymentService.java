@@ -3,8 +3,11 @@ package com.example.sale_tech_web.feature.payment.manager;
 import com.example.sale_tech_web.feature.order.entity.orders.Order;
 import com.example.sale_tech_web.feature.payment.entity.Payment;
 import com.example.sale_tech_web.feature.payment.enums.PaymentMethod;
+import com.example.sale_tech_web.feature.payment.enums.PaymentStatus;
+import com.example.sale_tech_web.feature.payment.event.PaymentExpiryChangedEvent;
 import com.example.sale_tech_web.feature.payment.processor.PaymentProcessor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,10 +21,13 @@ import java.util.stream.Collectors;
 @Slf4j
 public class PaymentService implements PaymentServiceInterface {
     private final Map<PaymentMethod, PaymentProcessor> processors;
+    private final ApplicationEventPublisher eventPublisher;
 
     public PaymentService(
-            List<PaymentProcessor> processorList
+            List<PaymentProcessor> processorList,
+            ApplicationEventPublisher eventPublisher
     ) {
+        this.eventPublisher = eventPublisher;
 
         // Build map: PaymentMethod -> PaymentProcessor
         this.processors = processorList.stream()
@@ -43,7 +49,13 @@ public class PaymentService implements PaymentServiceInterface {
         // Use empty map if params is null
         Map<String, Object> safeParams = params != null ? params : new HashMap<>();
 
-        return processor.createPayment(order, safeParams);
+        Payment payment = processor.createPayment(order, safeParams);
+
+        // Payment có hạn (VNPay) -> PaymentExpiryQueue hủy đúng lúc hết hạn
+        if (payment.getStatus() == PaymentStatus.PENDING && payment.getExpiresAt() != null) {
+            eventPublisher.publishEvent(new PaymentExpiryChangedEvent(payment.getId(), payment.getExpiresAt()));
+        }
+        return payment;
     }
 
     private PaymentProcessor getProcessor(PaymentMethod method) {
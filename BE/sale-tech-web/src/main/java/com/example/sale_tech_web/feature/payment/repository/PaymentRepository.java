@@ -1,13 +1,18 @@
 package com.example.sale_tech_web.feature.payment.repository;
 
 import com.example.sale_tech_web.feature.payment.entity.Payment;
+import com.example.sale_tech_web.feature.payment.enums.PaymentMethod;
 import com.example.sale_tech_web.feature.payment.enums.PaymentStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,7 +20,96 @@ import java.util.Optional;
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
     Optional<Payment> findByOrderId(Long orderId);
 
-    @Query("SELECT p FROM Payment p WHERE p.status = :status AND p.expiresAt < :now")
-    List<Payment> findExpiredPendingPayments(@Param("status") PaymentStatus status, @Param("now") LocalDateTime now);
-}
+    // IPN: tìm theo vnp_TxnRef (idx_invoice_transaction_id), order load cùng 1 query
+    @Query("SELECT p FROM Payment p JOIN FETCH p.order WHERE p.transactionId = :transactionId")
+    Optional<Payment> findByTransactionIdWithOrder(@Param("transactionId") String transactionId);
+
+    /**
+     * Records the IPN result only if the payment is still in fromStatus
+     *
+     * @return 0 if another IPN (or the expiry) got there first
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Payment p SET p.status = :toStatus, p.vnpTransactionNo = :transactionNo, " +
+            "p.vnpPayDate = :payDate, p.updatedAt = :now " +
+            "WHERE p.id = :paymentId AND p.status = :fromStatus")
+    int updateStatusFromIpn(@Param("paymentId") Long paymentId,
+                            @Param("fromStatus") PaymentStatus fromStatus,
+                            @Param("toStatus") PaymentStatus toStatus,
+                            @Param("transactionNo") String transactionNo,
+                            @Param("payDate") String payDate,
+                            @Param("now") LocalDateTime now);
+
+    /**
+     * Claims up to {@code limit} PENDING payments expired before {@code expiredBefore} (oldest first) and marks them FAILED.
+     * SKIP LOCKED lets several workers and nodes sweep in parallel without waiting on each other.
+     *
+     * @return order ids of the claimed payments
+     */
+    @Query(value = """
+            WITH claimed AS (
+                SELECT id FROM invoice
+                WHERE status = 'PENDING' AND expires_at <= :expiredBefore
+                ORDER BY expires_at
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            )
+            UPDATE invoice i
+            SET status = 'FAILED', updated_at = :now
+            FROM claimed
+            WHERE i.id = claimed.id
+            RETURNING i.order_id
+            """, nativeQuery = true)
+    List<Long> expireChunk(@Param("now") LocalDateTime now,
+                           @Param("expiredBefore") LocalDateTime expiredBefore,
+                           @Param("limit") int limit);
+
+    @Query("SELECT p.id FROM Payment p WHERE p.status = :status AND p.expiresAt <= :now ORDER BY p.expiresAt")
+    List<Long> findExpiredIds(@Param("status") PaymentStatus status, @Param("now") LocalDateTime now, Limit limit);
+
+    // Lag của sweep: expiresAt của payment PENDING quá hạn lâu nhất
+    @Query("SELECT MIN(p.expiresAt) FROM Payment p WHERE p.status = :status AND p.expiresAt <= :now")
+    LocalDateTime findOldestExpiresAt(@Param("status") PaymentStatus status, @Param("now") LocalDateTime now);
 
+    // Seed PaymentExpiryQueue: (payment id, expiresAt)
+    @Query("SELECT p.id, p.expiresAt FROM Payment p WHERE p.status = :status AND p.expiresAt IS NOT NULL")
+    List<Object[]> findPendingExpiries(@Param("status") PaymentStatus status);
+
+    /**
+     * fromStatus -> toStatus only if the payment is still in fromStatus and expired before {@code expiredBefore}
+     *
+     * @return 0 if it was paid/cancelled/expired meanwhile
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Payment p SET p.status = :toStatus, p.updatedAt = :now " +
+            "WHERE p.id = :paymentId AND p.status = :fromStatus AND p.expiresAt <= :expiredBefore")
+    int updateStatusIfExpired(@Param("paymentId") Long paymentId,
+                              @Param("fromStatus") PaymentStatus fromStatus,
+                              @Param("toStatus") PaymentStatus toStatus,
+                              @Param("now") LocalDateTime now,
+                              @Param("expiredBefore") LocalDateTime expiredBefore);
+
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Payment p SET p.status = :toStatus, p.updatedAt = :now " +
+            "WHERE p.order.id IN :orderIds AND p.status = :fromStatus")
+    int updateStatusByOrderIds(@Param("orderIds") Collection<Long> orderIds,
+                               @Param("fromStatus") PaymentStatus fromStatus,
+                               @Param("toStatus") PaymentStatus toStatus,
+                               @Param("now") LocalDateTime now);
+
+    // completeOrder: COD được thu tiền khi giao xong
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Payment p SET p.status = :status, p.updatedAt = :now " +
+            "WHERE p.order.id IN :orderIds AND p.status <> :status")
+    int setStatusByOrderIds(@Param("orderIds") Collection<Long> orderIds,
+                            @Param("status") PaymentStatus status,
+                            @Param("now") LocalDateTime now);
+
+    @Query("SELECT p FROM Payment p JOIN FETCH p.order o JOIN FETCH o.user " +
+            "WHERE o.id IN :orderIds AND p.status = :status AND p.provider = :provider")
+    List<Payment> findByOrderIdsAndStatusAndProvider(@Param("orderIds") Collection<Long> orderIds,
+                                                     @Param("status") PaymentStatus status,
+                                                     @Param("provider") PaymentMethod provider);
+}
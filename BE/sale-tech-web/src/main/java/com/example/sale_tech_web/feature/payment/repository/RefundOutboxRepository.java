@@ -0,0 +1,55 @@
+package com.example.sale_tech_web.feature.payment.repository;
+
+import com.example.sale_tech_web.feature.payment.entity.RefundOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface RefundOutboxRepository extends JpaRepository<RefundOutbox, Long> {
+
+    /**
+     * Leases up to {@code limit} due refunds that still have attempts left to the caller and counts the attempt.
+     * SKIP LOCKED + locked_until let several nodes dispatch without sending the same refund twice.
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE refund_outbox
+            SET locked_until = :leaseUntil,
+                attempts = attempts + 1,
+                updated_at = :now
+            WHERE id IN (
+                SELECT id FROM refund_outbox
+                WHERE status = 'PENDING'
+                  AND attempts < :maxAttempts
+                  AND next_attempt_at <= :now
+                  AND (locked_until IS NULL OR locked_until < :now)
+                ORDER BY next_attempt_at
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING *
+            """, nativeQuery = true)
+    List<RefundOutbox> claimDue(@Param("now") LocalDateTime now,
+                                @Param("leaseUntil") LocalDateTime leaseUntil,
+                                @Param("maxAttempts") int maxAttempts,
+                                @Param("limit") int limit);
+
+    /**
+     * PENDING rows out of attempts whose lease expired: the dispatcher died (or could not record the result)
+     * on the last attempt, {@link #claimDue} never picks them up again.
+     */
+    @Query(value = """
+            SELECT * FROM refund_outbox
+            WHERE status = 'PENDING'
+              AND attempts >= :maxAttempts
+              AND (locked_until IS NULL OR locked_until < :now)
+            """, nativeQuery = true)
+    List<RefundOutbox> findExhausted(@Param("now") LocalDateTime now,
+                                     @Param("maxAttempts") int maxAttempts);
+}
@@ -0,0 +1,139 @@
+package com.example.sale_tech_web.feature.payment.scheduler;
+
+import com.example.sale_tech_web.feature.payment.config.PaymentConfig;
+import com.example.sale_tech_web.feature.payment.enums.PaymentStatus;
+import com.example.sale_tech_web.feature.payment.event.PaymentExpiryChangedEvent;
+import com.example.sale_tech_web.feature.payment.repository.PaymentRepository;
+import com.example.sale_tech_web.feature.payment.service.PaymentProcessingService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expires PENDING payments (releases their stock) within a second of invoice.expires_at + EXPIRY_GRACE, instead
+ * of waiting for the cron sweep. The grace lets a success IPN retried by VNPay just after vnp_ExpireDate
+ * confirm the order instead of finding it cancelled. The queue is only an in-memory index of invoice.expires_at: it is seeded from the DB on
+ * startup and fed by {@link PaymentExpiryChangedEvent} after each payment commit, so a restart loses nothing.
+ * Firing a timer for a payment that was paid, cancelled or already expired by another node is a no-op
+ * ({@link PaymentProcessingService#expirePayment}).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentExpiryQueue {
+    private final PaymentRepository paymentRepository;
+    private final PaymentProcessingService paymentProcessingService;
+
+    private final DelayQueue<ExpiryTimer> queue = new DelayQueue<>();
+    private final Map<Long, ExpiryTimer> timers = new ConcurrentHashMap<>();
+    private volatile Thread worker;
+
+    private record ExpiryTimer(Long paymentId, long dueAtMillis) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAtMillis, ((ExpiryTimer) other).dueAtMillis);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        int seeded = 0;
+        for (Object[] row : paymentRepository.findPendingExpiries(PaymentStatus.PENDING)) {
+            schedule((Long) row[0], (LocalDateTime) row[1]);
+            seeded++;
+        }
+        log.info("Payment expiry queue seeded with {} pending payment(s)", seeded);
+
+        worker = Thread.ofPlatform().name("Payment-Expiry").daemon().start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread current = worker;
+        worker = null;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPaymentExpiryChanged(PaymentExpiryChangedEvent event) {
+        if (event.getExpiresAt() != null) {
+            schedule(event.getPaymentId(), event.getExpiresAt());
+        } else {
+            cancel(event.getPaymentId());
+        }
+    }
+
+    public int size() {
+        return timers.size();
+    }
+
+    // -- Helper Method -- //
+    private void schedule(Long paymentId, LocalDateTime expiresAt) {
+        if (paymentId == null || expiresAt == null) {
+            return;
+        }
+        long dueAt = expiresAt.plus(PaymentConfig.EXPIRY_GRACE).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        put(new ExpiryTimer(paymentId, dueAt));
+    }
+
+    private void put(ExpiryTimer timer) {
+        ExpiryTimer previous = timers.put(timer.paymentId(), timer);
+        if (previous != null) {
+            queue.remove(previous);
+        }
+        queue.put(timer);
+    }
+
+    private void cancel(Long paymentId) {
+        ExpiryTimer timer = timers.remove(paymentId);
+        if (timer != null) {
+            queue.remove(timer);
+        }
+    }
+
+    private void run() {
+        while (worker != null) {
+            ExpiryTimer timer;
+            try {
+                timer = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            // Timer đã bị cancel/thay thế trong lúc chờ
+            if (!timers.remove(timer.paymentId(), timer)) {
+                continue;
+            }
+
+            try {
+                if (paymentProcessingService.expirePayment(timer.paymentId())) {
+                    log.info("Payment {} expired, stock released", timer.paymentId());
+                }
+            } catch (Exception e) {
+                log.error("Failed to expire payment {}, retrying in {}",
+                        timer.paymentId(), PaymentConfig.PAYMENT_EXPIRY_RETRY_DELAY, e);
+                put(new ExpiryTimer(timer.paymentId(),
+                        System.currentTimeMillis() + PaymentConfig.PAYMENT_EXPIRY_RETRY_DELAY.toMillis()));
+            }
+        }
+    }
+}
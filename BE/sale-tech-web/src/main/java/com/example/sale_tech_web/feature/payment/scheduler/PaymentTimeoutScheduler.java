@@ -1,79 +1,139 @@
 package com.example.sale_tech_web.feature.payment.scheduler;
 
 import com.example.sale_tech_web.feature.payment.config.PaymentConfig;
-import com.example.sale_tech_web.feature.payment.entity.Payment;
+import com.example.sale_tech_web.feature.payment.dto.PaymentExpiryStatsDTO;
 import com.example.sale_tech_web.feature.payment.enums.PaymentStatus;
 import com.example.sale_tech_web.feature.payment.repository.PaymentRepository;
 import com.example.sale_tech_web.feature.payment.service.PaymentProcessingService;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Limit;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.List;
-
-import static com.example.sale_tech_web.utils.Color.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
 
 /**
  * Scheduled job to automatically cancel expired PENDING payments and restore inventory
- * Runs every 5 minutes (configurable via PaymentConfig.PAYMENT_CLEANUP_CRON)
+ * Runs every minute (configurable via PaymentConfig.PAYMENT_CLEANUP_CRON)
+ * Safety net behind {@link PaymentExpiryQueue}, which expires payments on time.
+ * <p>
+ * A backlog (outage, VNPay down) is drained in chunks: EXPIRY_SWEEP_WORKERS workers each claim
+ * EXPIRY_CHUNK_SIZE payments at a time with FOR UPDATE SKIP LOCKED, one transaction per chunk,
+ * so workers and nodes share the backlog and a failing chunk only rolls back itself.
  */
 @Component
-@RequiredArgsConstructor
 @Slf4j
 public class PaymentTimeoutScheduler {
 
     private final PaymentRepository paymentRepository;
     private final PaymentProcessingService paymentProcessingService;
+    private final PaymentExpiryQueue paymentExpiryQueue;
+    private final Executor paymentExpiryExecutor;
+
+    private final LongAdder totalExpired = new LongAdder();
+    private final LongAdder totalChunks = new LongAdder();
+    private final LongAdder failedChunks = new LongAdder();
+    private volatile LocalDateTime lastSweepAt;
+    private volatile long lastSweepExpired;
+    private volatile long lastSweepMillis;
+
+    public PaymentTimeoutScheduler(PaymentRepository paymentRepository,
+                                   PaymentProcessingService paymentProcessingService,
+                                   PaymentExpiryQueue paymentExpiryQueue,
+                                   @Qualifier("paymentExpiryExecutor") Executor paymentExpiryExecutor) {
+        this.paymentRepository = paymentRepository;
+        this.paymentProcessingService = paymentProcessingService;
+        this.paymentExpiryQueue = paymentExpiryQueue;
+        this.paymentExpiryExecutor = paymentExpiryExecutor;
+    }
 
     /**
      * Automatically cancel expired PENDING payments and restore product inventory
      * Scheduled to run based on PaymentConfig.PAYMENT_CLEANUP_CRON
      */
     @Scheduled(cron = PaymentConfig.PAYMENT_CLEANUP_CRON)
-    @Transactional
     public void cancelExpiredPayments() {
-        System.out.println(RED + "----------------------------------------------------------------" + RESET);
-        System.out.println("Starting scheduled job: Cancel Expired Payments (with inventory restoration)");
+        long start = System.currentTimeMillis();
+        LongAdder expired = new LongAdder();
 
         try {
-            List<Payment> expiredPayments = paymentRepository.findExpiredPendingPayments(
-                    PaymentStatus.PENDING,
-                    LocalDateTime.now()
-            );
+            CompletableFuture.allOf(IntStream.range(0, PaymentConfig.EXPIRY_SWEEP_WORKERS)
+                            .mapToObj(_ -> CompletableFuture.runAsync(() -> drain(expired), paymentExpiryExecutor))
+                            .toArray(CompletableFuture[]::new))
+                    .join();
+        } catch (Exception e) {
+            log.error("Error in Cancel Expired Payments scheduled job", e);
+        }
 
-            if (expiredPayments.isEmpty()) {
-                System.out.println("No expired pending payments found");
-                System.out.println(RED + "----------------------------------------------------------------" + RESET);
-                return;
-            }
+        lastSweepAt = LocalDateTime.now();
+        lastSweepExpired = expired.sum();
+        lastSweepMillis = System.currentTimeMillis() - start;
+        if (lastSweepExpired > 0) {
+            log.info("Expired payment sweep: {} payment(s) cancelled, inventory restored in {} ms",
+                    lastSweepExpired, lastSweepMillis);
+        }
+    }
 
-            System.out.println("Found " + expiredPayments.size() + " expired pending payments to cancel");
+    public PaymentExpiryStatsDTO getStats() {
+        // Lag tính từ lúc hết thời gian ân hạn, không phải từ expires_at
+        LocalDateTime expiredBefore = LocalDateTime.now().minus(PaymentConfig.EXPIRY_GRACE);
+        LocalDateTime oldest = paymentRepository.findOldestExpiresAt(PaymentStatus.PENDING, expiredBefore);
 
-            int successCount = 0;
-            int failCount = 0;
+        return PaymentExpiryStatsDTO.builder()
+                .pendingTimers(paymentExpiryQueue.size())
+                .lagSeconds(oldest != null ? Duration.between(oldest, expiredBefore).toSeconds() : 0L)
+                .totalExpired(totalExpired.sum())
+                .totalChunks(totalChunks.sum())
+                .failedChunks(failedChunks.sum())
+                .lastSweepAt(lastSweepAt)
+                .lastSweepExpired(lastSweepExpired)
+                .lastSweepMillis(lastSweepMillis)
+                .lastSweepPerSecond(lastSweepMillis > 0 ? lastSweepExpired * 1000.0 / lastSweepMillis : null)
+                .build();
+    }
 
-            for (Payment payment : expiredPayments) {
-                try {
-                    Long orderId = payment.getOrder().getId();
-                    paymentProcessingService.processFailedPayment(orderId, null, null, null);
-                    successCount++;
-                    System.out.println("Auto-cancelled expired payment for order " + orderId + ", inventory restored, expiresAt: " + payment.getExpiresAt());
-                } catch (Exception e) {
-                    failCount++;
-                    log.error("Error cancelling payment for order {}",
-                            payment.getOrder().getId(), e);
-                }
+    // -- Helper Method -- //
+    // Một worker: lấy chunk đến khi hết payment hết hạn
+    private void drain(LongAdder expired) {
+        while (true) {
+            int count;
+            try {
+                count = paymentProcessingService.expireChunk(PaymentConfig.EXPIRY_CHUNK_SIZE);
+            } catch (Exception e) {
+                failedChunks.increment();
+                log.error("Expired payment chunk failed, falling back to one payment at a time", e);
+                expired.add(expireOneByOne());
+                return;
+            }
+            totalChunks.increment();
+            totalExpired.add(count);
+            expired.add(count);
+            if (count < PaymentConfig.EXPIRY_CHUNK_SIZE) {
+                return;
             }
+        }
+    }
 
-            System.out.println("Scheduled job completed: " + successCount + " succeeded, " + failCount + " failed");
-            System.out.println(RED + "----------------------------------------------------------------" + RESET);
-        } catch (Exception e) {
-            log.error("Error in Cancel Expired Payments scheduled job", e);
-            System.out.println(RED + "----------------------------------------------------------------" + RESET);
+    // Cô lập payment lỗi: các payment khác của chunk vẫn được hủy, payment lỗi để lần sweep sau
+    private int expireOneByOne() {
+        int count = 0;
+        for (Long paymentId : paymentRepository.findExpiredIds(
+                PaymentStatus.PENDING, LocalDateTime.now().minus(PaymentConfig.EXPIRY_GRACE), Limit.of(PaymentConfig.EXPIRY_CHUNK_SIZE))) {
+            try {
+                if (paymentProcessingService.expirePayment(paymentId)) {
+                    count++;
+                }
+            } catch (Exception e) {
+                log.error("Error cancelling expired payment {}", paymentId, e);
+            }
         }
+        totalExpired.add(count);
+        return count;
     }
 }
-
@@ -0,0 +1,144 @@
+package com.example.sale_tech_web.feature.payment.scheduler;
+
+import com.example.sale_tech_web.feature.payment.config.PaymentConfig;
+import com.example.sale_tech_web.feature.payment.dto.VNPayRefundRequest;
+import com.example.sale_tech_web.feature.payment.dto.VNPayRefundResponse;
+import com.example.sale_tech_web.feature.payment.entity.RefundOutbox;
+import com.example.sale_tech_web.feature.payment.repository.RefundOutboxRepository;
+import com.example.sale_tech_web.feature.payment.service.RefundOutboxService;
+import com.example.sale_tech_web.feature.payment.service.VNPayService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Sends the refunds of the refund outbox to VNPay, outside any DB transaction.
+ * Each run leases a batch of due rows, calls VNPay through the non-blocking gateway client
+ * (bounded concurrency, deadlines, circuit breaker) and records the results on the refund executor.
+ * The run does not wait for the calls: the scheduler thread is shared with the other jobs, and a row stays
+ * leased while its call is in flight so the next runs do not pick it up again.
+ * <p>
+ * Only a failed call is recorded as a retryable failure. When VNPay answered but the answer could not be
+ * recorded, the row keeps its lease until it expires; every retry first asks VNPay (querydr) whether the
+ * refund already went through, and does not send it again if it did.
+ * A node that dies mid-batch leaves its rows to be picked up again when the lease expires;
+ * rows that run out of attempts that way are marked FAILED by the next run.
+ */
+@Component
+@Slf4j
+public class RefundDispatcher {
+    // vnp_TransactionType của querydr: "02" hoàn toàn phần, "03" hoàn một phần
+    private static final Set<String> REFUND_TRANSACTION_TYPES = Set.of("02", "03");
+
+    private final RefundOutboxRepository refundOutboxRepository;
+    private final RefundOutboxService refundOutboxService;
+    private final VNPayService vnPayService;
+    private final Executor refundExecutor;
+
+    public RefundDispatcher(RefundOutboxRepository refundOutboxRepository,
+                            RefundOutboxService refundOutboxService,
+                            VNPayService vnPayService,
+                            @Qualifier("refundExecutor") Executor refundExecutor) {
+        this.refundOutboxRepository = refundOutboxRepository;
+        this.refundOutboxService = refundOutboxService;
+        this.vnPayService = vnPayService;
+        this.refundExecutor = refundExecutor;
+    }
+
+    @Scheduled(initialDelayString = PaymentConfig.REFUND_DISPATCH_DELAY, fixedDelayString = PaymentConfig.REFUND_DISPATCH_DELAY)
+    public void dispatch() {
+        refundOutboxService.failExhausted();
+
+        LocalDateTime now = LocalDateTime.now();
+        List<RefundOutbox> due = refundOutboxRepository.claimDue(
+                now, now.plus(PaymentConfig.REFUND_LEASE), PaymentConfig.REFUND_MAX_ATTEMPTS, PaymentConfig.REFUND_BATCH_SIZE);
+        if (due.isEmpty()) {
+            return;
+        }
+
+        log.info("Dispatching {} VNPay refund(s)", due.size());
+        due.forEach(this::send);
+    }
+
+    private void send(RefundOutbox row) {
+        CompletableFuture<VNPayRefundResponse> call;
+        try {
+            // Lần trước có thể đã tới VNPay (timeout, "99", lỗi ghi kết quả) -> hỏi trước khi gửi lại
+            call = row.getAttempts() > 1
+                    ? alreadyRefunded(row).thenCompose(response -> response != null
+                            ? CompletableFuture.completedFuture(response)
+                            : processRefund(row))
+                    : processRefund(row);
+        } catch (Exception e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+
+        // Ghi kết quả trên refund executor, không chiếm thread I/O của HttpClient
+        call.handleAsync((response, error) -> {
+            if (error != null) {
+                recordFailure(row, error);
+            } else {
+                recordResult(row, response);
+            }
+            return null;
+        }, refundExecutor);
+    }
+
+    private CompletableFuture<VNPayRefundResponse> processRefund(RefundOutbox row) {
+        return vnPayService.processRefund(VNPayRefundRequest.builder()
+                        .txnRef(row.getTxnRef())
+                        .amount(row.getAmount())
+                        .transactionType("02") // "02" = Full refund, "03" = Partial refund
+                        .transactionDate(row.getTransactionDate())
+                        .transactionNo(row.getTransactionNo())
+                        .createBy(row.getCreateBy())
+                        .orderInfo(row.getOrderInfo())
+                        .build());
+    }
+
+    /**
+     * querydr of the paid transaction: VNPay reports it as refunded (transaction type 02/03) once a refund was accepted
+     *
+     * @return a "00" refund answer if the refund already went through, null otherwise
+     */
+    private CompletableFuture<VNPayRefundResponse> alreadyRefunded(RefundOutbox row) {
+        return vnPayService.queryTransaction(row.getTxnRef(), row.getTransactionDate())
+                .thenApply(query -> "00".equals(query.getResponseCode()) && REFUND_TRANSACTION_TYPES.contains(query.getTransactionType())
+                        ? VNPayRefundResponse.builder()
+                                .responseCode("00")
+                                .message("Refund already accepted by VNPay (querydr)")
+                                .transactionNo(query.getTransactionNo())
+                                .txnRef(query.getTxnRef())
+                                .amount(query.getAmount())
+                                .transactionStatus(query.getTransactionStatus())
+                                .build()
+                        : null);
+    }
+
+    private void recordResult(RefundOutbox row, VNPayRefundResponse response) {
+        try {
+            refundOutboxService.recordResult(row.getId(), response);
+        } catch (Exception e) {
+            // Không ghi thành lỗi gửi: VNPay có thể đã hoàn tiền. Row giữ lease, lần sau querydr trước khi gửi lại
+            log.error("Cannot record VNPay answer {} of refund outbox row {} (order {})",
+                    response.getResponseCode(), row.getId(), row.getOrderId(), e);
+        }
+    }
+
+    private void recordFailure(RefundOutbox row, Throwable error) {
+        log.error("Error dispatching refund outbox row {} (order {})", row.getId(), row.getOrderId(), error);
+        try {
+            refundOutboxService.recordFailure(row.getId(), error);
+        } catch (Exception recordError) {
+            // Row vẫn giữ lease -> được gửi lại (hoặc FAILED nếu hết lượt) khi lease hết hạn
+            log.error("Cannot record dispatch failure of refund outbox row {}", row.getId(), recordError);
+        }
+    }
+}
@@ -1,24 +1,37 @@
 package com.example.sale_tech_web.feature.payment.service;
 
-import com.example.sale_tech_web.exception.ConflictException;
+import com.example.sale_tech_web.exception.BadRequestException;
 import com.example.sale_tech_web.exception.NotFoundException;
 import com.example.sale_tech_web.feature.cart.repository.CartDetailRepository;
+import com.example.sale_tech_web.feature.cart.store.CartStore;
 import com.example.sale_tech_web.feature.order.entity.orderdetails.OrderDetail;
 import com.example.sale_tech_web.feature.order.entity.orders.Order;
 import com.example.sale_tech_web.feature.order.enums.OrderStatus;
+import com.example.sale_tech_web.feature.order.manager.OrderStatusCounterService;
+import com.example.sale_tech_web.feature.order.repository.OrderDetailRepository;
 import com.example.sale_tech_web.feature.order.repository.OrderRepository;
+import com.example.sale_tech_web.feature.payment.config.PaymentConfig;
+import com.example.sale_tech_web.feature.payment.dto.VNPayQueryResponse;
 import com.example.sale_tech_web.feature.payment.entity.Payment;
+import com.example.sale_tech_web.feature.payment.enums.PaymentMethod;
 import com.example.sale_tech_web.feature.payment.enums.PaymentStatus;
+import com.example.sale_tech_web.feature.payment.enums.VNPayIpnResult;
+import com.example.sale_tech_web.feature.payment.event.PaymentExpiryChangedEvent;
 import com.example.sale_tech_web.feature.payment.repository.PaymentRepository;
-import com.example.sale_tech_web.feature.product.repository.ProductRepository;
+import com.example.sale_tech_web.feature.payment.util.VNPayUtil;
+import com.example.sale_tech_web.feature.product.manager.inventory.InventoryServiceInterface;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
@@ -26,118 +39,144 @@ import java.util.regex.Pattern;
 public class PaymentProcessingService {
 
     private final OrderRepository orderRepository;
+    private final OrderDetailRepository orderDetailRepository;
     private final CartDetailRepository cartDetailRepository;
+    private final CartStore cartStore;
     private final PaymentRepository paymentRepository;
-    private final ProductRepository productRepository;
+    private final InventoryServiceInterface inventoryService;
+    private final OrderStatusCounterService orderStatusCounterService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final VNPayService vnPayService;
 
+    /**
+     * Handles a verified VNPay IPN in one short transaction: the payment is found by vnp_TxnRef with its order
+     * in a single query, and the conditional UPDATE on PENDING decides which delivery wins when VNPay retries
+     * (or the expiry races the IPN) - the others get ALREADY_CONFIRMED without touching stock or the cart.
+     *
+     * @param receivedAmount vnp_Amount (VND * 100)
+     */
     @Transactional
-    public void processSuccessfulPayment(Long orderId, Long receivedAmount, String transactionId, String transactionNo, String payDate) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new NotFoundException("Order not found: " + orderId));
-
-        // Verify amount
-        long expectedAmount = order.getTotalPrice() * 100L;
-        if (expectedAmount != receivedAmount) {
-            throw new ConflictException("Payment amount mismatch for order " + orderId +
-                    ": expected " + expectedAmount + ", received " + receivedAmount);
+    public VNPayIpnResult processVNPayIpn(String txnRef, long receivedAmount, boolean success,
+                                         String transactionNo, String payDate) {
+        Payment payment = paymentRepository.findByTransactionIdWithOrder(txnRef).orElse(null);
+        if (payment == null) {
+            return VNPayIpnResult.ORDER_NOT_FOUND;
         }
+        Order order = payment.getOrder();
 
-        // Find existing Payment (created in placeOrder)
-        Payment payment = paymentRepository.findByOrderId(orderId)
-                .orElseThrow(() -> new NotFoundException("Payment not found for order: " + orderId));
-
-        if (payment.getTransactionId() != null && !payment.getTransactionId().equals(transactionId)) {
-            throw new ConflictException("Payment transaction ID mismatch for order " + orderId);
+        // Verify amount
+        if (order.getTotalPrice() * 100L != receivedAmount) {
+            log.warn("VNPay IPN amount mismatch for order {}: expected {}, received {}",
+                    order.getId(), order.getTotalPrice() * 100L, receivedAmount);
+            return VNPayIpnResult.INVALID_AMOUNT;
         }
 
-        // Check if already processed
-        if (payment.getStatus() == PaymentStatus.PAID) {
-            throw new ConflictException("Payment for order " + orderId + " already processed as PAID");
+        // Payment hết PENDING (IPN trước đó, hết hạn) hoặc order không còn chờ thanh toán -> đã xử lý
+        if (order.getStatus() != OrderStatus.PENDING || paymentRepository.updateStatusFromIpn(payment.getId(),
+                PaymentStatus.PENDING, success ? PaymentStatus.PAID : PaymentStatus.FAILED,
+                transactionNo, payDate, LocalDateTime.now()) == 0) {
+            log.info("VNPay IPN for order {} already processed (payment {}, order {})",
+                    order.getId(), payment.getStatus(), order.getStatus());
+            return VNPayIpnResult.ALREADY_CONFIRMED;
         }
+        eventPublisher.publishEvent(new PaymentExpiryChangedEvent(payment.getId(), null));
+
+        Long userId = order.getUser().getId();
+        if (success) {
+            // Order stays PENDING - waiting for PM approval
+            cartDetailRepository.deleteByUserId(userId);
+            cartStore.evictAfterCommit(userId);
+            log.info("VNPay payment SUCCESS for order {}, Order remains PENDING for PM approval", order.getId());
+        } else {
+            // Restore inventory (since payment failed) and cancel the order
+            Map<Long, Integer> quantities = new LinkedHashMap<>();
+            for (Object[] row : orderDetailRepository.sumQuantitiesByProduct(List.of(order.getId()))) {
+                quantities.put((Long) row[0], ((Number) row[1]).intValue());
+            }
+            inventoryService.release(quantities);
 
-        // Update Payment to SUCCESS
-        payment.setStatus(PaymentStatus.PAID);
-//        payment.setTransactionId(transactionId);
-        payment.setVnpTransactionNo(transactionNo);
-        payment.setVnpPayDate(payDate);
-        payment.setUpdatedAt(LocalDateTime.now());
-        paymentRepository.save(payment);
-
-        // Order stays PENDING - waiting for PM approval
-        if (order.getStatus() != OrderStatus.PENDING) {
-            log.warn("Order {} has unexpected status: {}", orderId, order.getStatus());
-            throw new ConflictException("Order has unexpected status: " + order.getStatus());
+            order.setStatus(OrderStatus.CANCELLED);
+            order.setUpdatedAt(LocalDateTime.now());
+            orderRepository.save(order);
+            orderStatusCounterService.recordTransition(userId, OrderStatus.PENDING, OrderStatus.CANCELLED);
+            log.info("VNPay payment FAILED for order {}, Order cancelled", order.getId());
         }
-
-        // Clear cart
-        cartDetailRepository.deleteByUserId(order.getUser().getId());
-
-        log.info("VNPay payment SUCCESS for order {}, Payment updated, Order remains PENDING for PM approval", orderId);
+        return VNPayIpnResult.CONFIRMED;
     }
 
+    /**
+     * Expiry of a payment that was never paid (PaymentExpiryQueue, PaymentTimeoutScheduler).
+     * The conditional UPDATE is the claim: when a timer and the sweep (or two nodes) race, only one releases the stock.
+     *
+     * @return false if the payment is no longer PENDING or not past expires_at + EXPIRY_GRACE yet
+     */
     @Transactional
-    public void processFailedPayment(Long orderId, String transactionId, String transactionNo, String payDate) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new NotFoundException("Order not found: " + orderId));
-
-        // Find existing Payment (created in placeOrder)
-        Payment payment = paymentRepository.findByOrderId(orderId)
-                .orElseThrow(() -> new NotFoundException("Payment not found for order: " + orderId));
-
-        // Restore inventory atomically for each product (since payment failed)
-        for (OrderDetail orderDetail : order.getOrderDetails()) {
-            productRepository.incrementStockOnRevert(orderDetail.getProduct().getId(), orderDetail.getQuantity());
+    public boolean expirePayment(Long paymentId) {
+        LocalDateTime now = LocalDateTime.now();
+        if (paymentRepository.updateStatusIfExpired(paymentId, PaymentStatus.PENDING, PaymentStatus.FAILED,
+                now, now.minus(PaymentConfig.EXPIRY_GRACE)) == 0) {
+            return false;
         }
+        Order order = paymentRepository.findById(paymentId)
+                .map(Payment::getOrder)
+                .orElseThrow(() -> new NotFoundException("Payment not found: " + paymentId));
 
-        if (payment.getTransactionId() != null && !payment.getTransactionId().equals(transactionId)) {
-            throw new ConflictException("Payment transaction ID mismatch for order " + orderId);
-        }
-
-        // Check if already processed
-        if (payment.getStatus() == PaymentStatus.FAILED || payment.getStatus() == PaymentStatus.PAID) {
-            throw new ConflictException("Payment for order " + orderId + " already processed with status: " + payment.getStatus());
-        }
+        inventoryService.release(OrderDetail.quantitiesByProduct(order.getOrderDetails()));
 
-        // Update Payment to FAILED
-        payment.setStatus(PaymentStatus.FAILED);
-//        payment.setTransactionId(transactionId);
-        payment.setVnpTransactionNo(transactionNo);
-        payment.setVnpPayDate(payDate);
-        payment.setUpdatedAt(LocalDateTime.now());
-        paymentRepository.save(payment);
-
-        // Cancel order if still PENDING
         if (order.getStatus() == OrderStatus.PENDING) {
             order.setStatus(OrderStatus.CANCELLED);
             order.setUpdatedAt(LocalDateTime.now());
             orderRepository.save(order);
+            orderStatusCounterService.recordTransition(order.getUser().getId(), OrderStatus.PENDING, OrderStatus.CANCELLED);
         }
-        log.info("Order {} cancelled due to VNPay payment failure", orderId);
+        return true;
     }
 
     /**
-     * Extract order ID from VNPay orderInfo string
-     * Format: "Thanh toan don hang 123"
+     * One chunk of the expiry sweep, in its own transaction: claims up to {@code limit} expired payments
+     * (SKIP LOCKED), returns the stock of all their orders with one set-based update and cancels the orders
+     * still PENDING with another.
+     *
+     * @return number of payments expired (less than {@code limit} = nothing left)
      */
-    public Long extractOrderId(String orderInfo) {
-        try {
-            if (orderInfo == null || orderInfo.isEmpty()) {
-                return null;
-            }
+    @Transactional
+    public int expireChunk(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> orderIds = paymentRepository.expireChunk(now, now.minus(PaymentConfig.EXPIRY_GRACE), limit);
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
 
-            // Regex tìm dãy số nằm ở cuối chuỗi
-            Pattern pattern = Pattern.compile("(\\d+)$");
-            Matcher matcher = pattern.matcher(orderInfo.trim());
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (Object[] row : orderDetailRepository.sumQuantitiesByProduct(orderIds)) {
+            quantities.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        inventoryService.release(quantities);
 
-            if (matcher.find()) {
-                return Long.parseLong(matcher.group(1));
-            }
+        List<Long> cancelled = orderRepository.transitionStatus(
+                orderIds, OrderStatus.PENDING.name(), OrderStatus.CANCELLED.name(), null, now);
+        orderStatusCounterService.recordTransitions(cancelled, OrderStatus.PENDING, OrderStatus.CANCELLED);
+        return orderIds.size();
+    }
 
-            return null;
-        } catch (Exception e) {
-            log.error("Error extracting orderId from orderInfo: {}", orderInfo, e);
-            return null;
+    /**
+     * Query VNPay (querydr) for the real status of an order's VNPay payment, e.g. when the IPN never arrived.
+     * Read-only: the result is returned as is, nothing is updated locally.
+     */
+    @Transactional(readOnly = true)
+    public CompletableFuture<VNPayQueryResponse> queryVNPayStatus(Long orderId) {
+        Payment payment = paymentRepository.findByOrderId(orderId)
+                .orElseThrow(() -> new NotFoundException("Payment not found for order: " + orderId));
+        if (payment.getProvider() != PaymentMethod.VNPAY || payment.getTransactionId() == null) {
+            throw new BadRequestException("Order " + orderId + " was not paid with VNPay");
         }
+
+        // vnp_TransactionDate = vnp_PayDate nếu đã có IPN, nếu không thì thời điểm tạo payment (vnp_CreateDate)
+        String transactionDate = payment.getVnpPayDate() != null
+                ? payment.getVnpPayDate()
+                : payment.getCreatedAt().atZone(ZoneId.systemDefault())
+                        .withZoneSameInstant(VNPayUtil.VNPAY_ZONE)
+                        .format(VNPayUtil.VNPAY_DATE_FORMAT);
+        return vnPayService.queryTransaction(payment.getTransactionId(), transactionDate);
     }
 }
-
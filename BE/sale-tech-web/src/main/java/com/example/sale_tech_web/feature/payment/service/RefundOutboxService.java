@@ -0,0 +1,146 @@
+package com.example.sale_tech_web.feature.payment.service;
+
+import com.example.sale_tech_web.feature.order.entity.orders.Order;
+import com.example.sale_tech_web.feature.payment.config.PaymentConfig;
+import com.example.sale_tech_web.feature.payment.dto.VNPayRefundResponse;
+import com.example.sale_tech_web.feature.payment.entity.Payment;
+import com.example.sale_tech_web.feature.payment.entity.RefundOutbox;
+import com.example.sale_tech_web.feature.payment.enums.PaymentStatus;
+import com.example.sale_tech_web.feature.payment.enums.RefundOutboxStatus;
+import com.example.sale_tech_web.feature.payment.repository.PaymentRepository;
+import com.example.sale_tech_web.feature.payment.repository.RefundOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Refunds go through the refund_outbox table instead of calling VNPay inside the cancel/reject transaction:
+ * {@link #enqueue} runs in the caller's transaction, RefundDispatcher sends the row afterwards and
+ * {@link #recordResult} moves the payment to REFUND or REFUND_FAILED.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RefundOutboxService {
+    // vnp_ResponseCode 99: lỗi hệ thống / timeout phía mình -> gửi lại; mã khác là VNPay đã trả lời dứt khoát
+    private static final String RETRYABLE_RESPONSE_CODE = "99";
+
+    private final RefundOutboxRepository refundOutboxRepository;
+    private final PaymentRepository paymentRepository;
+
+    /**
+     * Marks the payment REFUND_PENDING and writes the full-refund outbox row, in the current transaction
+     */
+    public void enqueue(Payment payment, Order order, String createBy) {
+        LocalDateTime now = LocalDateTime.now();
+
+        payment.setStatus(PaymentStatus.REFUND_PENDING);
+        payment.setUpdatedAt(now);
+        paymentRepository.save(payment);
+
+        refundOutboxRepository.save(RefundOutbox.builder()
+                .paymentId(payment.getId())
+                .orderId(order.getId())
+                .txnRef(payment.getTransactionId())
+                .amount(Long.valueOf(payment.getAmount()))
+                .transactionNo(payment.getVnpTransactionNo())
+                .transactionDate(payment.getVnpPayDate())
+                .createBy(createBy)
+                .orderInfo("Hoan tien don hang " + order.getId())
+                .status(RefundOutboxStatus.PENDING)
+                .attempts(0)
+                .nextAttemptAt(now)
+                .createdAt(now)
+                .updatedAt(now)
+                .build());
+    }
+
+    @Transactional
+    public void recordResult(Long outboxId, VNPayRefundResponse response) {
+        RefundOutbox row = refundOutboxRepository.findById(outboxId).orElse(null);
+        if (row == null || row.getStatus() != RefundOutboxStatus.PENDING) {
+            return;
+        }
+        Payment payment = paymentRepository.findById(row.getPaymentId()).orElse(null);
+        LocalDateTime now = LocalDateTime.now();
+
+        if ("00".equals(response.getResponseCode())) {
+            row.setStatus(RefundOutboxStatus.DONE);
+            row.setLastError(null);
+            row.setLockedUntil(null);
+            row.setUpdatedAt(now);
+            updatePayment(payment, PaymentStatus.REFUND, now);
+            log.info("VNPay refund done for order {} after {} attempt(s)", row.getOrderId(), row.getAttempts());
+        } else {
+            retryOrFail(row, payment, response.getResponseCode() + ": " + response.getMessage(),
+                    RETRYABLE_RESPONSE_CODE.equals(response.getResponseCode()), now);
+        }
+        refundOutboxRepository.save(row);
+    }
+
+    /**
+     * The dispatch of the row failed before a VNPay answer was recorded: retried like a "99" answer,
+     * FAILED once out of attempts
+     */
+    @Transactional
+    public void recordFailure(Long outboxId, Throwable error) {
+        RefundOutbox row = refundOutboxRepository.findById(outboxId).orElse(null);
+        if (row == null || row.getStatus() != RefundOutboxStatus.PENDING) {
+            return;
+        }
+        Payment payment = paymentRepository.findById(row.getPaymentId()).orElse(null);
+        retryOrFail(row, payment, "Dispatch error: " + error, true, LocalDateTime.now());
+        refundOutboxRepository.save(row);
+    }
+
+    /**
+     * Marks FAILED the PENDING rows out of attempts whose lease expired (see RefundOutboxRepository.findExhausted)
+     */
+    @Transactional
+    public void failExhausted() {
+        LocalDateTime now = LocalDateTime.now();
+        for (RefundOutbox row : refundOutboxRepository.findExhausted(now, PaymentConfig.REFUND_MAX_ATTEMPTS)) {
+            Payment payment = paymentRepository.findById(row.getPaymentId()).orElse(null);
+            retryOrFail(row, payment, "No result recorded for the last attempt", false, now);
+            refundOutboxRepository.save(row);
+        }
+    }
+
+    // -- Helper Method -- //
+    private void retryOrFail(RefundOutbox row, Payment payment, String error, boolean retryable, LocalDateTime now) {
+        row.setLastError(truncate(error));
+        row.setLockedUntil(null);
+        row.setUpdatedAt(now);
+        if (retryable && row.getAttempts() < PaymentConfig.REFUND_MAX_ATTEMPTS) {
+            row.setNextAttemptAt(now.plus(backoff(row.getAttempts())));
+            log.warn("VNPay refund for order {} failed (attempt {}), retry at {}: {}",
+                    row.getOrderId(), row.getAttempts(), row.getNextAttemptAt(), row.getLastError());
+        } else {
+            row.setStatus(RefundOutboxStatus.FAILED);
+            updatePayment(payment, PaymentStatus.REFUND_FAILED, now);
+            log.error("VNPay refund for order {} failed for good after {} attempt(s): {}",
+                    row.getOrderId(), row.getAttempts(), row.getLastError());
+        }
+    }
+
+    private void updatePayment(Payment payment, PaymentStatus status, LocalDateTime now) {
+        if (payment != null) {
+            payment.setStatus(status);
+            payment.setUpdatedAt(now);
+            paymentRepository.save(payment);
+        }
+    }
+
+    private static Duration backoff(int attempts) {
+        Duration delay = PaymentConfig.REFUND_RETRY_BASE.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(PaymentConfig.REFUND_RETRY_MAX) > 0 ? PaymentConfig.REFUND_RETRY_MAX : delay;
+    }
+
+    private static String truncate(String message) {
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.sale_tech_web.feature.payment.service;
+
+import com.example.sale_tech_web.feature.idempotency.config.IdempotencyConfig;
+import com.example.sale_tech_web.feature.idempotency.manager.IdempotencyService;
+import com.example.sale_tech_web.feature.idempotency.store.IdempotencyRecord;
+import com.example.sale_tech_web.feature.payment.config.PaymentConfig;
+import com.example.sale_tech_web.feature.payment.enums.VNPayIpnResult;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+/**
+ * VNPay IPN, keyed on vnp_TxnRef. VNPay retries IPNs aggressively, so duplicates are answered in layers:
+ * the recently processed responses of this node (memory), then the idempotency store (shared by all nodes
+ * with idempotency.store=database), and only then PaymentProcessingService.processVNPayIpn.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class VNPayIpnService {
+    private final VNPayService vnPayService;
+    private final PaymentProcessingService paymentProcessingService;
+    private final IdempotencyService idempotencyService;
+
+    // vnp_TxnRef -> response cuối cùng (không lưu 99 để VNPay gửi lại được xử lý lại)
+    private final Cache<String, Map<String, String>> recentResponses = Caffeine.newBuilder()
+            .maximumSize(PaymentConfig.IPN_RECENT_MAX_SIZE)
+            .expireAfterWrite(PaymentConfig.IPN_RECENT_TTL)
+            .build();
+
+    /**
+     * @return RspCode / Message for VNPay
+     */
+    public Map<String, String> handle(Map<String, String> params) {
+        // 1. Verify signature (trước fast path để IPN giả không chiếm được TxnRef)
+        if (!vnPayService.verifyPaymentCallback(params)) {
+            log.error("Invalid signature in VNPay IPN");
+            return response(VNPayIpnResult.INVALID_CHECKSUM);
+        }
+
+        String txnRef = params.get("vnp_TxnRef");
+        if (txnRef == null || txnRef.isBlank()) {
+            return response(VNPayIpnResult.ORDER_NOT_FOUND);
+        }
+        Map<String, String> recent = recentResponses.getIfPresent(txnRef);
+        if (recent != null) {
+            log.debug("Duplicate VNPay IPN answered from memory - TxnRef: {}", txnRef);
+            return recent;
+        }
+
+        // Fast path: VNPay gửi lại IPN cho cùng TxnRef -> trả response lần trước, không load lại order/payment
+        IdempotencyRecord previous = idempotencyService.claim(IdempotencyConfig.VNPAY_IPN_SCOPE, txnRef, null);
+        if (previous != null) {
+            log.info("Duplicate VNPay IPN - TxnRef: {}, first delivery {}", txnRef, previous.isCompleted() ? "done" : "still running");
+            if (!previous.isCompleted()) {
+                return Map.of("RspCode", "99", "Message", "Processing, retry later");
+            }
+            Map<String, String> replayed = idempotencyService.readJson(previous, new TypeReference<Map<String, String>>() {});
+            recentResponses.put(txnRef, replayed);
+            return replayed;
+        }
+
+        Map<String, String> response = response(process(txnRef, params));
+        // Lỗi hệ thống (99) -> mở key để lần gửi lại của VNPay được xử lý lại
+        if (VNPayIpnResult.SYSTEM_ERROR.getRspCode().equals(response.get("RspCode"))) {
+            idempotencyService.release(IdempotencyConfig.VNPAY_IPN_SCOPE, txnRef);
+        } else {
+            idempotencyService.completeJson(IdempotencyConfig.VNPAY_IPN_SCOPE, txnRef, HttpStatus.OK.value(), response);
+            recentResponses.put(txnRef, response);
+        }
+        return response;
+    }
+
+    private VNPayIpnResult process(String txnRef, Map<String, String> params) {
+        try {
+            long amount = Long.parseLong(params.get("vnp_Amount"));
+            boolean success = "00".equals(params.get("vnp_ResponseCode"))
+                    && "00".equals(params.get("vnp_TransactionStatus"));
+
+            return paymentProcessingService.processVNPayIpn(
+                    txnRef, amount, success, params.get("vnp_TransactionNo"), params.get("vnp_PayDate"));
+        } catch (NumberFormatException e) {
+            log.error("Invalid vnp_Amount in VNPay IPN - TxnRef: {}", txnRef);
+            return VNPayIpnResult.INVALID_AMOUNT;
+        } catch (Exception e) {
+            log.error("Error processing VNPay IPN - TxnRef: {}", txnRef, e);
+            return VNPayIpnResult.SYSTEM_ERROR;
+        }
+    }
+
+    private static Map<String, String> response(VNPayIpnResult result) {
+        return Map.of("RspCode", result.getRspCode(), "Message", result.getMessage());
+    }
+}
@@ -3,33 +3,36 @@ package com.example.sale_tech_web.feature.payment.service;
 import com.example.sale_tech_web.feature.payment.config.PaymentConfig;
 import com.example.sale_tech_web.feature.payment.config.VNPayConfig;
 import com.example.sale_tech_web.feature.payment.dto.VNPayPaymentResponse;
+import com.example.sale_tech_web.feature.payment.dto.VNPayQueryResponse;
 import com.example.sale_tech_web.feature.payment.dto.VNPayRefundRequest;
 import com.example.sale_tech_web.feature.payment.dto.VNPayRefundResponse;
+import com.example.sale_tech_web.feature.payment.gateway.VNPayGatewayClient;
+import com.example.sale_tech_web.feature.payment.util.VNPaySigner;
 import com.example.sale_tech_web.feature.payment.util.VNPayUtil;
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-import jakarta.servlet.http.HttpServletRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
-import java.io.DataOutputStream;
-import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
-import java.util.*;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class VNPayService {
 
+    private static final String API_VERSION = "2.1.0";
+    private static final String API_IP_ADDRESS = "127.0.0.1"; // IP của server gọi merchant API
+
     private final VNPayConfig vnPayConfig;
+    private final VNPaySigner vnPaySigner;
+    private final VNPayGatewayClient vnPayGatewayClient;
+    private final ObjectMapper objectMapper;
 
     /**
      * Create VNPay payment URL
@@ -37,93 +40,52 @@ public class VNPayService {
      * @param orderId   Order ID
      * @param amount    Total amount in VND
      * @param orderInfo Order description
-     * @param request   HttpServletRequest to get IP address
+     * @param ipAddress Customer IP address, captured when the order was submitted
      * @return VNPayPaymentResponse with payment URL
      */
-    public VNPayPaymentResponse createPayment(Long orderId, Integer amount, String orderInfo, HttpServletRequest request) {
-        try {
-            String vnp_Version = "2.1.0";
-            String vnp_Command = "pay";
-            String orderType = "other";
-
-            // Amount must be in smallest unit (VND * 100)
-            long vnp_Amount = amount * 100L;
-
-            // Generate unique transaction reference
-            String vnp_TxnRef = VNPayUtil.getRandomNumber(8);
-            String vnp_IpAddr = VNPayUtil.getIpAddress(request);
-            String vnp_TmnCode = vnPayConfig.getTmnCode();
-
-            // Build parameters
-            Map<String, String> vnp_Params = new HashMap<>();
-            vnp_Params.put("vnp_Version", vnp_Version);
-            vnp_Params.put("vnp_Command", vnp_Command);
-            vnp_Params.put("vnp_TmnCode", vnp_TmnCode);
-            vnp_Params.put("vnp_Amount", String.valueOf(vnp_Amount));
-            vnp_Params.put("vnp_CurrCode", "VND");
-            vnp_Params.put("vnp_TxnRef", vnp_TxnRef);
-            vnp_Params.put("vnp_OrderInfo", orderInfo);
-            vnp_Params.put("vnp_OrderType", orderType);
-            vnp_Params.put("vnp_Locale", "vn");
-            vnp_Params.put("vnp_ReturnUrl", vnPayConfig.getReturnUrl());
-            vnp_Params.put("vnp_IpAddr", vnp_IpAddr);
-//            vnp_Params.put("vnp_IpnUrl", vnPayConfig.getIpnUrl());
-
-            // Create date and expire date
-            Calendar cld = Calendar.getInstance(TimeZone.getTimeZone("Etc/GMT+7"));
-            SimpleDateFormat formatter = new SimpleDateFormat("yyyyMMddHHmmss");
-            String vnp_CreateDate = formatter.format(cld.getTime());
-            vnp_Params.put("vnp_CreateDate", vnp_CreateDate);
-
-            cld.add(Calendar.MINUTE, PaymentConfig.PAYMENT_TIMEOUT_MINUTES);
-            String vnp_ExpireDate = formatter.format(cld.getTime());
-            vnp_Params.put("vnp_ExpireDate", vnp_ExpireDate);
-
-            // Build query string
-            List<String> fieldNames = new ArrayList<>(vnp_Params.keySet());
-            Collections.sort(fieldNames);
-            StringBuilder hashData = new StringBuilder();
-            StringBuilder query = new StringBuilder();
-
-            Iterator<String> itr = fieldNames.iterator();
-            while (itr.hasNext()) {
-                String fieldName = itr.next();
-                String fieldValue = vnp_Params.get(fieldName);
-                if ((fieldValue != null) && (!fieldValue.isEmpty())) {
-                    // Build hash data
-                    hashData.append(fieldName);
-                    hashData.append('=');
-                    hashData.append(URLEncoder.encode(fieldValue, StandardCharsets.US_ASCII.toString()));
-
-                    // Build query
-                    query.append(URLEncoder.encode(fieldName, StandardCharsets.US_ASCII.toString()));
-                    query.append('=');
-                    query.append(URLEncoder.encode(fieldValue, StandardCharsets.US_ASCII.toString()));
-
-                    if (itr.hasNext()) {
-                        query.append('&');
-                        hashData.append('&');
-                    }
-                }
-            }
-
-            String queryUrl = query.toString();
-            String vnp_SecureHash = VNPayUtil.hmacSHA512(vnPayConfig.getHashSecret(), hashData.toString());
-            queryUrl += "&vnp_SecureHash=" + vnp_SecureHash;
-            String paymentUrl = vnPayConfig.getPayUrl() + "?" + queryUrl;
-
-            log.info("Created VNPay payment URL for order: {}, txnRef: {}", orderId, vnp_TxnRef);
-
-            return VNPayPaymentResponse.builder()
-                    .paymentUrl(paymentUrl)
-                    .txnRef(vnp_TxnRef)
-                    .orderId(orderId)
-                    .build();
-
-        } catch (UnsupportedEncodingException e) {
-            log.error("Error creating VNPay payment URL", e);
-            throw new RuntimeException("Failed to create payment URL", e);
-        }
+    public VNPayPaymentResponse createPayment(Long orderId, Integer amount, String orderInfo, String ipAddress) {
+        String vnp_Command = "pay";
+        String orderType = "other";
+
+        // Amount must be in smallest unit (VND * 100)
+        long vnp_Amount = amount * 100L;
+
+        // Generate unique transaction reference
+        String vnp_TxnRef = VNPayUtil.getRandomNumber(8);
+        String vnp_IpAddr = ipAddress;
+        String vnp_TmnCode = vnPayConfig.getTmnCode();
+
+        // Build parameters
+        Map<String, String> vnp_Params = new HashMap<>(32);
+        vnp_Params.put("vnp_Version", API_VERSION);
+        vnp_Params.put("vnp_Command", vnp_Command);
+        vnp_Params.put("vnp_TmnCode", vnp_TmnCode);
+        vnp_Params.put("vnp_Amount", String.valueOf(vnp_Amount));
+        vnp_Params.put("vnp_CurrCode", "VND");
+        vnp_Params.put("vnp_TxnRef", vnp_TxnRef);
+        vnp_Params.put("vnp_OrderInfo", orderInfo);
+        vnp_Params.put("vnp_OrderType", orderType);
+        vnp_Params.put("vnp_Locale", "vn");
+        vnp_Params.put("vnp_ReturnUrl", vnPayConfig.getReturnUrl());
+        vnp_Params.put("vnp_IpAddr", vnp_IpAddr);
+//        vnp_Params.put("vnp_IpnUrl", vnPayConfig.getIpnUrl());
+
+        // Create date and expire date
+        ZonedDateTime createDate = ZonedDateTime.now(VNPayUtil.VNPAY_ZONE);
+        vnp_Params.put("vnp_CreateDate", createDate.format(VNPayUtil.VNPAY_DATE_FORMAT));
+        vnp_Params.put("vnp_ExpireDate", createDate.plusMinutes(PaymentConfig.PAYMENT_TIMEOUT_MINUTES)
+                .format(VNPayUtil.VNPAY_DATE_FORMAT));
+
+        // Build query string + vnp_SecureHash (sorted, encoded once)
+        String paymentUrl = vnPayConfig.getPayUrl() + "?" + vnPaySigner.signedQuery(vnp_Params);
+
+        log.info("Created VNPay payment URL for order: {}, txnRef: {}", orderId, vnp_TxnRef);
+
+        return VNPayPaymentResponse.builder()
+                .paymentUrl(paymentUrl)
+                .txnRef(vnp_TxnRef)
+                .orderId(orderId)
+                .build();
     }
 
     /**
@@ -133,135 +95,148 @@ public class VNPayService {
      * @return true if signature is valid
      */
     public boolean verifyPaymentCallback(Map<String, String> params) {
-        String vnp_SecureHash = params.get("vnp_SecureHash");
-
-        // Remove hash params before verification
-        params.remove("vnp_SecureHash");
-        params.remove("vnp_SecureHashType");
-
-        // Calculate hash
-        String signValue = VNPayUtil.hashAllFields(params, vnPayConfig.getHashSecret());
-
-        log.info("Verifying VNPay callback - Received hash: {}, Calculated hash: {}", vnp_SecureHash, signValue);
-
-        return signValue.equals(vnp_SecureHash);
+        // Hash tính trên mọi field trừ vnp_SecureHash, vnp_SecureHashType
+        boolean valid = vnPaySigner.verify(params);
+        if (!valid) {
+            log.warn("Invalid VNPay signature for txnRef {}", params.get("vnp_TxnRef"));
+        }
+        return valid;
     }
 
     /**
      * Process VNPay refund request
      *
+     * Called by RefundDispatcher outside any DB transaction. Never retried by the gateway client (not idempotent);
+     * a timeout, I/O error or open circuit completes with code 99 so the refund outbox retries later.
+     *
      * @param refundRequest Refund request data
-     * @param request       HttpServletRequest to get IP address
      * @return VNPayRefundResponse with refund result
      */
-    public VNPayRefundResponse processRefund(VNPayRefundRequest refundRequest, HttpServletRequest request) {
-        try {
-            // Generate request ID
-            String vnp_RequestId = VNPayUtil.getRandomNumber(8);
-            String vnp_Version = "2.1.0";
-            String vnp_Command = "refund";
-            String vnp_TmnCode = vnPayConfig.getTmnCode();
-            String vnp_TransactionType = refundRequest.getTransactionType(); // "02": toàn phần, "03": một phần
-            String vnp_TxnRef = refundRequest.getTxnRef();
-
-            // Amount must be in smallest unit (VND * 100)
-            long amount = refundRequest.getAmount() * 100L;
-            String vnp_Amount = String.valueOf(amount);
-
-            String vnp_OrderInfo = refundRequest.getOrderInfo() != null
-                    ? refundRequest.getOrderInfo()
-                    : "Hoan tien GD OrderId:" + vnp_TxnRef;
-
-            String vnp_TransactionNo = refundRequest.getTransactionNo();
-
-            String vnp_TransactionDate = refundRequest.getTransactionDate();
-            String vnp_CreateBy = refundRequest.getCreateBy();
-
-            // Create current date
-            Calendar cld = Calendar.getInstance(TimeZone.getTimeZone("Etc/GMT+7"));
-            SimpleDateFormat formatter = new SimpleDateFormat("yyyyMMddHHmmss");
-            String vnp_CreateDate = formatter.format(cld.getTime());
-
-//            String vnp_IpAddr = VNPayUtil.getIpAddress(request);
-            String vnp_IpAddr = "127.0.0.1"; // For testing purposes
-
-            // Build JSON params
-            JsonObject vnp_Params = new JsonObject();
-            vnp_Params.addProperty("vnp_RequestId", vnp_RequestId);
-            vnp_Params.addProperty("vnp_Version", vnp_Version);
-            vnp_Params.addProperty("vnp_Command", vnp_Command);
-            vnp_Params.addProperty("vnp_TmnCode", vnp_TmnCode);
-            vnp_Params.addProperty("vnp_TransactionType", vnp_TransactionType);
-            vnp_Params.addProperty("vnp_TxnRef", vnp_TxnRef);
-            vnp_Params.addProperty("vnp_Amount", vnp_Amount);
-            vnp_Params.addProperty("vnp_OrderInfo", vnp_OrderInfo);
-            vnp_Params.addProperty("vnp_TransactionNo", vnp_TransactionNo);
-
-
-            vnp_Params.addProperty("vnp_TransactionDate", vnp_TransactionDate);
-            vnp_Params.addProperty("vnp_CreateBy", vnp_CreateBy);
-            vnp_Params.addProperty("vnp_CreateDate", vnp_CreateDate);
-            vnp_Params.addProperty("vnp_IpAddr", vnp_IpAddr);
-
-            // Create secure hash
-            String hash_Data = String.join("|",
-                    vnp_RequestId, vnp_Version, vnp_Command, vnp_TmnCode,
-                    vnp_TransactionType, vnp_TxnRef, vnp_Amount,
-                    vnp_TransactionNo, vnp_TransactionDate, vnp_CreateBy, vnp_CreateDate,
-                    vnp_IpAddr, vnp_OrderInfo);
-
-            String vnp_SecureHash = VNPayUtil.hmacSHA512(vnPayConfig.getHashSecret(), hash_Data);
-            vnp_Params.addProperty("vnp_SecureHash", vnp_SecureHash);
-
-            // Send request to VNPay API
-            URL url = new URL(vnPayConfig.getApiUrl());
-            HttpURLConnection con = (HttpURLConnection) url.openConnection();
-            con.setRequestMethod("POST");
-            con.setRequestProperty("Content-Type", "application/json");
-            con.setDoOutput(true);
-
-            DataOutputStream wr = new DataOutputStream(con.getOutputStream());
-            wr.writeBytes(vnp_Params.toString());
-            wr.flush();
-            wr.close();
-
-            int responseCode = con.getResponseCode();
-            log.info("Sending 'POST' request to URL: {}", url);
-            log.info("Post Data: {}", vnp_Params);
-            log.info("Response Code: {}", responseCode);
-
-            BufferedReader in = new BufferedReader(new InputStreamReader(con.getInputStream()));
-            String output;
-            StringBuilder response = new StringBuilder();
-            while ((output = in.readLine()) != null) {
-                response.append(output);
-            }
-            in.close();
+    public CompletableFuture<VNPayRefundResponse> processRefund(VNPayRefundRequest refundRequest) {
+        // Generate request ID
+        String vnp_RequestId = VNPayUtil.getRandomNumber(8);
+        String vnp_Command = "refund";
+        String vnp_TmnCode = vnPayConfig.getTmnCode();
+        String vnp_TransactionType = refundRequest.getTransactionType(); // "02": toàn phần, "03": một phần
+        String vnp_TxnRef = refundRequest.getTxnRef();
+
+        // Amount must be in smallest unit (VND * 100)
+        String vnp_Amount = String.valueOf(refundRequest.getAmount() * 100L);
+
+        String vnp_OrderInfo = refundRequest.getOrderInfo() != null
+                ? refundRequest.getOrderInfo()
+                : "Hoan tien GD OrderId:" + vnp_TxnRef;
+        String vnp_TransactionNo = refundRequest.getTransactionNo();
+        String vnp_TransactionDate = refundRequest.getTransactionDate();
+        String vnp_CreateBy = refundRequest.getCreateBy();
+        String vnp_CreateDate = apiCreateDate();
+
+        // Build JSON params
+        ObjectNode vnp_Params = objectMapper.createObjectNode();
+        vnp_Params.put("vnp_RequestId", vnp_RequestId);
+        vnp_Params.put("vnp_Version", API_VERSION);
+        vnp_Params.put("vnp_Command", vnp_Command);
+        vnp_Params.put("vnp_TmnCode", vnp_TmnCode);
+        vnp_Params.put("vnp_TransactionType", vnp_TransactionType);
+        vnp_Params.put("vnp_TxnRef", vnp_TxnRef);
+        vnp_Params.put("vnp_Amount", vnp_Amount);
+        vnp_Params.put("vnp_OrderInfo", vnp_OrderInfo);
+        vnp_Params.put("vnp_TransactionNo", vnp_TransactionNo);
+        vnp_Params.put("vnp_TransactionDate", vnp_TransactionDate);
+        vnp_Params.put("vnp_CreateBy", vnp_CreateBy);
+        vnp_Params.put("vnp_CreateDate", vnp_CreateDate);
+        vnp_Params.put("vnp_IpAddr", API_IP_ADDRESS);
+
+        // Create secure hash
+        String hash_Data = String.join("|",
+                vnp_RequestId, API_VERSION, vnp_Command, vnp_TmnCode,
+                vnp_TransactionType, vnp_TxnRef, vnp_Amount,
+                vnp_TransactionNo, vnp_TransactionDate, vnp_CreateBy, vnp_CreateDate,
+                API_IP_ADDRESS, vnp_OrderInfo);
+        vnp_Params.put("vnp_SecureHash", vnPaySigner.sign(hash_Data));
+
+        return vnPayGatewayClient.post(vnp_Params, false)
+                .thenApply(responseJson -> {
+                    log.info("VNPay Refund Response for txnRef {}: {}", vnp_TxnRef, responseJson);
+                    return VNPayRefundResponse.builder()
+                            .responseCode(text(responseJson, "vnp_ResponseCode"))
+                            .message(text(responseJson, "vnp_Message"))
+                            .transactionNo(text(responseJson, "vnp_TransactionNo"))
+                            .txnRef(responseJson.has("vnp_TxnRef") ? text(responseJson, "vnp_TxnRef") : vnp_TxnRef)
+                            .amount(refundRequest.getAmount())
+                            .bankCode(text(responseJson, "vnp_BankCode"))
+                            .orderInfo(vnp_OrderInfo)
+                            .payDate(text(responseJson, "vnp_PayDate"))
+                            .transactionStatus(text(responseJson, "vnp_TransactionStatus"))
+                            .build();
+                })
+                .exceptionally(e -> {
+                    log.error("Error processing VNPay refund for txnRef {}", vnp_TxnRef, e);
+                    return VNPayRefundResponse.builder()
+                            .responseCode("99")
+                            .message("Error: " + rootMessage(e))
+                            .build();
+                });
+    }
 
-            log.info("VNPay Refund Response: {}", response.toString());
+    /**
+     * Query the status of a payment at VNPay (querydr), e.g. when the IPN never arrived.
+     * Idempotent, so retried by the gateway client; fails with the gateway error.
+     *
+     * @param txnRef          vnp_TxnRef of the payment
+     * @param transactionDate vnp_CreateDate / vnp_PayDate of the payment (yyyyMMddHHmmss)
+     */
+    public CompletableFuture<VNPayQueryResponse> queryTransaction(String txnRef, String transactionDate) {
+        String vnp_RequestId = VNPayUtil.getRandomNumber(8);
+        String vnp_Command = "querydr";
+        String vnp_TmnCode = vnPayConfig.getTmnCode();
+        String vnp_OrderInfo = "Kiem tra ket qua GD OrderId:" + txnRef;
+        String vnp_CreateDate = apiCreateDate();
+
+        ObjectNode vnp_Params = objectMapper.createObjectNode();
+        vnp_Params.put("vnp_RequestId", vnp_RequestId);
+        vnp_Params.put("vnp_Version", API_VERSION);
+        vnp_Params.put("vnp_Command", vnp_Command);
+        vnp_Params.put("vnp_TmnCode", vnp_TmnCode);
+        vnp_Params.put("vnp_TxnRef", txnRef);
+        vnp_Params.put("vnp_OrderInfo", vnp_OrderInfo);
+        vnp_Params.put("vnp_TransactionDate", transactionDate);
+        vnp_Params.put("vnp_CreateDate", vnp_CreateDate);
+        vnp_Params.put("vnp_IpAddr", API_IP_ADDRESS);
+
+        String hash_Data = String.join("|",
+                vnp_RequestId, API_VERSION, vnp_Command, vnp_TmnCode,
+                txnRef, transactionDate, vnp_CreateDate, API_IP_ADDRESS, vnp_OrderInfo);
+        vnp_Params.put("vnp_SecureHash", vnPaySigner.sign(hash_Data));
+
+        return vnPayGatewayClient.post(vnp_Params, true)
+                .thenApply(responseJson -> VNPayQueryResponse.builder()
+                        .responseCode(text(responseJson, "vnp_ResponseCode"))
+                        .message(text(responseJson, "vnp_Message"))
+                        .txnRef(text(responseJson, "vnp_TxnRef"))
+                        .amount(responseJson.path("vnp_Amount").asLong(0) / 100)
+                        .transactionNo(text(responseJson, "vnp_TransactionNo"))
+                        .transactionStatus(text(responseJson, "vnp_TransactionStatus"))
+                        .transactionType(text(responseJson, "vnp_TransactionType"))
+                        .bankCode(text(responseJson, "vnp_BankCode"))
+                        .payDate(text(responseJson, "vnp_PayDate"))
+                        .build());
+    }
 
-            // Parse response
-            Gson gson = new Gson();
-            JsonObject responseJson = gson.fromJson(response.toString(), JsonObject.class);
+    // -- Helper Method -- //
+    private static String apiCreateDate() {
+        return ZonedDateTime.now(VNPayUtil.VNPAY_ZONE).format(VNPayUtil.VNPAY_DATE_FORMAT);
+    }
 
-            return VNPayRefundResponse.builder()
-                    .responseCode(responseJson.has("vnp_ResponseCode") ? responseJson.get("vnp_ResponseCode").getAsString() : "")
-                    .message(responseJson.has("vnp_Message") ? responseJson.get("vnp_Message").getAsString() : "")
-                    .transactionNo(responseJson.has("vnp_TransactionNo") ? responseJson.get("vnp_TransactionNo").getAsString() : "")
-                    .txnRef(responseJson.has("vnp_TxnRef") ? responseJson.get("vnp_TxnRef").getAsString() : vnp_TxnRef)
-                    .amount(refundRequest.getAmount())
-                    .bankCode(responseJson.has("vnp_BankCode") ? responseJson.get("vnp_BankCode").getAsString() : "")
-                    .orderInfo(vnp_OrderInfo)
-                    .payDate(responseJson.has("vnp_PayDate") ? responseJson.get("vnp_PayDate").getAsString() : "")
-                    .transactionStatus(responseJson.has("vnp_TransactionStatus") ? responseJson.get("vnp_TransactionStatus").getAsString() : "")
-                    .build();
+    private static String text(JsonNode json, String field) {
+        return json.path(field).asText("");
+    }
 
-        } catch (Exception e) {
-            log.error("Error processing VNPay refund", e);
-            return VNPayRefundResponse.builder()
-                    .responseCode("99")
-                    .message("Error: " + e.getMessage())
-                    .build();
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
         }
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
     }
 }
@@ -0,0 +1,150 @@
+package com.example.sale_tech_web.feature.payment.util;
+
+import com.example.sale_tech_web.feature.payment.config.VNPayConfig;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * HMAC-SHA512 signing / verification of VNPay requests and callbacks with the merchant hash secret.
+ * The key is set up once; each thread signs with its own clone of an initialized {@link Mac}
+ * (Mac is not thread-safe, Mac.getInstance + init per call is the expensive part).
+ * Fields are sorted and URL-encoded in a single pass, with the same output as URLEncoder (US_ASCII).
+ */
+@Component
+public class VNPaySigner {
+    private static final String ALGORITHM = "HmacSHA512";
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final char[] HEX_UPPER = "0123456789ABCDEF".toCharArray();
+    private static final boolean[] UNRESERVED = new boolean[128];
+
+    static {
+        // Ký tự URLEncoder giữ nguyên
+        for (char c = 'a'; c <= 'z'; c++) UNRESERVED[c] = true;
+        for (char c = 'A'; c <= 'Z'; c++) UNRESERVED[c] = true;
+        for (char c = '0'; c <= '9'; c++) UNRESERVED[c] = true;
+        UNRESERVED['.'] = UNRESERVED['-'] = UNRESERVED['*'] = UNRESERVED['_'] = true;
+    }
+
+    private final Mac prototype;
+    private final ThreadLocal<Mac> macs;
+
+    public VNPaySigner(VNPayConfig vnPayConfig) {
+        this.prototype = vnPayConfig.getHashSecret() != null ? newMac(vnPayConfig.getHashSecret()) : null;
+        this.macs = ThreadLocal.withInitial(() -> {
+            if (prototype == null) {
+                throw new IllegalStateException("vnpay.hash-secret is not configured");
+            }
+            try {
+                return (Mac) prototype.clone();
+            } catch (CloneNotSupportedException e) {
+                // Provider không hỗ trợ clone -> khởi tạo Mac riêng cho thread
+                return newMac(vnPayConfig.getHashSecret());
+            }
+        });
+    }
+
+    /**
+     * @return lowercase hex HMAC-SHA512 of {@code data}
+     */
+    public String sign(String data) {
+        byte[] digest = macs.get().doFinal(data.getBytes(StandardCharsets.UTF_8));
+        byte[] hex = new byte[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[2 * i] = HEX[(digest[i] >> 4) & 0x0f];
+            hex[2 * i + 1] = HEX[digest[i] & 0x0f];
+        }
+        return new String(hex, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Query string of the VNPay payment URL, vnp_SecureHash included.
+     * Field names are plain ASCII (vnp_*), so the encoded query and the hash data are the same string.
+     */
+    public String signedQuery(Map<String, String> fields) {
+        String query = encodeSorted(fields);
+        return query + "&vnp_SecureHash=" + sign(query);
+    }
+
+    /**
+     * Verifies a callback / IPN: the signature covers every field except vnp_SecureHash and vnp_SecureHashType.
+     * Compared in constant time.
+     */
+    public boolean verify(Map<String, String> params) {
+        String received = params.get("vnp_SecureHash");
+        if (received == null || received.isEmpty()) {
+            return false;
+        }
+        String expected = sign(encodeSorted(params));
+        return MessageDigest.isEqual(
+                expected.getBytes(StandardCharsets.US_ASCII),
+                received.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    // -- Helper Method -- //
+    private static String encodeSorted(Map<String, String> fields) {
+        String[] names = new String[fields.size()];
+        int count = 0;
+        int length = 0;
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            String value = field.getValue();
+            if (value != null && !value.isEmpty() && !isHashField(field.getKey())) {
+                names[count++] = field.getKey();
+                length += field.getKey().length() + value.length() + 2;
+            }
+        }
+        Arrays.sort(names, 0, count);
+
+        StringBuilder sb = new StringBuilder(length + 32);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append('&');
+            }
+            sb.append(names[i]).append('=');
+            encode(fields.get(names[i]), sb);
+        }
+        return sb.toString();
+    }
+
+    private static boolean isHashField(String name) {
+        return name.equals("vnp_SecureHash") || name.equals("vnp_SecureHashType");
+    }
+
+    // Giống URLEncoder.encode(value, US_ASCII) nhưng ghi thẳng vào sb; ký tự ngoài ASCII -> dùng URLEncoder
+    private static void encode(String value, StringBuilder sb) {
+        int start = sb.length();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 128) {
+                sb.setLength(start);
+                sb.append(URLEncoder.encode(value, StandardCharsets.US_ASCII));
+                return;
+            }
+            if (UNRESERVED[c]) {
+                sb.append(c);
+            } else if (c == ' ') {
+                sb.append('+');
+            } else {
+                sb.append('%').append(HEX_UPPER[c >> 4]).append(HEX_UPPER[c & 0x0f]);
+            }
+        }
+    }
+
+    private static Mac newMac(String secret) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialize " + ALGORITHM, e);
+        }
+    }
+}
@@ -2,61 +2,14 @@ package com.example.sale_tech_web.feature.payment.util;
 
 import jakarta.servlet.http.HttpServletRequest;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-import java.util.*;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class VNPayUtil {
-
-    /**
-     * Generate HMAC SHA512 signature
-     */
-    public static String hmacSHA512(final String key, final String data) {
-        try {
-            if (key == null || data == null) {
-                throw new NullPointerException();
-            }
-            final Mac hmac512 = Mac.getInstance("HmacSHA512");
-            byte[] hmacKeyBytes = key.getBytes(StandardCharsets.UTF_8);
-            final SecretKeySpec secretKey = new SecretKeySpec(hmacKeyBytes, "HmacSHA512");
-            hmac512.init(secretKey);
-            byte[] dataBytes = data.getBytes(StandardCharsets.UTF_8);
-            byte[] result = hmac512.doFinal(dataBytes);
-            StringBuilder sb = new StringBuilder(2 * result.length);
-            for (byte b : result) {
-                sb.append(String.format("%02x", b & 0xff));
-            }
-            return sb.toString();
-        } catch (Exception ex) {
-            return "";
-        }
-    }
-
-    /**
-     * Hash all fields to create secure hash
-     */
-    public static String hashAllFields(Map<String, String> fields, String secretKey) {
-        List<String> fieldNames = new ArrayList<>(fields.keySet());
-        Collections.sort(fieldNames);
-        StringBuilder sb = new StringBuilder();
-        Iterator<String> itr = fieldNames.iterator();
-        while (itr.hasNext()) {
-            String fieldName = itr.next();
-            String fieldValue = fields.get(fieldName);
-            if ((fieldValue != null) && (!fieldValue.isEmpty())) {
-                sb.append(fieldName);
-                sb.append('=');
-//                sb.append(fieldValue);
-                sb.append(URLEncoder.encode(fieldValue, StandardCharsets.US_ASCII));
-                if (itr.hasNext()) {
-                    sb.append("&");
-                }
-            }
-        }
-        return hmacSHA512(secretKey, sb.toString());
-    }
+    // Múi giờ và định dạng ngày (vnp_CreateDate, vnp_ExpireDate, vnp_PayDate) theo mẫu của VNPay
+    public static final ZoneId VNPAY_ZONE = ZoneId.of("Etc/GMT+7");
+    public static final DateTimeFormatter VNPAY_DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
 
     /**
      * Get IP Address from request
@@ -78,11 +31,10 @@ public class VNPayUtil {
      * Generate random number with specific length
      */
     public static String getRandomNumber(int len) {
-        Random rnd = new Random();
-        String chars = "0123456789";
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
         StringBuilder sb = new StringBuilder(len);
         for (int i = 0; i < len; i++) {
-            sb.append(chars.charAt(rnd.nextInt(chars.length())));
+            sb.append((char) ('0' + rnd.nextInt(10)));
         }
         return sb.toString();
     }
@@ -0,0 +1,64 @@
+package com.example.sale_tech_web.feature.product.cache;
+
+import com.example.sale_tech_web.feature.product.index.ProductSearchIndex;
+import com.example.sale_tech_web.utils.SlugUtils;
+import lombok.Value;
+
+import java.util.*;
+
+/**
+ * Canonical key of a /product/filter query: equivalent URLs (parameter order, attribute value order,
+ * keyword case/diacritics, unknown sort) map to the same entry of PRODUCT_SEARCH.
+ * categoryId is kept as a field so entries can be invalidated per category.
+ */
+@Value
+public class FilterCacheKey {
+    String variant;
+    Long categoryId;
+    String keyword;
+    SortedMap<String, List<String>> attributeFilters;
+    Integer minPrice;
+    Integer maxPrice;
+    String sort;
+    int page;
+    int size;
+
+    public static FilterCacheKey of(String variant, Long categoryId, String keyword, Map<String, List<String>> attributeFilters,
+                                    Integer minPrice, Integer maxPrice, String sort, int page, int size) {
+        // Thứ tự key/value không ảnh hưởng kết quả (AND giữa các key, OR giữa các value)
+        SortedMap<String, List<String>> filters = new TreeMap<>();
+        if (attributeFilters != null) {
+            attributeFilters.forEach((code, values) -> {
+                if (values != null && !values.isEmpty()) {
+                    filters.put(code, values.stream().distinct().sorted().toList());
+                }
+            });
+        }
+
+        return new FilterCacheKey(
+                variant,
+                categoryId,
+                keyword == null || keyword.isBlank() ? null : SlugUtils.foldDiacritics(keyword.trim()),
+                Collections.unmodifiableSortedMap(filters),
+                minPrice,
+                maxPrice,
+                canonicalSort(sort),
+                Math.max(0, page),
+                Math.max(1, size));
+    }
+
+    /**
+     * Entries that may contain products of the category: the category itself and keyword-only searches
+     */
+    public boolean mayContainCategory(Long changedCategoryId) {
+        return categoryId == null || categoryId.equals(changedCategoryId);
+    }
+
+    // Sort không hỗ trợ được service coi như id_desc
+    private static String canonicalSort(String sort) {
+        return switch (sort == null ? "" : sort) {
+            case "price_asc", "price_desc", "hot", ProductSearchIndex.RELEVANCE_SORT -> sort;
+            default -> "id_desc";
+        };
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.sale_tech_web.feature.product.cache;
+
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Key generator for the page-based filter methods of ProductService:
+ * (categoryId, keyword, attributeFilters, minPrice, maxPrice, sort, page, size).
+ * The method name is part of the key so filter and filterWithFacets do not share entries.
+ */
+@Component(FilterCacheKeyGenerator.NAME)
+public class FilterCacheKeyGenerator implements KeyGenerator {
+    public static final String NAME = "filterCacheKeyGenerator";
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object generate(Object target, Method method, Object... params) {
+        return FilterCacheKey.of(
+                method.getName(),
+                (Long) params[0],
+                (String) params[1],
+                (Map<String, List<String>>) params[2],
+                (Integer) params[3],
+                (Integer) params[4],
+                (String) params[5],
+                (Integer) params[6],
+                (Integer) params[7]);
+    }
+}
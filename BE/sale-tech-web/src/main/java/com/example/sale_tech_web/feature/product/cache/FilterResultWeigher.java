@@ -0,0 +1,62 @@
+package com.example.sale_tech_web.feature.product.cache;
+
+import com.example.sale_tech_web.feature.product.dto.customer.FacetedFilterDTO;
+import com.example.sale_tech_web.feature.product.dto.customer.ProductListDTO;
+import com.github.benmanes.caffeine.cache.Weigher;
+import org.springframework.data.domain.Page;
+
+import java.util.Map;
+
+/**
+ * Approximate heap size in bytes of a cached filter result, so PRODUCT_SEARCH is bounded by memory
+ * (a page of 100 products weighs much more than an empty one) and the stats can report it.
+ */
+public class FilterResultWeigher implements Weigher<Object, Object> {
+    private static final int KEY_BYTES = 256;
+    private static final int PAGE_BYTES = 128;
+    private static final int PRODUCT_BYTES = 96;
+    private static final int MAP_ENTRY_BYTES = 48;
+
+    @Override
+    public int weigh(Object key, Object value) {
+        long bytes = KEY_BYTES;
+        if (value instanceof Page<?> page) {
+            bytes += weighPage(page);
+        } else if (value instanceof FacetedFilterDTO faceted) {
+            bytes += weighPage(faceted.getProducts()) + weighFacets(faceted.getFacets());
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private static long weighPage(Page<?> page) {
+        if (page == null) {
+            return 0;
+        }
+        long bytes = PAGE_BYTES;
+        for (Object item : page.getContent()) {
+            bytes += PRODUCT_BYTES;
+            if (item instanceof ProductListDTO product) {
+                bytes += chars(product.getTitle()) + chars(product.getImageUrl()) + chars(product.getCategoryName());
+            }
+        }
+        return bytes;
+    }
+
+    private static long weighFacets(Map<String, Map<String, Integer>> facets) {
+        if (facets == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (Map.Entry<String, Map<String, Integer>> facet : facets.entrySet()) {
+            bytes += MAP_ENTRY_BYTES + chars(facet.getKey());
+            for (String value : facet.getValue().keySet()) {
+                bytes += MAP_ENTRY_BYTES + chars(value);
+            }
+        }
+        return bytes;
+    }
+
+    private static long chars(String text) {
+        return text == null ? 0 : 2L * text.length();
+    }
+}
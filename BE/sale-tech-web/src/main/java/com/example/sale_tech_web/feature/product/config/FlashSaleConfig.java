@@ -0,0 +1,19 @@
+package com.example.sale_tech_web.feature.product.config;
+
+public class FlashSaleConfig {
+    public static final int DEFAULT_SHARDS = 8;
+
+    public static final int MAX_SHARDS = 64;
+
+    // Chu kỳ cộng tổng các shard vào product.quantity / quantity_sold và rebalance
+    public static final String SHARD_SYNC_DELAY = "PT5S";
+
+    // Shard nào còn ít hơn (trung bình / ngưỡng này) thì chia đều lại stock
+    public static final int REBALANCE_RATIO = 2;
+
+    // Số lần thử lấy shard rảnh (SKIP LOCKED) trước khi chờ trên 1 shard
+    public static final int FREE_SHARD_ATTEMPTS = 3;
+
+    // Gom hàng từ nhiều shard phải khóa tất cả -> không chờ quá ngưỡng này sau các checkout khác
+    public static final String GATHER_LOCK_TIMEOUT = "2s";
+}
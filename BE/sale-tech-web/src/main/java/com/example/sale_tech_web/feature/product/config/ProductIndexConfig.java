@@ -0,0 +1,27 @@
+package com.example.sale_tech_web.feature.product.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "product-index")
+@Data
+public class ProductIndexConfig {
+
+    /**
+     * Full rebuild of the in-memory product index (cron format).
+     * quantitySold ("hot" sort) follows orders through ProductSoldEvent, the rebuild corrects any drift.
+     */
+    public static final String INDEX_REFRESH_CRON = "0 */10 * * * *";
+
+    /**
+     * Tắt index thì ProductService.filter luôn chạy query SQL như cũ
+     */
+    private boolean enabled = true;
+
+    /**
+     * Giới hạn số node của trie /product/suggest (mỗi node vài chục byte)
+     */
+    private int suggestMaxNodes = 500_000;
+}
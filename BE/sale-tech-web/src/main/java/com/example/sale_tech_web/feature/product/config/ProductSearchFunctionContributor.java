@@ -0,0 +1,24 @@
+package com.example.sale_tech_web.feature.product.config;
+
+import org.hibernate.boot.model.FunctionContributions;
+import org.hibernate.boot.model.FunctionContributor;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Registers public.f_unaccent_lower (see db/product-search.sql) for JPQL / Criteria.
+ * Queries must call it on product.title so Postgres can use idx_product_title_trgm.
+ */
+public class ProductSearchFunctionContributor implements FunctionContributor {
+    public static final String UNACCENT_LOWER = "f_unaccent_lower";
+
+    @Override
+    public void contributeFunctions(FunctionContributions functionContributions) {
+        functionContributions.getFunctionRegistry().registerPattern(
+                UNACCENT_LOWER,
+                "public.f_unaccent_lower(?1)",
+                functionContributions.getTypeConfiguration()
+                        .getBasicTypeRegistry()
+                        .resolve(StandardBasicTypes.STRING)
+        );
+    }
+}
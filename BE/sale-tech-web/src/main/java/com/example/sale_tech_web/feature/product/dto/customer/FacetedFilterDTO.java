@@ -0,0 +1,20 @@
+package com.example.sale_tech_web.feature.product.dto.customer;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Page;
+
+import java.util.Map;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class FacetedFilterDTO {
+    private Page<ProductListDTO> products;
+
+    // code -> value -> số product khớp nếu chọn thêm value đó (tính theo các filter còn lại)
+    private Map<String, Map<String, Integer>> facets;
+}
@@ -0,0 +1,16 @@
+package com.example.sale_tech_web.feature.product.dto.customer;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class SuggestionDTO {
+    private String type; // PRODUCT | CATEGORY
+    private Long id;
+    private String text;
+}
@@ -0,0 +1,18 @@
+package com.example.sale_tech_web.feature.product.dto.pm.product_dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FlashSaleStockDTO {
+    private Long productId;
+    private Integer totalQuantity;
+    private List<Integer> shardQuantities; // rỗng = không ở chế độ flash sale
+}
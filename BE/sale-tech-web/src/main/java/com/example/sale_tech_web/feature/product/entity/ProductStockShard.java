@@ -0,0 +1,45 @@
+package com.example.sale_tech_web.feature.product.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * One sub-counter of a flash-sale product's stock. A product with shard rows reserves stock here instead of
+ * on product.quantity, which is refreshed from the shards by InventoryService.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+@Entity
+@Table(name = "product_stock_shard")
+@IdClass(ProductStockShard.Key.class)
+public class ProductStockShard {
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Id
+    @Column(name = "shard_no")
+    private Integer shardNo;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    // Số đã bán chưa cộng vào product.quantity_sold
+    @Column(nullable = false)
+    private Integer sold;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long productId;
+        private Integer shardNo;
+    }
+}
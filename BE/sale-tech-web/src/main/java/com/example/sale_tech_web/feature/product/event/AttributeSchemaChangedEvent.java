@@ -0,0 +1,14 @@
+package com.example.sale_tech_web.feature.product.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published when the attribute schemas or attribute groups of a category change
+ * (product detail specs and filter options of that category are rendered from them).
+ */
+@Getter
+@AllArgsConstructor
+public class AttributeSchemaChangedEvent {
+    private final Long categoryId;
+}
@@ -0,0 +1,171 @@
+package com.example.sale_tech_web.feature.product.event;
+
+import com.example.sale_tech_web.config.CacheNames;
+import com.example.sale_tech_web.config.cache.CacheScope;
+import com.example.sale_tech_web.config.cache.TwoTierCache;
+import com.example.sale_tech_web.feature.product.cache.FilterCacheKey;
+import com.example.sale_tech_web.feature.product.dto.customer.CategoryDTO;
+import com.example.sale_tech_web.feature.product.dto.customer.ProductCategoryListDTO;
+import com.example.sale_tech_web.feature.product.dto.customer.ProductDetailDTO;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Maps catalogue change events to the exact cache entries they make stale (evicted after commit):
+ * <pre>
+ * ProductChangedEvent         -> PRODUCT_BY_ID[productId], PRODUCT_BY_CATEGORY[categoryId], FILTER_OPTIONS[categoryId],
+ *                                PRODUCT_TOP_10_BY_CATEGORY (only if the ranking changed or the product is listed)
+ * CategoryChangedEvent        -> CATEGORIES (renamed in place), PRODUCT_TOP_10_BY_CATEGORY,
+ *                                PRODUCT_BY_CATEGORY[categoryId], FILTER_OPTIONS[categoryId], PRODUCT_BY_ID of the category
+ * AttributeSchemaChangedEvent -> FILTER_OPTIONS[categoryId], PRODUCT_BY_ID of the category
+ * all three                   -> PRODUCT_SEARCH results of the category and keyword-only searches
+ * </pre>
+ * The per-category evictions are sent to the other nodes as a {@link CacheScope} category:&lt;id&gt;,
+ * matched there with the same predicates.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogCacheInvalidator {
+    static final String CATEGORY_SCOPE = "category";
+
+    private final CacheManager cacheManager;
+
+    @PostConstruct
+    void registerScopes() {
+        registerCategoryScope(CacheNames.PRODUCT_BY_ID, CatalogCacheInvalidator::productDetailOf);
+        registerCategoryScope(CacheNames.PRODUCT_SEARCH, CatalogCacheInvalidator::searchResultOf);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.getProductId() != null) {
+            evict(CacheNames.PRODUCT_BY_ID, event.getProductId());
+        }
+        evict(CacheNames.PRODUCT_BY_CATEGORY, event.getCategoryId());
+        evict(CacheNames.FILTER_OPTIONS, event.getCategoryId());
+        evictSearchResults(event.getCategoryId());
+
+        if (event.isRankingChanged() || isInTopList(event.getProductId())) {
+            evict(CacheNames.PRODUCT_TOP_10_BY_CATEGORY, SimpleKey.EMPTY);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        Long categoryId = event.getCategoryId();
+
+        if (event.getType() == CategoryChangedEvent.ChangeType.RENAMED) {
+            renameInCategoryList(categoryId, event.getName());
+        } else {
+            evict(CacheNames.CATEGORIES, SimpleKey.EMPTY);
+        }
+        if (event.getType() == CategoryChangedEvent.ChangeType.CREATED) {
+            return; // Category mới chưa có product nào được cache
+        }
+
+        evict(CacheNames.PRODUCT_TOP_10_BY_CATEGORY, SimpleKey.EMPTY);
+        evict(CacheNames.PRODUCT_BY_CATEGORY, categoryId);
+        evict(CacheNames.FILTER_OPTIONS, categoryId);
+        evictProductDetails(categoryId);
+        evictSearchResults(categoryId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAttributeSchemaChanged(AttributeSchemaChangedEvent event) {
+        evict(CacheNames.FILTER_OPTIONS, event.getCategoryId());
+        evictProductDetails(event.getCategoryId());
+        evictSearchResults(event.getCategoryId()); // facets theo attribute filterable
+    }
+
+    // -- Helpers -- //
+
+    private void evict(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && key != null) {
+            cache.evict(key);
+        }
+    }
+
+    private boolean isInTopList(Long productId) {
+        if (productId == null) {
+            return false;
+        }
+        List<ProductCategoryListDTO> groups = cachedValue(CacheNames.PRODUCT_TOP_10_BY_CATEGORY, SimpleKey.EMPTY);
+        return groups != null && groups.stream()
+                .flatMap(group -> group.getProductList().stream())
+                .anyMatch(product -> productId.equals(product.getId()));
+    }
+
+    // Đổi tên trực tiếp trong list đã cache thay vì evict (list categories ít khi thay đổi cấu trúc)
+    private void renameInCategoryList(Long categoryId, String name) {
+        List<CategoryDTO> categories = cachedValue(CacheNames.CATEGORIES, SimpleKey.EMPTY);
+        if (categories == null) {
+            return;
+        }
+        List<CategoryDTO> renamed = categories.stream()
+                .map(c -> c.getId().equals(categoryId) ? CategoryDTO.builder().id(c.getId()).name(name).build() : c)
+                .toList();
+        Cache cache = cacheManager.getCache(CacheNames.CATEGORIES);
+        if (cache instanceof TwoTierCache twoTierCache) {
+            twoTierCache.replace(SimpleKey.EMPTY, renamed);
+        } else if (cache != null) {
+            cache.put(SimpleKey.EMPTY, renamed);
+        }
+    }
+
+    // PRODUCT_BY_ID cache theo productId -> lọc theo categoryId trong value đã cache
+    private void evictProductDetails(Long categoryId) {
+        evictCategory(CacheNames.PRODUCT_BY_ID, categoryId, productDetailOf(categoryId));
+    }
+
+    // PRODUCT_SEARCH theo FilterCacheKey -> chỉ bỏ các query của category đó (và search không có category)
+    private void evictSearchResults(Long categoryId) {
+        evictCategory(CacheNames.PRODUCT_SEARCH, categoryId, searchResultOf(categoryId));
+    }
+
+    private void evictCategory(String cacheName, Long categoryId, BiPredicate<Object, Object> matches) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache instanceof TwoTierCache twoTierCache) {
+            twoTierCache.evictScope(CacheScope.of(CATEGORY_SCOPE, categoryId));
+        } else if (cache instanceof CaffeineCache caffeineCache) {
+            int before = caffeineCache.getNativeCache().asMap().size();
+            caffeineCache.getNativeCache().asMap().entrySet().removeIf(entry -> matches.test(entry.getKey(), entry.getValue()));
+            log.debug("Evicted {} entries from {}", before - caffeineCache.getNativeCache().asMap().size(), cacheName);
+        } else if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    private void registerCategoryScope(String cacheName, Function<Long, BiPredicate<Object, Object>> matcher) {
+        if (cacheManager.getCache(cacheName) instanceof TwoTierCache twoTierCache) {
+            twoTierCache.registerScope(CATEGORY_SCOPE, categoryId -> matcher.apply(Long.valueOf(categoryId)));
+        }
+    }
+
+    private static BiPredicate<Object, Object> productDetailOf(Long categoryId) {
+        return (_, value) -> value instanceof ProductDetailDTO detail && categoryId.equals(detail.getCategoryId());
+    }
+
+    private static BiPredicate<Object, Object> searchResultOf(Long categoryId) {
+        return (key, _) -> key instanceof FilterCacheKey filterKey && filterKey.mayContainCategory(categoryId);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cachedValue(String cacheName, Object key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        Cache.ValueWrapper wrapper = cache == null ? null : cache.get(key);
+        return wrapper == null ? null : (T) wrapper.get();
+    }
+}
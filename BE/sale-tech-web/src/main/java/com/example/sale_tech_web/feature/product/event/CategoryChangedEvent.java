@@ -0,0 +1,22 @@
+package com.example.sale_tech_web.feature.product.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by category writes, handled after commit by {@link CatalogCacheInvalidator}.
+ */
+@Getter
+@AllArgsConstructor
+public class CategoryChangedEvent {
+    public enum ChangeType {
+        CREATED,
+        RENAMED,
+        DELETED
+    }
+
+    private final Long categoryId;
+    // Tên mới, null khi DELETED
+    private final String name;
+    private final ChangeType type;
+}
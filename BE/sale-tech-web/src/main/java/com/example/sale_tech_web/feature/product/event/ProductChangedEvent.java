@@ -0,0 +1,17 @@
+package com.example.sale_tech_web.feature.product.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by PM product writes, handled after commit by {@link CatalogCacheInvalidator}.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductChangedEvent {
+    // null khi import nhiều product cùng lúc
+    private final Long productId;
+    private final Long categoryId;
+    // Thêm/xóa/ẩn/hiện product hoặc đổi quantitySold -> top 10 của category có thể thay đổi
+    private final boolean rankingChanged;
+}
@@ -0,0 +1,17 @@
+package com.example.sale_tech_web.feature.product.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Published by InventoryService when an order reserves stock or gives it back (cancel / reject / payment expiry),
+ * handled after commit by ProductSearchIndex to keep the "hot" sort current.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductSoldEvent {
+    // productId -> số lượng bán thêm (đặt hàng > 0, hủy/trả kho < 0)
+    private final Map<Long, Integer> soldDeltas;
+}
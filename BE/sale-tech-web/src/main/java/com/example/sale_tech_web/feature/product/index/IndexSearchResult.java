@@ -0,0 +1,16 @@
+package com.example.sale_tech_web.feature.product.index;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.data.domain.Page;
+
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class IndexSearchResult {
+    private Page<IndexedProduct> page;
+
+    // code -> value -> số product khớp (bỏ qua filter của chính code đó)
+    private Map<String, Map<String, Integer>> facets;
+}
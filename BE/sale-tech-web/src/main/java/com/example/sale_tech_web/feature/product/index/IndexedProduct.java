@@ -0,0 +1,34 @@
+package com.example.sale_tech_web.feature.product.index;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot of an active product as held by {@link ProductSearchIndex}.
+ * Carries everything needed to render a ProductListDTO without touching the database.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IndexedProduct {
+    private int docId;
+    private Long id;
+    private String title;
+    // lowercase, không dấu
+    private String normalizedTitle;
+    private List<String> titleTokens;
+    private int price;
+    private int quantitySold;
+    private String imageUrl;
+    private Long categoryId;
+    private String categoryName;
+
+    // code -> text values, same text form as jsonb_extract_path_text / jsonb_array_elements_text
+    private Map<String, List<String>> attributeValues;
+}
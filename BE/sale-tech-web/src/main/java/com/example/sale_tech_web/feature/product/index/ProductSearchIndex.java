@@ -0,0 +1,676 @@
+package com.example.sale_tech_web.feature.product.index;
+
+import com.example.sale_tech_web.feature.product.config.ProductIndexConfig;
+import com.example.sale_tech_web.feature.product.dto.customer.SuggestionDTO;
+import com.example.sale_tech_web.feature.product.entity.Product;
+import com.example.sale_tech_web.feature.product.event.ProductSoldEvent;
+import com.example.sale_tech_web.feature.product.repository.CategoryAttributeSchemaRepository;
+import com.example.sale_tech_web.feature.product.repository.ProductRepository;
+import com.example.sale_tech_web.utils.CursorUtils;
+import com.example.sale_tech_web.utils.SlugUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory inverted index over active products.
+ * Category and every filterable attribute value map to a RoaringBitmap of product ids,
+ * so /product/filter can be answered without hitting Postgres.
+ * search() returns empty while the index is warming or disabled - caller falls back to SQL.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchIndex {
+    public static final String RELEVANCE_SORT = "relevance";
+    public static final String SUGGEST_PRODUCT = "PRODUCT";
+    public static final String SUGGEST_CATEGORY = "CATEGORY";
+
+    // Kết quả ít hơn 1/16 tổng số doc thì sort trực tiếp, nhiều hơn thì quét mảng đã sort sẵn
+    private static final int MATERIALIZE_RATIO = 16;
+
+    private final ProductRepository productRepository;
+    private final CategoryAttributeSchemaRepository schemaRepository;
+    private final ProductIndexConfig productIndexConfig;
+
+    @Autowired
+    @Qualifier("productIndexExecutor")
+    private Executor productIndexExecutor;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    private final Queue<Consumer<IndexState>> pendingDuringRebuild = new ConcurrentLinkedQueue<>();
+
+    // null while warming
+    private volatile IndexState state;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!productIndexConfig.isEnabled()) {
+            log.info("Product search index is disabled, /product/filter will use SQL");
+            return;
+        }
+        productIndexExecutor.execute(this::rebuild);
+    }
+
+    @Scheduled(cron = ProductIndexConfig.INDEX_REFRESH_CRON)
+    public void scheduledRefresh() {
+        if (productIndexConfig.isEnabled()) {
+            productIndexExecutor.execute(this::rebuild);
+        }
+    }
+
+    public boolean isReady() {
+        return productIndexConfig.isEnabled() && state != null;
+    }
+
+    /**
+     * Load every active product and filterable schema code, then swap the new state in.
+     * Changes committed while loading are queued and replayed onto the new state before the swap.
+     */
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            pendingDuringRebuild.clear();
+
+            IndexState fresh = new IndexState(productIndexConfig.getSuggestMaxNodes());
+            for (Object[] row : schemaRepository.findAllFilterableCodes()) {
+                fresh.filterableCodes.computeIfAbsent((Long) row[0], _ -> new HashSet<>()).add((String) row[1]);
+            }
+            for (Product product : productRepository.findAllByIsActiveTrue()) {
+                fresh.add(toDocument(product));
+            }
+
+            lock.writeLock().lock();
+            try {
+                Consumer<IndexState> mutation;
+                while ((mutation = pendingDuringRebuild.poll()) != null) {
+                    mutation.accept(fresh);
+                }
+                fresh.optimize();
+                fresh.rankCategories();
+                state = fresh;
+                rebuilding.set(false);
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            log.info("Product search index rebuilt: {} products, {} suggest nodes in {} ms",
+                    fresh.documents.size(), fresh.suggestions.nodeCount(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Failed to rebuild product search index", e);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    // -- Incremental updates (applied after the surrounding transaction commits) -- //
+
+    public void upsertAfterCommit(Product product) {
+        int docId = Math.toIntExact(product.getId());
+        IndexedProduct doc = Boolean.TRUE.equals(product.getIsActive()) ? toDocument(product) : null;
+
+        afterCommit(() -> mutate(s -> {
+            s.remove(docId);
+            if (doc != null) {
+                s.add(doc);
+            }
+        }));
+    }
+
+    public void upsertAllAfterCommit(Collection<Product> products) {
+        List<Integer> docIds = products.stream().map(p -> Math.toIntExact(p.getId())).toList();
+        List<IndexedProduct> docs = products.stream()
+                .filter(p -> Boolean.TRUE.equals(p.getIsActive()))
+                .map(ProductSearchIndex::toDocument)
+                .toList();
+
+        afterCommit(() -> mutate(s -> {
+            docIds.forEach(s::remove);
+            docs.forEach(s::add);
+        }));
+    }
+
+    public void removeAfterCommit(Long productId) {
+        int docId = Math.toIntExact(productId);
+        afterCommit(() -> mutate(s -> s.remove(docId)));
+    }
+
+    /**
+     * Orders placed / cancelled move quantitySold: re-rank "hot" and the product suggestions right away,
+     * the periodic rebuild only corrects drift.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductSold(ProductSoldEvent event) {
+        if (!productIndexConfig.isEnabled() || event.getSoldDeltas().isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> deltas = Map.copyOf(event.getSoldDeltas());
+        mutate(s -> s.addSold(deltas));
+    }
+
+    /**
+     * Filterable flags / codes of a category changed: reload its codes and rebuild its postings.
+     */
+    public void reindexCategoryAfterCommit(Long categoryId) {
+        afterCommit(() -> productIndexExecutor.execute(() -> {
+            Set<String> codes = new HashSet<>(schemaRepository.findFilterableCodesByCategoryId(categoryId));
+            mutate(s -> s.replaceFilterableCodes(categoryId, codes));
+        }));
+    }
+
+    // -- Query -- //
+
+    /**
+     * Same semantics as the Specification query in ProductService.filter.
+     *
+     * @return empty if the index cannot answer (warming, disabled, or a non-indexed attribute is requested)
+     */
+    public Optional<Page<IndexedProduct>> search(Long categoryId,
+                                                 String keyword,
+                                                 Map<String, List<String>> attributeFilters,
+                                                 Integer minPrice,
+                                                 Integer maxPrice,
+                                                 String sort,
+                                                 Pageable pageable) {
+        return execute(categoryId, keyword, attributeFilters, minPrice, maxPrice, sort, pageable, null, false)
+                .map(IndexSearchResult::getPage);
+    }
+
+    /**
+     * Keyset variant of search(): returns up to {@code limit} docs ordered strictly after the cursor.
+     * Cursor sortValue is the price (price_asc / price_desc) or quantitySold (hot), ignored for id_desc.
+     */
+    public Optional<Page<IndexedProduct>> searchAfter(Long categoryId,
+                                                      String keyword,
+                                                      Map<String, List<String>> attributeFilters,
+                                                      Integer minPrice,
+                                                      Integer maxPrice,
+                                                      String sort,
+                                                      CursorUtils.Cursor cursor,
+                                                      int limit) {
+        IndexedProduct after = cursor == null ? null : IndexedProduct.builder()
+                .docId(Math.toIntExact(cursor.getId()))
+                .price((int) cursor.getSortValue())
+                .quantitySold((int) cursor.getSortValue())
+                .build();
+
+        return execute(categoryId, keyword, attributeFilters, minPrice, maxPrice, sort, PageRequest.of(0, limit), after, false)
+                .map(IndexSearchResult::getPage);
+    }
+
+    /**
+     * search() plus, for every filterable attribute of the category, the number of matching products per value.
+     * Counts for an attribute ignore its own filter but apply all the others (standard drill-sideways).
+     */
+    public Optional<IndexSearchResult> searchWithFacets(Long categoryId,
+                                                        String keyword,
+                                                        Map<String, List<String>> attributeFilters,
+                                                        Integer minPrice,
+                                                        Integer maxPrice,
+                                                        String sort,
+                                                        Pageable pageable) {
+        return execute(categoryId, keyword, attributeFilters, minPrice, maxPrice, sort, pageable, null, true);
+    }
+
+    private Optional<IndexSearchResult> execute(Long categoryId,
+                                                String keyword,
+                                                Map<String, List<String>> attributeFilters,
+                                                Integer minPrice,
+                                                Integer maxPrice,
+                                                String sort,
+                                                Pageable pageable,
+                                                IndexedProduct after,
+                                                boolean withFacets) {
+        if (!isReady()) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            IndexState current = state;
+
+            RoaringBitmap scope = categoryId != null ? current.categoryDocs.get(categoryId) : current.allDocs;
+            if (scope == null) {
+                scope = new RoaringBitmap();
+            }
+
+            // Keyword: token không dấu, khớp exact / prefix / sai chính tả nhẹ
+            Map<Integer, Integer> scores = null;
+            if (keyword != null && !keyword.isBlank()) {
+                List<String> tokens = TermDictionary.tokenize(keyword);
+                // Keyword chỉ toàn ký tự đặc biệt -> để SQL xử lý như cũ
+                if (tokens.isEmpty()) {
+                    return Optional.empty();
+                }
+                scores = RELEVANCE_SORT.equals(sort) ? new HashMap<>() : null;
+                scope = RoaringBitmap.and(scope, current.terms.match(tokens, scores));
+            }
+            Set<String> filterable = categoryId != null
+                    ? current.filterableCodes.getOrDefault(categoryId, Set.of())
+                    : Set.of();
+
+            // code -> union of the requested values
+            Map<String, RoaringBitmap> keyFilters = new HashMap<>();
+            if (attributeFilters != null && !attributeFilters.isEmpty()) {
+                // Filterable codes are per category -> without a category the index cannot be exact
+                if (categoryId == null) {
+                    return Optional.empty();
+                }
+                for (Map.Entry<String, List<String>> entry : attributeFilters.entrySet()) {
+                    if (!filterable.contains(entry.getKey())) {
+                        return Optional.empty();
+                    }
+                    keyFilters.put(entry.getKey(), current.union(entry.getKey(), entry.getValue()));
+                }
+            }
+
+            boolean postFilter = minPrice != null || maxPrice != null;
+
+            // Facets cần tập gốc (chưa áp attribute filter) nên lọc giá trước,
+            // còn search thường thì lọc sau cùng trên tập đã thu hẹp
+            RoaringBitmap base = withFacets && postFilter
+                    ? current.narrow(scope, minPrice, maxPrice)
+                    : scope;
+            RoaringBitmap matches = base.clone();
+            keyFilters.values().forEach(matches::and);
+            if (!withFacets && postFilter) {
+                matches = current.narrow(matches, minPrice, maxPrice);
+            }
+
+            int total = matches.getCardinality();
+            long offset = pageable.getOffset();
+            List<IndexedProduct> content = offset >= total
+                    ? List.of()
+                    : current.slice(matches, sort, (int) offset, pageable.getPageSize(), scores, after);
+            Page<IndexedProduct> page = new PageImpl<>(content, pageable, total);
+
+            if (!withFacets) {
+                return Optional.of(new IndexSearchResult(page, Map.of()));
+            }
+
+            Map<String, Map<String, Integer>> facets = new TreeMap<>();
+            for (String code : filterable) {
+                RoaringBitmap others = matches;
+                if (keyFilters.containsKey(code)) {
+                    others = base.clone();
+                    for (Map.Entry<String, RoaringBitmap> filter : keyFilters.entrySet()) {
+                        if (!filter.getKey().equals(code)) {
+                            others.and(filter.getValue());
+                        }
+                    }
+                }
+                facets.put(code, current.countValues(code, others));
+            }
+
+            return Optional.of(new IndexSearchResult(page, facets));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Typeahead: products and categories having a word that starts with {@code prefix}, best sellers first.
+     *
+     * @return empty while the index is warming or disabled
+     */
+    public Optional<List<SuggestionDTO>> suggest(String prefix, int limit) {
+        if (!isReady()) {
+            return Optional.empty();
+        }
+
+        lock.readLock().lock();
+        try {
+            return Optional.of(state.suggestions.suggest(prefix, Math.min(limit, SuggestTrie.TOP_K)).stream()
+                    .map(entry -> SuggestionDTO.builder()
+                            .type(entry.getType())
+                            .id(entry.getId())
+                            .text(entry.getText())
+                            .build())
+                    .toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // -- Helpers -- //
+
+    private void mutate(Consumer<IndexState> mutation) {
+        lock.writeLock().lock();
+        try {
+            if (state != null) {
+                mutation.accept(state);
+            }
+            if (rebuilding.get()) {
+                pendingDuringRebuild.add(mutation);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!productIndexConfig.isEnabled()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    public static IndexedProduct toDocument(Product product) {
+        Map<String, List<String>> attributeValues = new HashMap<>();
+        if (product.getAttributes() != null) {
+            product.getAttributes().forEach((code, raw) -> {
+                List<String> values = toTextValues(raw);
+                if (!values.isEmpty()) {
+                    attributeValues.put(code, values);
+                }
+            });
+        }
+
+        String title = product.getTitle() == null ? "" : product.getTitle();
+        return IndexedProduct.builder()
+                .docId(Math.toIntExact(product.getId()))
+                .id(product.getId())
+                .title(title)
+                .normalizedTitle(SlugUtils.foldDiacritics(title))
+                .titleTokens(TermDictionary.tokenize(title))
+                .price(product.getPrice() == null ? 0 : product.getPrice())
+                .quantitySold(product.getQuantitySold() == null ? 0 : product.getQuantitySold())
+                .imageUrl(product.getImageUrl())
+                .categoryId(product.getCategory().getId())
+                .categoryName(product.getCategory().getName())
+                .attributeValues(attributeValues)
+                .build();
+    }
+
+    // Scalar -> 1 giá trị, Array -> từng phần tử (giống jsonb_array_elements_text)
+    private static List<String> toTextValues(Object raw) {
+        if (raw == null) {
+            return List.of();
+        }
+        if (raw instanceof Collection<?> collection) {
+            return collection.stream()
+                    .filter(Objects::nonNull)
+                    .map(String::valueOf)
+                    .toList();
+        }
+        return List.of(String.valueOf(raw));
+    }
+
+    private static Comparator<IndexedProduct> comparatorFor(String sort) {
+        Comparator<IndexedProduct> newestFirst = Comparator.comparingInt(IndexedProduct::getDocId).reversed();
+        return switch (sort == null ? "" : sort) {
+            case "price_asc" -> Comparator.comparingInt(IndexedProduct::getPrice).thenComparing(newestFirst);
+            case "price_desc" -> Comparator.comparingInt(IndexedProduct::getPrice).reversed().thenComparing(newestFirst);
+            case "hot" -> Comparator.comparingInt(IndexedProduct::getQuantitySold).reversed().thenComparing(newestFirst);
+            default -> null;
+        };
+    }
+
+    /**
+     * Mutable index state. Reads happen under the read lock, every mutation under the write lock.
+     */
+    private static final class IndexState {
+        private final Map<Integer, IndexedProduct> documents = new HashMap<>();
+        private final RoaringBitmap allDocs = new RoaringBitmap();
+        private final Map<Long, RoaringBitmap> categoryDocs = new HashMap<>();
+        private final Map<Long, Set<String>> filterableCodes = new HashMap<>();
+        // code -> value -> docs, chỉ chứa các code filterable trong category của doc
+        private final Map<String, Map<String, RoaringBitmap>> postings = new HashMap<>();
+        private final TermDictionary terms = new TermDictionary();
+        private final Map<Long, String> categoryNames = new HashMap<>();
+        // sort key -> docIds theo thứ tự sort, tính lazy và xóa khi có thay đổi
+        private final Map<String, int[]> sortedOrders = new ConcurrentHashMap<>();
+        private final SuggestTrie suggestions;
+
+        IndexState(int suggestMaxNodes) {
+            this.suggestions = new SuggestTrie(suggestMaxNodes);
+        }
+
+        void add(IndexedProduct doc) {
+            int docId = doc.getDocId();
+            documents.put(docId, doc);
+            allDocs.add(docId);
+            terms.add(docId, doc.getTitleTokens());
+            categoryDocs.computeIfAbsent(doc.getCategoryId(), _ -> new RoaringBitmap()).add(docId);
+            addPostings(doc);
+            sortedOrders.clear();
+
+            suggestions.put(SUGGEST_PRODUCT, doc.getId(), doc.getTitle(), doc.getQuantitySold());
+            if (categoryNames.put(doc.getCategoryId(), doc.getCategoryName()) == null) {
+                suggestions.put(SUGGEST_CATEGORY, doc.getCategoryId(), doc.getCategoryName(), 0);
+            }
+        }
+
+        // Category xếp theo tổng quantitySold của các product đang active
+        void rankCategories() {
+            categoryNames.forEach((categoryId, name) -> {
+                long sold = 0;
+                PeekableIntIterator it = categoryDocs.getOrDefault(categoryId, new RoaringBitmap()).getIntIterator();
+                while (it.hasNext()) {
+                    sold += documents.get(it.next()).getQuantitySold();
+                }
+                suggestions.put(SUGGEST_CATEGORY, categoryId, name, sold);
+            });
+        }
+
+        void remove(int docId) {
+            IndexedProduct doc = documents.remove(docId);
+            if (doc == null) {
+                return;
+            }
+            allDocs.remove(docId);
+            terms.remove(docId, doc.getTitleTokens());
+            suggestions.remove(SUGGEST_PRODUCT, doc.getId());
+            RoaringBitmap inCategory = categoryDocs.get(doc.getCategoryId());
+            if (inCategory != null) {
+                inCategory.remove(docId);
+            }
+            removePostings(doc);
+            sortedOrders.clear();
+        }
+
+        // Chỉ thứ tự "hot" và điểm gợi ý phụ thuộc quantitySold
+        void addSold(Map<Long, Integer> deltas) {
+            deltas.forEach((productId, delta) -> {
+                IndexedProduct doc = documents.get(Math.toIntExact(productId));
+                if (doc != null) {
+                    doc.setQuantitySold(Math.max(0, doc.getQuantitySold() + delta));
+                    suggestions.put(SUGGEST_PRODUCT, doc.getId(), doc.getTitle(), doc.getQuantitySold());
+                }
+            });
+            sortedOrders.remove("hot");
+        }
+
+        void replaceFilterableCodes(Long categoryId, Set<String> codes) {
+            RoaringBitmap inCategory = categoryDocs.getOrDefault(categoryId, new RoaringBitmap());
+            inCategory.forEach((int docId) -> removePostings(documents.get(docId)));
+            filterableCodes.put(categoryId, codes);
+            inCategory.forEach((int docId) -> addPostings(documents.get(docId)));
+        }
+
+        RoaringBitmap union(String code, List<String> values) {
+            Map<String, RoaringBitmap> byValue = postings.getOrDefault(code, Map.of());
+            List<RoaringBitmap> bitmaps = values.stream()
+                    .map(byValue::get)
+                    .filter(Objects::nonNull)
+                    .toList();
+            return RoaringBitmap.or(bitmaps.iterator());
+        }
+
+        RoaringBitmap narrow(RoaringBitmap docs, Integer minPrice, Integer maxPrice) {
+            RoaringBitmap narrowed = new RoaringBitmap();
+            PeekableIntIterator it = docs.getIntIterator();
+            while (it.hasNext()) {
+                int docId = it.next();
+                IndexedProduct doc = documents.get(docId);
+                if (minPrice != null && doc.getPrice() < minPrice) continue;
+                if (maxPrice != null && doc.getPrice() > maxPrice) continue;
+                narrowed.add(docId);
+            }
+            return narrowed;
+        }
+
+        Map<String, Integer> countValues(String code, RoaringBitmap docs) {
+            Map<String, Integer> counts = new TreeMap<>();
+            postings.getOrDefault(code, Map.of()).forEach((value, valueDocs) -> {
+                int count = RoaringBitmap.andCardinality(valueDocs, docs);
+                if (count > 0) {
+                    counts.put(value, count);
+                }
+            });
+            return counts;
+        }
+
+        /**
+         * @param after nếu khác null (keyset) chỉ lấy các doc đứng sau nó theo thứ tự sort
+         */
+        List<IndexedProduct> slice(RoaringBitmap matches, String sort, int offset, int limit,
+                                   Map<Integer, Integer> scores, IndexedProduct after) {
+            Comparator<IndexedProduct> comparator = comparatorFor(sort);
+            int cardinality = matches.getCardinality();
+
+            // relevance: điểm keyword giảm dần, hòa thì ưu tiên bán chạy rồi mới nhất
+            if (scores != null) {
+                Comparator<IndexedProduct> byRelevance = Comparator
+                        .comparingInt((IndexedProduct doc) -> scores.getOrDefault(doc.getDocId(), 0)).reversed()
+                        .thenComparing(Comparator.comparingInt(IndexedProduct::getQuantitySold).reversed())
+                        .thenComparing(Comparator.comparingInt(IndexedProduct::getDocId).reversed());
+                return Arrays.stream(matches.toArray())
+                        .mapToObj(documents::get)
+                        .sorted(byRelevance)
+                        .skip(offset)
+                        .limit(limit)
+                        .toList();
+            }
+
+            // id_desc: docId chính là productId nên đọc ngược bitmap theo rank
+            if (comparator == null) {
+                // rank(x) = số doc <= x  ->  doc đầu tiên nhỏ hơn cursor nằm ở rank(cursor - 1) - 1
+                int first = after == null ? cardinality - 1 : (int) matches.rankLong(after.getDocId() - 1) - 1;
+                List<IndexedProduct> page = new ArrayList<>(limit);
+                for (int rank = first - offset; rank >= 0 && page.size() < limit; rank--) {
+                    page.add(documents.get(matches.select(rank)));
+                }
+                return page;
+            }
+
+            if ((long) cardinality * MATERIALIZE_RATIO < documents.size()) {
+                return Arrays.stream(matches.toArray())
+                        .mapToObj(documents::get)
+                        .filter(doc -> after == null || comparator.compare(doc, after) > 0)
+                        .sorted(comparator)
+                        .skip(offset)
+                        .limit(limit)
+                        .toList();
+            }
+
+            int[] order = sortedOrders.computeIfAbsent(sort, _ -> documents.values().stream()
+                    .sorted(comparator)
+                    .mapToInt(IndexedProduct::getDocId)
+                    .toArray());
+
+            List<IndexedProduct> page = new ArrayList<>(limit);
+            int seen = 0;
+            for (int i = after == null ? 0 : firstAfter(order, comparator, after); i < order.length; i++) {
+                int docId = order[i];
+                if (!matches.contains(docId) || seen++ < offset) {
+                    continue;
+                }
+                page.add(documents.get(docId));
+                if (page.size() == limit) {
+                    break;
+                }
+            }
+            return page;
+        }
+
+        // Binary search vị trí đầu tiên trong order đứng sau cursor
+        private int firstAfter(int[] order, Comparator<IndexedProduct> comparator, IndexedProduct after) {
+            int low = 0;
+            int high = order.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (comparator.compare(documents.get(order[mid]), after) > 0) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+
+        void optimize() {
+            allDocs.runOptimize();
+            terms.optimize();
+            categoryDocs.values().forEach(RoaringBitmap::runOptimize);
+            postings.values().forEach(byValue -> byValue.values().forEach(RoaringBitmap::runOptimize));
+        }
+
+        private void addPostings(IndexedProduct doc) {
+            Set<String> codes = filterableCodes.getOrDefault(doc.getCategoryId(), Set.of());
+            doc.getAttributeValues().forEach((code, values) -> {
+                if (!codes.contains(code)) {
+                    return;
+                }
+                Map<String, RoaringBitmap> byValue = postings.computeIfAbsent(code, _ -> new HashMap<>());
+                for (String value : values) {
+                    byValue.computeIfAbsent(value, _ -> new RoaringBitmap()).add(doc.getDocId());
+                }
+            });
+        }
+
+        private void removePostings(IndexedProduct doc) {
+            doc.getAttributeValues().forEach((code, values) -> {
+                Map<String, RoaringBitmap> byValue = postings.get(code);
+                if (byValue == null) {
+                    return;
+                }
+                for (String value : values) {
+                    RoaringBitmap docs = byValue.get(value);
+                    if (docs != null) {
+                        docs.remove(doc.getDocId());
+                        if (docs.isEmpty()) {
+                            byValue.remove(value);
+                        }
+                    }
+                }
+            });
+        }
+    }
+}
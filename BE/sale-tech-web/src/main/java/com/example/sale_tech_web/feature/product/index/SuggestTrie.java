@@ -0,0 +1,223 @@
+package com.example.sale_tech_web.feature.product.index;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.*;
+
+/**
+ * Prefix trie for /product/suggest. Keys are the folded text and every word-start suffix
+ * ("apple iphone 15" -> "apple iphone 15", "iphone 15", "15"), so typing any word matches.
+ * Each node keeps its TOP_K best entries by score, so a lookup is O(prefix length).
+ * <p>
+ * Memory is bounded by MAX_DEPTH and maxNodes: once the limit is reached, new keys stop at the
+ * deepest existing node. Removing an entry prunes the nodes left without entries or children, but may
+ * leave a node with fewer than TOP_K candidates until the next full rebuild of {@link ProductSearchIndex}.
+ * Not thread-safe - guarded by the lock of {@link ProductSearchIndex}.
+ */
+class SuggestTrie {
+    static final int TOP_K = 10;
+
+    private static final int MAX_DEPTH = 16;
+    private static final int MAX_WORD_SUFFIXES = 5;
+
+    private final int maxNodes;
+    private final Node root = new Node();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private int nodeCount = 1;
+
+    SuggestTrie(int maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class Entry {
+        private final String type;
+        private final Long id;
+        private final String text;
+        private final String normalized;
+        private final long score;
+
+        String key() {
+            return type + ":" + id;
+        }
+    }
+
+    private static final class Node {
+        private char[] labels = new char[0];
+        private Node[] children = new Node[0];
+        private Entry[] top = new Entry[0];
+
+        Node child(char label) {
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i] == label) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node addChild(char label) {
+            Node node = new Node();
+            labels = Arrays.copyOf(labels, labels.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            labels[labels.length - 1] = label;
+            children[children.length - 1] = node;
+            return node;
+        }
+
+        void removeChild(char label) {
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i] == label) {
+                    int last = labels.length - 1;
+                    labels[i] = labels[last];
+                    children[i] = children[last];
+                    labels = Arrays.copyOf(labels, last);
+                    children = Arrays.copyOf(children, last);
+                    return;
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return top.length == 0 && children.length == 0;
+        }
+    }
+
+    static String normalize(String text) {
+        return String.join(" ", TermDictionary.tokenize(text));
+    }
+
+    void put(String type, Long id, String text, long score) {
+        String normalized = normalize(text);
+        Entry entry = new Entry(type, id, text, normalized, score);
+        remove(entry.key());
+        if (normalized.isEmpty()) {
+            return;
+        }
+
+        entries.put(entry.key(), entry);
+        for (String key : keysOf(normalized)) {
+            Node node = root;
+            for (int i = 0; i < Math.min(key.length(), MAX_DEPTH); i++) {
+                Node next = node.child(key.charAt(i));
+                if (next == null) {
+                    if (nodeCount >= maxNodes) {
+                        break;
+                    }
+                    next = node.addChild(key.charAt(i));
+                    nodeCount++;
+                }
+                node = next;
+                offer(node, entry);
+            }
+        }
+    }
+
+    void remove(String type, Long id) {
+        remove(type + ":" + id);
+    }
+
+    /**
+     * @return up to {@code limit} entries whose text has a word starting with {@code prefix}, best score first
+     */
+    List<Entry> suggest(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+
+        Node node = root;
+        for (int i = 0; i < Math.min(normalized.length(), MAX_DEPTH); i++) {
+            node = node.child(normalized.charAt(i));
+            if (node == null) {
+                return List.of();
+            }
+        }
+
+        // Prefix dài hơn MAX_DEPTH (hoặc node bị cắt vì maxNodes) -> lọc lại trên text đầy đủ
+        String needle = " " + normalized;
+        List<Entry> result = new ArrayList<>(limit);
+        for (Entry entry : node.top) {
+            if ((" " + entry.getNormalized()).contains(needle)) {
+                result.add(entry);
+                if (result.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    int nodeCount() {
+        return nodeCount;
+    }
+
+    private void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return;
+        }
+
+        for (String path : keysOf(entry.getNormalized())) {
+            int depth = Math.min(path.length(), MAX_DEPTH);
+            Node[] nodes = new Node[depth + 1];
+            nodes[0] = root;
+            int reached = 0;
+            while (reached < depth) {
+                Node node = nodes[reached].child(path.charAt(reached));
+                if (node == null) {
+                    break;
+                }
+                node.top = Arrays.stream(node.top)
+                        .filter(candidate -> candidate != entry)
+                        .toArray(Entry[]::new);
+                nodes[++reached] = node;
+            }
+
+            // Cắt các node không còn entry lẫn node con, từ dưới lên
+            for (int i = reached; i > 0 && nodes[i].isEmpty(); i--) {
+                nodes[i - 1].removeChild(path.charAt(i - 1));
+                nodeCount--;
+            }
+        }
+    }
+
+    private static List<String> keysOf(String normalized) {
+        List<String> keys = new ArrayList<>();
+        keys.add(normalized);
+        int from = 0;
+        while (keys.size() < MAX_WORD_SUFFIXES) {
+            int space = normalized.indexOf(' ', from);
+            if (space < 0) {
+                break;
+            }
+            keys.add(normalized.substring(space + 1));
+            from = space + 1;
+        }
+        return keys;
+    }
+
+    private static void offer(Node node, Entry entry) {
+        for (Entry existing : node.top) {
+            if (existing == entry) {
+                return;
+            }
+        }
+        if (node.top.length == TOP_K && node.top[TOP_K - 1].getScore() >= entry.getScore()) {
+            return;
+        }
+
+        List<Entry> top = new ArrayList<>(Arrays.asList(node.top));
+        int position = 0;
+        while (position < top.size() && top.get(position).getScore() >= entry.getScore()) {
+            position++;
+        }
+        top.add(position, entry);
+        if (top.size() > TOP_K) {
+            top.removeLast();
+        }
+        node.top = top.toArray(Entry[]::new);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.sale_tech_web.feature.product.index;
+
+import com.example.sale_tech_web.utils.SlugUtils;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Title tokens (lowercase, không dấu) -> docs.
+ * A query token matches a term exactly, as a prefix, or within a small edit distance (typo).
+ * Not thread-safe - guarded by the lock of {@link ProductSearchIndex}.
+ */
+class TermDictionary {
+    static final int EXACT_SCORE = 4;
+    static final int PREFIX_SCORE = 2;
+    static final int FUZZY_SCORE = 1;
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^a-z0-9]+");
+    // Token ngắn hơn thì không sửa lỗi chính tả (quá nhiều false positive)
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final int TWO_EDITS_LENGTH = 8;
+
+    private final TreeMap<String, RoaringBitmap> terms = new TreeMap<>();
+
+    static List<String> tokenize(String text) {
+        return Arrays.stream(TOKEN_SEPARATOR.split(SlugUtils.foldDiacritics(text)))
+                .filter(token -> !token.isEmpty())
+                .distinct()
+                .toList();
+    }
+
+    void add(int docId, List<String> tokens) {
+        for (String token : tokens) {
+            terms.computeIfAbsent(token, _ -> new RoaringBitmap()).add(docId);
+        }
+    }
+
+    void remove(int docId, List<String> tokens) {
+        for (String token : tokens) {
+            RoaringBitmap docs = terms.get(token);
+            if (docs != null) {
+                docs.remove(docId);
+                if (docs.isEmpty()) {
+                    terms.remove(token);
+                }
+            }
+        }
+    }
+
+    void optimize() {
+        terms.values().forEach(RoaringBitmap::runOptimize);
+    }
+
+    /**
+     * Docs matching every query token (AND). Each token may match exactly, by prefix or with a typo.
+     *
+     * @param scores if not null, filled with docId -> relevance (sum of the best match per token)
+     */
+    RoaringBitmap match(List<String> queryTokens, Map<Integer, Integer> scores) {
+        RoaringBitmap result = null;
+        List<Map<Integer, Integer>> tokenScores = new ArrayList<>();
+
+        for (String token : queryTokens) {
+            Map<Integer, Integer> best = scores != null ? new HashMap<>() : null;
+            RoaringBitmap tokenDocs = new RoaringBitmap();
+
+            collect(terms.get(token), EXACT_SCORE, tokenDocs, best);
+            terms.subMap(token, false, token + Character.MAX_VALUE, false)
+                    .values()
+                    .forEach(docs -> collect(docs, PREFIX_SCORE, tokenDocs, best));
+
+            if (token.length() >= MIN_FUZZY_LENGTH) {
+                int maxEdits = token.length() >= TWO_EDITS_LENGTH ? 2 : 1;
+                terms.forEach((term, docs) -> {
+                    if (term.charAt(0) == token.charAt(0)
+                            && !term.startsWith(token)
+                            && Math.abs(term.length() - token.length()) <= maxEdits
+                            && withinDistance(token, term, maxEdits)) {
+                        collect(docs, FUZZY_SCORE, tokenDocs, best);
+                    }
+                });
+            }
+
+            result = result == null ? tokenDocs : RoaringBitmap.and(result, tokenDocs);
+            if (best != null) {
+                tokenScores.add(best);
+            }
+            if (result.isEmpty()) {
+                return result;
+            }
+        }
+
+        if (result == null) {
+            return new RoaringBitmap();
+        }
+        if (scores != null) {
+            PeekableIntIterator it = result.getIntIterator();
+            while (it.hasNext()) {
+                int docId = it.next();
+                int score = 0;
+                for (Map<Integer, Integer> best : tokenScores) {
+                    score += best.getOrDefault(docId, 0);
+                }
+                scores.put(docId, score);
+            }
+        }
+        return result;
+    }
+
+    private static void collect(RoaringBitmap docs, int score, RoaringBitmap tokenDocs, Map<Integer, Integer> best) {
+        if (docs == null) {
+            return;
+        }
+        tokenDocs.or(docs);
+        if (best != null) {
+            docs.forEach((int docId) -> best.merge(docId, score, Math::max));
+        }
+    }
+
+    // Levenshtein giới hạn theo dải chéo, dừng sớm khi vượt maxEdits
+    private static boolean withinDistance(String a, String b, int maxEdits) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxEdits) {
+                return false;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()] <= maxEdits;
+    }
+}
@@ -1,18 +1,28 @@
 package com.example.sale_tech_web.feature.product.manager.customer;
 
 import com.example.sale_tech_web.config.CacheNames;
+import com.example.sale_tech_web.config.cache.CacheLoaderRegistry;
 import com.example.sale_tech_web.exception.BadRequestException;
 import com.example.sale_tech_web.exception.NotFoundException;
+import com.example.sale_tech_web.feature.product.cache.FilterCacheKeyGenerator;
+import com.example.sale_tech_web.feature.product.config.ProductSearchFunctionContributor;
 import com.example.sale_tech_web.feature.product.dto.customer.*;
 import com.example.sale_tech_web.feature.product.entity.Category;
 import com.example.sale_tech_web.feature.product.entity.CategoryAttributeGroup;
 import com.example.sale_tech_web.feature.product.entity.CategoryAttributeSchema;
 import com.example.sale_tech_web.feature.product.entity.Product;
+import com.example.sale_tech_web.feature.product.index.IndexSearchResult;
+import com.example.sale_tech_web.feature.product.index.IndexedProduct;
+import com.example.sale_tech_web.feature.product.index.ProductSearchIndex;
 import com.example.sale_tech_web.feature.product.repository.CategoryAttributeSchemaRepository;
 import com.example.sale_tech_web.feature.product.repository.CategoryRepository;
 import com.example.sale_tech_web.feature.product.repository.ProductRepository;
+import com.example.sale_tech_web.utils.CursorSlice;
+import com.example.sale_tech_web.utils.CursorUtils;
+import com.example.sale_tech_web.utils.MathUtils;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
@@ -23,6 +33,7 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -36,9 +47,22 @@ public class ProductService implements ProductServiceInterface {
     private final CategoryRepository categoryRepository;
     private final ProductRepository productRepository;
     private final CategoryAttributeSchemaRepository schemaRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final CacheLoaderRegistry cacheLoaderRegistry;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Uncached computations used by the refresh-ahead catalogue caches (self-calls bypass @Cacheable)
+     */
+    @PostConstruct
+    void registerCacheLoaders() {
+        cacheLoaderRegistry.register(CacheNames.CATEGORIES, _ -> transactionTemplate.execute(_ -> getAllCategories()));
+        cacheLoaderRegistry.register(CacheNames.PRODUCT_TOP_10_BY_CATEGORY, _ -> transactionTemplate.execute(_ -> getTop10ProductsByCategory()));
+        cacheLoaderRegistry.register(CacheNames.FILTER_OPTIONS, key -> transactionTemplate.execute(_ -> getFilterOptions((Long) key)));
+    }
 
     @Override
-    @Cacheable(CacheNames.CATEGORIES)
+    @Cacheable(value = CacheNames.CATEGORIES, sync = true)
     public List<CategoryDTO> getAllCategories() {
         return categoryRepository.findAll().stream()
                 .map(c -> CategoryDTO.builder().id(c.getId()).name(c.getName()).build())
@@ -46,7 +70,7 @@ public class ProductService implements ProductServiceInterface {
     }
 
     @Override
-    @Cacheable(CacheNames.PRODUCT_TOP_10_BY_CATEGORY)
+    @Cacheable(value = CacheNames.PRODUCT_TOP_10_BY_CATEGORY, sync = true)
     public List<ProductCategoryListDTO> getTop10ProductsByCategory() {
         List<Category> categories = categoryRepository.findAll();
 
@@ -77,7 +101,7 @@ public class ProductService implements ProductServiceInterface {
     }
 
     @Override
-    @Cacheable(value = CacheNames.FILTER_OPTIONS, key = "#categoryId", condition = "#categoryId != null")
+    @Cacheable(value = CacheNames.FILTER_OPTIONS, key = "#categoryId", condition = "#categoryId != null", sync = true)
     public Map<Integer, FilterGroupDTO> getFilterOptions(Long categoryId) {
         if (categoryId == null) {
             return Collections.emptyMap();
@@ -117,19 +141,194 @@ public class ProductService implements ProductServiceInterface {
     }
 
     @Override
+    @Cacheable(value = CacheNames.PRODUCT_SEARCH, keyGenerator = FilterCacheKeyGenerator.NAME, sync = true)
     public Page<ProductListDTO> filter(Long categoryId, String keyword, Map<String, List<String>> attributeFilters, Integer minPrice, Integer maxPrice, String sort, int page, int size) {
         // Nếu không có keyword và không có categoryId -> return empty
         if ((keyword == null || keyword.isBlank()) && categoryId == null) {
             return new PageImpl<>(Collections.emptyList(), PageRequest.of(Math.max(0, page), Math.max(1, size)), 0);
         }
 
+        Pageable pageable = buildFilterPageable(sort, page, size);
+
+        // Ưu tiên trả lời từ index trong RAM, index chưa sẵn sàng thì fallback về SQL
+        Optional<Page<IndexedProduct>> indexed = productSearchIndex.search(
+                categoryId, keyword, attributeFilters, minPrice, maxPrice, sort, pageable);
+        if (indexed.isPresent()) {
+            return indexed.get().map(this::convertToListDTO);
+        }
+
+        return filterFromDatabase(categoryId, keyword, attributeFilters, minPrice, maxPrice, pageable);
+    }
+
+    @Override
+    @Cacheable(value = CacheNames.PRODUCT_SEARCH, keyGenerator = FilterCacheKeyGenerator.NAME, sync = true)
+    public FacetedFilterDTO filterWithFacets(Long categoryId, String keyword, Map<String, List<String>> attributeFilters, Integer minPrice, Integer maxPrice, String sort, int page, int size) {
+        if ((keyword == null || keyword.isBlank()) && categoryId == null) {
+            return FacetedFilterDTO.builder()
+                    .products(new PageImpl<>(Collections.emptyList(), PageRequest.of(Math.max(0, page), Math.max(1, size)), 0))
+                    .facets(Collections.emptyMap())
+                    .build();
+        }
+
+        Pageable pageable = buildFilterPageable(sort, page, size);
+
+        // Index tính page + facet trong một lần quét bitmap
+        Optional<IndexSearchResult> indexed = productSearchIndex.searchWithFacets(
+                categoryId, keyword, attributeFilters, minPrice, maxPrice, sort, pageable);
+        if (indexed.isPresent()) {
+            return FacetedFilterDTO.builder()
+                    .products(indexed.get().getPage().map(this::convertToListDTO))
+                    .facets(indexed.get().getFacets())
+                    .build();
+        }
+
+        // Fallback SQL: facet chỉ có nghĩa khi biết category (filterable code theo category)
+        Map<String, Map<String, Integer>> facets = categoryId == null
+                ? Collections.emptyMap()
+                : countFacetsFromDatabase(categoryId, keyword, attributeFilters, minPrice, maxPrice);
+
+        return FacetedFilterDTO.builder()
+                .products(filterFromDatabase(categoryId, keyword, attributeFilters, minPrice, maxPrice, pageable))
+                .facets(facets)
+                .build();
+    }
+
+    private Map<String, Map<String, Integer>> countFacetsFromDatabase(Long categoryId, String keyword, Map<String, List<String>> attributeFilters, Integer minPrice, Integer maxPrice) {
+        List<String> codes = schemaRepository.findFilterableCodesByCategoryId(categoryId);
+        Map<String, Map<String, Integer>> facets = new TreeMap<>();
+        codes.forEach(code -> facets.put(code, new TreeMap<>()));
+        if (codes.isEmpty()) {
+            return facets;
+        }
+
+        // Filter dạng phẳng: filterCodes[i] = filterValues[i]
+        List<String> filterCodes = new ArrayList<>();
+        List<String> filterValues = new ArrayList<>();
+        if (attributeFilters != null) {
+            attributeFilters.forEach((code, values) -> values.forEach(value -> {
+                filterCodes.add(code);
+                filterValues.add(value);
+            }));
+        }
+
+        // Đếm GROUP BY (code, value) trong DB thay vì load toàn bộ product
+        List<Object[]> rows = productRepository.countFacetValues(
+                categoryId,
+                keyword == null || keyword.isBlank() ? null : keyword.trim(),
+                minPrice,
+                maxPrice,
+                codes.toArray(String[]::new),
+                filterCodes.toArray(String[]::new),
+                filterValues.toArray(String[]::new));
+        for (Object[] row : rows) {
+            facets.get((String) row[0]).put((String) row[1], ((Number) row[2]).intValue());
+        }
+        return facets;
+    }
+
+    @Override
+    public CursorSlice<ProductListDTO> filterByCursor(Long categoryId, String keyword, Map<String, List<String>> attributeFilters, Integer minPrice, Integer maxPrice, String sort, String cursor, int size, boolean withTotal) {
+        int limit = Math.max(1, size);
+        if ((keyword == null || keyword.isBlank()) && categoryId == null) {
+            return CursorUtils.toSlice(Collections.<ProductListDTO>emptyList(), limit, _ -> null, withTotal ? 0L : null);
+        }
+
+        String sortKey = switch (sort) {
+            case "price_asc", "price_desc", "hot" -> sort;
+            case ProductSearchIndex.RELEVANCE_SORT ->
+                    throw new BadRequestException("Cursor pagination does not support relevance sort.");
+            default -> CursorUtils.ID_DESC;
+        };
+        CursorUtils.Cursor after = CursorUtils.decode(cursor, sortKey);
+        // Tổng số chỉ tính ở trang đầu, client giữ lại cho các trang sau
+        boolean countTotal = withTotal && after == null;
+
+        // Lấy dư 1 dòng để biết còn trang sau
+        Optional<Page<IndexedProduct>> indexed = productSearchIndex.searchAfter(
+                categoryId, keyword, attributeFilters, minPrice, maxPrice, sortKey, after, limit + 1);
+        if (indexed.isPresent()) {
+            return CursorUtils.toSlice(indexed.get().getContent(), limit,
+                            doc -> CursorUtils.encode(sortKey, cursorSortValue(sortKey, doc.getPrice(), doc.getQuantitySold()), doc.getId()),
+                            countTotal ? indexed.get().getTotalElements() : null)
+                    .map(this::convertToListDTO);
+        }
+
+        Specification<Product> spec = buildFilterSpecification(categoryId, keyword, attributeFilters, minPrice, maxPrice);
+        Long total = countTotal ? productRepository.count(spec) : null;
+        if (after != null) {
+            spec = spec.and(seekAfter(sortKey, after));
+        }
+
+        Sort sortOrder = CursorUtils.ID_DESC.equals(sortKey)
+                ? Sort.by("id").descending()
+                : buildFilterPageable(sortKey, 0, limit).getSort().and(Sort.by("id").descending());
+        List<Product> rows = productRepository.findBy(spec, q -> q.sortBy(sortOrder).limit(limit + 1).all());
+
+        return CursorUtils.toSlice(rows, limit,
+                        p -> CursorUtils.encode(sortKey, cursorSortValue(sortKey, p.getPrice(), p.getQuantitySold()), p.getId()),
+                        total)
+                .map(this::convertToListDTO);
+    }
+
+    private long cursorSortValue(String sortKey, Integer price, Integer quantitySold) {
+        return switch (sortKey) {
+            case "price_asc", "price_desc" -> MathUtils.safeLong(price);
+            case "hot" -> MathUtils.safeLong(quantitySold);
+            default -> 0L;
+        };
+    }
+
+    // Điều kiện "đứng sau cursor" theo (sort key, id desc) - tương đương ORDER BY ... + WHERE thay cho OFFSET
+    private Specification<Product> seekAfter(String sortKey, CursorUtils.Cursor after) {
+        Long lastId = after.getId();
+        Integer lastValue = (int) after.getSortValue();
+
+        return (root, _, cb) -> switch (sortKey) {
+            case "price_asc" -> cb.or(
+                    cb.greaterThan(root.get("price"), lastValue),
+                    cb.and(cb.equal(root.get("price"), lastValue), cb.lessThan(root.get("id"), lastId)));
+            case "price_desc" -> cb.or(
+                    cb.lessThan(root.get("price"), lastValue),
+                    cb.and(cb.equal(root.get("price"), lastValue), cb.lessThan(root.get("id"), lastId)));
+            case "hot" -> cb.or(
+                    cb.lessThan(root.get("quantitySold"), lastValue),
+                    cb.and(cb.equal(root.get("quantitySold"), lastValue), cb.lessThan(root.get("id"), lastId)));
+            default -> cb.lessThan(root.get("id"), lastId);
+        };
+    }
+
+    private Pageable buildFilterPageable(String sort, int page, int size) {
+        Sort sortOrder;
+        switch (sort) {
+            case "price_asc" -> sortOrder = Sort.by("price").ascending();
+            case "price_desc" -> sortOrder = Sort.by("price").descending();
+            case "hot" -> sortOrder = Sort.by("quantitySold").descending();
+            // "relevance" chỉ index xếp hạng được, SQL giữ thứ tự mặc định
+            default -> sortOrder = Sort.by("id").descending();
+        }
+        return PageRequest.of(Math.max(0, page), Math.max(1, size), sortOrder);
+    }
+
+    private Page<ProductListDTO> filterFromDatabase(Long categoryId, String keyword, Map<String, List<String>> attributeFilters, Integer minPrice, Integer maxPrice, Pageable pageable) {
+        Page<Product> productPage = productRepository.findAll(
+                buildFilterSpecification(categoryId, keyword, attributeFilters, minPrice, maxPrice), pageable);
+
+        List<ProductListDTO> content = productPage.getContent().stream().map(this::convertToListDTO).toList();
+        return new PageImpl<>(content, pageable, productPage.getTotalElements());
+    }
+
+    private Specification<Product> buildFilterSpecification(Long categoryId, String keyword, Map<String, List<String>> attributeFilters, Integer minPrice, Integer maxPrice) {
         // 1. Khởi tạo Specification cơ bản - luôn bao gồm filter active
         Specification<Product> spec = Specification.where((root, _, cb) -> cb.isTrue(root.get("isActive")));
 
-        // 2. Lọc theo keyword (search title)
+        // 2. Lọc theo keyword (search title, không dấu) - dùng được GIN index idx_product_title_trgm
+        // Keyword cũng qua f_unaccent_lower trong SQL để 2 vế luôn cùng một hàm (kể cả khi thiếu extension unaccent)
         if (keyword != null && !keyword.isBlank()) {
-            String searchKeyword = keyword.trim().toLowerCase();
-            spec = spec.and((root, _, cb) -> cb.like(cb.lower(root.get("title")), "%" + searchKeyword + "%"));
+            String searchKeyword = keyword.trim();
+            spec = spec.and((root, _, cb) -> cb.like(
+                    cb.function(ProductSearchFunctionContributor.UNACCENT_LOWER, String.class, root.get("title")),
+                    cb.concat(cb.concat("%",
+                            cb.function(ProductSearchFunctionContributor.UNACCENT_LOWER, String.class, cb.literal(searchKeyword))), "%")));
         }
 
         // 3. Lọc theo category (nếu có)
@@ -176,20 +375,7 @@ public class ProductService implements ProductServiceInterface {
             }
         }
 
-        // 6. Xử lý Sắp xếp
-        Sort sortOrder;
-        switch (sort) {
-            case "price_asc" -> sortOrder = Sort.by("price").ascending();
-            case "price_desc" -> sortOrder = Sort.by("price").descending();
-            case "hot" -> sortOrder = Sort.by("quantitySold").descending();
-            default -> sortOrder = Sort.by("id").descending();
-        }
-
-        Pageable pageable = PageRequest.of(Math.max(0, page), Math.max(1, size), sortOrder);
-        Page<Product> productPage = productRepository.findAll(spec, pageable);
-
-        List<ProductListDTO> content = productPage.getContent().stream().map(this::convertToListDTO).toList();
-        return new PageImpl<>(content, pageable, productPage.getTotalElements());
+        return spec;
     }
 
 
@@ -203,6 +389,25 @@ public class ProductService implements ProductServiceInterface {
                 .toList();
     }
 
+    @Override
+    public List<SuggestionDTO> suggest(String keyword, int limit) {
+        if (keyword == null || keyword.isBlank()) {
+            return List.of();
+        }
+        Optional<List<SuggestionDTO>> fromIndex = productSearchIndex.suggest(keyword, limit);
+        if (fromIndex.isPresent()) {
+            return fromIndex.get();
+        }
+
+        // Index chưa sẵn sàng -> fallback LIKE trên title xếp theo độ giống keyword, chỉ gợi ý product
+        return productRepository.findSuggestionsByTitle(keyword.trim(), limit).stream()
+                .map(p -> SuggestionDTO.builder()
+                        .type(ProductSearchIndex.SUGGEST_PRODUCT)
+                        .id(p.getId())
+                        .text(p.getTitle())
+                        .build())
+                .toList();
+    }
 
     @Override
     public CompareResponse compareProducts(CompareRequest compareRequest) {
@@ -257,6 +462,17 @@ public class ProductService implements ProductServiceInterface {
                 .build();
     }
 
+    private ProductListDTO convertToListDTO(IndexedProduct product) {
+        return ProductListDTO.builder()
+                .id(product.getId())
+                .title(product.getTitle())
+                .price(product.getPrice())
+                .imageUrl(product.getImageUrl())
+                .categoryId(product.getCategoryId())
+                .categoryName(product.getCategoryName())
+                .build();
+    }
+
     private ProductDetailDTO convertToDetailDTO(Product product) {
         Long catId = product.getCategory().getId();
         Map<String, Object> raw = product.getAttributes();
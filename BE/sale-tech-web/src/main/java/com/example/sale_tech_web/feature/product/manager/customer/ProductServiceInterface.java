@@ -1,6 +1,7 @@
 package com.example.sale_tech_web.feature.product.manager.customer;
 
 import com.example.sale_tech_web.feature.product.dto.customer.*;
+import com.example.sale_tech_web.utils.CursorSlice;
 
 import java.util.List;
 import java.util.Map;
@@ -26,6 +27,27 @@ public interface ProductServiceInterface {
                                             int page,
                                             int size);
 
+    FacetedFilterDTO filterWithFacets(Long categoryId,
+                                      String keyword,
+                                      Map<String, List<String>> attributeFilters,
+                                      Integer minPrice,
+                                      Integer maxPrice,
+                                      String sort,
+                                      int page,
+                                      int size);
+
+    CursorSlice<ProductListDTO> filterByCursor(Long categoryId,
+                                               String keyword,
+                                               Map<String, List<String>> attributeFilters,
+                                               Integer minPrice,
+                                               Integer maxPrice,
+                                               String sort,
+                                               String cursor,
+                                               int size,
+                                               boolean withTotal);
+
+    List<SuggestionDTO> suggest(String keyword, int limit);
+
     CompareResponse compareProducts(CompareRequest compareRequest);
 
 }
@@ -0,0 +1,350 @@
+package com.example.sale_tech_web.feature.product.manager.inventory;
+
+import com.example.sale_tech_web.exception.BadRequestException;
+import com.example.sale_tech_web.exception.NotFoundException;
+import com.example.sale_tech_web.exception.TooManyRequestsException;
+import com.example.sale_tech_web.feature.product.config.FlashSaleConfig;
+import com.example.sale_tech_web.feature.product.dto.pm.product_dto.FlashSaleStockDTO;
+import com.example.sale_tech_web.feature.product.entity.Product;
+import com.example.sale_tech_web.feature.product.entity.ProductStockShard;
+import com.example.sale_tech_web.feature.product.event.ProductSoldEvent;
+import com.example.sale_tech_web.feature.product.repository.ProductRepository;
+import com.example.sale_tech_web.feature.product.repository.ProductStockShardRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * Stock reservation for orders. Normal products are decremented on the product row
+ * ({@link ProductRepository#reserveStock}); flash-sale products keep their stock in N shard rows so concurrent
+ * checkouts lock different rows and never wait on each other (FOR UPDATE SKIP LOCKED picks a free shard).
+ * <p>
+ * For flash-sale products product.quantity is the reported total: {@link #syncShards} folds the shards into
+ * product.quantity/quantity_sold every few seconds and spreads the stock evenly again when shards run dry.
+ * Lock order is always product row (FOR NO KEY UPDATE) -> shard rows.
+ * <p>
+ * Which path a product takes is decided without a lock, then checked again once the product row is locked:
+ * a product switched to (or out of) flash-sale mode while a checkout was waiting is moved to the other path,
+ * never decremented on a counter whose stock was just moved away.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryService implements InventoryServiceInterface {
+    private final ProductRepository productRepository;
+    private final ProductStockShardRepository shardRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    @Transactional
+    public Set<Long> reserve(Map<Long, Integer> quantities) {
+        Set<Long> flashSale = flashSaleIds(quantities.keySet());
+        Map<Long, Integer> regular = new LinkedHashMap<>(quantities);
+        regular.keySet().removeAll(flashSale);
+
+        Set<Long> shortIds = new TreeSet<>(reserveRegular(regular));
+        for (Long productId : new TreeSet<>(flashSale)) {
+            if (!reserveFromShards(productId, quantities.get(productId))) {
+                shortIds.add(productId);
+            }
+        }
+        // Thiếu hàng -> cả đơn rollback, không cộng quantitySold vào index
+        if (shortIds.isEmpty()) {
+            eventPublisher.publishEvent(new ProductSoldEvent(Map.copyOf(quantities)));
+        }
+        return shortIds;
+    }
+
+    @Override
+    @Transactional
+    public void release(Map<Long, Integer> quantities) {
+        Set<Long> flashSale = flashSaleIds(quantities.keySet());
+        Map<Long, Integer> regular = new LinkedHashMap<>(quantities);
+        regular.keySet().removeAll(flashSale);
+
+        releaseRegular(regular);
+        for (Long productId : new TreeSet<>(flashSale)) {
+            releaseToShards(productId, quantities.get(productId));
+        }
+
+        // Hàng trả về kho -> trừ lại quantitySold trong index
+        Map<Long, Integer> returned = new HashMap<>();
+        quantities.forEach((productId, quantity) -> returned.put(productId, -quantity));
+        eventPublisher.publishEvent(new ProductSoldEvent(returned));
+    }
+
+    @Override
+    public FlashSaleStockDTO getFlashSaleStock(Long productId) {
+        productRepository.findById(productId)
+                .orElseThrow(() -> new NotFoundException("Product not found"));
+        return toDTO(productId, shardRepository.findByProductIdOrderByShardNo(productId));
+    }
+
+    @Override
+    @Transactional
+    public FlashSaleStockDTO enableFlashSale(Long productId, int shards) {
+        if (shards < 2 || shards > FlashSaleConfig.MAX_SHARDS) {
+            throw new BadRequestException("Shards must be between 2 and " + FlashSaleConfig.MAX_SHARDS);
+        }
+        lockProduct(productId);
+        if (!shardRepository.lockByProductId(productId).isEmpty()) {
+            throw new BadRequestException("Product is already in flash sale mode");
+        }
+
+        int total = Math.max(0, Objects.requireNonNullElse(productRepository.findById(productId).orElseThrow().getQuantity(), 0));
+        List<ProductStockShard> rows = new ArrayList<>();
+        for (int shardNo = 0; shardNo < shards; shardNo++) {
+            rows.add(ProductStockShard.builder()
+                    .productId(productId)
+                    .shardNo(shardNo)
+                    .quantity(0)
+                    .sold(0)
+                    .build());
+        }
+        spread(rows, total);
+        log.info("Flash sale enabled for product {}: {} units over {} shards", productId, total, shards);
+        return toDTO(productId, shardRepository.saveAll(rows));
+    }
+
+    @Override
+    @Transactional
+    public FlashSaleStockDTO disableFlashSale(Long productId) {
+        lockProduct(productId);
+        List<ProductStockShard> rows = shardRepository.lockByProductId(productId);
+        if (rows.isEmpty()) {
+            throw new BadRequestException("Product is not in flash sale mode");
+        }
+        fold(productId, rows);
+        shardRepository.deleteAll(rows);
+        log.info("Flash sale disabled for product {}", productId);
+        return toDTO(productId, List.of());
+    }
+
+    @Override
+    @Transactional
+    public void updateStock(Product product, int quantity, int quantitySold) {
+        List<Integer> lockedSold = shardRepository.lockProduct(product.getId());
+        List<ProductStockShard> rows = lockedSold.isEmpty() ? List.of() : shardRepository.lockByProductId(product.getId());
+        if (rows.isEmpty()) {
+            product.setQuantity(quantity);
+            product.setQuantitySold(quantitySold);
+            return;
+        }
+
+        // Form của PM đã cũ (hàng vẫn bán trong lúc sửa) -> áp thay đổi như delta so với giá trị PM đã thấy,
+        // tính trên tổng shard hiện tại; sold chưa fold của shard được cộng vào quantity_sold trước
+        int quantityDelta = quantity - Objects.requireNonNullElse(product.getQuantity(), 0);
+        int soldDelta = quantitySold - Objects.requireNonNullElse(product.getQuantitySold(), 0);
+        int total = rows.stream().mapToInt(ProductStockShard::getQuantity).sum();
+        int shardSold = rows.stream().mapToInt(ProductStockShard::getSold).sum();
+
+        int newTotal = Math.max(0, total + quantityDelta);
+        rows.forEach(row -> row.setSold(0));
+        spread(rows, newTotal);
+        shardRepository.saveAll(rows);
+
+        product.setQuantity(newTotal);
+        product.setQuantitySold(Math.max(0, lockedSold.getFirst() + shardSold + soldDelta));
+    }
+
+    @Scheduled(initialDelayString = FlashSaleConfig.SHARD_SYNC_DELAY, fixedDelayString = FlashSaleConfig.SHARD_SYNC_DELAY)
+    public void syncAllShards() {
+        for (Long productId : shardRepository.findAllFlashSaleProductIds()) {
+            try {
+                transactionTemplate.executeWithoutResult(_ -> syncShards(productId));
+            } catch (Exception e) {
+                log.error("Flash sale shard sync failed for product {}: {}", productId, e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Folds the shards of one product into product.quantity/quantity_sold and rebalances them if needed
+     */
+    private void syncShards(Long productId) {
+        if (shardRepository.lockProduct(productId).isEmpty()) {
+            // Product đã bị xóa -> dọn shard mồ côi
+            shardRepository.deleteAll(shardRepository.lockByProductId(productId));
+            return;
+        }
+        List<ProductStockShard> rows = shardRepository.lockByProductId(productId);
+        if (rows.isEmpty()) {
+            return;
+        }
+        int total = fold(productId, rows);
+
+        int average = total / rows.size();
+        boolean unbalanced = rows.stream()
+                .anyMatch(row -> row.getQuantity() < average / FlashSaleConfig.REBALANCE_RATIO);
+        if (unbalanced) {
+            spread(rows, total);
+        }
+        shardRepository.saveAll(rows);
+    }
+
+    // -- Helpers -- //
+
+    private Set<Long> flashSaleIds(Collection<Long> productIds) {
+        return productIds.isEmpty() ? Set.of() : new HashSet<>(shardRepository.findFlashSaleProductIds(productIds));
+    }
+
+    /**
+     * Regular path: locks the product rows, then re-reads the shards in a new statement. enableFlashSale holds the
+     * same row lock while it moves product.quantity into the shards, so a product switched while we waited is seen
+     * here and reserved from its shards instead.
+     *
+     * @return ids of the products without enough stock
+     */
+    private Set<Long> reserveRegular(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return Set.of();
+        }
+        productRepository.lockStock(quantities.keySet());
+        Set<Long> switched = flashSaleIds(quantities.keySet());
+        Map<Long, Integer> regular = new LinkedHashMap<>(quantities);
+        regular.keySet().removeAll(switched);
+
+        Set<Long> shortIds = new TreeSet<>(productRepository.reserveStock(regular));
+        for (Long productId : new TreeSet<>(switched)) {
+            if (!reserveFromShards(productId, quantities.get(productId))) {
+                shortIds.add(productId);
+            }
+        }
+        return shortIds;
+    }
+
+    private void releaseRegular(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        productRepository.lockStock(quantities.keySet());
+        Set<Long> switched = flashSaleIds(quantities.keySet());
+        Map<Long, Integer> regular = new LinkedHashMap<>(quantities);
+        regular.keySet().removeAll(switched);
+
+        productRepository.releaseStock(regular);
+        for (Long productId : new TreeSet<>(switched)) {
+            releaseToShards(productId, quantities.get(productId));
+        }
+    }
+
+    private boolean reserveFromShards(Long productId, int quantity) {
+        for (int attempt = 0; attempt < FlashSaleConfig.FREE_SHARD_ATTEMPTS; attempt++) {
+            if (!shardRepository.reserveFromFreeShard(productId, quantity).isEmpty()) {
+                return true;
+            }
+            List<Integer> shardQuantities = shardRepository.findShardQuantities(productId);
+            if (shardQuantities.isEmpty()) {
+                // Flash sale vừa bị tắt (shard đã fold vào product) -> trừ trên product như hàng thường
+                return reserveRegular(Map.of(productId, quantity)).isEmpty();
+            }
+            int total = shardQuantities.stream().mapToInt(Integer::intValue).sum();
+            int largest = shardQuantities.stream().mapToInt(Integer::intValue).max().orElse(0);
+            if (total < quantity) {
+                return false;
+            }
+            if (largest < quantity) {
+                return gatherFromShards(productId, quantity);
+            }
+            // Có shard đủ hàng nhưng đang bị checkout khác giữ -> thử lại
+        }
+
+        // Vẫn bị giữ sau vài lần -> chờ trên 1 shard ngẫu nhiên, các shard khác vẫn rảnh cho checkout khác
+        if (!shardRepository.reserveFromAnyShard(productId, quantity).isEmpty()) {
+            return true;
+        }
+        // Shard vừa bị rút cạn (hoặc bị xóa) trong lúc chờ
+        return gatherFromShards(productId, quantity);
+    }
+
+    /**
+     * Slow path when no single shard has enough: locks every shard in shard order and takes from several of them.
+     * Waits at most GATHER_LOCK_TIMEOUT behind other checkouts, then asks the customer to retry.
+     */
+    private boolean gatherFromShards(Long productId, int quantity) {
+        String lockTimeout = shardRepository.currentLockTimeout();
+        shardRepository.setLockTimeout(FlashSaleConfig.GATHER_LOCK_TIMEOUT);
+        List<ProductStockShard> rows;
+        try {
+            rows = shardRepository.lockByProductId(productId);
+        } catch (PessimisticLockingFailureException e) {
+            // Postgres đã hủy transaction -> không thể tiếp tục, cả đơn rollback
+            throw new TooManyRequestsException("Product is selling fast, please try again");
+        }
+        shardRepository.setLockTimeout(lockTimeout);
+
+        if (rows.isEmpty()) {
+            // Flash sale vừa bị tắt trong lúc chờ
+            return reserveRegular(Map.of(productId, quantity)).isEmpty();
+        }
+        int available = rows.stream().mapToInt(ProductStockShard::getQuantity).sum();
+        if (available < quantity) {
+            return false;
+        }
+        int remaining = quantity;
+        for (ProductStockShard row : rows) {
+            int taken = Math.min(row.getQuantity(), remaining);
+            row.setQuantity(row.getQuantity() - taken);
+            row.setSold(row.getSold() + taken);
+            remaining -= taken;
+        }
+        shardRepository.saveAll(rows);
+        return true;
+    }
+
+    private void releaseToShards(Long productId, int quantity) {
+        if (shardRepository.releaseToFreeShard(productId, quantity) > 0) {
+            return;
+        }
+        // Mọi shard đang bị khóa -> chờ shard đầu tiên
+        List<ProductStockShard> rows = shardRepository.lockByProductId(productId);
+        if (rows.isEmpty()) {
+            // Flash sale vừa bị tắt (shard đã fold vào product) -> trả về product như hàng thường
+            releaseRegular(Map.of(productId, quantity));
+            return;
+        }
+        ProductStockShard shard = rows.getFirst();
+        shard.setQuantity(shard.getQuantity() + quantity);
+        shard.setSold(shard.getSold() - quantity);
+        shardRepository.save(shard);
+    }
+
+    // Cộng tổng shard vào product, reset sold của shard; trả về tổng stock
+    private int fold(Long productId, List<ProductStockShard> rows) {
+        int total = rows.stream().mapToInt(ProductStockShard::getQuantity).sum();
+        int sold = rows.stream().mapToInt(ProductStockShard::getSold).sum();
+        shardRepository.applyShardTotals(productId, total, sold);
+        rows.forEach(row -> row.setSold(0));
+        return total;
+    }
+
+    private static void spread(List<ProductStockShard> rows, int total) {
+        int base = total / rows.size();
+        int extra = total % rows.size();
+        for (int i = 0; i < rows.size(); i++) {
+            rows.get(i).setQuantity(base + (i < extra ? 1 : 0));
+        }
+    }
+
+    private void lockProduct(Long productId) {
+        if (shardRepository.lockProduct(productId).isEmpty()) {
+            throw new NotFoundException("Product not found");
+        }
+    }
+
+    private static FlashSaleStockDTO toDTO(Long productId, List<ProductStockShard> rows) {
+        return FlashSaleStockDTO.builder()
+                .productId(productId)
+                .totalQuantity(rows.stream().mapToInt(ProductStockShard::getQuantity).sum())
+                .shardQuantities(rows.stream().map(ProductStockShard::getQuantity).toList())
+                .build();
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.sale_tech_web.feature.product.manager.inventory;
+
+import com.example.sale_tech_web.feature.product.dto.pm.product_dto.FlashSaleStockDTO;
+import com.example.sale_tech_web.feature.product.entity.Product;
+
+import java.util.Map;
+import java.util.Set;
+
+public interface InventoryServiceInterface {
+    /**
+     * Reserves stock for the lines of an order (product id -> quantity) in the current transaction
+     *
+     * @return ids of the products without enough stock; the caller must roll back if not empty
+     */
+    Set<Long> reserve(Map<Long, Integer> quantities);
+
+    void release(Map<Long, Integer> quantities);
+
+    FlashSaleStockDTO getFlashSaleStock(Long productId);
+
+    FlashSaleStockDTO enableFlashSale(Long productId, int shards);
+
+    FlashSaleStockDTO disableFlashSale(Long productId);
+
+    /**
+     * PM edit of product.quantity/quantity_sold, to call before the other changes of the product.
+     * Flash-sale products apply the edit as a delta against the live shard total (sales keep happening
+     * while the form is open); other products are simply overwritten.
+     */
+    void updateStock(Product product, int quantity, int quantitySold);
+}
@@ -6,10 +6,12 @@ import com.example.sale_tech_web.feature.product.dto.pm.attribute_group_dto.Attr
 import com.example.sale_tech_web.feature.product.dto.pm.attribute_group_dto.AttributeGroupRequest;
 import com.example.sale_tech_web.feature.product.entity.Category;
 import com.example.sale_tech_web.feature.product.entity.CategoryAttributeGroup;
+import com.example.sale_tech_web.feature.product.event.AttributeSchemaChangedEvent;
 import com.example.sale_tech_web.feature.product.repository.CategoryAttributeGroupRepository;
 import com.example.sale_tech_web.feature.product.repository.CategoryAttributeSchemaRepository;
 import com.example.sale_tech_web.feature.product.repository.CategoryRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,6 +27,7 @@ public class AttributeGroupPMService implements AttributeGroupPMServiceInterface
     private final CategoryAttributeGroupRepository categoryAttributeGroupRepository;
     private final CategoryRepository categoryRepository;
     private final CategoryAttributeSchemaRepository categoryAttributeSchemaRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<AttributeGroupDTO> getGroupByCategory(Long categoryId) {
@@ -89,8 +92,11 @@ public class AttributeGroupPMService implements AttributeGroupPMServiceInterface
         }
 
         group.setName(request.getName());
+        group = categoryAttributeGroupRepository.save(group);
 
-        return convertToDTO(categoryAttributeGroupRepository.save(group));
+        // Tên group hiển thị trong product detail + filter options của category
+        eventPublisher.publishEvent(new AttributeSchemaChangedEvent(group.getCategory().getId()));
+        return convertToDTO(group);
     }
 
     @Override
@@ -119,6 +125,7 @@ public class AttributeGroupPMService implements AttributeGroupPMServiceInterface
         }
 
         categoryAttributeGroupRepository.saveAll(groups);
+        eventPublisher.publishEvent(new AttributeSchemaChangedEvent(categoryId));
         return "Group order updated successfully.";
     }
 
@@ -1,6 +1,5 @@
 package com.example.sale_tech_web.feature.product.manager.pm;
 
-import com.example.sale_tech_web.config.CacheNames;
 import com.example.sale_tech_web.exception.BadRequestException;
 import com.example.sale_tech_web.exception.NotFoundException;
 import com.example.sale_tech_web.feature.product.dto.pm.attribute_dto.AttributeResponse;
@@ -10,15 +9,15 @@ import com.example.sale_tech_web.feature.product.dto.pm.attribute_dto.CategoryAt
 import com.example.sale_tech_web.feature.product.entity.Category;
 import com.example.sale_tech_web.feature.product.entity.CategoryAttributeGroup;
 import com.example.sale_tech_web.feature.product.entity.CategoryAttributeSchema;
+import com.example.sale_tech_web.feature.product.event.AttributeSchemaChangedEvent;
+import com.example.sale_tech_web.feature.product.index.ProductSearchIndex;
 import com.example.sale_tech_web.feature.product.repository.CategoryAttributeGroupRepository;
 import com.example.sale_tech_web.feature.product.repository.CategoryAttributeSchemaRepository;
 import com.example.sale_tech_web.feature.product.repository.CategoryRepository;
 import com.example.sale_tech_web.feature.product.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -32,9 +31,9 @@ public class AttributePMService implements AttributePMServiceInterface {
     private final CategoryRepository categoryRepository;
     private final ProductRepository productRepository;
     private final CategoryAttributeSchemaRepository categoryAttributeSchemaRepository;
+    private final ProductSearchIndex productSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
 
-    @Autowired
-    private CacheManager cacheManager;
     @Autowired
     private CategoryAttributeGroupRepository categoryAttributeGroupRepository;
 
@@ -96,10 +95,6 @@ public class AttributePMService implements AttributePMServiceInterface {
 
     @Override
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(value = CacheNames.PRODUCT_BY_ID, allEntries = true),
-            @CacheEvict(value = CacheNames.FILTER_OPTIONS, key = "#categoryId")
-    })
     public String addAttributeSchema(Long categoryId, CategoryAttributeRequest request) {
         Category category = categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new NotFoundException("Category not found"));
@@ -128,15 +123,13 @@ public class AttributePMService implements AttributePMServiceInterface {
                 .build();
 
         categoryAttributeSchemaRepository.save(schema);
+        productSearchIndex.reindexCategoryAfterCommit(categoryId);
+        eventPublisher.publishEvent(new AttributeSchemaChangedEvent(categoryId));
         return "Attribute schema added successfully with ID: " + schema.getId();
     }
 
     @Override
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(value = CacheNames.PRODUCT_BY_ID, allEntries = true),
-//            @CacheEvict(value = CacheNames.FILTER_OPTIONS, key = "#categoryId")
-    })
     public String updateAttributeSchema(Long attributeId, CategoryAttributeRequest request) {
         CategoryAttributeSchema schema = categoryAttributeSchemaRepository.findById(attributeId)
                 .orElseThrow(() -> new NotFoundException("Attribute not found"));
@@ -176,7 +169,8 @@ public class AttributePMService implements AttributePMServiceInterface {
 
         categoryAttributeSchemaRepository.save(schema);
 
-        Objects.requireNonNull(cacheManager.getCache(CacheNames.FILTER_OPTIONS)).evict(categoryId);
+        productSearchIndex.reindexCategoryAfterCommit(categoryId);
+        eventPublisher.publishEvent(new AttributeSchemaChangedEvent(categoryId));
 
         return "Attribute schema updated successfully with ID: " + schema.getId();
     }
@@ -211,14 +205,13 @@ public class AttributePMService implements AttributePMServiceInterface {
         }
 
         categoryAttributeSchemaRepository.saveAll(currentAttributes);
+        currentAttributes.stream().findFirst()
+                .ifPresent(attr -> eventPublisher.publishEvent(new AttributeSchemaChangedEvent(attr.getCategory().getId())));
         return "Display order updated successfully.";
     }
 
     @Override
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(value = CacheNames.PRODUCT_BY_ID, allEntries = true)
-    })
     public String deleteAttributeSchema(Long attributeId) {
         CategoryAttributeSchema schema = categoryAttributeSchemaRepository.findById(attributeId)
                 .orElseThrow(() -> new NotFoundException("Schema not found"));
@@ -234,7 +227,8 @@ public class AttributePMService implements AttributePMServiceInterface {
 
         categoryAttributeSchemaRepository.delete(schema);
 
-        Objects.requireNonNull(cacheManager.getCache(CacheNames.FILTER_OPTIONS)).evict(schema.getCategory().getId());
+        productSearchIndex.reindexCategoryAfterCommit(schema.getCategory().getId());
+        eventPublisher.publishEvent(new AttributeSchemaChangedEvent(schema.getCategory().getId()));
 
         return "Attribute schema with ID " + attributeId + " has been deleted.";
     }
@@ -1,16 +1,15 @@
 package com.example.sale_tech_web.feature.product.manager.pm;
 
-import com.example.sale_tech_web.config.CacheNames;
 import com.example.sale_tech_web.exception.BadRequestException;
 import com.example.sale_tech_web.exception.NotFoundException;
 import com.example.sale_tech_web.feature.product.dto.customer.CategoryDTO;
 import com.example.sale_tech_web.feature.product.entity.Category;
+import com.example.sale_tech_web.feature.product.event.CategoryChangedEvent;
 import com.example.sale_tech_web.feature.product.repository.CategoryAttributeSchemaRepository;
 import com.example.sale_tech_web.feature.product.repository.CategoryRepository;
 import com.example.sale_tech_web.feature.product.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,41 +20,31 @@ public class CategoryPMService implements CategoryPMServiceInterface {
     private final CategoryRepository categoryRepository;
     private final ProductRepository productRepository;
     private final CategoryAttributeSchemaRepository categoryAttributeSchemaRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(value = CacheNames.CATEGORIES, allEntries = true)
-    })
     public CategoryDTO addCategory(String name) {
         Category category = new Category();
         category.setName(name);
-        return convertCategoryDTO(categoryRepository.save(category));
+        category = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(category.getId(), name, CategoryChangedEvent.ChangeType.CREATED));
+        return convertCategoryDTO(category);
     }
 
     @Override
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(value = CacheNames.CATEGORIES, allEntries = true),
-            @CacheEvict(value = CacheNames.PRODUCT_TOP_10_BY_CATEGORY, allEntries = true),
-            @CacheEvict(value = CacheNames.PRODUCT_BY_CATEGORY, key = "#categoryId")
-    })
     public CategoryDTO updateCategory(Long categoryId, String name) {
         Category category = categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new NotFoundException("Category not found"));
         category.setName(name);
         category = categoryRepository.save(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(categoryId, name, CategoryChangedEvent.ChangeType.RENAMED));
         return convertCategoryDTO(category);
     }
 
     @Override
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(value = CacheNames.CATEGORIES, allEntries = true),
-            @CacheEvict(value = CacheNames.PRODUCT_TOP_10_BY_CATEGORY, allEntries = true),
-            @CacheEvict(value = CacheNames.PRODUCT_BY_CATEGORY, key = "#categoryId"),
-            @CacheEvict(value = CacheNames.FILTER_OPTIONS, key = "#categoryId")
-    })
     public String deleteCategory(Long categoryId) {
         Category category = categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new NotFoundException("Category not found"));
@@ -71,6 +60,7 @@ public class CategoryPMService implements CategoryPMServiceInterface {
         }
 
         categoryRepository.delete(category);
+        eventPublisher.publishEvent(new CategoryChangedEvent(categoryId, null, CategoryChangedEvent.ChangeType.DELETED));
         return "Category with ID " + categoryId + " has been deleted.";
     }
 
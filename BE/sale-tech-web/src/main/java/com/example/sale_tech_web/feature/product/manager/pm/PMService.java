@@ -1,7 +1,6 @@
 package com.example.sale_tech_web.feature.product.manager.pm;
 
 import com.alibaba.excel.EasyExcel;
-import com.example.sale_tech_web.config.CacheNames;
 import com.example.sale_tech_web.exception.BadRequestException;
 import com.example.sale_tech_web.exception.NotFoundException;
 import com.example.sale_tech_web.feature.cloudinary.dto.CloudinaryResponse;
@@ -14,16 +13,20 @@ import com.example.sale_tech_web.feature.product.entity.Category;
 import com.example.sale_tech_web.feature.product.entity.CategoryAttributeGroup;
 import com.example.sale_tech_web.feature.product.entity.CategoryAttributeSchema;
 import com.example.sale_tech_web.feature.product.entity.Product;
+import com.example.sale_tech_web.feature.product.event.ProductChangedEvent;
+import com.example.sale_tech_web.feature.product.index.ProductSearchIndex;
+import com.example.sale_tech_web.feature.product.manager.inventory.InventoryServiceInterface;
 import com.example.sale_tech_web.feature.product.repository.CategoryAttributeSchemaRepository;
 import com.example.sale_tech_web.feature.product.repository.CategoryRepository;
 import com.example.sale_tech_web.feature.product.repository.ProductRepository;
+import com.example.sale_tech_web.utils.CursorSlice;
+import com.example.sale_tech_web.utils.CursorUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -48,10 +51,9 @@ public class PMService implements PMServiceInterface {
     private final CategoryRepository categoryRepository;
     private final CategoryAttributeSchemaRepository categoryAttributeSchemaRepository;
     private final CloudinaryService cloudinaryService;
-
-    @Autowired
-    private CacheManager cacheManager;
-
+    private final ProductSearchIndex productSearchIndex;
+    private final InventoryServiceInterface inventoryService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public Page<PMProductListDTO> getAllProductsForPM(String keyword, Integer categoryId, Boolean isActive,
@@ -62,6 +64,24 @@ public class PMService implements PMServiceInterface {
         return productPage.map(this::toListDTO);
     }
 
+    @Override
+    public CursorSlice<PMProductListDTO> getAllProductsForPMByCursor(String keyword, Integer categoryId, Boolean isActive,
+                                                                     Integer minPrice, Integer maxPrice,
+                                                                     String cursor, int size, boolean withTotal) {
+        int limit = Math.max(1, size);
+        Long afterId = CursorUtils.decodeId(cursor);
+        List<Product> products = productRepository.findProductsSeek(
+                keyword, categoryId, isActive, minPrice, maxPrice, afterId, Limit.of(limit + 1));
+
+        // COUNT chỉ chạy ở trang đầu khi client cần tổng số
+        Long total = withTotal && afterId == null
+                ? productRepository.findProductsCustom(keyword, categoryId, isActive, minPrice, maxPrice, PageRequest.of(0, 1)).getTotalElements()
+                : null;
+
+        return CursorUtils.toSlice(products, limit, product -> CursorUtils.encodeId(product.getId()), total)
+                .map(this::toListDTO);
+    }
+
     @Override
     public PMProductDetailDTO getProductDetailForPM(Long productId) {
         Product product = productRepository.findById(productId)
@@ -72,11 +92,6 @@ public class PMService implements PMServiceInterface {
 
     @Override
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(value = CacheNames.PRODUCT_BY_CATEGORY, key = "#request.categoryId"),
-            @CacheEvict(value = CacheNames.FILTER_OPTIONS, key = "#request.categoryId"),
-            @CacheEvict(value = CacheNames.PRODUCT_SEARCH, allEntries = true)
-    })
     public PMProductListDTO addProduct(ProductRequest request, MultipartFile file) {
         Category category = categoryRepository.findById(request.getCategoryId())
                 .orElseThrow(() -> new NotFoundException("Category not found"));
@@ -122,16 +137,14 @@ public class PMService implements PMServiceInterface {
             productRepository.save(savedProduct);
         }
 
+        productSearchIndex.upsertAfterCommit(savedProduct);
+        eventPublisher.publishEvent(new ProductChangedEvent(savedProduct.getId(), category.getId(), true));
+
         return toListDTO(savedProduct);
     }
 
     @Override
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(value = CacheNames.PRODUCT_BY_CATEGORY, key = "#categoryId"),
-            @CacheEvict(value = CacheNames.FILTER_OPTIONS, key = "#categoryId"),
-            @CacheEvict(value = CacheNames.PRODUCT_SEARCH, allEntries = true)
-    })
     public String addProductByExcel(Long categoryId, MultipartFile file) throws IOException {
         Category category = categoryRepository.findById(categoryId)
                 .orElseThrow(() -> new NotFoundException("Category not found"));
@@ -145,21 +158,16 @@ public class PMService implements PMServiceInterface {
         }
 
         EasyExcel.read(file.getInputStream(),
-                        new ProductImportListener(productRepository, schemas, cloudinaryService, category))
+                        new ProductImportListener(productRepository, schemas, cloudinaryService, category, productSearchIndex))
                 .sheet()
                 .doRead();
+        eventPublisher.publishEvent(new ProductChangedEvent(null, categoryId, true));
 
         return "Import complete!";
     }
 
     @Override
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(value = CacheNames.PRODUCT_BY_ID, key = "#productId"),
-            @CacheEvict(value = CacheNames.PRODUCT_SEARCH, allEntries = true),
-            @CacheEvict(value = CacheNames.PRODUCT_BY_CATEGORY, key = "#request.categoryId"),
-            @CacheEvict(value = CacheNames.FILTER_OPTIONS, key = "#request.categoryId")
-    })
     public PMProductDetailDTO updateProduct(Long productId, ProductRequest request, MultipartFile file) {
         Product existing = productRepository.findById(productId)
                 .orElseThrow(() -> new NotFoundException("Product not found"));
@@ -174,12 +182,15 @@ public class PMService implements PMServiceInterface {
         }
 
         Map<String, Object> finalAttributes = validateProductAttributes(schemas, request.getAttributes());
+        int quantitySold = request.getQuantitySold() == null ? 0 : request.getQuantitySold();
+        boolean rankingChanged = !Objects.equals(existing.getQuantitySold(), quantitySold)
+                || !Objects.equals(existing.getIsActive(), request.getIsActive());
 
+        // Trước các thay đổi khác: flash sale áp quantity/quantitySold như delta lên tổng shard hiện tại
+        inventoryService.updateStock(existing, request.getQuantity(), quantitySold);
         existing.setTitle(request.getTitle());
         existing.setDescription(request.getDescription());
         existing.setPrice(request.getPrice());
-        existing.setQuantity(request.getQuantity());
-        existing.setQuantitySold(request.getQuantitySold() == null ? 0 : request.getQuantitySold());
         existing.setIsActive(request.getIsActive());
         existing.setAttributes(finalAttributes);
 
@@ -199,6 +210,8 @@ public class PMService implements PMServiceInterface {
         }
 
         Product saved = productRepository.save(existing);
+        productSearchIndex.upsertAfterCommit(saved);
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, category.getId(), rankingChanged));
 
         if (oldPublicId != null) {
             try {
@@ -213,11 +226,6 @@ public class PMService implements PMServiceInterface {
 
     @Override
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(value = CacheNames.PRODUCT_BY_ID, key = "#productId"),
-            @CacheEvict(value = CacheNames.PRODUCT_TOP_10_BY_CATEGORY, allEntries = true),
-            @CacheEvict(value = CacheNames.PRODUCT_SEARCH, allEntries = true)
-    })
     public String updateState(Long productId, boolean active) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new NotFoundException("Product not found"));
@@ -228,20 +236,14 @@ public class PMService implements PMServiceInterface {
 
         product.setIsActive(active);
         productRepository.save(product);
-
-        Objects.requireNonNull(cacheManager.getCache(CacheNames.PRODUCT_BY_CATEGORY)).evict(product.getCategory().getId());
-        Objects.requireNonNull(cacheManager.getCache(CacheNames.FILTER_OPTIONS)).evict(product.getCategory().getId());
+        productSearchIndex.upsertAfterCommit(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, product.getCategory().getId(), true));
 
         return "Product with ID " + productId + " has been deactivated.";
     }
 
     @Override
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(value = CacheNames.PRODUCT_BY_ID, key = "#productId"),
-            @CacheEvict(value = CacheNames.PRODUCT_TOP_10_BY_CATEGORY, allEntries = true),
-            @CacheEvict(value = CacheNames.PRODUCT_SEARCH, allEntries = true)
-    })
     public String deleteProduct(Long productId) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new NotFoundException("Product not found"));
@@ -258,9 +260,8 @@ public class PMService implements PMServiceInterface {
         }
 
         productRepository.delete(product);
-
-        Objects.requireNonNull(cacheManager.getCache(CacheNames.PRODUCT_BY_CATEGORY)).evict(product.getCategory().getId());
-        Objects.requireNonNull(cacheManager.getCache(CacheNames.FILTER_OPTIONS)).evict(product.getCategory().getId());
+        productSearchIndex.removeAfterCommit(productId);
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, product.getCategory().getId(), true));
 
         return result;
     }
@@ -3,6 +3,7 @@ package com.example.sale_tech_web.feature.product.manager.pm;
 import com.example.sale_tech_web.feature.product.dto.pm.product_dto.PMProductDetailDTO;
 import com.example.sale_tech_web.feature.product.dto.pm.product_dto.PMProductListDTO;
 import com.example.sale_tech_web.feature.product.dto.pm.product_dto.ProductRequest;
+import com.example.sale_tech_web.utils.CursorSlice;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.multipart.MultipartFile;
@@ -13,6 +14,10 @@ public interface PMServiceInterface {
     Page<PMProductListDTO> getAllProductsForPM(String keyword, Integer categoryId, Boolean isActive,
                                                Integer minPrice, Integer maxPrice, Pageable pageable);
 
+    CursorSlice<PMProductListDTO> getAllProductsForPMByCursor(String keyword, Integer categoryId, Boolean isActive,
+                                                              Integer minPrice, Integer maxPrice,
+                                                              String cursor, int size, boolean withTotal);
+
     PMProductDetailDTO getProductDetailForPM(Long productId);
 
     PMProductListDTO addProduct(ProductRequest request, MultipartFile image);
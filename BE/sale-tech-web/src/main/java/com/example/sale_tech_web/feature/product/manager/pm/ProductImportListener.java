@@ -7,6 +7,7 @@ import com.example.sale_tech_web.feature.product.dto.pm.product_dto.ProductImpor
 import com.example.sale_tech_web.feature.product.entity.Category;
 import com.example.sale_tech_web.feature.product.entity.CategoryAttributeSchema;
 import com.example.sale_tech_web.feature.product.entity.Product;
+import com.example.sale_tech_web.feature.product.index.ProductSearchIndex;
 import com.example.sale_tech_web.feature.product.repository.ProductRepository;
 import com.example.sale_tech_web.utils.ExcelMappingUtils;
 import lombok.extern.slf4j.Slf4j;
@@ -24,6 +25,7 @@ import static com.example.sale_tech_web.feature.product.utils.Validate.validateP
 public class ProductImportListener extends AnalysisEventListener<Map<Integer, Object>> {
     private final ProductRepository productRepository;
     private final CloudinaryService cloudinaryService;
+    private final ProductSearchIndex productSearchIndex;
 
     private final List<CategoryAttributeSchema> schemas;
     private final List<Product> cachedDataList = new ArrayList<>();
@@ -34,11 +36,13 @@ public class ProductImportListener extends AnalysisEventListener<Map<Integer, Ob
     public ProductImportListener(ProductRepository productRepository,
                                  List<CategoryAttributeSchema> schemas,
                                  CloudinaryService cloudinaryService,
-                                 Category category) {
+                                 Category category,
+                                 ProductSearchIndex productSearchIndex) {
         this.productRepository = productRepository;
         this.schemas = schemas;
         this.cloudinaryService = cloudinaryService;
         this.category = category;
+        this.productSearchIndex = productSearchIndex;
     }
 
     @Override
@@ -120,5 +124,6 @@ public class ProductImportListener extends AnalysisEventListener<Map<Integer, Ob
 
         log.info("Save {} data into database...", cachedDataList.size());
         productRepository.saveAll(cachedDataList);
+        productSearchIndex.upsertAllAfterCommit(cachedDataList);
     }
 }
\ No newline at end of file
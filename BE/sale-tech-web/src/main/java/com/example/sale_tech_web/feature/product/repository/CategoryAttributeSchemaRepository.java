@@ -27,4 +27,11 @@ public interface CategoryAttributeSchemaRepository extends JpaRepository<Categor
     Boolean existsByCategoryAttributeGroupId(Long groupId);
 
     List<CategoryAttributeSchema> findByCategoryAttributeGroupId(Long groupId);
+
+    // [categoryId, code] của tất cả attribute filterable - dùng khi build ProductSearchIndex
+    @Query("SELECT s.category.id, s.code FROM CategoryAttributeSchema s WHERE s.isFilterable = true")
+    List<Object[]> findAllFilterableCodes();
+
+    @Query("SELECT s.code FROM CategoryAttributeSchema s WHERE s.category.id = :categoryId AND s.isFilterable = true")
+    List<String> findFilterableCodesByCategoryId(@Param("categoryId") Long categoryId);
 }
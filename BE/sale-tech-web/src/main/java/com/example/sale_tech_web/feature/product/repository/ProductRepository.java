@@ -3,6 +3,7 @@ package com.example.sale_tech_web.feature.product.repository;
 import com.example.sale_tech_web.feature.product.dto.customer.FilterProjection;
 import com.example.sale_tech_web.feature.product.entity.Category;
 import com.example.sale_tech_web.feature.product.entity.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
@@ -13,7 +14,11 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
@@ -59,32 +64,123 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
             \s""", nativeQuery = true)
     List<FilterProjection> findAllFilterValuesAggregated(@Param("categoryId") Long categoryId);
 
+    @EntityGraph(attributePaths = {"category"})
     List<Product> findByIdInAndIsActiveTrue(List<Long> ids);
 
+    @EntityGraph(attributePaths = {"category"})
+    List<Product> findAllWithCategoryByIdIn(Collection<Long> ids);
+
+    /**
+     * Locks the product rows of a reservation/release in id order (same order as {@link #decrementStockForOrder}).
+     * Taken in its own statement so the shard check that follows sees a flash sale enabled while we waited.
+     */
+    @Query(value = "SELECT p.id FROM product p WHERE p.id IN (:productIds) ORDER BY p.id FOR NO KEY UPDATE", nativeQuery = true)
+    List<Long> lockStock(@Param("productIds") Collection<Long> productIds);
+
+    /**
+     * Reserves stock for all lines of an order in one statement, all or nothing: rows are locked in id order,
+     * then every line is decremented (quantity_sold incremented) only if each one is an active product with enough stock
+     * and none of them is in flash-sale mode (its stock lives in product_stock_shard). Call {@link #lockStock} first,
+     * otherwise the shard check runs on the snapshot taken before the row lock was granted.
+     *
+     * @return number of products decremented: productIds.length (distinct) on success, 0 if any line is short
+     */
     @Modifying(flushAutomatically = true, clearAutomatically = true)
-    @Query("""
-            UPDATE Product p
-            SET p.quantity = p.quantity - :quantity,
-                p.quantitySold = COALESCE(p.quantitySold, 0) + :quantity
-            WHERE p.id = :productId
-              AND p.isActive = true
-              AND p.quantity IS NOT NULL
-              AND p.quantity >= :quantity
-            """)
-    int decrementStockIfAvailable(@Param("productId") Long productId, @Param("quantity") Integer quantity);
+    @Query(value = """
+            WITH requested AS (
+                SELECT r.product_id, SUM(r.quantity) AS quantity
+                FROM unnest(CAST(:productIds AS bigint[]), CAST(:quantities AS integer[])) AS r(product_id, quantity)
+                GROUP BY r.product_id
+            ),
+            locked AS (
+                SELECT p.id, p.quantity, p.is_active FROM product p
+                WHERE p.id IN (SELECT product_id FROM requested)
+                ORDER BY p.id
+                FOR NO KEY UPDATE
+            )
+            UPDATE product p
+            SET quantity = p.quantity - r.quantity,
+                quantity_sold = COALESCE(p.quantity_sold, 0) + r.quantity
+            FROM requested r
+            WHERE p.id = r.product_id
+              AND NOT EXISTS (
+                  SELECT 1 FROM requested rq
+                  LEFT JOIN locked l ON l.id = rq.product_id
+                  WHERE l.id IS NULL OR l.is_active IS NOT TRUE OR l.quantity IS NULL OR l.quantity < rq.quantity
+                     OR EXISTS (SELECT 1 FROM product_stock_shard s WHERE s.product_id = rq.product_id)
+              )
+            """, nativeQuery = true)
+    int decrementStockForOrder(@Param("productIds") Long[] productIds, @Param("quantities") Integer[] quantities);
+
+    /**
+     * Lines of a rejected reservation without enough stock; run in the same transaction, the rows are still locked
+     */
+    @Query(value = """
+            SELECT r.product_id
+            FROM (
+                SELECT r.product_id, SUM(r.quantity) AS quantity
+                FROM unnest(CAST(:productIds AS bigint[]), CAST(:quantities AS integer[])) AS r(product_id, quantity)
+                GROUP BY r.product_id
+            ) r
+            LEFT JOIN product p ON p.id = r.product_id
+            WHERE p.id IS NULL OR p.is_active IS NOT TRUE OR p.quantity IS NULL OR p.quantity < r.quantity
+            ORDER BY r.product_id
+            """, nativeQuery = true)
+    List<Long> findShortStock(@Param("productIds") Long[] productIds, @Param("quantities") Integer[] quantities);
 
+    /**
+     * Puts back the stock of cancelled/rejected/failed orders in one statement (rows locked in id order)
+     */
     @Modifying(flushAutomatically = true, clearAutomatically = true)
-    @Query("""
-            UPDATE Product p
-            SET p.quantity = COALESCE(p.quantity, 0) + :quantity,
-                p.quantitySold = COALESCE(p.quantitySold, 0) - :quantity
-            WHERE p.id = :productId
-            """)
-    void incrementStockOnRevert(@Param("productId") Long productId, @Param("quantity") Integer quantity);
+    @Query(value = """
+            WITH requested AS (
+                SELECT r.product_id, SUM(r.quantity) AS quantity
+                FROM unnest(CAST(:productIds AS bigint[]), CAST(:quantities AS integer[])) AS r(product_id, quantity)
+                GROUP BY r.product_id
+            ),
+            locked AS (
+                SELECT p.id FROM product p
+                WHERE p.id IN (SELECT product_id FROM requested)
+                ORDER BY p.id
+                FOR NO KEY UPDATE
+            )
+            UPDATE product p
+            SET quantity = COALESCE(p.quantity, 0) + r.quantity,
+                quantity_sold = COALESCE(p.quantity_sold, 0) - r.quantity
+            FROM requested r
+            WHERE p.id = r.product_id
+              AND p.id IN (SELECT id FROM locked)
+            """, nativeQuery = true)
+    int incrementStockForOrder(@Param("productIds") Long[] productIds, @Param("quantities") Integer[] quantities);
+
+    /**
+     * @param quantities product id -> quantity of every order line
+     * @return ids of the products without enough stock (empty = all lines reserved)
+     */
+    default Set<Long> reserveStock(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return Set.of();
+        }
+        Long[] productIds = quantities.keySet().toArray(Long[]::new);
+        Integer[] lineQuantities = quantities.values().toArray(Integer[]::new);
+        if (decrementStockForOrder(productIds, lineQuantities) == productIds.length) {
+            return Set.of();
+        }
+        // Không trừ dòng nào -> tìm các dòng thiếu hàng để báo lỗi
+        Set<Long> shortIds = new TreeSet<>(findShortStock(productIds, lineQuantities));
+        return shortIds.isEmpty() ? new TreeSet<>(quantities.keySet()) : shortIds;
+    }
 
+    default void releaseStock(Map<Long, Integer> quantities) {
+        if (!quantities.isEmpty()) {
+            incrementStockForOrder(quantities.keySet().toArray(Long[]::new), quantities.values().toArray(Integer[]::new));
+        }
+    }
+
+    // Keyword so khớp không dấu qua f_unaccent_lower -> dùng GIN index idx_product_title_trgm
     @EntityGraph(attributePaths = {"category"})
     @Query("SELECT p FROM Product p WHERE " +
-            "(CAST(:kw AS string) IS NULL OR LOWER(p.title) LIKE LOWER(CONCAT('%', CAST(:kw AS string), '%'))) AND " +
+            "(CAST(:kw AS string) IS NULL OR f_unaccent_lower(p.title) LIKE CONCAT('%', f_unaccent_lower(CAST(:kw AS string)), '%')) AND " +
             "(:cateId IS NULL OR p.category.id = :cateId) AND " +
             "(:active IS NULL OR p.isActive = :active) AND " +
             "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
@@ -97,10 +193,100 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
             @Param("maxPrice") Integer maxPrice,
             Pageable pageable);
 
+    // Keyset: seek theo id < lastId thay cho OFFSET, không COUNT
+    @EntityGraph(attributePaths = {"category"})
+    @Query("SELECT p FROM Product p WHERE " +
+            "(CAST(:kw AS string) IS NULL OR f_unaccent_lower(p.title) LIKE CONCAT('%', f_unaccent_lower(CAST(:kw AS string)), '%')) AND " +
+            "(:cateId IS NULL OR p.category.id = :cateId) AND " +
+            "(:active IS NULL OR p.isActive = :active) AND " +
+            "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
+            "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
+            "(:lastId IS NULL OR p.id < :lastId) " +
+            "ORDER BY p.id DESC")
+    List<Product> findProductsSeek(
+            @Param("kw") String keyword,
+            @Param("cateId") Integer categoryId,
+            @Param("active") Boolean isActive,
+            @Param("minPrice") Integer minPrice,
+            @Param("maxPrice") Integer maxPrice,
+            @Param("lastId") Long lastId,
+            Limit limit);
+
+    // Fallback của /product/suggest khi index chưa sẵn sàng: title giống keyword nhất trước, rồi bán chạy
+    @Query(value = """
+            SELECT p.* FROM product p
+            WHERE p.is_active = true
+              AND public.f_unaccent_lower(p.title) LIKE '%' || public.f_unaccent_lower(CAST(:keyword AS text)) || '%'
+            ORDER BY public.f_title_similarity(public.f_unaccent_lower(p.title), public.f_unaccent_lower(CAST(:keyword AS text))) DESC,
+                     p.quantity_sold DESC NULLS LAST,
+                     p.id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Product> findSuggestionsByTitle(@Param("keyword") String keyword, @Param("limit") int limit);
+
+    /**
+     * Facet counts of /product/filter on the SQL path (index disabled or warming), over the active products matching
+     * category / keyword / price. Drill-sideways: a product is counted for a code if it matches every attribute filter
+     * except the one on that code, so the other values of a selected code keep their counts.
+     * Scalars and array elements are compared as text; the keyword goes through f_unaccent_lower like the result page.
+     * Filters are passed flattened: filterCodes[i] = filterValues[i] for every selected value.
+     *
+     * @return (code, value, count)
+     */
+    @Query(value = """
+            WITH base AS (
+                SELECT p.id, p.attributes FROM product p
+                WHERE p.is_active = true
+                  AND (CAST(:categoryId AS bigint) IS NULL OR p.category_id = :categoryId)
+                  AND (CAST(:keyword AS text) IS NULL OR public.f_unaccent_lower(p.title) LIKE '%' || public.f_unaccent_lower(CAST(:keyword AS text)) || '%')
+                  AND (CAST(:minPrice AS integer) IS NULL OR p.price >= :minPrice)
+                  AND (CAST(:maxPrice AS integer) IS NULL OR p.price <= :maxPrice)
+            ),
+            vals AS (
+                SELECT b.id, a.key AS code, e.value
+                FROM base b
+                CROSS JOIN LATERAL jsonb_each(b.attributes) AS a(key, value)
+                CROSS JOIN LATERAL jsonb_array_elements_text(
+                    CASE jsonb_typeof(a.value) WHEN 'array' THEN a.value ELSE jsonb_build_array(a.value) END) AS e(value)
+                WHERE e.value IS NOT NULL
+                  AND (a.key = ANY(CAST(:codes AS text[])) OR a.key = ANY(CAST(:filterCodes AS text[])))
+            ),
+            filters AS (
+                SELECT f.code, f.value
+                FROM unnest(CAST(:filterCodes AS text[]), CAST(:filterValues AS text[])) AS f(code, value)
+            ),
+            failed AS (
+                SELECT b.id, fc.code
+                FROM base b
+                CROSS JOIN (SELECT DISTINCT code FROM filters) fc
+                WHERE NOT EXISTS (
+                    SELECT 1 FROM vals v
+                    JOIN filters f ON f.code = v.code AND f.value = v.value
+                    WHERE v.id = b.id AND v.code = fc.code
+                )
+            )
+            SELECT v.code, v.value, COUNT(*)
+            FROM vals v
+            WHERE v.code = ANY(CAST(:codes AS text[]))
+              AND NOT EXISTS (SELECT 1 FROM failed f WHERE f.id = v.id AND f.code <> v.code)
+            GROUP BY v.code, v.value
+            """, nativeQuery = true)
+    List<Object[]> countFacetValues(@Param("categoryId") Long categoryId,
+                                    @Param("keyword") String keyword,
+                                    @Param("minPrice") Integer minPrice,
+                                    @Param("maxPrice") Integer maxPrice,
+                                    @Param("codes") String[] codes,
+                                    @Param("filterCodes") String[] filterCodes,
+                                    @Param("filterValues") String[] filterValues);
+
     @Query(value = "SELECT EXISTS(SELECT 1 FROM product " +
             "WHERE category_id = :categoryId " +
             "AND jsonb_exists(attributes, :attributeCode))", nativeQuery = true)
     boolean existsByAttributeCodeAndCategoryId(@Param("attributeCode") String attributeCode, @Param("categoryId") Long categoryId);
 
     boolean existsByCategory(Category category);
+
+    // Load toàn bộ product active để build ProductSearchIndex
+    @EntityGraph(attributePaths = {"category"})
+    List<Product> findAllByIsActiveTrue();
 }
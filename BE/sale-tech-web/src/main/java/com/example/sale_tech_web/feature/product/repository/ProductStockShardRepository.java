@@ -0,0 +1,133 @@
+package com.example.sale_tech_web.feature.product.repository;
+
+import com.example.sale_tech_web.feature.product.entity.ProductStockShard;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProductStockShardRepository extends JpaRepository<ProductStockShard, ProductStockShard.Key> {
+
+    @Query("SELECT DISTINCT s.productId FROM ProductStockShard s WHERE s.productId IN :productIds")
+    List<Long> findFlashSaleProductIds(@Param("productIds") Collection<Long> productIds);
+
+    @Query("SELECT DISTINCT s.productId FROM ProductStockShard s")
+    List<Long> findAllFlashSaleProductIds();
+
+    List<ProductStockShard> findByProductIdOrderByShardNo(Long productId);
+
+    // Khóa tất cả shard của product (đường chậm, đồng bộ tổng, rebalance)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM ProductStockShard s WHERE s.productId = :productId ORDER BY s.shardNo")
+    List<ProductStockShard> lockByProductId(@Param("productId") Long productId);
+
+    /**
+     * Takes the whole quantity from one shard that has enough stock and is not locked by another checkout.
+     * The candidate is picked at random so concurrent orders spread over the shards.
+     *
+     * @return the shard used, empty if every candidate shard is locked or too small
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE product_stock_shard s
+            SET quantity = s.quantity - :quantity,
+                sold = s.sold + :quantity
+            WHERE s.product_id = :productId
+              AND s.quantity >= :quantity
+              AND s.shard_no = (
+                  SELECT c.shard_no FROM product_stock_shard c
+                  WHERE c.product_id = :productId AND c.quantity >= :quantity
+                  ORDER BY random()
+                  LIMIT 1
+                  FOR UPDATE SKIP LOCKED
+              )
+            RETURNING s.shard_no
+            """, nativeQuery = true)
+    List<Integer> reserveFromFreeShard(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+    /**
+     * Same as {@link #reserveFromFreeShard} but waits for one random candidate shard instead of skipping locked ones.
+     * Only the chosen shard is locked, so other checkouts keep using the rest.
+     *
+     * @return the shard used, empty if no shard has enough stock once the lock is granted
+     */
+    @Transactional
+    @Query(value = """
+            UPDATE product_stock_shard s
+            SET quantity = s.quantity - :quantity,
+                sold = s.sold + :quantity
+            WHERE s.product_id = :productId
+              AND s.quantity >= :quantity
+              AND s.shard_no = (
+                  SELECT c.shard_no FROM product_stock_shard c
+                  WHERE c.product_id = :productId AND c.quantity >= :quantity
+                  ORDER BY random()
+                  LIMIT 1
+                  FOR UPDATE
+              )
+            RETURNING s.shard_no
+            """, nativeQuery = true)
+    List<Integer> reserveFromAnyShard(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+    // Đọc không khóa để chọn đường đi (thử lại shard rảnh / gom nhiều shard / hết hàng)
+    @Query(value = "SELECT quantity FROM product_stock_shard WHERE product_id = :productId", nativeQuery = true)
+    List<Integer> findShardQuantities(@Param("productId") Long productId);
+
+    @Query(value = "SELECT current_setting('lock_timeout')", nativeQuery = true)
+    String currentLockTimeout();
+
+    // Chỉ có hiệu lực trong transaction hiện tại
+    @Query(value = "SELECT set_config('lock_timeout', :timeout, true)", nativeQuery = true)
+    String setLockTimeout(@Param("timeout") String timeout);
+
+    /**
+     * Gives stock back to the emptiest shard that is not locked
+     *
+     * @return 0 if every shard is locked
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE product_stock_shard s
+            SET quantity = s.quantity + :quantity,
+                sold = s.sold - :quantity
+            WHERE s.product_id = :productId
+              AND s.shard_no = (
+                  SELECT c.shard_no FROM product_stock_shard c
+                  WHERE c.product_id = :productId
+                  ORDER BY c.quantity, c.shard_no
+                  LIMIT 1
+                  FOR UPDATE SKIP LOCKED
+              )
+            """, nativeQuery = true)
+    int releaseToFreeShard(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+    /**
+     * Lock order is always product -> shards (enable/disable/updateStock/sync).
+     * FOR NO KEY UPDATE: does not conflict with the FOR KEY SHARE of the order_detail FK check,
+     * so checkouts holding a shard lock never wait on (or deadlock with) the sync.
+     *
+     * @return quantity_sold of the product, empty if it does not exist
+     */
+    @Query(value = "SELECT COALESCE(quantity_sold, 0) FROM product WHERE id = :productId FOR NO KEY UPDATE", nativeQuery = true)
+    List<Integer> lockProduct(@Param("productId") Long productId);
+
+    @Modifying
+    @Query(value = """
+            UPDATE product
+            SET quantity = :quantity,
+                quantity_sold = COALESCE(quantity_sold, 0) + :soldDelta
+            WHERE id = :productId
+            """, nativeQuery = true)
+    int applyShardTotals(@Param("productId") Long productId,
+                         @Param("quantity") int quantity,
+                         @Param("soldDelta") int soldDelta);
+}
@@ -0,0 +1,24 @@
+package com.example.sale_tech_web.feature.revenue.config;
+
+public class RevenueConfig {
+
+    /**
+     * Delay before the first rollup reconcile after startup (backfills orders completed before the rollup existed)
+     */
+    public static final String ROLLUP_RECONCILE_INITIAL_DELAY = "PT30S";
+
+    /**
+     * Delay between two rollup reconciles (ISO-8601 duration)
+     * Catches orders whose status was changed outside OMService/OrderService
+     */
+    public static final String ROLLUP_RECONCILE_DELAY = "PT1H";
+
+    /**
+     * Number of orders applied/retracted per transaction during a reconcile
+     */
+    public static final int ROLLUP_BATCH_SIZE = 500;
+
+    private RevenueConfig() {
+        // Prevent instantiation
+    }
+}
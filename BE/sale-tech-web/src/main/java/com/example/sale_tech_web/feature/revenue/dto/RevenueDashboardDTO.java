@@ -0,0 +1,19 @@
+package com.example.sale_tech_web.feature.revenue.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RevenueDashboardDTO {
+    private RevenueTotalDTO total;
+    private PendingRevenueDTO pending;
+    private CancelRateDTO cancelRate;
+    private CategoryRevenueDTO categoryRevenue;
+    private TopProductDTO topProducts;
+    private PaymentMethodRevenueDTO paymentMethodRevenue;
+}
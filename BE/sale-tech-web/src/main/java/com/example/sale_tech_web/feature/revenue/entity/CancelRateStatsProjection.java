@@ -1,10 +0,0 @@
-package com.example.sale_tech_web.feature.revenue.entity;
-
-public interface CancelRateStatsProjection {
-    Long getCancelledRevenue();
-
-    Long getCancelledOrders();
-
-    Long getTotalOrders();
-}
-
@@ -1,8 +0,0 @@
-package com.example.sale_tech_web.feature.revenue.entity;
-
-public interface PendingRevenueStatsProjection {
-    Long getPendingRevenue();
-
-    Long getPendingOrders();
-}
-
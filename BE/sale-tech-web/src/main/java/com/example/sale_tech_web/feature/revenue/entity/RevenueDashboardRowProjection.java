@@ -0,0 +1,18 @@
+package com.example.sale_tech_web.feature.revenue.entity;
+
+/**
+ * One row of RevenueRepository.findDashboardRows, section tells which part of the dashboard it belongs to
+ */
+public interface RevenueDashboardRowProjection {
+    String getSection();
+    Long getCategoryId();
+    Long getProductId();
+    String getPaymentMethod();
+    String getProductTitle();
+    String getCategoryName();
+    Long getQuantitySold();
+    Long getRevenue();
+    Long getPreviousRevenue();
+    Long getOrderCount();
+    Long getPreviousOrderCount();
+}
@@ -1,7 +0,0 @@
-package com.example.sale_tech_web.feature.revenue.entity;
-
-public interface TotalRevenueProjection {
-    Long getTotalRevenue();
-
-    Long getOrderCount();
-}
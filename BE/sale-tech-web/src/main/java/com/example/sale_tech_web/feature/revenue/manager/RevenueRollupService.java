@@ -0,0 +1,74 @@
+package com.example.sale_tech_web.feature.revenue.manager;
+
+import com.example.sale_tech_web.feature.revenue.config.RevenueConfig;
+import com.example.sale_tech_web.feature.revenue.repository.RevenueRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps the pre-aggregated revenue tables read by {@link RevenueService} in sync with orders.
+ * An order counts as revenue while it is COMPLETED and its invoice is PAID (same rule as view_revenue_analytics).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RevenueRollupService {
+    private final RevenueRollupRepository rollupRepository;
+
+    /**
+     * Cộng order vào rollup nếu vừa đủ điều kiện, trừ ra nếu không còn đủ điều kiện.
+     * Gọi trong transaction đổi status order/payment, sau khi đã set status mới.
+     */
+    @Transactional
+    public void syncOrder(Long orderId) {
+        syncOrders(List.of(orderId));
+    }
+
+    @Transactional
+    public void syncOrders(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        rollupRepository.applyOrders(orderIds);
+        rollupRepository.retractOrders(orderIds);
+    }
+
+    /**
+     * Backfill + reconcile: chạy lần đầu sau khi start (cộng các order cũ), sau đó định kỳ
+     * để bắt các order đổi status ngoài luồng OMService/OrderService. Mỗi batch một transaction.
+     */
+    @Scheduled(initialDelayString = RevenueConfig.ROLLUP_RECONCILE_INITIAL_DELAY,
+            fixedDelayString = RevenueConfig.ROLLUP_RECONCILE_DELAY)
+    public void reconcile() {
+        try {
+            long start = System.currentTimeMillis();
+            int applied = 0;
+            int retracted = 0;
+
+            List<Long> batch;
+            while (!(batch = rollupRepository.findUnappliedOrderIds(RevenueConfig.ROLLUP_BATCH_SIZE)).isEmpty()) {
+                rollupRepository.applyOrders(batch);
+                applied += batch.size();
+            }
+            while (!(batch = rollupRepository.findStaleAppliedOrderIds(RevenueConfig.ROLLUP_BATCH_SIZE)).isEmpty()) {
+                rollupRepository.retractOrders(batch);
+                retracted += batch.size();
+            }
+            rollupRepository.deleteEmptyProductRows();
+            rollupRepository.deleteEmptyOrderRows();
+
+            if (applied > 0 || retracted > 0) {
+                log.info("Revenue rollup reconciled: {} orders applied, {} retracted in {} ms",
+                        applied, retracted, System.currentTimeMillis() - start);
+            }
+        } catch (Exception e) {
+            log.error("Failed to reconcile revenue rollup", e);
+        }
+    }
+}
@@ -11,6 +11,7 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -24,82 +25,61 @@ import static com.example.sale_tech_web.utils.MathUtils.*;
 @RequiredArgsConstructor
 public class RevenueService implements RevenueServiceInterface {
     private static final int TOP_PRODUCT_LIMIT = 10;
+
+    // Giá trị cột section của RevenueRepository.findDashboardRows
+    private static final String SALES_TOTAL = "SALES_TOTAL";
+    private static final String CATEGORY = "CATEGORY";
+    private static final String PRODUCT = "PRODUCT";
+    private static final String PAYMENT_METHOD = "PAYMENT_METHOD";
+    private static final String ORDERS_TOTAL = "ORDERS_TOTAL";
+    private static final String PAYMENT_METHOD_ORDERS = "PAYMENT_METHOD_ORDERS";
+    private static final String PENDING = "PENDING";
+    private static final String CANCELLED = "CANCELLED";
+    private static final String CREATED = "CREATED";
+
     private final RevenueRepository revenueRepository;
 
     @Override
-//    @Cacheable(value = CacheNames.REVENUE_ANALYTICS, key = "'total:' + (#dateOption == null ? 'THIS_MONTH' : #dateOption.name()) + ':' + (#categoryId == null ? 'ALL' : #categoryId)")
-    public RevenueTotalDTO getTotalRevenue(DateOption dateOption, Long categoryId) {
+    public RevenueDashboardDTO getDashboard(DateOption dateOption, Long categoryId, TopProductSortBy sortBy) {
         DateRangeDTO currentRange = resolveDateRange(dateOption);
         DateRangeDTO previousRange = resolvePreviousRange(dateOption);
+        TopProductSortBy safeSortBy = sortBy == null ? TopProductSortBy.REVENUE : sortBy;
 
-        TotalRevenueProjection currentResult = revenueRepository.getRevenueAndOrderCount(
-                currentRange.getStartDate(),
-                currentRange.getEndDate(),
-                categoryId
-        );
-        long currentRevenue = safeLong(currentResult.getTotalRevenue());
-        long totalCurrentOrders = safeLong(currentResult.getOrderCount());
-
-        TotalRevenueProjection previousResult = revenueRepository.getRevenueAndOrderCount(
-                previousRange.getStartDate(),
-                previousRange.getEndDate(),
-                categoryId
-        );
-        long previousRevenue = safeLong(previousResult.getTotalRevenue());
-        long totalPreviousOrders = safeLong(previousResult.getOrderCount());
+        Map<String, List<RevenueDashboardRowProjection>> sections = revenueRepository.findDashboardRows(
+                        currentRange.getStartDate(),
+                        currentRange.getEndDate(),
+                        previousRange.getStartDate(),
+                        previousRange.getEndDate(),
+                        categoryId)
+                .stream()
+                .collect(Collectors.groupingBy(RevenueDashboardRowProjection::getSection));
 
-        return RevenueTotalDTO.builder()
-                .currentRevenue(currentRevenue)
-                .previousRevenue(previousRevenue)
-                .growthPercentage(calculateGrowth(currentRevenue, previousRevenue))
-                .currentRange(currentRange)
-                .previousRange(previousRange)
-                .totalCurrentOrders(totalCurrentOrders)
-                .totalPreviousOrders(totalPreviousOrders)
+        return RevenueDashboardDTO.builder()
+                .total(buildTotal(sections, currentRange, previousRange))
+                .pending(buildPending(sections, currentRange))
+                .cancelRate(buildCancelRate(sections, currentRange))
+                .categoryRevenue(buildCategoryRevenue(sections, currentRange))
+                .topProducts(buildTopProducts(sections, currentRange, safeSortBy))
+                .paymentMethodRevenue(buildPaymentMethodRevenue(sections, currentRange))
                 .build();
     }
 
+    @Override
+//    @Cacheable(value = CacheNames.REVENUE_ANALYTICS, key = "'total:' + (#dateOption == null ? 'THIS_MONTH' : #dateOption.name()) + ':' + (#categoryId == null ? 'ALL' : #categoryId)")
+    public RevenueTotalDTO getTotalRevenue(DateOption dateOption, Long categoryId) {
+        return getDashboard(dateOption, categoryId, null).getTotal();
+    }
+
     @Override
 //    @Cacheable(value = CacheNames.REVENUE_ANALYTICS, key = "'pending:' + (#dateOption == null ? 'THIS_MONTH' : #dateOption.name()) + ':' + (#categoryId == null ? 'ALL' : #categoryId)")
     public PendingRevenueDTO getPendingRevenue(DateOption dateOption, Long categoryId) {
-        DateRangeDTO range = resolveDateRange(dateOption);
-
-        PendingRevenueStatsProjection result = revenueRepository.getPendingRevenueAndOrderCount(
-                range.getStartDate(),
-                range.getEndDate(),
-                categoryId
-        );
-        long pendingRevenue = safeLong(result.getPendingRevenue());
-        long pendingOrders = safeLong(result.getPendingOrders());
-
-        return PendingRevenueDTO.builder()
-                .pendingRevenue(pendingRevenue)
-                .pendingOrders(pendingOrders)
-                .range(range)
-                .build();
+        return getDashboard(dateOption, categoryId, null).getPending();
     }
 
     @Override
 //    @Cacheable(value = CacheNames.REVENUE_ANALYTICS, key = "'cancel:' + (#dateOption == null ? 'THIS_MONTH' : #dateOption.name()) + ':' + (#categoryId == null ? 'ALL' : #categoryId)")
     public CancelRateDTO getCancelRate(DateOption dateOption, Long categoryId) {
-        DateRangeDTO range = resolveDateRange(dateOption);
-
-        CancelRateStatsProjection result = revenueRepository.getCancelledAndTotalOrderStats(
-                range.getStartDate(),
-                range.getEndDate(),
-                categoryId
-        );
-        long cancelledRevenue = safeLong(result.getCancelledRevenue());
-        long cancelledOrders = safeLong(result.getCancelledOrders());
-        long totalOrders = safeLong(result.getTotalOrders());
-
-        return CancelRateDTO.builder()
-                .cancelledRevenue(cancelledRevenue)
-                .cancelledOrders(cancelledOrders)
-                .totalOrders(totalOrders)
-                .cancellationRate(calculateRate(cancelledOrders, totalOrders))
-                .range(range)
-                .build();
+        return getDashboard(dateOption, categoryId, null).getCancelRate();
     }
 
     @Override
@@ -124,20 +104,84 @@ public class RevenueService implements RevenueServiceInterface {
 
     @Override
     public CategoryRevenueDTO getCategoryRevenue(DateOption dateOption) {
-        DateRangeDTO range = resolveDateRange(dateOption);
-        List<CategoryRevenueProjection> rawRows =
-                revenueRepository.findCategoryRevenue(range.getStartDate(), range.getEndDate());
+        return getDashboard(dateOption, null, null).getCategoryRevenue();
+    }
+
+    @Override
+//    @Cacheable(value = CacheNames.REVENUE_ANALYTICS, key = "'top:' + (#dateOption == null ? 'THIS_MONTH' : #dateOption.name()) + ':' + (#categoryId == null ? 'ALL' : #categoryId) + ':' + (#sortBy == null ? 'REVENUE' : #sortBy.name())")
+    public TopProductDTO getTopProducts(DateOption dateOption, Long categoryId, TopProductSortBy sortBy) {
+        return getDashboard(dateOption, categoryId, sortBy).getTopProducts();
+    }
+
+    @Override
+//    @Cacheable(value = CacheNames.REVENUE_ANALYTICS, key = "'pay-method:' + (#dateOption == null ? 'THIS_MONTH' : #dateOption.name()) + ':' + (#categoryId == null ? 'ALL' : #categoryId)")
+    public PaymentMethodRevenueDTO getRevenueByPaymentMethod(DateOption dateOption, Long categoryId) {
+        return getDashboard(dateOption, categoryId, null).getPaymentMethodRevenue();
+    }
+
+    // -- Dashboard sections -- //
 
-        long totalRevenue = rawRows.stream().mapToLong(row -> safeLong(row.getTotalRevenue())).sum();
+    private RevenueTotalDTO buildTotal(Map<String, List<RevenueDashboardRowProjection>> sections,
+                                       DateRangeDTO currentRange,
+                                       DateRangeDTO previousRange) {
+        RevenueDashboardRowProjection sales = first(sections, SALES_TOTAL);
+        RevenueDashboardRowProjection orders = first(sections, ORDERS_TOTAL);
 
-        List<CategoryRevenueDTO.CategoryRevenue> categoryRevenuesList;
-        categoryRevenuesList = rawRows.stream()
+        long currentRevenue = sales == null ? 0L : safeLong(sales.getRevenue());
+        long previousRevenue = sales == null ? 0L : safeLong(sales.getPreviousRevenue());
+
+        return RevenueTotalDTO.builder()
+                .currentRevenue(currentRevenue)
+                .previousRevenue(previousRevenue)
+                .growthPercentage(calculateGrowth(currentRevenue, previousRevenue))
+                .currentRange(currentRange)
+                .previousRange(previousRange)
+                .totalCurrentOrders(orders == null ? 0L : safeLong(orders.getOrderCount()))
+                .totalPreviousOrders(orders == null ? 0L : safeLong(orders.getPreviousOrderCount()))
+                .build();
+    }
+
+    private PendingRevenueDTO buildPending(Map<String, List<RevenueDashboardRowProjection>> sections,
+                                           DateRangeDTO range) {
+        RevenueDashboardRowProjection pending = first(sections, PENDING);
+
+        return PendingRevenueDTO.builder()
+                .pendingRevenue(pending == null ? 0L : safeLong(pending.getRevenue()))
+                .pendingOrders(pending == null ? 0L : safeLong(pending.getOrderCount()))
+                .range(range)
+                .build();
+    }
+
+    private CancelRateDTO buildCancelRate(Map<String, List<RevenueDashboardRowProjection>> sections,
+                                          DateRangeDTO range) {
+        RevenueDashboardRowProjection cancelled = first(sections, CANCELLED);
+        RevenueDashboardRowProjection created = first(sections, CREATED);
+
+        long cancelledOrders = cancelled == null ? 0L : safeLong(cancelled.getOrderCount());
+        long totalOrders = created == null ? 0L : safeLong(created.getOrderCount());
+
+        return CancelRateDTO.builder()
+                .cancelledRevenue(cancelled == null ? 0L : safeLong(cancelled.getRevenue()))
+                .cancelledOrders(cancelledOrders)
+                .totalOrders(totalOrders)
+                .cancellationRate(calculateRate(cancelledOrders, totalOrders))
+                .range(range)
+                .build();
+    }
+
+    private CategoryRevenueDTO buildCategoryRevenue(Map<String, List<RevenueDashboardRowProjection>> sections,
+                                                    DateRangeDTO range) {
+        List<RevenueDashboardRowProjection> rows = withSales(sections.getOrDefault(CATEGORY, List.of()));
+        long totalRevenue = rows.stream().mapToLong(row -> safeLong(row.getRevenue())).sum();
+
+        List<CategoryRevenueDTO.CategoryRevenue> categoryRevenuesList = rows.stream()
+                .sorted(Comparator.comparingLong((RevenueDashboardRowProjection row) -> safeLong(row.getRevenue())).reversed())
                 .map(row -> CategoryRevenueDTO.CategoryRevenue.builder()
                         .categoryId(row.getCategoryId())
                         .categoryName(row.getCategoryName())
-                        .totalQuantitySold(safeLong(row.getTotalQuantitySold()))
-                        .totalRevenue(safeLong(row.getTotalRevenue()))
-                        .revenuePercentage(calculateRate(safeLong(row.getTotalRevenue()), totalRevenue))
+                        .totalQuantitySold(safeLong(row.getQuantitySold()))
+                        .totalRevenue(safeLong(row.getRevenue()))
+                        .revenuePercentage(calculateRate(safeLong(row.getRevenue()), totalRevenue))
                         .build())
                 .toList();
 
@@ -147,27 +191,23 @@ public class RevenueService implements RevenueServiceInterface {
                 .build();
     }
 
-    @Override
-//    @Cacheable(value = CacheNames.REVENUE_ANALYTICS, key = "'top:' + (#dateOption == null ? 'THIS_MONTH' : #dateOption.name()) + ':' + (#categoryId == null ? 'ALL' : #categoryId) + ':' + (#sortBy == null ? 'REVENUE' : #sortBy.name())")
-    public TopProductDTO getTopProducts(DateOption dateOption, Long categoryId, TopProductSortBy sortBy) {
-        DateRangeDTO range = resolveDateRange(dateOption);
-        TopProductSortBy safeSortBy = sortBy == null ? TopProductSortBy.REVENUE : sortBy;
+    private TopProductDTO buildTopProducts(Map<String, List<RevenueDashboardRowProjection>> sections,
+                                           DateRangeDTO range,
+                                           TopProductSortBy sortBy) {
+        Comparator<RevenueDashboardRowProjection> order = sortBy == TopProductSortBy.QUANTITY
+                ? Comparator.comparingLong(row -> safeLong(row.getQuantitySold()))
+                : Comparator.comparingLong(row -> safeLong(row.getRevenue()));
 
-        List<TopProductDTO.TopProduct> topProducts;
-        topProducts = revenueRepository.findTopProducts(
-                        range.getStartDate(),
-                        range.getEndDate(),
-                        categoryId,
-                        safeSortBy.name(),
-                        TOP_PRODUCT_LIMIT)
-                .stream()
+        List<TopProductDTO.TopProduct> topProducts = withSales(sections.getOrDefault(PRODUCT, List.of())).stream()
+                .sorted(order.reversed().thenComparing(RevenueDashboardRowProjection::getProductId))
+                .limit(TOP_PRODUCT_LIMIT)
                 .map(row -> TopProductDTO.TopProduct.builder()
                         .productId(row.getProductId())
                         .productTitle(row.getProductTitle())
                         .categoryId(row.getCategoryId())
                         .categoryName(row.getCategoryName())
-                        .totalQuantitySold(safeLong(row.getTotalQuantitySold()))
-                        .totalRevenue(safeLong(row.getTotalRevenue()))
+                        .totalQuantitySold(safeLong(row.getQuantitySold()))
+                        .totalRevenue(safeLong(row.getRevenue()))
                         .build())
                 .toList();
 
@@ -177,23 +217,21 @@ public class RevenueService implements RevenueServiceInterface {
                 .build();
     }
 
-    @Override
-//    @Cacheable(value = CacheNames.REVENUE_ANALYTICS, key = "'pay-method:' + (#dateOption == null ? 'THIS_MONTH' : #dateOption.name()) + ':' + (#categoryId == null ? 'ALL' : #categoryId)")
-    public PaymentMethodRevenueDTO getRevenueByPaymentMethod(DateOption dateOption, Long categoryId) {
-        DateRangeDTO range = resolveDateRange(dateOption);
-        List<PaymentMethodRevenueProjection> rawRows =
-                revenueRepository.findRevenueByPaymentMethod(range.getStartDate(), range.getEndDate(), categoryId);
+    private PaymentMethodRevenueDTO buildPaymentMethodRevenue(Map<String, List<RevenueDashboardRowProjection>> sections,
+                                                              DateRangeDTO range) {
+        Map<String, Long> orderCounts = sections.getOrDefault(PAYMENT_METHOD_ORDERS, List.of()).stream()
+                .collect(Collectors.toMap(RevenueDashboardRowProjection::getPaymentMethod, row -> safeLong(row.getOrderCount())));
+        List<RevenueDashboardRowProjection> rows = withSales(sections.getOrDefault(PAYMENT_METHOD, List.of()));
+        long totalRevenue = rows.stream().mapToLong(row -> safeLong(row.getRevenue())).sum();
 
-        long totalRevenue = rawRows.stream().mapToLong(row -> safeLong(row.getTotalRevenue())).sum();
-
-        List<PaymentMethodRevenueDTO.PaymentMethodRevenue> paymentMethodRevenues;
-        paymentMethodRevenues = rawRows.stream()
+        List<PaymentMethodRevenueDTO.PaymentMethodRevenue> paymentMethodRevenues = rows.stream()
+                .sorted(Comparator.comparingLong((RevenueDashboardRowProjection row) -> safeLong(row.getRevenue())).reversed())
                 .map(row -> PaymentMethodRevenueDTO.PaymentMethodRevenue.builder()
                         .paymentMethod(row.getPaymentMethod())
-                        .totalRevenue(safeLong(row.getTotalRevenue()))
-                        .totalQuantitySold(safeLong(row.getTotalQuantitySold()))
-                        .orderCount(safeLong(row.getOrderCount()))
-                        .revenuePercentage(calculateRate(safeLong(row.getTotalRevenue()), totalRevenue))
+                        .totalRevenue(safeLong(row.getRevenue()))
+                        .totalQuantitySold(safeLong(row.getQuantitySold()))
+                        .orderCount(orderCounts.getOrDefault(row.getPaymentMethod(), 0L))
+                        .revenuePercentage(calculateRate(safeLong(row.getRevenue()), totalRevenue))
                         .build())
                 .toList();
 
@@ -202,5 +240,17 @@ public class RevenueService implements RevenueServiceInterface {
                 .range(range)
                 .build();
     }
-}
 
+    private static RevenueDashboardRowProjection first(Map<String, List<RevenueDashboardRowProjection>> sections,
+                                                       String section) {
+        List<RevenueDashboardRowProjection> rows = sections.get(section);
+        return rows == null || rows.isEmpty() ? null : rows.getFirst();
+    }
+
+    // Bỏ các dòng không có doanh thu trong kỳ hiện tại (chỉ có ở kỳ trước hoặc khác category)
+    private static List<RevenueDashboardRowProjection> withSales(List<RevenueDashboardRowProjection> rows) {
+        return rows.stream()
+                .filter(row -> safeLong(row.getQuantitySold()) != 0 || safeLong(row.getRevenue()) != 0)
+                .toList();
+    }
+}
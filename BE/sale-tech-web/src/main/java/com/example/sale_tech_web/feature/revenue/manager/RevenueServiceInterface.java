@@ -8,6 +8,12 @@ import java.time.LocalDate;
 import java.util.List;
 
 public interface RevenueServiceInterface {
+    /**
+     * Lấy toàn bộ số liệu dashboard (total, pending, cancel rate, category, top products, payment method)
+     * trong 1 lần query, các API còn lại là view trên kết quả này
+     */
+    RevenueDashboardDTO getDashboard(DateOption dateOption, Long categoryId, TopProductSortBy sortBy);
+
     /**
      * Lấy tổng doanh thu + số lượng đơn hàng COMPLETED/PAID
      * So sánh với period trước để tính growth %
@@ -13,19 +13,88 @@ import java.util.List;
 @Repository
 public interface RevenueRepository extends JpaRepository<Order, Long> {
     /**
-     * Lấy tổng revenue + order count
+     * Toàn bộ số liệu dashboard trong 1 query: doanh thu kỳ này/kỳ trước, category, product, payment method
+     * (GROUPING SETS trên rollup) + pending/cancel (FILTER trên orders).
+     * section: SALES_TOTAL | CATEGORY | PRODUCT | PAYMENT_METHOD | ORDERS_TOTAL | PAYMENT_METHOD_ORDERS
+     *          | PENDING | CANCELLED | CREATED
+     * CATEGORY luôn tính trên mọi category (như Pie Chart), các section khác theo categoryId.
      */
     @Query(value = """
-            SELECT
-                COALESCE(SUM(CAST(total_revenue AS BIGINT)), 0) AS totalRevenue,
-                COALESCE(COUNT(DISTINCT order_id), 0) AS orderCount
-            FROM view_revenue_analytics
-            WHERE report_date BETWEEN :startDate AND :endDate
-              AND (:categoryId IS NULL OR category_id = :categoryId)
+            WITH sales AS (
+                SELECT
+                    CASE GROUPING(r.category_id, r.product_id, r.payment_method)
+                        WHEN 7 THEN 'SALES_TOTAL'
+                        WHEN 3 THEN 'CATEGORY'
+                        WHEN 1 THEN 'PRODUCT'
+                        ELSE 'PAYMENT_METHOD'
+                    END AS section,
+                    r.category_id,
+                    r.product_id,
+                    r.payment_method,
+                    MAX(r.product_title) AS product_title,
+                    MAX(r.category_name) AS category_name,
+                    CASE WHEN GROUPING(r.category_id, r.product_id, r.payment_method) = 3
+                        THEN SUM(r.quantity_sold) FILTER (WHERE r.report_date BETWEEN :startDate AND :endDate)
+                        ELSE SUM(r.quantity_sold) FILTER (WHERE r.report_date BETWEEN :startDate AND :endDate
+                            AND (:categoryId IS NULL OR r.category_id = :categoryId))
+                    END AS quantity_sold,
+                    CASE WHEN GROUPING(r.category_id, r.product_id, r.payment_method) = 3
+                        THEN SUM(r.revenue) FILTER (WHERE r.report_date BETWEEN :startDate AND :endDate)
+                        ELSE SUM(r.revenue) FILTER (WHERE r.report_date BETWEEN :startDate AND :endDate
+                            AND (:categoryId IS NULL OR r.category_id = :categoryId))
+                    END AS revenue,
+                    SUM(r.revenue) FILTER (WHERE r.report_date BETWEEN :previousStartDate AND :previousEndDate
+                        AND (:categoryId IS NULL OR r.category_id = :categoryId)) AS previous_revenue
+                FROM revenue_rollup r
+                WHERE r.report_date BETWEEN :previousStartDate AND :endDate
+                GROUP BY GROUPING SETS ((), (r.category_id), (r.category_id, r.product_id), (r.payment_method))
+            ), sold_orders AS (
+                SELECT
+                    CASE GROUPING(ro.payment_method) WHEN 1 THEN 'ORDERS_TOTAL' ELSE 'PAYMENT_METHOD_ORDERS' END AS section,
+                    ro.payment_method,
+                    SUM(ro.order_count) FILTER (WHERE ro.report_date BETWEEN :startDate AND :endDate) AS order_count,
+                    SUM(ro.order_count) FILTER (WHERE ro.report_date BETWEEN :previousStartDate AND :previousEndDate) AS previous_order_count
+                FROM revenue_rollup_order ro
+                WHERE ro.report_date BETWEEN :previousStartDate AND :endDate
+                  AND ro.category_id = COALESCE(CAST(:categoryId AS BIGINT), 0)
+                GROUP BY GROUPING SETS ((), (ro.payment_method))
+            ), order_status AS (
+                SELECT
+                    SUM(o.total_price) FILTER (WHERE o.status IN ('PENDING', 'APPROVED', 'SHIPPING')) AS pending_revenue,
+                    COUNT(*) FILTER (WHERE o.status IN ('PENDING', 'APPROVED', 'SHIPPING')) AS pending_orders,
+                    SUM(o.total_price) FILTER (WHERE o.status = 'CANCELLED') AS cancelled_revenue,
+                    COUNT(*) FILTER (WHERE o.status = 'CANCELLED') AS cancelled_orders,
+                    COUNT(*) AS total_orders
+                FROM orders o
+                WHERE CAST(o.created_at AS DATE) BETWEEN :startDate AND :endDate
+                  AND (:categoryId IS NULL OR EXISTS (
+                        SELECT 1 FROM order_detail od
+                        JOIN product p ON p.id = od.product_id
+                        WHERE od.order_id = o.id AND p.category_id = :categoryId))
+            )
+            SELECT section AS section, category_id AS categoryId, product_id AS productId,
+                   payment_method AS paymentMethod, product_title AS productTitle, category_name AS categoryName,
+                   quantity_sold AS quantitySold, revenue AS revenue, previous_revenue AS previousRevenue,
+                   CAST(NULL AS BIGINT) AS orderCount, CAST(NULL AS BIGINT) AS previousOrderCount
+            FROM sales
+            UNION ALL
+            SELECT section, NULL, NULL, payment_method, NULL, NULL, NULL, NULL, NULL, order_count, previous_order_count
+            FROM sold_orders
+            UNION ALL
+            SELECT 'PENDING', NULL, NULL, NULL, NULL, NULL, NULL, pending_revenue, NULL, pending_orders, NULL
+            FROM order_status
+            UNION ALL
+            SELECT 'CANCELLED', NULL, NULL, NULL, NULL, NULL, NULL, cancelled_revenue, NULL, cancelled_orders, NULL
+            FROM order_status
+            UNION ALL
+            SELECT 'CREATED', NULL, NULL, NULL, NULL, NULL, NULL, NULL, NULL, total_orders, NULL
+            FROM order_status
             """, nativeQuery = true)
-    TotalRevenueProjection getRevenueAndOrderCount(
+    List<RevenueDashboardRowProjection> findDashboardRows(
             @Param("startDate") LocalDate startDate,
             @Param("endDate") LocalDate endDate,
+            @Param("previousStartDate") LocalDate previousStartDate,
+            @Param("previousEndDate") LocalDate previousEndDate,
             @Param("categoryId") Long categoryId
     );
 
@@ -34,127 +103,27 @@ public interface RevenueRepository extends JpaRepository<Order, Long> {
      */
     @Query(value = """
             SELECT
-                report_hour AS reportHour,
-                COALESCE(SUM(CAST(total_revenue AS BIGINT)), 0) AS totalRevenue,
-                COALESCE(COUNT(DISTINCT order_id), 0) AS orderCount
-            FROM view_revenue_analytics
-            WHERE report_date = :date
-              AND (:categoryId IS NULL OR category_id = :categoryId)
-            GROUP BY report_hour
-            ORDER BY report_hour
+                CAST(ro.report_hour AS INTEGER) AS reportHour,
+                COALESCE(r.total_revenue, 0) AS totalRevenue,
+                ro.order_count AS orderCount
+            FROM (
+                SELECT report_hour, SUM(order_count) AS order_count
+                FROM revenue_rollup_order
+                WHERE report_date = :date
+                  AND category_id = COALESCE(CAST(:categoryId AS BIGINT), 0)
+                GROUP BY report_hour
+            ) ro
+            LEFT JOIN (
+                SELECT report_hour, SUM(revenue) AS total_revenue
+                FROM revenue_rollup
+                WHERE report_date = :date
+                  AND (:categoryId IS NULL OR category_id = :categoryId)
+                GROUP BY report_hour
+            ) r ON r.report_hour = ro.report_hour
+            ORDER BY ro.report_hour
             """, nativeQuery = true)
     List<HourlyRevenueProjection> findHourlyRevenue(
             @Param("date") LocalDate date,
             @Param("categoryId") Long categoryId
     );
-
-    /**
-     * Lấy category revenue distribution
-     */
-    @Query(value = """
-            SELECT
-                category_id AS categoryId,
-                category_name AS categoryName,
-                COALESCE(SUM(total_quantity_sold), 0) AS totalQuantitySold,
-                COALESCE(SUM(CAST(total_revenue AS BIGINT)), 0) AS totalRevenue
-            FROM view_revenue_analytics
-            WHERE report_date BETWEEN :startDate AND :endDate
-            GROUP BY category_id, category_name
-            ORDER BY totalRevenue DESC
-            """, nativeQuery = true)
-    List<CategoryRevenueProjection> findCategoryRevenue(
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate
-    );
-
-    /**
-     * Lấy top products
-     */
-    @Query(value = """
-            SELECT
-                product_id AS productId,
-                product_title AS productTitle,
-                category_id AS categoryId,
-                category_name AS categoryName,
-                COALESCE(SUM(total_quantity_sold), 0) AS totalQuantitySold,
-                COALESCE(SUM(CAST(total_revenue AS BIGINT)), 0) AS totalRevenue
-            FROM view_revenue_analytics
-            WHERE report_date BETWEEN :startDate AND :endDate
-              AND (:categoryId IS NULL OR category_id = :categoryId)
-            GROUP BY product_id, product_title, category_id, category_name
-            ORDER BY
-              CASE WHEN :sortBy = 'QUANTITY' THEN COALESCE(SUM(total_quantity_sold), 0) END DESC,
-              CASE WHEN :sortBy = 'REVENUE' THEN COALESCE(SUM(CAST(total_revenue AS BIGINT)), 0) END DESC,
-              product_id
-            LIMIT :limit
-            """, nativeQuery = true)
-    List<TopProductProjection> findTopProducts(
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate,
-            @Param("categoryId") Long categoryId,
-            @Param("sortBy") String sortBy,
-            @Param("limit") int limit
-    );
-
-    /**
-     * Lấy revenue by payment method
-     */
-    @Query(value = """
-            SELECT
-                payment_method AS paymentMethod,
-                COALESCE(SUM(CAST(total_revenue AS BIGINT)), 0) AS totalRevenue,
-                COALESCE(SUM(total_quantity_sold), 0) AS totalQuantitySold,
-                COUNT(DISTINCT order_id) AS orderCount
-            FROM view_revenue_analytics
-            WHERE report_date BETWEEN :startDate AND :endDate
-              AND (:categoryId IS NULL OR category_id = :categoryId)
-            GROUP BY payment_method
-            ORDER BY totalRevenue DESC
-            """, nativeQuery = true)
-    List<PaymentMethodRevenueProjection> findRevenueByPaymentMethod(
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate,
-            @Param("categoryId") Long categoryId
-    );
-
-    /**
-     * Lấy pending revenue + order count
-     */
-    @Query(value = """
-            SELECT
-                COALESCE(SUM(o.total_price), 0) AS pendingRevenue,
-                COALESCE(COUNT(DISTINCT o.id), 0) AS pendingOrders
-            FROM orders o
-            LEFT JOIN order_detail od ON o.id = od.order_id
-            LEFT JOIN product p ON od.product_id = p.id
-            WHERE o.status IN ('PENDING', 'APPROVED', 'SHIPPING')
-              AND CAST(o.created_at AS DATE) BETWEEN :startDate AND :endDate
-              AND (:categoryId IS NULL OR p.category_id = :categoryId)
-            """, nativeQuery = true)
-    PendingRevenueStatsProjection getPendingRevenueAndOrderCount(
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate,
-            @Param("categoryId") Long categoryId
-    );
-
-    /**
-     * Lấy cancelled revenue + cancelled count + total count
-     */
-    @Query(value = """
-            SELECT
-                COALESCE(SUM(CASE WHEN o.status = 'CANCELLED' THEN o.total_price ELSE 0 END), 0) AS cancelledRevenue,
-                COALESCE(COUNT(DISTINCT CASE WHEN o.status = 'CANCELLED' THEN o.id END), 0) AS cancelledOrders,
-                COALESCE(COUNT(DISTINCT o.id), 0) AS totalOrders
-            FROM orders o
-            LEFT JOIN order_detail od ON o.id = od.order_id
-            LEFT JOIN product p ON od.product_id = p.id
-            WHERE CAST(o.created_at AS DATE) BETWEEN :startDate AND :endDate
-              AND (:categoryId IS NULL OR p.category_id = :categoryId)
-            """, nativeQuery = true)
-    CancelRateStatsProjection getCancelledAndTotalOrderStats(
-            @Param("startDate") LocalDate startDate,
-            @Param("endDate") LocalDate endDate,
-            @Param("categoryId") Long categoryId
-    );
 }
-
@@ -0,0 +1,139 @@
+package com.example.sale_tech_web.feature.revenue.repository;
+
+import com.example.sale_tech_web.feature.order.entity.orders.Order;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Maintenance of revenue_rollup / revenue_rollup_order (schema: db/revenue-rollup.sql).
+ * revenue_rollup_applied records which orders are currently summed in, so apply/retract are idempotent.
+ */
+@Repository
+public interface RevenueRollupRepository extends JpaRepository<Order, Long> {
+    String QUALIFYING_ORDER = """
+            SELECT 1 FROM orders o
+            JOIN invoice i ON i.order_id = o.id
+            WHERE o.status = 'COMPLETED' AND i.status = 'PAID'
+            """;
+
+    /**
+     * Cộng (sign = 1) hoặc trừ (sign = -1) các dòng order_detail của CTE changed(order_id, sign, product_categories)
+     * vào rollup. Category lấy từ product_categories đã lưu lúc cộng, không đọc lại product.category_id.
+     */
+    String APPLY_DELTA = """
+            , lines AS (
+                SELECT CAST(o.created_at AS DATE) AS report_date,
+                       CAST(EXTRACT(HOUR FROM o.created_at) AS SMALLINT) AS report_hour,
+                       COALESCE(CAST(c.product_categories ->> CAST(od.product_id AS TEXT) AS BIGINT), p.category_id) AS category_id,
+                       od.product_id,
+                       COALESCE(o.payment_method, 'UNKNOWN') AS payment_method,
+                       od.product_title,
+                       od.category_name,
+                       c.sign * od.quantity AS quantity_sold,
+                       c.sign * CAST(od.price AS BIGINT) * od.quantity AS revenue,
+                       o.id AS order_id,
+                       c.sign
+                FROM changed c
+                JOIN orders o ON o.id = c.order_id
+                JOIN order_detail od ON od.order_id = o.id
+                JOIN product p ON p.id = od.product_id
+            ), product_rows AS (
+                INSERT INTO revenue_rollup AS r (report_date, report_hour, category_id, product_id, payment_method,
+                                                 product_title, category_name, quantity_sold, revenue)
+                SELECT report_date, report_hour, category_id, product_id, payment_method,
+                       MAX(product_title), MAX(category_name), SUM(quantity_sold), SUM(revenue)
+                FROM lines
+                GROUP BY report_date, report_hour, category_id, product_id, payment_method
+                ON CONFLICT (report_date, report_hour, category_id, product_id, payment_method) DO UPDATE
+                SET quantity_sold = r.quantity_sold + EXCLUDED.quantity_sold,
+                    revenue = r.revenue + EXCLUDED.revenue,
+                    product_title = EXCLUDED.product_title,
+                    category_name = EXCLUDED.category_name
+            )
+            INSERT INTO revenue_rollup_order AS ro (report_date, report_hour, category_id, payment_method, order_count)
+            SELECT report_date, report_hour, category_id, payment_method, SUM(sign)
+            FROM (
+                SELECT DISTINCT report_date, report_hour, category_id, payment_method, order_id, sign FROM lines
+                UNION ALL
+                SELECT DISTINCT report_date, report_hour, CAST(0 AS BIGINT), payment_method, order_id, sign FROM lines
+            ) per_order
+            GROUP BY report_date, report_hour, category_id, payment_method
+            ON CONFLICT (report_date, report_hour, category_id, payment_method) DO UPDATE
+            SET order_count = ro.order_count + EXCLUDED.order_count
+            """;
+
+    /**
+     * Cộng vào rollup các order vừa COMPLETED + PAID mà chưa được cộng
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            WITH changed AS (
+                INSERT INTO revenue_rollup_applied (order_id, product_categories)
+                SELECT o.id,
+                       (SELECT jsonb_object_agg(od.product_id, p.category_id)
+                        FROM order_detail od
+                        JOIN product p ON p.id = od.product_id
+                        WHERE od.order_id = o.id)
+                FROM orders o
+                JOIN invoice i ON i.order_id = o.id
+                WHERE o.id IN (:orderIds) AND o.status = 'COMPLETED' AND i.status = 'PAID'
+                ON CONFLICT (order_id) DO NOTHING
+                RETURNING order_id, 1 AS sign, product_categories
+            )
+            """ + APPLY_DELTA, nativeQuery = true)
+    int applyOrders(@Param("orderIds") Collection<Long> orderIds);
+
+    /**
+     * Trừ khỏi rollup các order đã cộng nhưng không còn COMPLETED + PAID (vd. hoàn tiền),
+     * theo category đã lưu lúc cộng
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+            WITH changed AS (
+                DELETE FROM revenue_rollup_applied ra
+                WHERE ra.order_id IN (:orderIds)
+                  AND NOT EXISTS (""" + QUALIFYING_ORDER + """
+                                  AND o.id = ra.order_id)
+                RETURNING ra.order_id, -1 AS sign, ra.product_categories
+            )
+            """ + APPLY_DELTA, nativeQuery = true)
+    int retractOrders(@Param("orderIds") Collection<Long> orderIds);
+
+    @Query(value = """
+            SELECT o.id FROM orders o
+            JOIN invoice i ON i.order_id = o.id
+            WHERE o.status = 'COMPLETED' AND i.status = 'PAID'
+              AND NOT EXISTS (SELECT 1 FROM revenue_rollup_applied ra WHERE ra.order_id = o.id)
+            ORDER BY o.id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Long> findUnappliedOrderIds(@Param("limit") int limit);
+
+    @Query(value = """
+            SELECT ra.order_id FROM revenue_rollup_applied ra
+            WHERE NOT EXISTS (""" + QUALIFYING_ORDER + """
+                              AND o.id = ra.order_id)
+            ORDER BY ra.order_id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Long> findStaleAppliedOrderIds(@Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM revenue_rollup WHERE quantity_sold = 0 AND revenue = 0", nativeQuery = true)
+    int deleteEmptyProductRows();
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM revenue_rollup_order WHERE order_count = 0", nativeQuery = true)
+    int deleteEmptyOrderRows();
+}
@@ -12,9 +12,13 @@ import com.example.sale_tech_web.feature.users.dto.admin.UserDTO;
 import com.example.sale_tech_web.feature.users.entity.Users;
 import com.example.sale_tech_web.feature.users.enums.Role;
 import com.example.sale_tech_web.feature.users.repository.UserRepository;
+import com.example.sale_tech_web.utils.CursorSlice;
+import com.example.sale_tech_web.utils.CursorUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -36,6 +40,21 @@ public class AdminService implements AdminServiceInterface {
                 .map(this::convertToUserDTO);
     }
 
+    @Override
+    public CursorSlice<UserDTO> getAllUsersByCursor(String keyword, Role role, String cursor, int size, boolean withTotal) {
+        int limit = Math.max(1, size);
+        Long afterId = CursorUtils.decodeId(cursor);
+        List<Users> users = userRepository.findAllUsersSeek(keyword, role, afterId, Limit.of(limit + 1));
+
+        // COUNT chỉ chạy ở trang đầu khi client cần tổng số
+        Long total = withTotal && afterId == null
+                ? userRepository.findAllUsersCustom(keyword, role, PageRequest.of(0, 1)).getTotalElements()
+                : null;
+
+        return CursorUtils.toSlice(users, limit, user -> CursorUtils.encodeId(user.getId()), total)
+                .map(this::convertToUserDTO);
+    }
+
     @Override
     public List<Role> getAllRole() {
         return new ArrayList<>(List.of(Role.values()));
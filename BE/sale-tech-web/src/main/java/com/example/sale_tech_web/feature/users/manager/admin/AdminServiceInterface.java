@@ -4,6 +4,7 @@ import com.example.sale_tech_web.feature.users.dto.admin.AdminPasswordRequest;
 import com.example.sale_tech_web.feature.users.dto.admin.AdminRegisterRequest;
 import com.example.sale_tech_web.feature.users.dto.admin.UserDTO;
 import com.example.sale_tech_web.feature.users.enums.Role;
+import com.example.sale_tech_web.utils.CursorSlice;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -12,6 +13,8 @@ import java.util.List;
 public interface AdminServiceInterface {
     Page<UserDTO> getAllUsers(String keyword, Role role, Pageable pageable);
 
+    CursorSlice<UserDTO> getAllUsersByCursor(String keyword, Role role, String cursor, int size, boolean withTotal);
+
     List<Role> getAllRole();
 
     UserDTO addUser(AdminRegisterRequest request);
@@ -2,6 +2,7 @@ package com.example.sale_tech_web.feature.users.repository;
 
 import com.example.sale_tech_web.feature.users.entity.Users;
 import com.example.sale_tech_web.feature.users.enums.Role;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
@@ -43,6 +44,21 @@ public interface UserRepository extends JpaRepository<Users, Long> {
     Page<Users> findAllUsersCustom(@Param("keyword") String keyword,
                                    @Param("role") Role role,
                                    Pageable pageable);
+
+    // Keyset: seek theo id < lastId thay cho OFFSET, không COUNT
+    @EntityGraph(attributePaths = {"cart"})
+    @Query("SELECT u FROM Users u WHERE " +
+            "(:role IS NULL OR u.role = :role) AND " +
+            "(:keyword IS NULL OR " +
+            "LOWER(u.username) LIKE LOWER(CONCAT('%', CAST(:keyword as string), '%')) OR " +
+            "LOWER(u.email) LIKE LOWER(CONCAT('%', CAST(:keyword as string), '%')) OR" +
+            "     u.phone LIKE CONCAT('%', CAST(:keyword as string), '%')) AND " +
+            "(:lastId IS NULL OR u.id < :lastId) " +
+            "ORDER BY u.id DESC")
+    List<Users> findAllUsersSeek(@Param("keyword") String keyword,
+                                 @Param("role") Role role,
+                                 @Param("lastId") Long lastId,
+                                 Limit limit);
 }
 
 
@@ -0,0 +1,37 @@
+package com.example.sale_tech_web.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Response của chế độ phân trang cursor (keyset): không có số trang,
+ * client gửi lại nextCursor để lấy trang tiếp theo.
+ */
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class CursorSlice<T> {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;
+
+    // Chỉ có ở trang đầu khi client yêu cầu withTotal=true (1 query COUNT), các trang sau luôn null
+    private Long totalElements;
+
+    public <R> CursorSlice<R> map(Function<? super T, ? extends R> mapper) {
+        return CursorSlice.<R>builder()
+                .content(content.stream().<R>map(mapper).toList())
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .totalElements(totalElements)
+                .build();
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.sale_tech_web.utils;
+
+import com.example.sale_tech_web.exception.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Opaque cursor = base64url("sortKey:sortValue:id") của dòng cuối trang trước.
+ * Query tiếp theo seek theo (sortValue, id) thay vì OFFSET.
+ */
+public class CursorUtils {
+    public static final String ID_DESC = "id_desc";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    @Data
+    @AllArgsConstructor
+    public static class Cursor {
+        private long sortValue;
+        private long id;
+    }
+
+    public static String encode(String sortKey, long sortValue, long id) {
+        String raw = sortKey + ":" + sortValue + ":" + id;
+        return ENCODER.encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return null nếu cursor rỗng (trang đầu tiên)
+     * @throws BadRequestException nếu cursor hỏng hoặc được tạo với kiểu sort khác
+     */
+    public static Cursor decode(String cursor, String expectedSortKey) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+
+        try {
+            String[] parts = new String(DECODER.decode(cursor.trim()), StandardCharsets.UTF_8).split(":");
+            if (parts.length != 3 || !parts[0].equals(expectedSortKey)) {
+                throw new BadRequestException("Cursor does not match the requested sort.");
+            }
+            return new Cursor(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid cursor.");
+        }
+    }
+
+    // Các danh sách chỉ sort theo id desc: cursor chỉ cần id
+    public static String encodeId(long id) {
+        return encode(ID_DESC, 0L, id);
+    }
+
+    public static Long decodeId(String cursor) {
+        Cursor decoded = decode(cursor, ID_DESC);
+        return decoded == null ? null : decoded.getId();
+    }
+
+    /**
+     * Keyset theo id desc không đổi được thứ tự: sort khác id,desc bị từ chối thay vì bị bỏ qua
+     * @throws BadRequestException nếu sort khác id,desc
+     */
+    public static void requireIdDesc(Sort sort) {
+        for (Sort.Order order : sort) {
+            if (!"id".equals(order.getProperty()) || order.isAscending()) {
+                throw new BadRequestException("Cursor pagination only supports sort=id,desc.");
+            }
+        }
+    }
+
+    /**
+     * @param rows dòng đã query với limit = size + 1, dòng thừa chỉ để biết còn trang sau hay không
+     */
+    public static <T> CursorSlice<T> toSlice(List<T> rows, int size, Function<T, String> cursorOf, Long totalElements) {
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+
+        return CursorSlice.<T>builder()
+                .content(content)
+                .size(size)
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? cursorOf.apply(content.getLast()) : null)
+                .totalElements(totalElements)
+                .build();
+    }
+}
@@ -4,21 +4,13 @@ import java.text.Normalizer;
 import java.util.regex.Pattern;
 
 public class SlugUtils {
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
+
     public static String toSlug(String input) {
         if (input == null || input.isEmpty()) return "";
 
-        // 1. Chuyển sang dạng Normalization NFD (tách dấu ra khỏi chữ)
-        String nfdNormalizedString = Normalizer.normalize(input, Normalizer.Form.NFD);
-
-        // 2. Loại bỏ các dấu (diacritics)
-        Pattern pattern = Pattern.compile("\\p{InCombiningDiacriticalMarks}+");
-        String result = pattern.matcher(nfdNormalizedString).replaceAll("");
-
-        // 3. Xử lý riêng chữ 'Đ' và 'đ' (Normalizer đôi khi bỏ sót)
-        result = result.replace("Đ", "D").replace("đ", "d");
-
-        // 4. Chuyển về chữ thường
-        result = result.toLowerCase();
+        // 1-4. Bỏ dấu tiếng Việt + chữ thường
+        String result = foldDiacritics(input);
 
         // 5. Thay thế các ký tự không phải chữ/số bằng dấu gạch ngang
         result = result.replaceAll("[^a-z0-9]", "-");
@@ -31,4 +23,23 @@ public class SlugUtils {
 
         return result;
     }
+
+    /**
+     * "Điện Thoại" -> "dien thoai". Dùng chung cho slug và search (so khớp không dấu).
+     */
+    public static String foldDiacritics(String input) {
+        if (input == null || input.isEmpty()) return "";
+
+        // 1. Chuyển sang dạng Normalization NFD (tách dấu ra khỏi chữ)
+        String nfdNormalizedString = Normalizer.normalize(input, Normalizer.Form.NFD);
+
+        // 2. Loại bỏ các dấu (diacritics)
+        String result = DIACRITICS.matcher(nfdNormalizedString).replaceAll("");
+
+        // 3. Xử lý riêng chữ 'Đ' và 'đ' (Normalizer đôi khi bỏ sót)
+        result = result.replace("Đ", "D").replace("đ", "d");
+
+        // 4. Chuyển về chữ thường
+        return result.toLowerCase();
+    }
 }
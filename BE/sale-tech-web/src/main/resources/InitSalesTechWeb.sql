@@ -18,6 +18,45 @@ SET xmloption = content;
 SET client_min_messages = warning;
 SET row_security = off;
 
+--
+-- Name: pg_trgm; Type: EXTENSION; Schema: -; Owner: -
+--
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm WITH SCHEMA public;
+
+
+--
+-- Name: EXTENSION pg_trgm; Type: COMMENT; Schema: -; Owner: 
+--
+
+COMMENT ON EXTENSION pg_trgm IS 'text similarity measurement and index searching based on trigrams';
+
+
+--
+-- Name: unaccent; Type: EXTENSION; Schema: -; Owner: -
+--
+
+CREATE EXTENSION IF NOT EXISTS unaccent WITH SCHEMA public;
+
+
+--
+-- Name: EXTENSION unaccent; Type: COMMENT; Schema: -; Owner: 
+--
+
+COMMENT ON EXTENSION unaccent IS 'text search dictionary that removes accents';
+
+
+--
+-- Name: f_unaccent_lower(text); Type: FUNCTION; Schema: public; Owner: postgres
+--
+
+CREATE FUNCTION public.f_unaccent_lower(text) RETURNS text
+    LANGUAGE sql IMMUTABLE STRICT PARALLEL SAFE
+    AS $_$ SELECT lower(public.unaccent('public.unaccent'::regdictionary, $1)) $_$;
+
+
+ALTER FUNCTION public.f_unaccent_lower(text) OWNER TO postgres;
+
 --
 -- TOC entry 890 (class 1247 OID 86275)
 -- Name: order_status_enum; Type: TYPE; Schema: public; Owner: postgres
@@ -2356,6 +2395,13 @@ CREATE INDEX idx_product_price ON public.product USING btree (price);
 CREATE INDEX idx_product_title ON public.product USING btree (title);
 
 
+--
+-- Name: idx_product_title_trgm; Type: INDEX; Schema: public; Owner: postgres
+--
+
+CREATE INDEX idx_product_title_trgm ON public.product USING gin (public.f_unaccent_lower((title)::text) public.gin_trgm_ops);
+
+
 --
 -- TOC entry 4900 (class 2606 OID 119901)
 -- Name: category_attribute_group fk_cag_category; Type: FK CONSTRAINT; Schema: public; Owner: postgres
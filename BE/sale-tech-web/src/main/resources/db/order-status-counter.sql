@@ -0,0 +1,10 @@
+-- Số order theo status cộng dồn sẵn: user_id = 0 là tất cả user (badge PM), còn lại theo từng khách (tab đơn hàng)
+-- Cập nhật tăng dần bởi OrderStatusCounterService, thay cho GROUP BY status trên bảng orders mỗi lần load trang
+-- Chạy mỗi lần start (spring.sql.init), mọi câu lệnh đều idempotent
+
+CREATE TABLE IF NOT EXISTS public.order_status_counter (
+    user_id bigint NOT NULL,
+    status character varying(20) NOT NULL,
+    order_count bigint NOT NULL DEFAULT 0,
+    PRIMARY KEY (user_id, status)
+);
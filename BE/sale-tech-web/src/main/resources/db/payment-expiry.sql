@@ -0,0 +1,12 @@
+-- Index cho sweep payment hết hạn (PaymentRepository.expireChunk) và seed PaymentExpiryQueue:
+-- chỉ chứa invoice PENDING nên luôn nhỏ, lần chạy không có gì hết hạn chỉ là 1 lần đọc index
+-- Chạy mỗi lần start (spring.sql.init), mọi câu lệnh đều idempotent
+
+CREATE INDEX IF NOT EXISTS idx_invoice_pending_expires_at
+    ON public.invoice (expires_at)
+    WHERE status = 'PENDING';
+
+-- Index cho IPN VNPay: tìm payment theo vnp_TxnRef (PaymentRepository.findByTransactionIdWithOrder).
+-- Đã có trong InitSalesTechWeb.sql, tạo lại cho DB dựng bằng ddl-auto
+CREATE INDEX IF NOT EXISTS idx_invoice_transaction_id
+    ON public.invoice (transaction_id);
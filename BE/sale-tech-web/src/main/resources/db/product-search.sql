@@ -0,0 +1,43 @@
+-- Product keyword search: so khớp không dấu + GIN trigram index cho LIKE '%kw%'
+-- Chạy mỗi lần start (spring.sql.init), mọi câu lệnh đều idempotent
+-- Cả file là 1 statement (spring.sql.init.separator) nên DO $$ ... $$ được gửi nguyên vẹn
+
+-- pg_trgm / unaccent là tuỳ chọn: user DB không có quyền CREATE EXTENSION (hoặc thiếu contrib) thì vẫn start,
+-- f_unaccent_lower chỉ lower() và search chạy không có trigram index
+DO $$
+BEGIN
+    BEGIN
+        CREATE EXTENSION IF NOT EXISTS pg_trgm WITH SCHEMA public;
+    EXCEPTION WHEN insufficient_privilege OR undefined_file THEN
+        RAISE NOTICE 'pg_trgm not available (%), keyword search runs without trigram index', SQLERRM;
+    END;
+
+    BEGIN
+        CREATE EXTENSION IF NOT EXISTS unaccent WITH SCHEMA public;
+    EXCEPTION WHEN insufficient_privilege OR undefined_file THEN
+        RAISE NOTICE 'unaccent not available (%), keyword search is case-insensitive only', SQLERRM;
+    END;
+
+    IF EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'unaccent') THEN
+        CREATE OR REPLACE FUNCTION public.f_unaccent_lower(text) RETURNS text
+            LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT
+            AS $f$ SELECT lower(public.unaccent('public.unaccent'::regdictionary, $1)) $f$;
+    ELSE
+        CREATE OR REPLACE FUNCTION public.f_unaccent_lower(text) RETURNS text
+            LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT
+            AS $f$ SELECT lower($1) $f$;
+    END IF;
+
+    -- Độ giống title / keyword cho fallback của /product/suggest: similarity() của pg_trgm,
+    -- không có pg_trgm thì title càng ngắn (keyword chiếm phần lớn title) càng giống
+    IF EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm') THEN
+        CREATE INDEX IF NOT EXISTS idx_product_title_trgm ON public.product USING gin (public.f_unaccent_lower((title)::text) public.gin_trgm_ops);
+        CREATE OR REPLACE FUNCTION public.f_title_similarity(text, text) RETURNS real
+            LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT
+            AS $f$ SELECT public.similarity($1, $2) $f$;
+    ELSE
+        CREATE OR REPLACE FUNCTION public.f_title_similarity(text, text) RETURNS real
+            LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT
+            AS $f$ SELECT (length($2)::real / GREATEST(length($1), length($2), 1)) $f$;
+    END IF;
+END $$;
@@ -0,0 +1,38 @@
+-- Revenue rollup: doanh thu COMPLETED + PAID cộng dồn sẵn theo ngày x giờ x category x product x payment_method
+-- Cập nhật tăng dần bởi RevenueRollupService, RevenueController chỉ đọc các bảng này thay vì view_revenue_analytics
+-- Chạy mỗi lần start (spring.sql.init), mọi câu lệnh đều idempotent
+
+-- Order đã được cộng vào rollup (đảm bảo mỗi order chỉ cộng/trừ đúng 1 lần)
+CREATE TABLE IF NOT EXISTS public.revenue_rollup_applied (
+    order_id bigint PRIMARY KEY,
+    applied_at timestamp(6) without time zone NOT NULL DEFAULT now()
+);
+
+-- Category của từng product lúc cộng vào (product_id -> category_id): khi trừ ra dùng lại đúng category này,
+-- product đổi category sau đó vẫn trừ đúng dòng đã cộng. NULL với order cộng trước khi có cột -> dùng category hiện tại
+ALTER TABLE public.revenue_rollup_applied ADD COLUMN IF NOT EXISTS product_categories jsonb;
+
+CREATE TABLE IF NOT EXISTS public.revenue_rollup (
+    report_date date NOT NULL,
+    report_hour smallint NOT NULL,
+    category_id bigint NOT NULL,
+    product_id bigint NOT NULL,
+    payment_method character varying(20) NOT NULL,
+    product_title character varying(255),
+    category_name character varying(255),
+    quantity_sold bigint NOT NULL DEFAULT 0,
+    revenue bigint NOT NULL DEFAULT 0,
+    PRIMARY KEY (report_date, report_hour, category_id, product_id, payment_method)
+);
+
+-- Số order không cộng được từ revenue_rollup (1 order nhiều product) nên đếm riêng, category_id = 0 là tất cả category
+CREATE TABLE IF NOT EXISTS public.revenue_rollup_order (
+    report_date date NOT NULL,
+    report_hour smallint NOT NULL,
+    category_id bigint NOT NULL,
+    payment_method character varying(20) NOT NULL,
+    order_count bigint NOT NULL DEFAULT 0,
+    PRIMARY KEY (report_date, report_hour, category_id, payment_method)
+);
+
+CREATE INDEX IF NOT EXISTS idx_revenue_rollup_category_date ON public.revenue_rollup (category_id, report_date);
@@ -0,0 +1,191 @@
+package com.example.sale_tech_web.feature.payment.gateway;
+
+import com.example.sale_tech_web.feature.payment.config.PaymentConfig;
+import com.example.sale_tech_web.feature.payment.config.VNPayConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * VNPayGatewayClient against a local HttpServer stub of the merchant API: deadlines, 5xx handling, retries
+ * and the circuit breaker.
+ */
+class VNPayGatewayClientTest {
+    private static final String OK_BODY = "{\"vnp_ResponseCode\":\"00\"}";
+
+    private record Reply(int status, String body, long delayMs) {
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Queue<Reply> replies = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile Reply defaultReply = new Reply(200, OK_BODY, 0);
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private VNPayConfig vnPayConfig;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/merchant_webapi/api/transaction", this::handle);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        vnPayConfig = new VNPayConfig();
+        vnPayConfig.setApiUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/merchant_webapi/api/transaction");
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void returnsJsonResponse() throws Exception {
+        VNPayGatewayClient client = client(Duration.ofSeconds(2), Duration.ofSeconds(5), breaker());
+
+        JsonNode response = client.post(body(), false).get(5, TimeUnit.SECONDS);
+
+        assertThat(response.get("vnp_ResponseCode").asText()).isEqualTo("00");
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void failsOn5xxWithoutRetryWhenNotIdempotent() {
+        defaultReply = new Reply(500, "error", 0);
+        VNPayGatewayClient client = client(Duration.ofSeconds(2), Duration.ofSeconds(5), breaker());
+
+        assertThatThrownBy(() -> client.post(body(), false).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IOException.class)
+                .hasMessageContaining("HTTP 500");
+        assertThat(requests.get()).isEqualTo(1);
+    }
+
+    @Test
+    void retriesIdempotentCallOn5xx() throws Exception {
+        replies.add(new Reply(503, "busy", 0));
+        replies.add(new Reply(502, "bad gateway", 0));
+        VNPayGatewayClient client = client(Duration.ofSeconds(2), Duration.ofSeconds(10), breaker());
+
+        JsonNode response = client.post(body(), true).get(10, TimeUnit.SECONDS);
+
+        assertThat(response.get("vnp_ResponseCode").asText()).isEqualTo("00");
+        assertThat(requests.get()).isEqualTo(1 + PaymentConfig.VNPAY_API_MAX_RETRIES);
+    }
+
+    @Test
+    void failsWhenGatewayDoesNotAnswerWithinReadTimeout() {
+        defaultReply = new Reply(200, OK_BODY, 2_000);
+        VNPayGatewayClient client = client(Duration.ofMillis(200), Duration.ofSeconds(5), breaker());
+
+        assertThatThrownBy(() -> client.post(body(), false).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(HttpTimeoutException.class);
+    }
+
+    @Test
+    void deadlineBoundsTheWholeCall() {
+        defaultReply = new Reply(200, OK_BODY, 2_000);
+        VNPayGatewayClient client = client(Duration.ofSeconds(5), Duration.ofMillis(300), breaker());
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> client.post(body(), true).get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(TimeoutException.class);
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(1_500));
+    }
+
+    @Test
+    void openBreakerRejectsCallsWithoutSendingThem() {
+        defaultReply = new Reply(500, "error", 0);
+        VNPayGatewayClient client = client(Duration.ofSeconds(2), Duration.ofSeconds(5),
+                new CircuitBreaker(3, Duration.ofMinutes(1)));
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> client.post(body(), false).get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(IOException.class);
+        }
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        assertThatThrownBy(() -> client.post(body(), false).get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+        assertThat(requests.get()).isEqualTo(3);
+    }
+
+    @Test
+    void breakerClosesAfterSuccessfulTrial() throws Exception {
+        replies.add(new Reply(500, "error", 0));
+        VNPayGatewayClient client = client(Duration.ofSeconds(2), Duration.ofSeconds(5),
+                new CircuitBreaker(1, Duration.ofMillis(100)));
+
+        assertThatThrownBy(() -> client.post(body(), false).get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IOException.class);
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        Thread.sleep(150);
+        assertThat(client.post(body(), false).get(5, TimeUnit.SECONDS).get("vnp_ResponseCode").asText()).isEqualTo("00");
+        assertThat(client.getCircuitState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    // -- Helper Method -- //
+    private VNPayGatewayClient client(Duration readTimeout, Duration deadline, CircuitBreaker breaker) {
+        return new VNPayGatewayClient(vnPayConfig, objectMapper, readTimeout, deadline, breaker);
+    }
+
+    private static CircuitBreaker breaker() {
+        return new CircuitBreaker(PaymentConfig.VNPAY_BREAKER_FAILURE_THRESHOLD, Duration.ofMinutes(1));
+    }
+
+    private ObjectNode body() {
+        return objectMapper.createObjectNode().put("vnp_Command", "querydr");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        exchange.getRequestBody().readAllBytes();
+        Reply reply = replies.poll();
+        if (reply == null) {
+            reply = defaultReply;
+        }
+        try {
+            if (reply.delayMs() > 0) {
+                Thread.sleep(reply.delayMs());
+            }
+            byte[] body = reply.body().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(reply.status(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ignored) {
+            // Client đã bỏ request (timeout)
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.sale_tech_web.feature.payment.scheduler;
+
+import com.example.sale_tech_web.feature.payment.config.PaymentConfig;
+import com.example.sale_tech_web.feature.payment.dto.VNPayQueryResponse;
+import com.example.sale_tech_web.feature.payment.dto.VNPayRefundResponse;
+import com.example.sale_tech_web.feature.payment.entity.RefundOutbox;
+import com.example.sale_tech_web.feature.payment.enums.RefundOutboxStatus;
+import com.example.sale_tech_web.feature.payment.repository.RefundOutboxRepository;
+import com.example.sale_tech_web.feature.payment.service.RefundOutboxService;
+import com.example.sale_tech_web.feature.payment.service.VNPayService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefundDispatcherTest {
+
+    @Mock
+    private RefundOutboxRepository refundOutboxRepository;
+    @Mock
+    private RefundOutboxService refundOutboxService;
+    @Mock
+    private VNPayService vnPayService;
+
+    private RefundDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new RefundDispatcher(refundOutboxRepository, refundOutboxService, vnPayService, Runnable::run);
+    }
+
+    @Test
+    void failsExhaustedRowsAndClaimsOnlyRowsWithAttemptsLeft() {
+        when(refundOutboxRepository.claimDue(any(), any(), anyInt(), anyInt())).thenReturn(List.of());
+
+        dispatcher.dispatch();
+
+        verify(refundOutboxService).failExhausted();
+        verify(refundOutboxRepository).claimDue(any(), any(),
+                eq(PaymentConfig.REFUND_MAX_ATTEMPTS), eq(PaymentConfig.REFUND_BATCH_SIZE));
+        verifyNoInteractions(vnPayService);
+    }
+
+    @Test
+    void recordsVNPayAnswer() {
+        RefundOutbox row = row(1L);
+        VNPayRefundResponse response = VNPayRefundResponse.builder().responseCode("00").build();
+        when(refundOutboxRepository.claimDue(any(), any(), anyInt(), anyInt())).thenReturn(List.of(row));
+        when(vnPayService.processRefund(any())).thenReturn(CompletableFuture.completedFuture(response));
+
+        dispatcher.dispatch();
+
+        verify(refundOutboxService).recordResult(1L, response);
+        verify(refundOutboxService, never()).recordFailure(any(), any());
+    }
+
+    @Test
+    void keepsTheLeaseWhenTheAnswerCannotBeRecorded() {
+        RefundOutbox row = row(2L);
+        VNPayRefundResponse response = VNPayRefundResponse.builder().responseCode("00").build();
+        when(refundOutboxRepository.claimDue(any(), any(), anyInt(), anyInt())).thenReturn(List.of(row));
+        when(vnPayService.processRefund(any())).thenReturn(CompletableFuture.completedFuture(response));
+        doThrow(new IllegalStateException("database down")).when(refundOutboxService).recordResult(2L, response);
+
+        assertThatCode(dispatcher::dispatch).doesNotThrowAnyException();
+
+        // VNPay đã hoàn tiền -> không được ghi thành lỗi gửi (sẽ gửi lại)
+        verify(refundOutboxService, never()).recordFailure(any(), any());
+    }
+
+    @Test
+    void retryDoesNotResendARefundVNPayAlreadyAccepted() {
+        RefundOutbox row = row(6L);
+        row.setAttempts(2);
+        when(refundOutboxRepository.claimDue(any(), any(), anyInt(), anyInt())).thenReturn(List.of(row));
+        when(vnPayService.queryTransaction("TXN6", row.getTransactionDate())).thenReturn(CompletableFuture.completedFuture(
+                VNPayQueryResponse.builder().responseCode("00").transactionType("02").transactionStatus("05").build()));
+
+        dispatcher.dispatch();
+
+        verify(vnPayService, never()).processRefund(any());
+        verify(refundOutboxService).recordResult(eq(6L), argThat(response -> "00".equals(response.getResponseCode())));
+    }
+
+    @Test
+    void retrySendsTheRefundWhenVNPayHasNoRefund() {
+        RefundOutbox row = row(7L);
+        row.setAttempts(2);
+        VNPayRefundResponse response = VNPayRefundResponse.builder().responseCode("00").build();
+        when(refundOutboxRepository.claimDue(any(), any(), anyInt(), anyInt())).thenReturn(List.of(row));
+        when(vnPayService.queryTransaction("TXN7", row.getTransactionDate())).thenReturn(CompletableFuture.completedFuture(
+                VNPayQueryResponse.builder().responseCode("00").transactionType("01").transactionStatus("00").build()));
+        when(vnPayService.processRefund(any())).thenReturn(CompletableFuture.completedFuture(response));
+
+        dispatcher.dispatch();
+
+        verify(refundOutboxService).recordResult(7L, response);
+    }
+
+    @Test
+    void dispatchDoesNotWaitForTheCalls() {
+        RefundOutbox row = row(8L);
+        when(refundOutboxRepository.claimDue(any(), any(), anyInt(), anyInt())).thenReturn(List.of(row));
+        when(vnPayService.processRefund(any())).thenReturn(new CompletableFuture<>());
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), dispatcher::dispatch);
+
+        verify(refundOutboxService).failExhausted();
+        verifyNoMoreInteractions(refundOutboxService);
+    }
+
+    @Test
+    void recordsFailureWhenTheCallFails() {
+        RefundOutbox row = row(3L);
+        when(refundOutboxRepository.claimDue(any(), any(), anyInt(), anyInt())).thenReturn(List.of(row));
+        when(vnPayService.processRefund(any())).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("boom")));
+
+        dispatcher.dispatch();
+
+        verify(refundOutboxService).recordFailure(eq(3L), any(Throwable.class));
+        verify(refundOutboxService, never()).recordResult(any(), any());
+    }
+
+    @Test
+    void oneRowFailingDoesNotStopTheBatch() {
+        RefundOutbox failing = row(4L);
+        RefundOutbox ok = row(5L);
+        VNPayRefundResponse response = VNPayRefundResponse.builder().responseCode("00").build();
+        when(refundOutboxRepository.claimDue(any(), any(), anyInt(), anyInt())).thenReturn(List.of(failing, ok));
+        when(vnPayService.processRefund(any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("boom")))
+                .thenReturn(CompletableFuture.completedFuture(response));
+        doThrow(new IllegalStateException("database down")).when(refundOutboxService).recordFailure(eq(4L), any());
+
+        assertThatCode(dispatcher::dispatch).doesNotThrowAnyException();
+
+        verify(refundOutboxService).recordResult(5L, response);
+    }
+
+    // -- Helper Method -- //
+    private static RefundOutbox row(Long id) {
+        return RefundOutbox.builder()
+                .id(id)
+                .paymentId(100L + id)
+                .orderId(200L + id)
+                .txnRef("TXN" + id)
+                .amount(150_000L)
+                .transactionNo("1461234" + id)
+                .transactionDate("20261018153512")
+                .createBy("admin")
+                .status(RefundOutboxStatus.PENDING)
+                .attempts(1)
+                .nextAttemptAt(LocalDateTime.now())
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.sale_tech_web.feature.payment.service;
+
+import com.example.sale_tech_web.feature.payment.config.PaymentConfig;
+import com.example.sale_tech_web.feature.payment.dto.VNPayRefundResponse;
+import com.example.sale_tech_web.feature.payment.entity.Payment;
+import com.example.sale_tech_web.feature.payment.entity.RefundOutbox;
+import com.example.sale_tech_web.feature.payment.enums.PaymentStatus;
+import com.example.sale_tech_web.feature.payment.enums.RefundOutboxStatus;
+import com.example.sale_tech_web.feature.payment.repository.PaymentRepository;
+import com.example.sale_tech_web.feature.payment.repository.RefundOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RefundOutboxServiceTest {
+
+    @Mock
+    private RefundOutboxRepository refundOutboxRepository;
+    @Mock
+    private PaymentRepository paymentRepository;
+    @InjectMocks
+    private RefundOutboxService refundOutboxService;
+
+    private Payment payment;
+
+    @BeforeEach
+    void setUp() {
+        payment = Payment.builder().id(10L).status(PaymentStatus.REFUND_PENDING).build();
+    }
+
+    @Test
+    void retryableAnswerIsRetriedWithBackoff() {
+        RefundOutbox row = leasedRow(1);
+        stubRow(row);
+
+        refundOutboxService.recordResult(row.getId(), VNPayRefundResponse.builder().responseCode("99").message("timeout").build());
+
+        assertThat(row.getStatus()).isEqualTo(RefundOutboxStatus.PENDING);
+        assertThat(row.getLockedUntil()).isNull();
+        assertThat(row.getNextAttemptAt()).isAfter(LocalDateTime.now());
+        assertThat(payment.getStatus()).isEqualTo(PaymentStatus.REFUND_PENDING);
+    }
+
+    @Test
+    void dispatchFailureIsRetriedWhileAttemptsAreLeft() {
+        RefundOutbox row = leasedRow(PaymentConfig.REFUND_MAX_ATTEMPTS - 1);
+        stubRow(row);
+
+        refundOutboxService.recordFailure(row.getId(), new IllegalStateException("database down"));
+
+        assertThat(row.getStatus()).isEqualTo(RefundOutboxStatus.PENDING);
+        assertThat(row.getLockedUntil()).isNull();
+        assertThat(row.getLastError()).contains("database down");
+    }
+
+    @Test
+    void dispatchFailureOnLastAttemptFailsTheRefund() {
+        RefundOutbox row = leasedRow(PaymentConfig.REFUND_MAX_ATTEMPTS);
+        stubRow(row);
+
+        refundOutboxService.recordFailure(row.getId(), new IllegalStateException("database down"));
+
+        assertThat(row.getStatus()).isEqualTo(RefundOutboxStatus.FAILED);
+        assertThat(payment.getStatus()).isEqualTo(PaymentStatus.REFUND_FAILED);
+    }
+
+    @Test
+    void exhaustedRowsAreFailed() {
+        RefundOutbox row = leasedRow(PaymentConfig.REFUND_MAX_ATTEMPTS);
+        row.setLockedUntil(LocalDateTime.now().minusMinutes(1));
+        when(refundOutboxRepository.findExhausted(any(), eq(PaymentConfig.REFUND_MAX_ATTEMPTS))).thenReturn(List.of(row));
+        when(paymentRepository.findById(payment.getId())).thenReturn(Optional.of(payment));
+
+        refundOutboxService.failExhausted();
+
+        assertThat(row.getStatus()).isEqualTo(RefundOutboxStatus.FAILED);
+        assertThat(payment.getStatus()).isEqualTo(PaymentStatus.REFUND_FAILED);
+    }
+
+    // -- Helper Method -- //
+    private RefundOutbox leasedRow(int attempts) {
+        LocalDateTime now = LocalDateTime.now();
+        return RefundOutbox.builder()
+                .id(1L)
+                .paymentId(payment.getId())
+                .orderId(20L)
+                .amount(150_000L)
+                .status(RefundOutboxStatus.PENDING)
+                .attempts(attempts)
+                .nextAttemptAt(now)
+                .lockedUntil(now.plus(PaymentConfig.REFUND_LEASE))
+                .createdAt(now)
+                .build();
+    }
+
+    private void stubRow(RefundOutbox row) {
+        when(refundOutboxRepository.findById(row.getId())).thenReturn(Optional.of(row));
+        when(paymentRepository.findById(payment.getId())).thenReturn(Optional.of(payment));
+    }
+}
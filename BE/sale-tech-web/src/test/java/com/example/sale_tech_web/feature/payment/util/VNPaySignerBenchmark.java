@@ -0,0 +1,136 @@
+package com.example.sale_tech_web.feature.payment.util;
+
+import com.example.sale_tech_web.feature.payment.config.VNPayConfig;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * VNPaySigner vs the previous VNPayUtil.hashAllFields / hmacSHA512 (Mac.getInstance + init and String.format
+ * per call) on a payment URL and an IPN callback. Not a unit test: run main() from the test classpath, e.g.
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=<this class>}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VNPaySignerBenchmark {
+    private static final String SECRET = "TESTSECRETKEY0123456789ABCDEFGHIJ";
+
+    private VNPaySigner signer;
+    private Map<String, String> paymentFields;
+    private Map<String, String> callbackParams;
+
+    @Setup
+    public void setUp() {
+        VNPayConfig config = new VNPayConfig();
+        config.setHashSecret(SECRET);
+        signer = new VNPaySigner(config);
+
+        paymentFields = new HashMap<>();
+        paymentFields.put("vnp_Version", "2.1.0");
+        paymentFields.put("vnp_Command", "pay");
+        paymentFields.put("vnp_TmnCode", "DEMO0001");
+        paymentFields.put("vnp_Amount", "15000000");
+        paymentFields.put("vnp_CurrCode", "VND");
+        paymentFields.put("vnp_TxnRef", "1729238400123");
+        paymentFields.put("vnp_OrderInfo", "Thanh toan don hang 42");
+        paymentFields.put("vnp_OrderType", "other");
+        paymentFields.put("vnp_Locale", "vn");
+        paymentFields.put("vnp_ReturnUrl", "http://localhost:3000/payment/vnpay-return");
+        paymentFields.put("vnp_IpAddr", "127.0.0.1");
+        paymentFields.put("vnp_CreateDate", "20261018153000");
+        paymentFields.put("vnp_ExpireDate", "20261018154500");
+
+        callbackParams = new HashMap<>(paymentFields);
+        callbackParams.put("vnp_ResponseCode", "00");
+        callbackParams.put("vnp_TransactionStatus", "00");
+        callbackParams.put("vnp_TransactionNo", "14612345");
+        callbackParams.put("vnp_PayDate", "20261018153512");
+        callbackParams.put("vnp_SecureHash", signer.sign(legacyHashData(callbackParams)));
+    }
+
+    @Benchmark
+    public String paymentUrlSigner() {
+        return signer.signedQuery(paymentFields);
+    }
+
+    @Benchmark
+    public String paymentUrlLegacy() {
+        // Bản cũ: encode query và hash data là 2 lần duyệt riêng
+        StringBuilder query = new StringBuilder();
+        List<String> fieldNames = new ArrayList<>(paymentFields.keySet());
+        Collections.sort(fieldNames);
+        for (String fieldName : fieldNames) {
+            if (!query.isEmpty()) {
+                query.append('&');
+            }
+            query.append(URLEncoder.encode(fieldName, StandardCharsets.US_ASCII)).append('=')
+                    .append(URLEncoder.encode(paymentFields.get(fieldName), StandardCharsets.US_ASCII));
+        }
+        return query + "&vnp_SecureHash=" + legacyHmacSHA512(SECRET, legacyHashData(paymentFields));
+    }
+
+    @Benchmark
+    public boolean callbackSigner() {
+        return signer.verify(callbackParams);
+    }
+
+    @Benchmark
+    public boolean callbackLegacy() {
+        Map<String, String> fields = new HashMap<>(callbackParams);
+        String received = fields.remove("vnp_SecureHash");
+        fields.remove("vnp_SecureHashType");
+        return legacyHmacSHA512(SECRET, legacyHashData(fields)).equalsIgnoreCase(received);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(VNPaySignerBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    // -- Helper Method -- //
+    private static String legacyHashData(Map<String, String> fields) {
+        List<String> fieldNames = new ArrayList<>(fields.keySet());
+        Collections.sort(fieldNames);
+        StringBuilder sb = new StringBuilder();
+        Iterator<String> itr = fieldNames.iterator();
+        while (itr.hasNext()) {
+            String fieldName = itr.next();
+            String fieldValue = fields.get(fieldName);
+            if ((fieldValue != null) && (!fieldValue.isEmpty())) {
+                sb.append(fieldName);
+                sb.append('=');
+                sb.append(URLEncoder.encode(fieldValue, StandardCharsets.US_ASCII));
+                if (itr.hasNext()) {
+                    sb.append("&");
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String legacyHmacSHA512(String key, String data) {
+        try {
+            Mac hmac512 = Mac.getInstance("HmacSHA512");
+            hmac512.init(new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA512"));
+            byte[] result = hmac512.doFinal(data.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(2 * result.length);
+            for (byte b : result) {
+                sb.append(String.format("%02x", b & 0xff));
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
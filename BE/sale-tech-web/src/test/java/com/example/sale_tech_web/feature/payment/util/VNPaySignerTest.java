@@ -0,0 +1,195 @@
+package com.example.sale_tech_web.feature.payment.util;
+
+import com.example.sale_tech_web.feature.payment.config.VNPayConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * VNPaySigner must produce byte-identical signatures to the previous VNPayUtil.hashAllFields / hmacSHA512
+ * (golden values computed with that implementation), otherwise VNPay rejects payment URLs and our IPN checks fail.
+ */
+class VNPaySignerTest {
+    private static final String SECRET = "TESTSECRETKEY0123456789ABCDEFGHIJ";
+
+    private VNPaySigner signer;
+
+    @BeforeEach
+    void setUp() {
+        VNPayConfig config = new VNPayConfig();
+        config.setHashSecret(SECRET);
+        signer = new VNPaySigner(config);
+    }
+
+    @Test
+    void signedQueryMatchesGoldenPaymentUrl() {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("vnp_Version", "2.1.0");
+        fields.put("vnp_Command", "pay");
+        fields.put("vnp_TmnCode", "DEMO0001");
+        fields.put("vnp_Amount", "15000000");
+        fields.put("vnp_CurrCode", "VND");
+        fields.put("vnp_TxnRef", "1729238400123");
+        fields.put("vnp_OrderInfo", "Thanh toan don hang 42 (2 san pham) & phi ship=30000");
+        fields.put("vnp_OrderType", "other");
+        fields.put("vnp_Locale", "vn");
+        fields.put("vnp_ReturnUrl", "http://localhost:3000/payment/vnpay-return?source=checkout");
+        fields.put("vnp_IpAddr", "127.0.0.1");
+        fields.put("vnp_CreateDate", "20261018153000");
+        fields.put("vnp_ExpireDate", "20261018154500");
+        fields.put("vnp_BankCode", "");
+
+        assertThat(signer.signedQuery(fields)).isEqualTo(
+                "vnp_Amount=15000000&vnp_Command=pay&vnp_CreateDate=20261018153000&vnp_CurrCode=VND"
+                        + "&vnp_ExpireDate=20261018154500&vnp_IpAddr=127.0.0.1&vnp_Locale=vn"
+                        + "&vnp_OrderInfo=Thanh+toan+don+hang+42+%282+san+pham%29+%26+phi+ship%3D30000"
+                        + "&vnp_OrderType=other"
+                        + "&vnp_ReturnUrl=http%3A%2F%2Flocalhost%3A3000%2Fpayment%2Fvnpay-return%3Fsource%3Dcheckout"
+                        + "&vnp_TmnCode=DEMO0001&vnp_TxnRef=1729238400123&vnp_Version=2.1.0"
+                        + "&vnp_SecureHash=5aff4cb04754a77fa8c3094d508f59e47f45bd95aaef49430956c0a38d2c7732"
+                        + "bbe59cd67fd6970bf965e00dc5e55aaf0f8dbcccba504565d28fcfbc48175d32");
+    }
+
+    @Test
+    void verifiesGoldenCallbackWithNonAsciiValues() {
+        Map<String, String> params = callbackParams();
+        params.put("vnp_SecureHash", "49A9BE8478311BBD3A5A8C9DFA7BB759EC61A4F0236865E8855F563BFC53375E"
+                + "1C297BB1BB7C90EF990AD0E6E4CDBD4D086422D29DE558F79C04D16E3FD5706C");
+
+        assertThat(signer.verify(params)).isTrue();
+        assertThat(params).containsKey("vnp_SecureHash"); // không sửa map của caller
+
+        params.put("vnp_Amount", "15000001");
+        assertThat(signer.verify(params)).isFalse();
+    }
+
+    @Test
+    void rejectsMissingSignature() {
+        assertThat(signer.verify(callbackParams())).isFalse();
+    }
+
+    @Test
+    void signMatchesGoldenPipeSeparatedApiHash() {
+        String data = String.join("|", "12345678", "2.1.0", "refund", "DEMO0001", "02", "1729238400123", "15000000",
+                "14612345", "20261018153512", "admin@example.com", "20261018160000", "127.0.0.1", "Hoan tien don hang 42");
+
+        assertThat(signer.sign(data)).isEqualTo(
+                "06a451db3109d16fca3acfff1642d05504251b3825dabb01425c652e1f4891fc"
+                        + "741c2f2e0e5579d6342a67f01678b420158b0ce51a23f7d069e78527b50b07ab");
+    }
+
+    @Test
+    void matchesLegacyImplementationOnRandomFields() {
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            Map<String, String> fields = randomFields(random);
+            String expected = legacyHmacSHA512(SECRET, legacyHashData(fields));
+
+            assertThat(signer.signedQuery(fields)).endsWith("&vnp_SecureHash=" + expected);
+            fields.put("vnp_SecureHash", expected);
+            assertThat(signer.verify(fields)).isTrue();
+        }
+    }
+
+    @Test
+    void signsConcurrentlyWithPerThreadMac() throws Exception {
+        String data = "vnp_Amount=15000000&vnp_TxnRef=1729238400123";
+        String expected = legacyHmacSHA512(SECRET, data);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                results.add(executor.submit(() -> signer.sign(data)));
+            }
+            for (Future<String> result : results) {
+                assertThat(result.get()).isEqualTo(expected);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // -- Helper Method -- //
+    private static Map<String, String> callbackParams() {
+        Map<String, String> params = new HashMap<>();
+        params.put("vnp_Amount", "15000000");
+        params.put("vnp_BankCode", "NCB");
+        params.put("vnp_BankTranNo", "VNP14612345");
+        params.put("vnp_CardType", "ATM");
+        params.put("vnp_OrderInfo", "Thanh toán đơn hàng 42 ✓ 😀");
+        params.put("vnp_PayDate", "20261018153512");
+        params.put("vnp_ResponseCode", "00");
+        params.put("vnp_TmnCode", "DEMO0001");
+        params.put("vnp_TransactionNo", "14612345");
+        params.put("vnp_TransactionStatus", "00");
+        params.put("vnp_TxnRef", "1729238400123");
+        params.put("vnp_SecureHashType", "HmacSHA512");
+        return params;
+    }
+
+    // Giá trị ASCII (gồm ký tự đặc biệt), tiếng Việt và emoji; field rỗng không nằm cuối
+    // (bản cũ để lại '&' thừa khi field cuối rỗng, VNPay không gửi field rỗng)
+    private static Map<String, String> randomFields(Random random) {
+        String alphabet = "abcXYZ019 .-*_~!@#$%^&()+=/?:;,'\"<>[]{}|\\`ăâđêôơưáàảãạÁỆ✓😀";
+        Map<String, String> fields = new HashMap<>();
+        int count = 1 + random.nextInt(12);
+        for (int i = 0; i < count; i++) {
+            StringBuilder value = new StringBuilder();
+            int length = random.nextInt(20);
+            for (int j = 0; j < length; j++) {
+                value.appendCodePoint(alphabet.codePointAt(alphabet.offsetByCodePoints(0, random.nextInt(alphabet.codePointCount(0, alphabet.length())))));
+            }
+            fields.put("vnp_Field" + (char) ('A' + i), value.toString());
+        }
+        fields.put("vnp_ZZZ", "last");
+        return fields;
+    }
+
+    // Bản VNPayUtil.hashAllFields trước VNPaySigner
+    private static String legacyHashData(Map<String, String> fields) {
+        List<String> fieldNames = new ArrayList<>(fields.keySet());
+        Collections.sort(fieldNames);
+        StringBuilder sb = new StringBuilder();
+        Iterator<String> itr = fieldNames.iterator();
+        while (itr.hasNext()) {
+            String fieldName = itr.next();
+            String fieldValue = fields.get(fieldName);
+            if ((fieldValue != null) && (!fieldValue.isEmpty())) {
+                sb.append(fieldName);
+                sb.append('=');
+                sb.append(URLEncoder.encode(fieldValue, StandardCharsets.US_ASCII));
+                if (itr.hasNext()) {
+                    sb.append("&");
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    // Bản VNPayUtil.hmacSHA512 trước VNPaySigner
+    private static String legacyHmacSHA512(String key, String data) {
+        try {
+            Mac hmac512 = Mac.getInstance("HmacSHA512");
+            hmac512.init(new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA512"));
+            byte[] result = hmac512.doFinal(data.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(2 * result.length);
+            for (byte b : result) {
+                sb.append(String.format("%02x", b & 0xff));
+            }
+            return sb.toString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
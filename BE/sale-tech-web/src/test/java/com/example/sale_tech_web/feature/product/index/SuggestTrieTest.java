@@ -0,0 +1,39 @@
+package com.example.sale_tech_web.feature.product.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SuggestTrieTest {
+
+    @Test
+    void matchesAnyWordPrefixBestScoreFirst() {
+        SuggestTrie trie = new SuggestTrie(10_000);
+        trie.put("PRODUCT", 1L, "Apple iPhone 15", 10);
+        trie.put("PRODUCT", 2L, "iPad Air", 50);
+
+        assertThat(trie.suggest("ip", 5))
+                .extracting(SuggestTrie.Entry::getId)
+                .containsExactly(2L, 1L);
+        assertThat(trie.suggest("apple", 5))
+                .extracting(SuggestTrie.Entry::getId)
+                .containsExactly(1L);
+    }
+
+    @Test
+    void removePrunesNodesLeftEmpty() {
+        SuggestTrie trie = new SuggestTrie(10_000);
+        trie.put("PRODUCT", 1L, "Apple iPhone 15", 10);
+        int nodesWithOneEntry = trie.nodeCount();
+
+        trie.put("PRODUCT", 2L, "Apple Watch", 5);
+        trie.remove("PRODUCT", 2L);
+
+        assertThat(trie.nodeCount()).isEqualTo(nodesWithOneEntry);
+        assertThat(trie.suggest("watch", 5)).isEmpty();
+        assertThat(trie.suggest("apple", 5)).hasSize(1);
+
+        trie.remove("PRODUCT", 1L);
+        assertThat(trie.nodeCount()).isEqualTo(1);
+    }
+}
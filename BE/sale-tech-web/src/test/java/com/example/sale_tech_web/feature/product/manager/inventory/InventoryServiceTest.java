@@ -0,0 +1,116 @@
+package com.example.sale_tech_web.feature.product.manager.inventory;
+
+import com.example.sale_tech_web.feature.product.config.FlashSaleConfig;
+import com.example.sale_tech_web.feature.product.entity.ProductStockShard;
+import com.example.sale_tech_web.feature.product.repository.ProductRepository;
+import com.example.sale_tech_web.feature.product.repository.ProductStockShardRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class InventoryServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private ProductStockShardRepository shardRepository;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @InjectMocks
+    private InventoryService inventoryService;
+
+    @Test
+    void flashSaleEnabledWhileWaitingForTheRowLockReservesFromShards() {
+        // Đọc lần đầu chưa có shard; enableFlashSale commit trong lúc chờ khóa product
+        when(shardRepository.findFlashSaleProductIds(any())).thenReturn(List.of()).thenReturn(List.of(1L));
+        when(shardRepository.reserveFromFreeShard(1L, 2)).thenReturn(List.of(0));
+
+        assertThat(inventoryService.reserve(Map.of(1L, 2))).isEmpty();
+
+        verify(productRepository).lockStock(argThat(ids -> ids.contains(1L)));
+        verify(productRepository, never()).reserveStock(argThat(quantities -> quantities.containsKey(1L)));
+        verify(productRepository, never()).decrementStockForOrder(any(), any());
+    }
+
+    @Test
+    void flashSaleDisabledWhileWaitingReservesFromTheProduct() {
+        when(shardRepository.findFlashSaleProductIds(any())).thenReturn(List.of(1L)).thenReturn(List.of());
+        when(shardRepository.reserveFromFreeShard(1L, 2)).thenReturn(List.of());
+        when(shardRepository.findShardQuantities(1L)).thenReturn(List.of());
+        when(productRepository.reserveStock(Map.of(1L, 2))).thenReturn(Set.of());
+
+        assertThat(inventoryService.reserve(Map.of(1L, 2))).isEmpty();
+
+        verify(productRepository).lockStock(argThat(ids -> ids.contains(1L)));
+    }
+
+    @Test
+    void lockedShardsAreRetriedThenWaitedOnOneShardWithoutLockingTheOthers() {
+        when(shardRepository.findFlashSaleProductIds(any())).thenReturn(List.of(1L));
+        when(shardRepository.reserveFromFreeShard(1L, 2)).thenReturn(List.of());
+        when(shardRepository.findShardQuantities(1L)).thenReturn(List.of(5, 5));
+        when(shardRepository.reserveFromAnyShard(1L, 2)).thenReturn(List.of(1));
+
+        assertThat(inventoryService.reserve(Map.of(1L, 2))).isEmpty();
+
+        verify(shardRepository, times(FlashSaleConfig.FREE_SHARD_ATTEMPTS)).reserveFromFreeShard(1L, 2);
+        verify(shardRepository, never()).lockByProductId(anyLong());
+    }
+
+    @Test
+    void gathersFromAllShardsOnlyWhenNoShardHasEnough() {
+        when(shardRepository.findFlashSaleProductIds(any())).thenReturn(List.of(1L));
+        when(shardRepository.reserveFromFreeShard(1L, 3)).thenReturn(List.of());
+        when(shardRepository.findShardQuantities(1L)).thenReturn(List.of(2, 2));
+        when(shardRepository.currentLockTimeout()).thenReturn("0");
+        List<ProductStockShard> rows = List.of(shard(0, 2), shard(1, 2));
+        when(shardRepository.lockByProductId(1L)).thenReturn(rows);
+
+        assertThat(inventoryService.reserve(Map.of(1L, 3))).isEmpty();
+
+        verify(shardRepository).setLockTimeout(FlashSaleConfig.GATHER_LOCK_TIMEOUT);
+        verify(shardRepository).setLockTimeout("0");
+        verify(shardRepository, never()).reserveFromAnyShard(anyLong(), anyInt());
+        assertThat(rows).extracting(ProductStockShard::getQuantity).containsExactly(0, 1);
+        assertThat(rows).extracting(ProductStockShard::getSold).containsExactly(2, 1);
+    }
+
+    @Test
+    void tooLittleStockAcrossShardsIsShortWithoutLocking() {
+        when(shardRepository.findFlashSaleProductIds(any())).thenReturn(List.of(1L));
+        when(shardRepository.reserveFromFreeShard(1L, 5)).thenReturn(List.of());
+        when(shardRepository.findShardQuantities(1L)).thenReturn(List.of(2, 2));
+
+        assertThat(inventoryService.reserve(Map.of(1L, 5))).containsExactly(1L);
+
+        verify(shardRepository, never()).lockByProductId(anyLong());
+    }
+
+    // -- Helper Method -- //
+    private static ProductStockShard shard(int shardNo, int quantity) {
+        return ProductStockShard.builder()
+                .productId(1L)
+                .shardNo(shardNo)
+                .quantity(quantity)
+                .sold(0)
+                .build();
+    }
+}
@@ -1,4 +1,4 @@
-import { useState, useEffect } from "react";
+import { useState, useEffect, useRef } from "react";
 import apiClient from "../apiClient";
 import { getApiErrorMessage } from '../../utils';
 
@@ -44,14 +44,31 @@ export const useGetOrderDetails = (orderId) => {
     return { orderDetails, loading, error, refetch: fetchDetails };
 };
 
+/**
+ * Poll a queued order ticket until it is COMPLETED or FAILED (each call waits up to 20s on the BE)
+ */
+const waitForOrderTicket = async (ticket) => {
+    let current = ticket;
+    while (current.status === 'QUEUED' || current.status === 'PROCESSING') {
+        const response = await apiClient.get(`${BASE_URL}/tickets/${current.ticketId}`, { params: { wait: 20 } });
+        current = response.data;
+    }
+    return current;
+};
+
 /**
  * Hook to place a new order
  */
 export const usePlaceOrder = () => {
     const [loading, setLoading] = useState(false);
+    // Same key for double-clicks and network retries of one checkout, new key once the BE has answered
+    const idempotencyKeyRef = useRef(null);
 
     const placeOrder = async (orderData) => {
         setLoading(true);
+        if (!idempotencyKeyRef.current) {
+            idempotencyKeyRef.current = crypto.randomUUID();
+        }
         try {
             // Map FE data to BE PlaceOrderRequest format
             const request = {
@@ -64,28 +81,42 @@ export const usePlaceOrder = () => {
                 paymentMethod: orderData.paymentMethod // "VNPAY" or "CASH"
             };
 
-            const response = await apiClient.post(BASE_URL, request);
+            // BE queues the order and returns a ticket, then we long-poll until the order is placed
+            const response = await apiClient.post(BASE_URL, request, {
+                headers: { 'Idempotency-Key': idempotencyKeyRef.current }
+            });
+            idempotencyKeyRef.current = null;
+            const ticket = await waitForOrderTicket(response.data);
+
+            if (ticket.status === 'FAILED') {
+                // Same shape as an API error so the catch below reads the BE message
+                throw { response: { data: { message: ticket.errorMessage } } };
+            }
 
-            // BE returns Object for both VNPAY and CASH
+            // ticket.result is the same Object for both VNPAY and CASH
             // VNPAY: { paymentUrl: "...", txnRef: "...", orderId: ... }
             // CASH: "Order placed successfully for user: username" (string)
+            const result = ticket.result;
 
-            if (typeof response.data === 'object' && response.data.paymentUrl) {
+            if (typeof result === 'object' && result?.paymentUrl) {
                 // VNPay payment response
                 return {
                     success: true,
-                    paymentUrl: response.data.paymentUrl,
-                    txnRef: response.data.txnRef,
-                    orderId: response.data.orderId
+                    paymentUrl: result.paymentUrl,
+                    txnRef: result.txnRef,
+                    orderId: result.orderId
                 };
             } else {
                 // CASH payment response (string message)
                 return {
                     success: true,
-                    message: typeof response.data === 'string' ? response.data : 'Order placed successfully'
+                    message: typeof result === 'string' ? result : 'Order placed successfully'
                 };
             }
         } catch (err) {
+            if (err?.response) {
+                idempotencyKeyRef.current = null;
+            }
             const errorMessage = getApiErrorMessage(err, 'Failed to place order');
             // console.error('Error placing order:', err);
             throw new Error(errorMessage);
@@ -47,3 +47,10 @@ export const completePMOrder = async (orderId) => {
     return response.data;
 };
 
+
+// Bulk: payload = {orderIds} hoặc filter {keyword, startDate, endDate}; reason cho reject
+// action: 'approve' | 'reject' | 'shipping' | 'complete' -> {action, succeeded, failed, outcomes}
+export const bulkUpdatePMOrders = async (action, payload) => {
+    const response = await apiClient.patch(`/pm/orders/bulk/${action}`, payload);
+    return response.data;
+};
@@ -32,7 +32,7 @@ function CartGrid({products, count}) {
             // Initialize input values
             const initialValues = {};
             products.forEach(p => {
-                initialValues[p.cartDetailId] = p.quantity;
+                initialValues[p.productList.id] = p.quantity;
             });
             setInputValues(initialValues);
         } else {
@@ -52,7 +52,7 @@ function CartGrid({products, count}) {
             setSelectAll(cartDetailDTO.every(p => p.selected));
             const newValues = {};
             cartDetailDTO.forEach(p => {
-                newValues[p.cartDetailId] = p.quantity;
+                newValues[p.productList.id] = p.quantity;
             });
             setInputValues(newValues);
         } else {
@@ -61,8 +61,8 @@ function CartGrid({products, count}) {
         }
     }, [count]);
 
-    const handleQuantitySubmit = useCallback(async (productId, newQuantity, cartDetailId) => {
-        setUpdatingProducts(prev => new Set(prev).add(cartDetailId));
+    const handleQuantitySubmit = useCallback(async (productId, newQuantity) => {
+        setUpdatingProducts(prev => new Set(prev).add(productId));
         try {
             const cartData = await updateCartQuantity(productId, newQuantity);
             updateCartFromResponse(cartData);
@@ -70,22 +70,22 @@ function CartGrid({products, count}) {
         } catch (err) {
             triggerToast('error', err);
             // Revert to original value from products prop
-            const originalProduct = products.find(p => p.cartDetailId === cartDetailId);
+            const originalProduct = products.find(p => p.productList.id === productId);
             if (originalProduct) {
-                setInputValues(prev => ({...prev, [cartDetailId]: originalProduct.quantity}));
+                setInputValues(prev => ({...prev, [productId]: originalProduct.quantity}));
             }
         } finally {
             setUpdatingProducts(prev => {
                 const next = new Set(prev);
-                next.delete(cartDetailId);
+                next.delete(productId);
                 return next;
             });
         }
     }, [updateCartFromResponse, triggerToast, products]);
 
     const handleQuantityChange = (cartDetail, check) => {
-        const cartDetailId = cartDetail.cartDetailId;
-        const currentQty = inputValues[cartDetailId] || cartDetail.quantity;
+        const productId = cartDetail.productList.id;
+        const currentQty = inputValues[productId] || cartDetail.quantity;
         let newQty;
 
         if (check) {
@@ -101,32 +101,32 @@ function CartGrid({products, count}) {
         }
 
         // Update local state immediately
-        setInputValues(prev => ({...prev, [cartDetailId]: newQty}));
+        setInputValues(prev => ({...prev, [productId]: newQty}));
 
         // Clear existing timer
-        if (clickTimers.current[cartDetailId]) {
-            clearTimeout(clickTimers.current[cartDetailId]);
+        if (clickTimers.current[productId]) {
+            clearTimeout(clickTimers.current[productId]);
         }
 
         // Set new timer - call API after 1 second of no clicks
-        clickTimers.current[cartDetailId] = setTimeout(() => {
-            handleQuantitySubmit(cartDetail.productList.id, newQty, cartDetailId);
+        clickTimers.current[productId] = setTimeout(() => {
+            handleQuantitySubmit(productId, newQty);
         }, 1000);
     };
 
-    const handleInputChange = (cartDetailId, productId, currentQuantity, newValue) => {
+    const handleInputChange = (productId, currentQuantity, newValue) => {
         // Allow empty string temporarily for user to type
         if (newValue === '') {
-            setInputValues(prev => ({...prev, [cartDetailId]: ''}));
+            setInputValues(prev => ({...prev, [productId]: ''}));
 
             // Clear existing timer
-            if (updateTimers.current[cartDetailId]) {
-                clearTimeout(updateTimers.current[cartDetailId]);
+            if (updateTimers.current[productId]) {
+                clearTimeout(updateTimers.current[productId]);
             }
 
             // Set timer to revert to current quantity if user doesn't type
-            updateTimers.current[cartDetailId] = setTimeout(() => {
-                setInputValues(prev => ({...prev, [cartDetailId]: currentQuantity}));
+            updateTimers.current[productId] = setTimeout(() => {
+                setInputValues(prev => ({...prev, [productId]: currentQuantity}));
             }, 2000);
             return;
         }
@@ -135,18 +135,18 @@ function CartGrid({products, count}) {
         const numValue = parseInt(newValue);
 
         // Update local display immediately (even if invalid, to show what user typed)
-        setInputValues(prev => ({...prev, [cartDetailId]: newValue}));
+        setInputValues(prev => ({...prev, [productId]: newValue}));
 
         // Clear existing timer
-        if (updateTimers.current[cartDetailId]) {
-            clearTimeout(updateTimers.current[cartDetailId]);
+        if (updateTimers.current[productId]) {
+            clearTimeout(updateTimers.current[productId]);
         }
 
         // Validate input
         if (isNaN(numValue) || numValue < 1 || numValue > 10) {
             // Revert after delay if invalid
-            updateTimers.current[cartDetailId] = setTimeout(() => {
-                setInputValues(prev => ({...prev, [cartDetailId]: currentQuantity}));
+            updateTimers.current[productId] = setTimeout(() => {
+                setInputValues(prev => ({...prev, [productId]: currentQuantity}));
                 if (!isNaN(numValue)) {
                     triggerToast('error', 'Quantity must be between 1 and 10');
                 }
@@ -156,8 +156,8 @@ function CartGrid({products, count}) {
 
         // If valid and different, update after delay
         if (numValue !== currentQuantity) {
-            updateTimers.current[cartDetailId] = setTimeout(() => {
-                handleQuantitySubmit(productId, numValue, cartDetailId);
+            updateTimers.current[productId] = setTimeout(() => {
+                handleQuantitySubmit(productId, numValue);
             }, 1000);
         }
     };
@@ -266,9 +266,9 @@ function CartGrid({products, count}) {
                 {localProducts.map(cd => (
                     <div
                         className={'cart-item'}
-                        key={cd.cartDetailId}
+                        key={cd.productList.id}
                     >
-                        {updatingProducts.has(cd.cartDetailId) && (
+                        {updatingProducts.has(cd.productList.id) && (
                             <div className="item-updating-overlay">
                                 <div className="mini-spinner"></div>
                             </div>
@@ -307,7 +307,7 @@ function CartGrid({products, count}) {
                                 <button
                                     className="quantity-btn"
                                     onClick={() => handleQuantityChange(cd, 0)}
-                                    disabled={updatingProducts.has(cd.cartDetailId)}
+                                    disabled={updatingProducts.has(cd.productList.id)}
                                 >
                                     -
                                 </button>
@@ -317,9 +317,8 @@ function CartGrid({products, count}) {
                                     className="quantity-input"
                                     min="1"
                                     max="10"
-                                    value={inputValues[cd.cartDetailId] ?? cd.quantity}
+                                    value={inputValues[cd.productList.id] ?? cd.quantity}
                                     onChange={(e) => handleInputChange(
-                                        cd.cartDetailId,
                                         cd.productList.id,
                                         cd.quantity,
                                         e.target.value
@@ -327,16 +326,16 @@ function CartGrid({products, count}) {
                                     onBlur={(e) => {
                                         // If empty on blur, restore to current quantity
                                         if (e.target.value === '' || e.target.value === null) {
-                                            setInputValues(prev => ({...prev, [cd.cartDetailId]: cd.quantity}));
+                                            setInputValues(prev => ({...prev, [cd.productList.id]: cd.quantity}));
                                         }
                                     }}
-                                    disabled={updatingProducts.has(cd.cartDetailId)}
+                                    disabled={updatingProducts.has(cd.productList.id)}
                                 />
 
                                 <button
                                     className="quantity-btn"
                                     onClick={() => handleQuantityChange(cd, 1)}
-                                    disabled={updatingProducts.has(cd.cartDetailId)}
+                                    disabled={updatingProducts.has(cd.productList.id)}
                                 >
                                     +
                                 </button>
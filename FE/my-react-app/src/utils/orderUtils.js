@@ -14,6 +14,7 @@ export const PAYMENT_STATUS = {
     FAILED: 'FAILED',
     PAID: 'PAID',
     PENDING: 'PENDING',
+    REFUND_PENDING: 'REFUND_PENDING',
     REFUND_FAILED: 'REFUND_FAILED'
 };
 
@@ -22,6 +23,7 @@ export const PAYMENT_STATUS_FILTERS = [
     { value: PAYMENT_STATUS.PENDING, label: 'Pending' },
     { value: PAYMENT_STATUS.PAID, label: 'Paid' },
     { value: PAYMENT_STATUS.FAILED, label: 'Failed' },
+    { value: PAYMENT_STATUS.REFUND_PENDING, label: 'Refund Pending' },
     { value: PAYMENT_STATUS.REFUND, label: 'Refunded' },
     { value: PAYMENT_STATUS.REFUND_FAILED, label: 'Refund Failed' },
 ];
@@ -43,6 +45,7 @@ export const getPaymentStatusColor = (status) => {
         PENDING: '#FFA500',       // Vàng: Chờ thanh toán
         PAID: '#28A745',          // Xanh lá: Đã thu tiền
         FAILED: '#DC3545',        // Đỏ: Thanh toán lỗi
+        REFUND_PENDING: '#9B7BE0', // Tím nhạt: Đang chờ VNPay hoàn tiền
         REFUND: '#6610F2',        // Tím: Đã hoàn tiền (Dễ phân biệt với các màu khác)
         REFUND_FAILED: '#A52A2A'  // Nâu đỏ: Lỗi hoàn tiền (Cực kỳ nguy hiểm)
     };